@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.Pool;
+import org.candlepin.model.PoolCurator;
+import org.candlepin.model.PoolQuantity;
+import org.candlepin.model.Product;
+import org.candlepin.policy.js.autobind.AutobindRules;
+import org.candlepin.policy.js.compliance.ComplianceRules;
+import org.candlepin.policy.js.compliance.ComplianceStatus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures selecting the pools with which to heal a system through the Rhino autobind rules,
+ * choosing among the given number of available pools.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AutobindRulesBenchmark {
+
+    // The number of products installed on the system being healed
+    private static final int INSTALLED_PRODUCTS = 5;
+
+    @Param({ "10", "100", "500" })
+    public int pools;
+
+    private BenchmarkFixture fixture;
+    private AutobindRules autobindRules;
+
+    private Consumer consumer;
+    private String[] productIds;
+    private List<Pool> availablePools;
+    private ComplianceStatus compliance;
+    private Set<String> exemptLevels;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.fixture = new BenchmarkFixture();
+        this.fixture.start();
+
+        final DataGenerator generator = this.fixture.getInstance(DataGenerator.class);
+        final DataGenerator.Organization org = this.fixture.inTransaction(
+            new BenchmarkFixture.Work<DataGenerator.Organization>() {
+                @Override
+                public DataGenerator.Organization run() {
+                    DataGenerator.Organization org = generator.createOrganization("autobind-benchmark",
+                        pools, 5, 0, 0);
+
+                    // An unentitled system with a handful of the org's products installed
+                    org.getConsumers().add(generator.createConsumer(org.getOwner(),
+                        org.getProducts().subList(0, Math.min(INSTALLED_PRODUCTS, pools))));
+
+                    return org;
+                }
+            });
+
+        this.autobindRules = this.fixture.getInstance(AutobindRules.class);
+
+        this.consumer = this.fixture.getInstance(ConsumerCurator.class)
+            .find(org.getConsumers().get(0).getId());
+
+        List<String> installed = new ArrayList<String>();
+        for (Product product : org.getProducts().subList(0, Math.min(INSTALLED_PRODUCTS, pools))) {
+            installed.add(product.getId());
+        }
+        this.productIds = installed.toArray(new String[installed.size()]);
+
+        PoolCurator poolCurator = this.fixture.getInstance(PoolCurator.class);
+        this.availablePools = new ArrayList<Pool>();
+        for (Pool pool : org.getPools()) {
+            this.availablePools.add(poolCurator.find(pool.getId()));
+        }
+
+        this.compliance = this.fixture.getInstance(ComplianceRules.class)
+            .getStatus(this.consumer, new Date(), false, false);
+        this.exemptLevels = new HashSet<String>();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.fixture.stop();
+    }
+
+    @Benchmark
+    public List<PoolQuantity> selectBestPools() {
+        return this.autobindRules.selectBestPools(this.consumer, this.productIds, this.availablePools,
+            this.compliance, null, this.exemptLevels, false);
+    }
+
+}
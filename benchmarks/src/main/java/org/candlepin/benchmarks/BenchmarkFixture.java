@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.config.DatabaseConfigFactory;
+import org.candlepin.guice.CandlepinRequestScope;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.PersistService;
+
+import org.hibernate.jpa.boot.internal.ParsedPersistenceXmlDescriptor;
+import org.hibernate.jpa.boot.internal.PersistenceXmlParser;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+
+
+/**
+ * The BenchmarkFixture builds the in-memory HSQLDB database used by the benchmarks from the
+ * testing changelog, and provides an injector backed by it.
+ * <p></p>
+ * The database lives only as long as the fixture's connection, so a fixture should be started
+ * once per trial, from a benchmark's setup method, and stopped from its tear down method.
+ */
+public class BenchmarkFixture {
+
+    private static final String PERSISTENCE_UNIT = "testing";
+    private static final String CHANGELOG = "db/changelog/changelog-testing.xml";
+
+    private final Configuration config;
+
+    private Connection connection;
+    private Injector injector;
+    private CandlepinRequestScope requestScope;
+
+    public BenchmarkFixture() {
+        this(Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Creates a new fixture, overriding the default configuration with the given properties.
+     *
+     * @param overrides
+     *  configuration properties to set in addition to the defaults
+     */
+    public BenchmarkFixture(Map<String, String> overrides) {
+        this.config = MapConfiguration.merge(
+            new MapConfiguration(overrides),
+            new MapConfiguration(DatabaseConfigFactory.POSTGRESQL_CONFIG),
+            new MapConfiguration(ConfigProperties.DEFAULT_PROPERTIES));
+    }
+
+    /**
+     * Creates the database schema and the injector, and enters the request scope on the calling
+     * thread.
+     */
+    public void start() throws Exception {
+        // This connection keeps the in-memory database alive until the fixture is stopped
+        this.connection = DriverManager.getConnection(getJdbcUrl(), "sa", "");
+
+        Database database = DatabaseFactory.getInstance()
+            .findCorrectDatabaseImplementation(new JdbcConnection(this.connection));
+
+        Liquibase liquibase = new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database);
+        liquibase.update("test");
+
+        this.injector = Guice.createInjector(new BenchmarkModule(this.config));
+        this.requestScope = this.injector.getInstance(CandlepinRequestScope.class);
+        this.requestScope.enter();
+    }
+
+    /**
+     * Leaves the request scope, shuts down the persistence service and drops the database.
+     */
+    public void stop() throws Exception {
+        if (this.injector != null) {
+            this.requestScope.exit();
+            this.injector.getInstance(PersistService.class).stop();
+            this.injector = null;
+        }
+
+        if (this.connection != null) {
+            Statement statement = this.connection.createStatement();
+            try {
+                statement.execute("SHUTDOWN");
+            }
+            finally {
+                statement.close();
+                this.connection.close();
+                this.connection = null;
+            }
+        }
+    }
+
+    public Configuration getConfig() {
+        return this.config;
+    }
+
+    public Injector getInjector() {
+        return this.injector;
+    }
+
+    public <T> T getInstance(Class<T> type) {
+        return this.injector.getInstance(type);
+    }
+
+    public EntityManager getEntityManager() {
+        return this.injector.getInstance(EntityManager.class);
+    }
+
+    /**
+     * Runs the given work in a transaction, committing it if the work completes successfully.
+     * The persistence context is cleared afterward, so the benchmarks start from a cold session,
+     * as a request would.
+     *
+     * @param work
+     *  the work to run in the transaction
+     */
+    public <T> T inTransaction(Work<T> work) throws Exception {
+        EntityManager manager = this.getEntityManager();
+        EntityTransaction transaction = manager.getTransaction();
+        transaction.begin();
+
+        try {
+            T result = work.run();
+            transaction.commit();
+
+            return result;
+        }
+        finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            manager.clear();
+        }
+    }
+
+    /**
+     * A unit of work to run in a transaction.
+     *
+     * @param <T>
+     *  the type of the work's result
+     */
+    public interface Work<T> {
+        T run() throws Exception;
+    }
+
+    private static String getJdbcUrl() {
+        for (ParsedPersistenceXmlDescriptor unit :
+            PersistenceXmlParser.locatePersistenceUnits(Collections.emptyMap())) {
+
+            if (unit.getName().equals(PERSISTENCE_UNIT)) {
+                return unit.getProperties().getProperty("hibernate.connection.url");
+            }
+        }
+
+        throw new IllegalStateException("Couldn't locate persistence unit: " + PERSISTENCE_UNIT);
+    }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.audit.EventSink;
+import org.candlepin.audit.NoopEventSinkImpl;
+import org.candlepin.cache.JCacheManagerProvider;
+import org.candlepin.common.config.Configuration;
+import org.candlepin.common.guice.JPAInitializer;
+import org.candlepin.common.validation.CandlepinMessageInterpolator;
+import org.candlepin.guice.CandlepinRequestScope;
+import org.candlepin.guice.CandlepinRequestScoped;
+import org.candlepin.guice.ValidationListenerProvider;
+import org.candlepin.model.CPRestrictions;
+import org.candlepin.policy.js.JsRunner;
+import org.candlepin.policy.js.JsRunnerProvider;
+import org.candlepin.util.X509ExtensionUtil;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.google.inject.persist.jpa.JpaPersistModule;
+
+import org.hibernate.cfg.beanvalidation.BeanValidationEventListener;
+import org.hibernate.validator.HibernateValidator;
+import org.hibernate.validator.HibernateValidatorConfiguration;
+import org.xnap.commons.i18n.I18n;
+import org.xnap.commons.i18n.I18nFactory;
+
+import java.util.Locale;
+import java.util.Properties;
+
+import javax.cache.CacheManager;
+import javax.inject.Provider;
+import javax.validation.MessageInterpolator;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+
+
+
+/**
+ * The BenchmarkModule wires up the parts of Candlepin exercised by the benchmarks against the
+ * in-memory HSQLDB "testing" persistence unit. Unlike the CandlepinModule, it binds nothing
+ * which requires a servlet container, message broker or scheduler.
+ */
+public class BenchmarkModule extends AbstractModule {
+
+    private final Configuration config;
+
+    public BenchmarkModule(Configuration config) {
+        this.config = config;
+    }
+
+    @Override
+    protected void configure() {
+        install(new JpaPersistModule("testing"));
+        bind(JPAInitializer.class).asEagerSingleton();
+
+        bind(BeanValidationEventListener.class).toProvider(ValidationListenerProvider.class);
+        bind(MessageInterpolator.class).to(CandlepinMessageInterpolator.class);
+
+        bind(Configuration.class).toInstance(this.config);
+        bind(I18n.class).toInstance(I18nFactory.getI18n(getClass(), Locale.US, I18nFactory.FALLBACK));
+
+        CandlepinRequestScope requestScope = new CandlepinRequestScope();
+        bindScope(CandlepinRequestScoped.class, requestScope);
+        bind(CandlepinRequestScope.class).toInstance(requestScope);
+
+        bind(CacheManager.class).toProvider(JCacheManagerProvider.class).in(Singleton.class);
+        bind(EventSink.class).to(NoopEventSinkImpl.class);
+
+        // Not eager, as the provider loads the rules from the database, which the fixture only
+        // creates once the injector exists
+        bind(JsRunnerProvider.class).in(Singleton.class);
+        bind(JsRunner.class).toProvider(JsRunnerProvider.class);
+
+        bind(X509ExtensionUtil.class);
+
+        requestStaticInjection(CPRestrictions.class);
+    }
+
+    @Provides @Named("ValidationProperties")
+    protected Properties getValidationProperties() {
+        return new Properties();
+    }
+
+    @Provides
+    protected ValidatorFactory getValidationFactory(Provider<MessageInterpolator> interpolatorProvider) {
+        HibernateValidatorConfiguration configure =
+            Validation.byProvider(HibernateValidator.class).configure();
+
+        configure.messageInterpolator(interpolatorProvider.get());
+        return configure.buildValidatorFactory();
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.policy.js.compliance.ComplianceRules;
+import org.candlepin.policy.js.compliance.ComplianceStatus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures calculating the compliance status of a system through the Rhino rules, for a system
+ * with the given number of installed products and entitlements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ComplianceRulesBenchmark {
+
+    @Param({ "1", "10", "50" })
+    public int entitlements;
+
+    private BenchmarkFixture fixture;
+    private ComplianceRules complianceRules;
+    private Consumer consumer;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.fixture = new BenchmarkFixture();
+        this.fixture.start();
+
+        final DataGenerator generator = this.fixture.getInstance(DataGenerator.class);
+        final DataGenerator.Organization org = this.fixture.inTransaction(
+            new BenchmarkFixture.Work<DataGenerator.Organization>() {
+                @Override
+                public DataGenerator.Organization run() {
+                    return generator.createOrganization("compliance-benchmark", entitlements, 5, 1,
+                        entitlements);
+                }
+            });
+
+        this.complianceRules = this.fixture.getInstance(ComplianceRules.class);
+        this.consumer = this.fixture.getInstance(ConsumerCurator.class)
+            .find(org.getConsumers().get(0).getId());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.fixture.stop();
+    }
+
+    @Benchmark
+    public ComplianceStatus currentStatus() {
+        return this.complianceRules.getStatus(this.consumer, null, false, false);
+    }
+
+    @Benchmark
+    public ComplianceStatus statusWithCompliantUntil() {
+        return this.complianceRules.getStatus(this.consumer, new Date(), true, false);
+    }
+
+}
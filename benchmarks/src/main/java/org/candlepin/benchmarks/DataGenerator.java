@@ -0,0 +1,371 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.ConsumerInstalledProduct;
+import org.candlepin.model.ConsumerType;
+import org.candlepin.model.ConsumerType.ConsumerTypeEnum;
+import org.candlepin.model.ConsumerTypeCurator;
+import org.candlepin.model.Content;
+import org.candlepin.model.ContentCurator;
+import org.candlepin.model.Entitlement;
+import org.candlepin.model.EntitlementCurator;
+import org.candlepin.model.Owner;
+import org.candlepin.model.OwnerContentCurator;
+import org.candlepin.model.OwnerCurator;
+import org.candlepin.model.OwnerProductCurator;
+import org.candlepin.model.Pool;
+import org.candlepin.model.PoolCurator;
+import org.candlepin.model.Product;
+import org.candlepin.model.ProductCurator;
+import org.candlepin.model.SourceSubscription;
+import org.candlepin.util.Util;
+
+import com.google.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+
+
+/**
+ * The DataGenerator populates the benchmark database with organizations shaped like those of a
+ * production deployment: engineering products with dozens of yum repositories, marketing SKUs
+ * with stacking and support attributes providing several engineering products, and systems
+ * reporting the usual hardware facts, with installed products and entitlements to those SKUs.
+ * <p></p>
+ * Values are drawn from a fixed seed, so every run of a benchmark sees the same data.
+ */
+public class DataGenerator {
+
+    private static final long SEED = 20161019L;
+
+    private static final String[] SUPPORT_LEVELS = { "Premium", "Standard", "Self-Support" };
+    private static final String[] ARCHES = { "x86_64", "ppc64le", "s390x", "aarch64" };
+    private static final String[] CONTENT_VARIANTS = { "os", "debug", "source/SRPMS", "optional/os",
+        "supplementary/os", "extras/os", "rh-common/os", "rhscl/1/os" };
+
+    private final OwnerCurator ownerCurator;
+    private final ContentCurator contentCurator;
+    private final OwnerContentCurator ownerContentCurator;
+    private final ProductCurator productCurator;
+    private final OwnerProductCurator ownerProductCurator;
+    private final PoolCurator poolCurator;
+    private final ConsumerTypeCurator consumerTypeCurator;
+    private final ConsumerCurator consumerCurator;
+    private final EntitlementCurator entitlementCurator;
+
+    private final Random random;
+    private int nextId;
+    private ConsumerType systemType;
+
+    @Inject
+    public DataGenerator(OwnerCurator ownerCurator, ContentCurator contentCurator,
+        OwnerContentCurator ownerContentCurator, ProductCurator productCurator,
+        OwnerProductCurator ownerProductCurator, PoolCurator poolCurator,
+        ConsumerTypeCurator consumerTypeCurator, ConsumerCurator consumerCurator,
+        EntitlementCurator entitlementCurator) {
+
+        this.ownerCurator = ownerCurator;
+        this.contentCurator = contentCurator;
+        this.ownerContentCurator = ownerContentCurator;
+        this.productCurator = productCurator;
+        this.ownerProductCurator = ownerProductCurator;
+        this.poolCurator = poolCurator;
+        this.consumerTypeCurator = consumerTypeCurator;
+        this.consumerCurator = consumerCurator;
+        this.entitlementCurator = entitlementCurator;
+
+        this.random = new Random(SEED);
+        this.nextId = 1000;
+    }
+
+    /**
+     * Generates a numeric ID, as V1 certificates require of product and content IDs.
+     */
+    private String nextId() {
+        return String.valueOf(this.nextId++);
+    }
+
+    private <T> T pick(T[] values) {
+        return values[this.random.nextInt(values.length)];
+    }
+
+    private static Date yearsFromNow(int years) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.YEAR, years);
+
+        return calendar.getTime();
+    }
+
+    public Owner createOwner(String key) {
+        return this.ownerCurator.create(new Owner(key, "Benchmark Organization " + key));
+    }
+
+    /**
+     * Creates the yum repositories of an engineering product.
+     *
+     * @param owner
+     *  the owner of the content
+     *
+     * @param productLabel
+     *  the label of the product, used to build the repository labels and paths
+     *
+     * @param count
+     *  the number of repositories to create
+     *
+     * @return
+     *  the new content
+     */
+    public List<Content> createContent(Owner owner, String productLabel, int count) {
+        List<Content> content = new ArrayList<Content>(count);
+
+        for (int i = 0; i < count; ++i) {
+            String variant = CONTENT_VARIANTS[i % CONTENT_VARIANTS.length];
+            String label = String.format("%s-%d-%s-rpms", productLabel, i / CONTENT_VARIANTS.length,
+                variant.replace('/', '-'));
+
+            Content repo = new Content(this.nextId(), label.replace('-', ' '), "yum", label, "Red Hat");
+            repo.setContentUrl(String.format("/content/dist/%s/%d/$releasever/$basearch/%s",
+                productLabel, i / CONTENT_VARIANTS.length, variant));
+            repo.setGpgUrl("file:///etc/pki/rpm-gpg/RPM-GPG-KEY-redhat-release");
+            repo.setArches(this.pick(ARCHES));
+            repo.setMetadataExpire(86400L);
+
+            if (this.random.nextInt(4) == 0) {
+                repo.setRequiredTags("rhel-7-server");
+            }
+
+            repo = this.contentCurator.create(repo);
+            this.ownerContentCurator.mapContentToOwner(repo, owner);
+            content.add(repo);
+        }
+
+        return content;
+    }
+
+    /**
+     * Creates an engineering product providing the given content, of which roughly one in five
+     * repositories is disabled by default.
+     */
+    public Product createEngineeringProduct(Owner owner, String name, Collection<Content> content) {
+        Product product = new Product(this.nextId(), name, null);
+        product.setAttribute(Product.Attributes.VERSION, "7." + this.random.nextInt(5));
+        product.setAttribute(Product.Attributes.ARCHITECTURE, this.pick(ARCHES));
+        product.setAttribute(Product.Attributes.BRANDING_TYPE, "OS");
+
+        for (Content repo : content) {
+            product.addContent(repo, this.random.nextInt(5) != 0);
+        }
+
+        product = this.productCurator.create(product);
+        this.ownerProductCurator.mapProductToOwner(product, owner);
+
+        return product;
+    }
+
+    /**
+     * Creates a socket-based, stackable marketing SKU.
+     */
+    public Product createSku(Owner owner, String name, String stackingId) {
+        Product sku = new Product("RH" + this.nextId(), name, null);
+        sku.setAttribute(Product.Attributes.TYPE, "MKT");
+        sku.setAttribute(Product.Attributes.SOCKETS, "2");
+        sku.setAttribute(Product.Attributes.ARCHITECTURE, "x86_64,ppc64le,s390x,aarch64");
+        sku.setAttribute(Product.Attributes.SUPPORT_LEVEL, this.pick(SUPPORT_LEVELS));
+        sku.setAttribute(Product.Attributes.SUPPORT_TYPE, "L1-L3");
+        sku.setAttribute(Product.Attributes.STACKING_ID, stackingId);
+        sku.setAttribute(Product.Attributes.VARIANT, "Server");
+        sku.setAttribute(Pool.Attributes.MULTI_ENTITLEMENT, "yes");
+        sku.setAttribute(Product.Attributes.WARNING_PERIOD, "30");
+
+        sku = this.productCurator.create(sku);
+        this.ownerProductCurator.mapProductToOwner(sku, owner);
+
+        return sku;
+    }
+
+    public Pool createPool(Owner owner, Product sku, Collection<Product> provided, long quantity) {
+        Pool pool = new Pool(owner, sku, new HashSet<Product>(provided), quantity, yearsFromNow(-1),
+            yearsFromNow(1), "C" + this.nextId(), "A" + this.nextId(), "O" + this.nextId());
+
+        pool.setSourceSubscription(new SourceSubscription(Util.generateDbUUID(), "master"));
+
+        return this.poolCurator.create(pool);
+    }
+
+    private ConsumerType getSystemType() {
+        if (this.systemType == null) {
+            this.systemType = this.consumerTypeCurator.lookupByLabel(ConsumerTypeEnum.SYSTEM.getLabel());
+
+            if (this.systemType == null) {
+                this.systemType = this.consumerTypeCurator.create(new ConsumerType(ConsumerTypeEnum.SYSTEM));
+            }
+        }
+
+        return this.systemType;
+    }
+
+    /**
+     * Creates a physical system reporting the usual hardware facts, with the given products
+     * installed.
+     */
+    public Consumer createConsumer(Owner owner, Collection<Product> installed) {
+        Consumer consumer = new Consumer("system-" + this.nextId(), "admin", owner, this.getSystemType());
+
+        int sockets = 1 << this.random.nextInt(4);
+        consumer.setFact("cpu.cpu_socket(s)", String.valueOf(sockets));
+        consumer.setFact("cpu.core(s)_per_socket", "4");
+        consumer.setFact("memory.memtotal", String.valueOf((1 + this.random.nextInt(64)) * 1024 * 1024));
+        consumer.setFact("uname.machine", "x86_64");
+        consumer.setFact("virt.is_guest", "false");
+        consumer.setFact("distribution.name", "Red Hat Enterprise Linux Server");
+        consumer.setFact("distribution.version", "7.3");
+        consumer.setFact("system.certificate_version", "3.3");
+        consumer.setLastCheckin(new Date());
+
+        for (Product product : installed) {
+            consumer.addInstalledProduct(new ConsumerInstalledProduct(product));
+        }
+
+        return this.consumerCurator.create(consumer);
+    }
+
+    public Entitlement createEntitlement(Consumer consumer, Pool pool, int quantity) {
+        Entitlement entitlement = new Entitlement();
+        entitlement.setId(Util.generateDbUUID());
+        entitlement.setOwner(consumer.getOwner());
+        entitlement.setPool(pool);
+        entitlement.setConsumer(consumer);
+        entitlement.setQuantity(quantity);
+
+        this.entitlementCurator.create(entitlement);
+
+        // Maintain runtime consistency
+        consumer.addEntitlement(entitlement);
+        pool.getEntitlements().add(entitlement);
+
+        return entitlement;
+    }
+
+    /**
+     * Creates an organization with a catalog of products and pools, and a set of systems
+     * entitled to them.
+     *
+     * @param key
+     *  the key of the organization
+     *
+     * @param products
+     *  the number of engineering products; each is provided by its own SKU and pool
+     *
+     * @param contentPerProduct
+     *  the number of repositories provided by each engineering product
+     *
+     * @param consumers
+     *  the number of systems to register
+     *
+     * @param entitlementsPerConsumer
+     *  the number of pools each system consumes from, and of products it has installed
+     *
+     * @return
+     *  the generated organization
+     */
+    public Organization createOrganization(String key, int products, int contentPerProduct,
+        int consumers, int entitlementsPerConsumer) {
+
+        Organization org = new Organization(this.createOwner(key));
+
+        for (int i = 0; i < products; ++i) {
+            String label = String.format("%s-product-%d", key, i);
+
+            List<Content> content = this.createContent(org.owner, label, contentPerProduct);
+            Product product = this.createEngineeringProduct(org.owner, label, content);
+            Product sku = this.createSku(org.owner, label + " Subscription", "stack-" + (i % 4));
+            List<Product> provided = new ArrayList<Product>();
+            provided.add(product);
+
+            org.products.add(product);
+            org.skus.add(sku);
+            org.pools.add(this.createPool(org.owner, sku, provided, consumers * 4L));
+        }
+
+        for (int i = 0; i < consumers; ++i) {
+            List<Product> installed = new ArrayList<Product>();
+            List<Pool> consumed = new ArrayList<Pool>();
+
+            for (int j = 0; j < entitlementsPerConsumer && j < products; ++j) {
+                int index = (i + j) % products;
+                installed.add(org.products.get(index));
+                consumed.add(org.pools.get(index));
+            }
+
+            Consumer consumer = this.createConsumer(org.owner, installed);
+            for (Pool pool : consumed) {
+                this.createEntitlement(consumer, pool, 1);
+            }
+
+            org.consumers.add(consumer);
+        }
+
+        return org;
+    }
+
+    /**
+     * The entities generated for an organization.
+     */
+    public static class Organization {
+        private final Owner owner;
+        private final List<Product> products;
+        private final List<Product> skus;
+        private final List<Pool> pools;
+        private final List<Consumer> consumers;
+
+        private Organization(Owner owner) {
+            this.owner = owner;
+            this.products = new ArrayList<Product>();
+            this.skus = new ArrayList<Product>();
+            this.pools = new ArrayList<Pool>();
+            this.consumers = new ArrayList<Consumer>();
+        }
+
+        public Owner getOwner() {
+            return this.owner;
+        }
+
+        public List<Product> getProducts() {
+            return this.products;
+        }
+
+        public List<Product> getSkus() {
+            return this.skus;
+        }
+
+        public List<Pool> getPools() {
+            return this.pools;
+        }
+
+        public List<Consumer> getConsumers() {
+            return this.consumers;
+        }
+    }
+
+}
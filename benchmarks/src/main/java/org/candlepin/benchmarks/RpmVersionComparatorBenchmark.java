@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.common.util.RpmVersionComparator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures comparing and sorting RPM style version strings with the RpmVersionComparator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RpmVersionComparatorBenchmark {
+
+    private static final String[] RELEASE_SUFFIXES = { "el6", "el7", "el7_3", "fc25", "el7.centos" };
+
+    @Param({ "100", "1000" })
+    public int versions;
+
+    private RpmVersionComparator comparator;
+    private List<String> values;
+
+    @Setup
+    public void setUp() {
+        this.comparator = new RpmVersionComparator();
+        this.values = new ArrayList<String>(this.versions);
+
+        Random random = new Random(this.versions);
+        for (int i = 0; i < this.versions; ++i) {
+            StringBuilder builder = new StringBuilder();
+
+            // Roughly one in ten packages carries an epoch
+            if (random.nextInt(10) == 0) {
+                builder.append(1 + random.nextInt(3)).append(':');
+            }
+
+            builder.append(random.nextInt(5)).append('.')
+                .append(random.nextInt(20)).append('.')
+                .append(random.nextInt(100));
+
+            // Some upstream versions carry a letter, as in 1.0.2k or 2.0b3
+            if (random.nextInt(5) == 0) {
+                builder.append((char) ('a' + random.nextInt(26))).append(random.nextInt(10));
+            }
+
+            builder.append('-').append(random.nextInt(800)).append('.')
+                .append(RELEASE_SUFFIXES[random.nextInt(RELEASE_SUFFIXES.length)]);
+
+            this.values.add(builder.toString());
+        }
+    }
+
+    @Benchmark
+    public int compareAdjacent() {
+        int result = 0;
+
+        for (int i = 1; i < this.values.size(); ++i) {
+            result += this.comparator.compare(this.values.get(i - 1), this.values.get(i));
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public List<String> sort() {
+        List<String> sorted = new ArrayList<String>(this.values);
+        Collections.sort(sorted, this.comparator);
+
+        return sorted;
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.Pool;
+import org.candlepin.model.PoolCurator;
+import org.candlepin.policy.js.RulesObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures serializing pools and consumers to the JSON passed to the Rhino rules, as done on
+ * every compliance and autobind call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RulesObjectMapperBenchmark {
+
+    @Param({ "10", "100" })
+    public int pools;
+
+    private BenchmarkFixture fixture;
+    private RulesObjectMapper mapper;
+
+    private Map<String, Object> poolArgs;
+    private Map<String, Object> consumerArgs;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.fixture = new BenchmarkFixture();
+        this.fixture.start();
+
+        final DataGenerator generator = this.fixture.getInstance(DataGenerator.class);
+        final DataGenerator.Organization org = this.fixture.inTransaction(
+            new BenchmarkFixture.Work<DataGenerator.Organization>() {
+                @Override
+                public DataGenerator.Organization run() {
+                    return generator.createOrganization("mapper-benchmark", pools, 10, 1, pools);
+                }
+            });
+
+        this.mapper = this.fixture.getInstance(RulesObjectMapper.class);
+
+        PoolCurator poolCurator = this.fixture.getInstance(PoolCurator.class);
+        List<Pool> poolList = new ArrayList<Pool>();
+        for (Pool pool : org.getPools()) {
+            poolList.add(poolCurator.find(pool.getId()));
+        }
+
+        Consumer consumer = this.fixture.getInstance(ConsumerCurator.class)
+            .find(org.getConsumers().get(0).getId());
+
+        this.poolArgs = new HashMap<String, Object>();
+        this.poolArgs.put("pools", poolList);
+
+        this.consumerArgs = new HashMap<String, Object>();
+        this.consumerArgs.put("consumer", consumer);
+        this.consumerArgs.put("entitlements", consumer.getEntitlements());
+
+        // Serialize once so lazy associations are loaded before measuring
+        this.mapper.toJsonString(this.poolArgs);
+        this.mapper.toJsonString(this.consumerArgs);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.fixture.stop();
+    }
+
+    @Benchmark
+    public String serializePools() {
+        return this.mapper.toJsonString(this.poolArgs);
+    }
+
+    @Benchmark
+    public String serializeConsumer() {
+        return this.mapper.toJsonString(this.consumerArgs);
+    }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.util.CRLEntryValidator;
+import org.candlepin.util.X509CRLStreamWriter;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.X509Extension;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.jce.provider.X509CRLEntryObject;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.x509.extension.AuthorityKeyIdentifierStructure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures rewriting a CRL of the given size with the X509CRLStreamWriter, as the CRL task does
+ * when revoking new serials and dropping expired ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class X509CRLStreamWriterBenchmark {
+
+    private static final BouncyCastleProvider BC = new BouncyCastleProvider();
+
+    // The number of serials revoked on each rewrite
+    private static final int REVOKED_PER_WRITE = 100;
+
+    @Param({ "1000", "10000", "100000" })
+    public int entries;
+
+    private KeyPair keyPair;
+    private byte[] crl;
+
+    @Setup
+    public void setUp() throws Exception {
+        Security.addProvider(BC);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        this.keyPair = generator.generateKeyPair();
+
+        ContentSigner signer = new JcaContentSignerBuilder("SHA256WithRSAEncryption")
+            .setProvider(BC)
+            .build(this.keyPair.getPrivate());
+
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Benchmark Issuer"), new Date());
+        builder.addExtension(X509Extension.authorityKeyIdentifier, false,
+            new AuthorityKeyIdentifierStructure(this.keyPair.getPublic()));
+        builder.addExtension(X509Extension.cRLNumber, false, new CRLNumber(BigInteger.ONE));
+
+        Date revoked = new Date();
+        for (int i = 0; i < this.entries; ++i) {
+            builder.addCRLEntry(BigInteger.valueOf(i), revoked, CRLReason.privilegeWithdrawn);
+        }
+
+        this.crl = builder.build(signer).getEncoded();
+    }
+
+    private X509CRLStreamWriter createWriter() throws Exception {
+        return new X509CRLStreamWriter(new ByteArrayInputStream(this.crl),
+            (RSAPrivateKey) this.keyPair.getPrivate(), (RSAPublicKey) this.keyPair.getPublic());
+    }
+
+    @Benchmark
+    public void revokeSerials() throws Exception {
+        X509CRLStreamWriter writer = this.createWriter();
+        writer.preScan(new ByteArrayInputStream(this.crl));
+
+        Date revoked = new Date();
+        for (int i = 0; i < REVOKED_PER_WRITE; ++i) {
+            writer.add(BigInteger.valueOf(this.entries + i), revoked, CRLReason.privilegeWithdrawn);
+        }
+
+        writer.lock();
+        writer.write(new NullOutputStream());
+    }
+
+    @Benchmark
+    public void unrevokeSerials() throws Exception {
+        X509CRLStreamWriter writer = this.createWriter();
+
+        // Drop every tenth entry, as though those certificates had expired
+        writer.preScan(new ByteArrayInputStream(this.crl), new CRLEntryValidator() {
+            @Override
+            public boolean shouldDelete(X509CRLEntryObject entry) {
+                return entry.getSerialNumber().intValue() % 10 == 0;
+            }
+        });
+
+        writer.lock();
+        writer.write(new NullOutputStream());
+    }
+
+}
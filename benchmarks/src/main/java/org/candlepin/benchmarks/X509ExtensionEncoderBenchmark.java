@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.Content;
+import org.candlepin.model.EnvironmentContent;
+import org.candlepin.model.Product;
+import org.candlepin.model.ProductContent;
+import org.candlepin.pki.X509ExtensionEncoder;
+import org.candlepin.pki.X509ExtensionWrapper;
+import org.candlepin.util.OIDUtil;
+import org.candlepin.util.X509ExtensionUtil;
+
+import org.bouncycastle.asn1.DERObjectIdentifier;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.x509.X509ExtensionsGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures building and DER encoding the V1 certificate extensions of a product's content sets,
+ * comparing a copy of the original path, which built a wrapper for every extension and encoded it
+ * through BouncyCastle's extension generator, against the X509ExtensionEncoder with the extension
+ * blocks cached by X509ExtensionUtil.
+ * <p></p>
+ * V1 certificates are limited to X509ExtensionUtil.V1_CONTENT_LIMIT content sets, but the larger
+ * sizes show how the extension building scales.
+ */
+@SuppressWarnings("deprecation")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class X509ExtensionEncoderBenchmark {
+
+    private static final String CONTENT_PREFIX = "/benchmark/$env";
+
+    @Param({ "10", "100", "1000" })
+    public int contentSets;
+
+    private X509ExtensionUtil extensionUtil;
+    private Product product;
+    private Collection<ProductContent> productContent;
+    private Map<String, EnvironmentContent> promotedContent;
+    private Consumer consumer;
+    private X509ExtensionEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        this.extensionUtil = new X509ExtensionUtil(new MapConfiguration(ConfigProperties.DEFAULT_PROPERTIES));
+
+        // Extension blocks are only cached for persisted products, so give ours a UUID
+        this.product = new Product("69", "Red Hat Enterprise Linux Server", null);
+        this.product.setUuid("benchmark-product-69");
+        this.product.setAttribute(Product.Attributes.VERSION, "7.3");
+        this.product.setAttribute(Product.Attributes.ARCHITECTURE, "x86_64");
+
+        for (int i = 0; i < this.contentSets; ++i) {
+            String label = "rhel-7-server-" + i + "-rpms";
+            Content content = new Content(String.valueOf(1000 + i), label, "yum", label, "Red Hat");
+            content.setUuid("benchmark-content-" + i);
+            content.setContentUrl("/content/dist/rhel/server/7/$releasever/$basearch/" + i + "/os");
+            content.setGpgUrl("file:///etc/pki/rpm-gpg/RPM-GPG-KEY-redhat-release");
+            content.setMetadataExpire(86400L);
+
+            this.product.addContent(content, i % 5 != 0);
+        }
+
+        this.productContent = this.product.getProductContent();
+        this.promotedContent = new HashMap<String, EnvironmentContent>();
+        this.consumer = new Consumer();
+        this.encoder = new X509ExtensionEncoder();
+    }
+
+    @Benchmark
+    public void derUtf8String(Blackhole blackhole) {
+        X509ExtensionsGenerator generator = new X509ExtensionsGenerator();
+
+        for (X509ExtensionWrapper extension : this.legacyContentExtensions()) {
+            String value = extension.getValue() == null ? "" : extension.getValue();
+            generator.addExtension(new DERObjectIdentifier(extension.getOid()), extension.isCritical(),
+                new DERUTF8String(value));
+        }
+
+        blackhole.consume(generator.generate().getDEREncoded());
+    }
+
+    @Benchmark
+    public void cachedEncoder(Blackhole blackhole) {
+        Set<X509ExtensionWrapper> extensions = this.extensionUtil.contentExtensions(this.product,
+            this.productContent, CONTENT_PREFIX, this.promotedContent, this.consumer, this.product);
+
+        // Write the extensions into the reused buffer, as certificate generation does
+        this.encoder.reset();
+        int mark = this.encoder.mark();
+
+        for (X509ExtensionWrapper extension : extensions) {
+            if (extension.getEncoded() != null) {
+                this.encoder.writeEncoded(extension.getEncoded());
+            }
+            else {
+                this.encoder.writeExtension(extension.getOid(), extension.isCritical(), extension.getValue());
+            }
+        }
+
+        this.encoder.writeHeader(mark, X509ExtensionEncoder.SEQUENCE_TAG);
+        blackhole.consume(this.encoder.size());
+    }
+
+    /**
+     * A copy of X509ExtensionUtil.contentExtensions as it was before extension blocks were cached,
+     * less the environment filtering, which doesn't apply here.
+     */
+    private Set<X509ExtensionWrapper> legacyContentExtensions() {
+        Set<X509ExtensionWrapper> toReturn = new LinkedHashSet<X509ExtensionWrapper>();
+
+        List<String> skuDisabled = this.product.getSkuDisabledContentIds();
+        List<String> skuEnabled = this.product.getSkuEnabledContentIds();
+
+        for (ProductContent pc : this.productContent) {
+            String contentPath = this.extensionUtil.createFullContentPath(CONTENT_PREFIX, pc);
+
+            if (!OIDUtil.CF_REPO_TYPE.containsKey(pc.getContent().getType())) {
+                continue;
+            }
+
+            String contentOid = OIDUtil.REDHAT_OID +
+                "." +
+                OIDUtil.TOPLEVEL_NAMESPACES.get(OIDUtil.CHANNEL_FAMILY_NAMESPACE_KEY) + "." +
+                pc.getContent().getId().toString() + "." +
+                OIDUtil.CF_REPO_TYPE.get(pc.getContent().getType());
+            toReturn.add(new X509ExtensionWrapper(contentOid, false, pc
+                .getContent().getType()));
+            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_NAME_KEY), false, pc
+                .getContent().getName()));
+            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_LABEL_KEY), false,
+                pc.getContent().getLabel()));
+            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_VENDOR_ID_KEY),
+                false, pc.getContent().getVendor()));
+            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_DOWNLOAD_URL_KEY),
+                false, contentPath));
+            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_GPG_URL_KEY), false,
+                pc.getContent().getGpgUrl()));
+
+            Boolean enabled = pc.isEnabled();
+
+            // sku level content enable override. if on both lists, active wins.
+            if (skuDisabled.contains(pc.getContent().getId())) {
+                enabled = false;
+            }
+            if (skuEnabled.contains(pc.getContent().getId())) {
+                enabled = true;
+            }
+
+            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_ENABLED), false,
+                (enabled) ? "1" : "0"));
+
+            // Include metadata expiry if specified on the content:
+            if (pc.getContent().getMetadataExpire() != null) {
+                toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+                    OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_METADATA_EXPIRE),
+                    false, pc.getContent().getMetadataExpire().toString()));
+            }
+
+            // Include required tags if specified on the content set:
+            String requiredTags = pc.getContent().getRequiredTags();
+            if ((requiredTags != null) && !requiredTags.equals("")) {
+                toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+                    OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_REQUIRED_TAGS),
+                    false, requiredTags));
+            }
+        }
+
+        return toReturn;
+    }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.benchmarks;
+
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.EnvironmentContent;
+import org.candlepin.model.Pool;
+import org.candlepin.model.PoolCurator;
+import org.candlepin.model.Product;
+import org.candlepin.pki.X509ByteExtensionWrapper;
+import org.candlepin.util.OIDUtil;
+import org.candlepin.util.X509V3ExtensionUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures building the compressed entitlement data of a V3 certificate, and reading the content
+ * sets back out of it as a client would, for an entitlement providing a product with the given
+ * number of content sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class X509V3ExtensionUtilBenchmark {
+
+    private static final String CONTENT_PREFIX = "/benchmark/$env";
+    private static final String ENTITLEMENT_DATA_OID = OIDUtil.REDHAT_OID + "." +
+        OIDUtil.TOPLEVEL_NAMESPACES.get(OIDUtil.ENTITLEMENT_DATA_KEY);
+
+    @Param({ "10", "100", "1000" })
+    public int contentSets;
+
+    private BenchmarkFixture fixture;
+    private X509V3ExtensionUtil extensionUtil;
+
+    private Consumer consumer;
+    private Pool pool;
+    private List<org.candlepin.model.dto.Product> productModels;
+    private byte[] contentPayload;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.fixture = new BenchmarkFixture();
+        this.fixture.start();
+
+        final DataGenerator generator = this.fixture.getInstance(DataGenerator.class);
+        final DataGenerator.Organization org = this.fixture.inTransaction(
+            new BenchmarkFixture.Work<DataGenerator.Organization>() {
+                @Override
+                public DataGenerator.Organization run() {
+                    return generator.createOrganization("v3-benchmark", 1, contentSets, 1, 1);
+                }
+            });
+
+        this.extensionUtil = this.fixture.getInstance(X509V3ExtensionUtil.class);
+        this.consumer = this.fixture.getInstance(ConsumerCurator.class)
+            .find(org.getConsumers().get(0).getId());
+        this.pool = this.fixture.getInstance(PoolCurator.class).find(org.getPools().get(0).getId());
+
+        Product sku = this.pool.getProduct();
+        Map<String, EnvironmentContent> promotedContent = new HashMap<String, EnvironmentContent>();
+
+        this.productModels = this.extensionUtil.createProducts(sku,
+            new HashSet<Product>(this.pool.getProvidedProducts()), CONTENT_PREFIX, promotedContent,
+            this.consumer, this.pool);
+
+        for (X509ByteExtensionWrapper extension : this.extensionUtil.getByteExtensions(sku,
+            this.productModels, CONTENT_PREFIX, promotedContent)) {
+
+            if (ENTITLEMENT_DATA_OID.equals(extension.getOid())) {
+                this.contentPayload = extension.getValue();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.fixture.stop();
+    }
+
+    @Benchmark
+    public byte[] createEntitlementDataPayload() throws IOException {
+        return this.extensionUtil.createEntitlementDataPayload(this.productModels, this.consumer,
+            this.pool, 1);
+    }
+
+    @Benchmark
+    public List<String> hydrateContentPackage() throws IOException {
+        return this.extensionUtil.hydrateContentPackage(this.contentPayload);
+    }
+
+}
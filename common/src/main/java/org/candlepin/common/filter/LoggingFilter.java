@@ -20,7 +20,10 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 
 import javax.inject.Singleton;
@@ -39,24 +42,92 @@ import javax.servlet.http.HttpServletResponse;
  * This class must be a Singleton as described in
  * <a href="http://code.google.com/p/google-guice/wiki/ServletModule#Filter_Mapping">
  * the Guice documentation</a>.
+ *
+ * Request and response bodies are only buffered when they are going to be logged,
+ * which requires debug logging to be enabled for this filter on the server. Of those
+ * requests, a sample is logged in full, along with any request carrying the configured
+ * debug header. Only bodies of the allowed content types are buffered, at most
+ * body.max_size bytes of each are retained, and key material is redacted. All other
+ * requests pass their streams through untouched.
  */
 @Singleton
 public class LoggingFilter implements Filter {
 
     private static Logger log = LoggerFactory.getLogger(LoggingFilter.class);
 
+    public static final String HEADER_NAME = "header.name";
+    public static final String BODY_MAX_SIZE = "body.max_size";
+    public static final String BODY_CONTENT_TYPES = "body.content_types";
+    public static final String BODY_SAMPLE_RATE = "body.sample_rate";
+    public static final String BODY_DEBUG_HEADER = "body.debug_header";
+
+    public static final int DEFAULT_BODY_MAX_SIZE = 64 * 1024;
+
     private String customHeaderName;
+    private String debugHeaderName;
+    private int maxBodySize = DEFAULT_BODY_MAX_SIZE;
+    private List<String> bodyContentTypes = ServletLogger.TEXT_TYPES;
+    private double sampleRate = 1.0;
+    private final Random random = new Random();
+
     private final int CORRELATION_ID_LENGTH = 40;
     public static final String CSID = "csid";
 
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        customHeaderName = filterConfig.getInitParameter("header.name");
+        customHeaderName = filterConfig.getInitParameter(HEADER_NAME);
+        debugHeaderName = StringUtils.trimToNull(filterConfig.getInitParameter(BODY_DEBUG_HEADER));
+
+        String value = filterConfig.getInitParameter(BODY_MAX_SIZE);
+        if (!StringUtils.isBlank(value)) {
+            maxBodySize = parseNumber(BODY_MAX_SIZE, value).intValue();
+        }
+
+        value = filterConfig.getInitParameter(BODY_SAMPLE_RATE);
+        if (!StringUtils.isBlank(value)) {
+            sampleRate = parseNumber(BODY_SAMPLE_RATE, value).doubleValue();
+        }
+
+        value = filterConfig.getInitParameter(BODY_CONTENT_TYPES);
+        if (!StringUtils.isBlank(value)) {
+            List<String> types = new ArrayList<String>();
+            for (String type : value.split(",")) {
+                if (!StringUtils.isBlank(type)) {
+                    types.add(type.trim());
+                }
+            }
+            bodyContentTypes = types;
+        }
+    }
+
+    private Number parseNumber(String name, String value) throws ServletException {
+        try {
+            return Double.valueOf(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new ServletException("Invalid value for logging filter parameter " + name + ": " +
+                value, e);
+        }
     }
 
     @Override
     public void destroy() {
         customHeaderName = null;
+        debugHeaderName = null;
+    }
+
+    /**
+     * Checks whether the body of the request can be buffered for logging without holding
+     * more than the configured amount of it in memory.
+     */
+    private boolean canTeeRequest(HttpServletRequest request) {
+        int length = request.getContentLength();
+        return length >= 0 && length <= maxBodySize &&
+            ServletLogger.matchesContentType(request.getContentType(), bodyContentTypes);
+    }
+
+    private boolean isSampled() {
+        return sampleRate >= 1.0 || (sampleRate > 0 && random.nextDouble() < sampleRate);
     }
 
     @Override
@@ -64,10 +135,18 @@ public class LoggingFilter implements Filter {
         FilterChain chain) throws IOException, ServletException {
 
         long startTime = System.currentTimeMillis();
-        TeeHttpServletRequest req = new TeeHttpServletRequest(
-            (HttpServletRequest) request);
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+
+        // The debug header can only select requests for body logging while debug logging is
+        // enabled on the server; it never raises the log level by itself
+        boolean verbose = log.isDebugEnabled();
+        boolean logBody = verbose && (isSampled() ||
+            (debugHeaderName != null && httpRequest.getHeader(debugHeaderName) != null));
+
+        HttpServletRequest req = logBody && canTeeRequest(httpRequest) ?
+            new TeeHttpServletRequest(httpRequest) : httpRequest;
         TeeHttpServletResponse resp = new TeeHttpServletResponse(
-            (HttpServletResponse) response);
+            (HttpServletResponse) response, logBody, maxBodySize, bodyContentTypes);
 
         try {
             // Generate a UUID for this request and store in the thread local MDC.
@@ -102,7 +181,7 @@ public class LoggingFilter implements Filter {
             // Not sure this is useful yet.
             resp.setHeader(customHeaderName, requestUUID);
 
-            if (log.isDebugEnabled()) {
+            if (verbose) {
                 log.debug("{}", ServletLogger.logRequest(req));
             }
             else {
@@ -111,7 +190,7 @@ public class LoggingFilter implements Filter {
 
             chain.doFilter(req, resp);
 
-            if (log.isDebugEnabled()) {
+            if (verbose) {
                 log.debug("{}", ServletLogger.logResponse(resp, startTime));
             }
             else {
@@ -20,9 +20,12 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 import org.apache.commons.lang.StringUtils;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.MediaType;
@@ -32,6 +35,22 @@ import javax.ws.rs.core.Response;
  * ServletLogger
  */
 public class ServletLogger {
+    /** The media types whose bodies are logged as text */
+    public static final List<String> TEXT_TYPES = Collections.unmodifiableList(Arrays.asList(
+        MediaType.APPLICATION_JSON,
+        MediaType.APPLICATION_ATOM_XML,
+        MediaType.TEXT_PLAIN,
+        MediaType.TEXT_XML,
+        MediaType.TEXT_HTML,
+        MediaType.APPLICATION_FORM_URLENCODED));
+
+    /**
+     * Matches PEM encoded keys and certificates, including those cut short by body truncation,
+     * capturing the armor around their contents
+     */
+    private static final Pattern PEM_PATTERN = Pattern.compile(
+        "(-----BEGIN ([A-Z0-9 ]+)-----).*?(-----END \\2-----|$)", Pattern.DOTALL);
+
     private static ObjectMapper mapper;
     private static ObjectWriter writer;
 
@@ -67,7 +86,7 @@ public class ServletLogger {
         return builder;
     }
 
-    public static StringBuilder logRequest(TeeHttpServletRequest req) {
+    public static StringBuilder logRequest(HttpServletRequest req) {
         StringBuilder builder = new StringBuilder();
         builder.append("Request: ")
             .append(req.getMethod()).append(" ").append(req.getRequestURI());
@@ -76,9 +95,14 @@ public class ServletLogger {
         }
         builder.append("\n");
 
-        return builder
-            .append(logHeaders(req))
-            .append(logBody("Request", req, true));
+        builder.append(logHeaders(req));
+
+        // The request body is only available when it was buffered for logging
+        if (req instanceof BodyLogger) {
+            builder.append(logBody("Request", (BodyLogger) req, true));
+        }
+
+        return builder;
     }
 
     public static StringBuilder logResponse(TeeHttpServletResponse resp, long startTime) {
@@ -113,10 +137,25 @@ public class ServletLogger {
             }
         }
 
-        builder.append(content);
+        builder.append(redactKeyMaterial(content));
         return builder;
     }
 
+    /**
+     * Replaces the contents of any PEM encoded keys and certificates in the given body, so that
+     * private keys and certificates returned to clients never end up in the logs.
+     *
+     * @param content the body to redact
+     * @return the body with the contents of PEM blocks removed
+     */
+    public static String redactKeyMaterial(String content) {
+        if (content == null || !content.contains("-----BEGIN ")) {
+            return content;
+        }
+
+        return PEM_PATTERN.matcher(content).replaceAll("$1[redacted]$3");
+    }
+
     public static StringBuilder logBasicRequestInfo(HttpServletRequest req) {
         StringBuilder requestBuilder = new StringBuilder()
             .append("Request: verb=")
@@ -138,24 +177,30 @@ public class ServletLogger {
     }
 
     public static boolean showAsText(String header) {
-        String[] textTypes = {
-            MediaType.APPLICATION_JSON,
-            MediaType.APPLICATION_ATOM_XML,
-            MediaType.TEXT_PLAIN,
-            MediaType.TEXT_XML,
-            MediaType.TEXT_HTML,
-            MediaType.APPLICATION_FORM_URLENCODED,
-        };
+        return !StringUtils.isBlank(header) && matchesContentType(header, TEXT_TYPES);
+    }
+
+    /**
+     * Checks whether a Content-Type header names one of the specified media types.
+     *
+     * @param header the value of the Content-Type header
+     * @param types the media types to check against, or null to accept any content type
+     * @return true if types is null or the header contains one of the types
+     */
+    public static boolean matchesContentType(String header, List<String> types) {
+        if (types == null) {
+            return true;
+        }
 
         /* The Media Type specification (See RFC 6838 and RFC 2616 3.7)
          * is fairly complex.  It allows for the specification of text encoding
          * and other parameters.  RESTEasy can do the sophisticated parsing, but
          * we really don't care.  All we need to know is if the header contains
-         * a key string that indicates the body is text.
+         * a key string that indicates the body is of the given type.
          */
         if (!StringUtils.isBlank(header)) {
-            for (int i = 0; i < textTypes.length; i++) {
-                if (header.contains(textTypes[i])) {
+            for (String type : types) {
+                if (header.contains(type)) {
                     return true;
                 }
             }
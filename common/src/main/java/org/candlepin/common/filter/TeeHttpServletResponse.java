@@ -32,6 +32,11 @@ import javax.servlet.http.HttpServletResponseWrapper;
 
 /**
  * Heavily borrowed from the logback-access package.
+ *
+ * When body teeing is disabled, the output stream and writer of the wrapped response
+ * are passed through untouched and only the status and headers are recorded. Otherwise
+ * the body is only copied if the content type of the response, as set by the time the
+ * body is first written, is one of the allowed types.
  */
 public class TeeHttpServletResponse extends HttpServletResponseWrapper
     implements BodyLogger {
@@ -41,21 +46,48 @@ public class TeeHttpServletResponse extends HttpServletResponseWrapper
     protected Map<String, List<String>> headers = new HashMap<String, List<String>>();
     protected int status;
 
+    protected final boolean teeBody;
+    protected final int maxBodySize;
+    protected final List<String> bodyContentTypes;
+
     public TeeHttpServletResponse(HttpServletResponse httpServletResponse) {
+        this(httpServletResponse, true, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param httpServletResponse the response to wrap
+     * @param teeBody whether the response body should be copied for logging
+     * @param maxBodySize the maximum number of body bytes to copy
+     * @param bodyContentTypes the content types for which the body is copied, or null to copy
+     *  the body regardless of its content type
+     */
+    public TeeHttpServletResponse(HttpServletResponse httpServletResponse, boolean teeBody,
+        int maxBodySize, List<String> bodyContentTypes) {
         super(httpServletResponse);
+        this.teeBody = teeBody;
+        this.maxBodySize = maxBodySize;
+        this.bodyContentTypes = bodyContentTypes;
     }
 
     @Override
     public ServletOutputStream getOutputStream() throws IOException {
+        if (!teeBody) {
+            return super.getOutputStream();
+        }
+
         if (teeServletOutputStream == null) {
             teeServletOutputStream = new TeeServletOutputStream(
-                this.getResponse());
+                this.getResponse(), maxBodySize, bodyContentTypes);
         }
         return teeServletOutputStream;
     }
 
     @Override
     public PrintWriter getWriter() throws IOException {
+        if (!teeBody) {
+            return super.getWriter();
+        }
+
         if (this.teeWriter == null) {
             this.teeWriter = new PrintWriter(new OutputStreamWriter(
                 getOutputStream()), true);
@@ -64,7 +96,12 @@ public class TeeHttpServletResponse extends HttpServletResponseWrapper
     }
 
     @Override
-    public void flushBuffer() {
+    public void flushBuffer() throws IOException {
+        if (!teeBody) {
+            super.flushBuffer();
+            return;
+        }
+
         if (this.teeWriter != null) {
             this.teeWriter.flush();
         }
@@ -73,7 +110,7 @@ public class TeeHttpServletResponse extends HttpServletResponseWrapper
     public byte[] getOutputBuffer() {
         // teeServletOutputStream can be null if the getOutputStream method is
         // never called.
-        if (teeServletOutputStream != null) {
+        if (teeServletOutputStream != null && teeServletOutputStream.isCopying()) {
             return teeServletOutputStream.getOutputStreamAsByteArray();
         }
         else {
@@ -95,10 +132,13 @@ public class TeeHttpServletResponse extends HttpServletResponseWrapper
         byte[] buff = getOutputBuffer();
 
         if (buff != null) {
+            String truncated = teeServletOutputStream.isTruncated() ?
+                "\n[body truncated to " + maxBodySize + " bytes]" : "";
+
             if (ServletLogger.showAsText(getContentType())) {
-                return new String(buff);
+                return new String(buff) + truncated;
             }
-            return StringUtils.abbreviate(Util.toBase64(buff), 100);
+            return StringUtils.abbreviate(Util.toBase64(buff), 100) + truncated;
         }
 
         return "";
@@ -16,6 +16,7 @@ package org.candlepin.common.filter;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.List;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletResponse;
@@ -25,11 +26,31 @@ import javax.servlet.ServletResponse;
  */
 public class TeeServletOutputStream extends ServletOutputStream {
 
+    protected final ServletResponse response;
     protected final ServletOutputStream underlyingStream;
     protected final ByteArrayOutputStream baosCopy;
+    protected final int maxCopySize;
+    protected final List<String> copyContentTypes;
+    protected boolean truncated;
+    private Boolean copying;
 
     TeeServletOutputStream(ServletResponse httpServletResponse) throws IOException {
+        this(httpServletResponse, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Creates a stream which copies at most maxCopySize bytes of the data written to it. Data
+     * past that limit is still written to the underlying stream, but is not retained.
+     *
+     * @param copyContentTypes the content types for which the data is copied, or null to copy
+     *  the data regardless of the content type of the response
+     */
+    TeeServletOutputStream(ServletResponse httpServletResponse, int maxCopySize,
+        List<String> copyContentTypes) throws IOException {
+        this.response = httpServletResponse;
         this.underlyingStream = httpServletResponse.getOutputStream();
+        this.maxCopySize = maxCopySize;
+        this.copyContentTypes = copyContentTypes;
         baosCopy = new ByteArrayOutputStream();
     }
 
@@ -37,11 +58,54 @@ public class TeeServletOutputStream extends ServletOutputStream {
         return baosCopy.toByteArray();
     }
 
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Checks whether the data written is being copied. This is decided when the first byte is
+     * written rather than when the stream is acquired, as the content type of the response may
+     * only be set in between.
+     */
+    boolean isCopying() {
+        if (copying == null) {
+            copying = ServletLogger.matchesContentType(response.getContentType(), copyContentTypes);
+        }
+
+        return copying;
+    }
+
+    private void copy(byte[] byteArray, int offset, int length) {
+        if (!isCopying()) {
+            return;
+        }
+
+        int available = maxCopySize - baosCopy.size();
+        if (length > available) {
+            truncated = true;
+            length = Math.max(available, 0);
+        }
+
+        if (length > 0) {
+            baosCopy.write(byteArray, offset, length);
+        }
+    }
+
     @Override
     public void write(int val) throws IOException {
         if (underlyingStream != null) {
             underlyingStream.write(val);
-            baosCopy.write(val);
+
+            if (!isCopying()) {
+                return;
+            }
+
+            if (baosCopy.size() < maxCopySize) {
+                baosCopy.write(val);
+            }
+            else {
+                truncated = true;
+            }
         }
     }
 
@@ -60,7 +124,7 @@ public class TeeServletOutputStream extends ServletOutputStream {
         }
 
         underlyingStream.write(byteArray, offset, length);
-        baosCopy.write(byteArray, offset, length);
+        copy(byteArray, offset, length);
     }
 
     @Override
@@ -52,8 +52,40 @@ public class DynamicFilterData {
     }
 
 
-    private Map<String, List<String>> includeFilters;
-    private Map<String, List<String>> excludeFilters;
+    /**
+     * A node in a tree of filter paths. Each filtered path is stored as a chain of nodes keyed by
+     * the lower-cased path chunks, with the node of the last chunk flagged as terminal.
+     */
+    private static class FilterNode {
+        private Map<String, FilterNode> children;
+        private boolean terminal;
+
+        public FilterNode getChild(String chunk) {
+            return this.children != null ? this.children.get(chunk) : null;
+        }
+
+        public FilterNode addChild(String chunk) {
+            if (this.children == null) {
+                this.children = new HashMap<String, FilterNode>();
+            }
+
+            FilterNode child = this.children.get(chunk);
+            if (child == null) {
+                child = new FilterNode();
+                this.children.put(chunk, child);
+            }
+
+            return child;
+        }
+
+        public boolean hasChildren() {
+            return this.children != null && !this.children.isEmpty();
+        }
+    }
+
+
+    private FilterNode includeFilters;
+    private FilterNode excludeFilters;
     private boolean whitelist;
 
     public DynamicFilterData() {
@@ -61,8 +93,8 @@ public class DynamicFilterData {
     }
 
     public DynamicFilterData(boolean whitelist) {
-        this.includeFilters = new HashMap<String, List<String>>();
-        this.excludeFilters = new HashMap<String, List<String>>();
+        this.includeFilters = new FilterNode();
+        this.excludeFilters = new FilterNode();
         this.whitelist = whitelist;
     }
 
@@ -86,9 +118,14 @@ public class DynamicFilterData {
         this.addAttributeFilter(this.excludeFilters, path);
     }
 
-    private void addAttributeFilter(Map<String, List<String>> filters, String path) {
-        String[] chunklets = path.split("\\.");
-        filters.put(path.toLowerCase(), Arrays.asList(chunklets));
+    private void addAttributeFilter(FilterNode filters, String path) {
+        FilterNode node = filters;
+
+        for (String chunk : path.split("\\.")) {
+            node = node.addChild(chunk.toLowerCase());
+        }
+
+        node.terminal = true;
     }
 
     public boolean isAttributeExcluded(String path) {
@@ -111,32 +148,57 @@ public class DynamicFilterData {
         return this.whitelist && (iLevel.getLevel() < 1 || iLevel.getLevel() < eLevel.getLevel());
     }
 
-    private Match getFilterLevel(Map<String, List<String>> filters, List<String> path) {
-        int level = 0;
-        boolean exact = false;
-
-        for (List<String> fpath : filters.values()) {
-            boolean match = false;
-            int i = 0;
+    /**
+     * Checks whether the given attribute has been explicitly requested by an include filter, at
+     * the attribute itself or at one of its parents, which is not overridden by a more specific
+     * exclude filter. Unlike {@link #isAttributeExcluded(String)}, this returns false for
+     * attributes which are only included by default.
+     *
+     * @param path
+     *  the path to the attribute to check
+     *
+     * @return
+     *  true if the attribute has been explicitly included; false otherwise
+     */
+    public boolean isAttributeIncluded(String path) {
+        List<String> chunklets = Arrays.asList(path.split("\\."));
+        Match iLevel = this.getFilterLevel(this.includeFilters, chunklets);
+        Match eLevel = this.getFilterLevel(this.excludeFilters, chunklets);
+
+        return iLevel.isExact() && iLevel.getLevel() > eLevel.getLevel();
+    }
 
-            do {
-                String fchunk = fpath.get(i);
-                String pchunk = path.get(i);
+    /**
+     * Walks the filter tree along the given path to find the deepest filter matching it. A
+     * filter ending at or above the path is an exact match; a filter continuing below the full
+     * path is a partial match at the depth of the path. Exact matches take precedence over
+     * partial matches at the same depth.
+     */
+    private Match getFilterLevel(FilterNode filters, List<String> path) {
+        FilterNode node = filters;
+        int exactDepth = 0;
+        int depth = 0;
+
+        for (String chunk : path) {
+            node = chunk != null ? node.getChild(chunk.toLowerCase()) : null;
+            if (node == null) {
+                break;
+            }
 
-                match = fchunk != null && fchunk.equalsIgnoreCase(pchunk);
-                ++i;
-            } while (match && i < path.size() && i < fpath.size());
+            ++depth;
+            if (node.terminal) {
+                exactDepth = depth;
+            }
+        }
 
-            if (match && i > level) {
-                level = i + 1;
-                exact = i >= fpath.size();
+        if (exactDepth == path.size() && exactDepth > 0) {
+            return new Match(exactDepth + 1, true);
+        }
 
-                if (exact) {
-                    break;
-                }
-            }
+        if (node != null && depth == path.size() && depth > 0 && node.hasChildren()) {
+            return new Match(depth + 1, false);
         }
 
-        return new Match(level, exact);
+        return exactDepth > 0 ? new Match(exactDepth + 1, true) : new Match(0, false);
     }
 }
@@ -21,8 +21,7 @@ import com.fasterxml.jackson.databind.ser.PropertyWriter;
 
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * DynamicPropertyFilter
@@ -38,20 +37,30 @@ public class DynamicPropertyFilter extends CheckableBeanPropertyFilter {
         DynamicFilterData filterData = ResteasyProviderFactory.getContextData(DynamicFilterData.class);
 
         if (filterData != null) {
-            List<String> path = new ArrayList<String>(10);
-            path.clear();
-            path.add(0, writer.getName());
+            // Collect the path from the property upwards in a single walk of the context, then
+            // reverse it into place rather than repeatedly shifting a list.
+            String[] names = new String[8];
+            int depth = 0;
+            names[depth++] = writer.getName();
 
-            // Build full path from the context...
             JsonStreamContext context = jsonGenerator.getOutputContext();
             while ((context = context.getParent()) != null) {
                 String cname = context.getCurrentName();
                 if (cname != null) {
-                    path.add(0, cname);
+                    if (depth == names.length) {
+                        names = Arrays.copyOf(names, depth * 2);
+                    }
+
+                    names[depth++] = cname;
                 }
             }
 
-            return !filterData.isAttributeExcluded(path);
+            String[] path = new String[depth];
+            for (int i = 0; i < depth; ++i) {
+                path[i] = names[depth - i - 1];
+            }
+
+            return !filterData.isAttributeExcluded(Arrays.asList(path));
         }
 
         // Allow serialization by default
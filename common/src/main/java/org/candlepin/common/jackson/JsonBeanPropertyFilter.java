@@ -18,8 +18,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 
@@ -29,9 +33,108 @@ import java.lang.reflect.Field;
 public abstract class JsonBeanPropertyFilter extends CheckableBeanPropertyFilter {
     private static Logger log = LoggerFactory.getLogger(JsonBeanPropertyFilter.class);
 
+    /** Reflection data for each serialized class, computed the first time the class is seen */
+    private static final ConcurrentMap<Class<?>, ClassMetadata> METADATA =
+        new ConcurrentHashMap<Class<?>, ClassMetadata>();
+
+    /**
+     * Holds the public fields and accessors of a class, along with the results of previous
+     * annotation lookups on its properties.
+     */
+    private static class ClassMetadata {
+        private static final String[] ACCESSOR_PREFIXES = { "get", "is" };
+
+        private final Class<?> type;
+        private final Map<String, Field> fields;
+        private final Map<String, Method> accessors;
+        private final ConcurrentMap<Class<? extends Annotation>, ConcurrentMap<String, Boolean>> results;
+
+        public ClassMetadata(Class<?> type) {
+            this.type = type;
+            this.fields = new HashMap<String, Field>();
+            this.accessors = new HashMap<String, Method>();
+            this.results =
+                new ConcurrentHashMap<Class<? extends Annotation>, ConcurrentMap<String, Boolean>>();
+
+            for (Field field : type.getFields()) {
+                this.fields.put(field.getName(), field);
+            }
+
+            for (Method method : type.getMethods()) {
+                if (method.getParameterTypes().length == 0) {
+                    this.accessors.put(method.getName(), method);
+                }
+            }
+        }
+
+        public boolean isAnnotationPresent(String property, Class<? extends Annotation> annotation) {
+            ConcurrentMap<String, Boolean> cache = this.results.get(annotation);
+            if (cache == null) {
+                cache = new ConcurrentHashMap<String, Boolean>();
+                ConcurrentMap<String, Boolean> existing = this.results.putIfAbsent(annotation, cache);
+                if (existing != null) {
+                    cache = existing;
+                }
+            }
+
+            Boolean present = cache.get(property);
+            if (present == null) {
+                present = this.lookup(property, annotation);
+                cache.put(property, present);
+            }
+
+            return present;
+        }
+
+        private boolean lookup(String property, Class<? extends Annotation> annotation) {
+            // Check for the annotation on the class...
+            if (this.type.getAnnotation(annotation) != null) {
+                return true;
+            }
+
+            // Check the property field
+            Field field = this.fields.get(property);
+            if (field != null && field.getAnnotation(annotation) != null) {
+                return true;
+            }
+
+            // Check the accessor
+            if (property.length() > 0) {
+                String suffix = property.substring(0, 1).toUpperCase() + property.substring(1);
+
+                for (String prefix : ACCESSOR_PREFIXES) {
+                    Method method = this.accessors.get(prefix + suffix);
+
+                    if (method != null && method.getAnnotation(annotation) != null) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static ClassMetadata getMetadata(Class<?> type) {
+        ClassMetadata metadata = METADATA.get(type);
+
+        if (metadata == null) {
+            log.debug("Caching property metadata for class: {}", type.getName());
+            metadata = new ClassMetadata(type);
+
+            ClassMetadata existing = METADATA.putIfAbsent(type, metadata);
+            if (existing != null) {
+                metadata = existing;
+            }
+        }
+
+        return metadata;
+    }
+
     /**
      * Checks if the specified annotation has been applied to the given object's class, property
-     * or accessor (in that order).
+     * or accessor (in that order). The reflection lookups are performed once per class and
+     * property, and cached for subsequent calls.
      *
      * @param obj
      *  The object to check for the annotation
@@ -47,40 +150,6 @@ public abstract class JsonBeanPropertyFilter extends CheckableBeanPropertyFilter
      *  accessor; false otherwise.
      */
     protected boolean annotationPresent(Object obj, String property, Class<? extends Annotation> annotation) {
-        // Check for the annotation on the class...
-        if (obj.getClass().getAnnotation(annotation) != null) {
-            return true;
-        }
-
-        // Check the property field
-        try {
-            Field field = obj.getClass().getField(property);
-
-            if (field.getAnnotation(annotation) != null) {
-                return true;
-            }
-        }
-        catch (NoSuchFieldException e) {
-            // Nope. Move on to the accessor check.
-        }
-
-        // Check the accessor
-        String[] prefixes = { "get", "is" };
-        property = property.substring(0, 1).toUpperCase() + property.substring(1);
-
-        for (String prefix : prefixes) {
-            try {
-                Method method = obj.getClass().getMethod(prefix + property);
-
-                if (method.getAnnotation(annotation) != null) {
-                    return true;
-                }
-            }
-            catch (NoSuchMethodException e) {
-                // Doesn't exist.
-            }
-        }
-
-        return false;
+        return getMetadata(obj.getClass()).isAnnotationPresent(property, annotation);
     }
 }
@@ -147,4 +147,87 @@ public class LoggingFilterTest {
 
     }
 
+    @Test
+    public void testBodyNotBufferedWithoutDebug() throws Exception {
+        filterlogger.setLevel(Level.INFO);
+
+        filter.doFilter(request, response, chain);
+
+        verify(request, never()).getInputStream();
+        verify(chain).doFilter(eq(request), any(HttpServletResponse.class));
+    }
+
+    @Test
+    public void testBodyNotBufferedWhenNotSampled() throws Exception {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter(LoggingFilter.BODY_SAMPLE_RATE)).thenReturn("0");
+        when(request.getContentType()).thenReturn("application/json");
+        when(request.getContentLength()).thenReturn(10);
+
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+
+        verify(request, never()).getInputStream();
+        verify(chain).doFilter(eq(request), any(HttpServletResponse.class));
+    }
+
+    @Test
+    public void testDebugHeaderBuffersBody() throws Exception {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter(LoggingFilter.BODY_SAMPLE_RATE)).thenReturn("0");
+        when(config.getInitParameter(LoggingFilter.BODY_DEBUG_HEADER)).thenReturn("x-debug-body");
+        when(request.getHeader("x-debug-body")).thenReturn("true");
+        when(request.getContentType()).thenReturn("application/json");
+        when(request.getContentLength()).thenReturn(15);
+
+        final ByteArrayInputStream bais = new ByteArrayInputStream("{\"body\": \"yes\"}".getBytes());
+        when(request.getInputStream()).thenReturn(new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return bais.read();
+            }
+        });
+
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+
+        verify(request).getInputStream();
+        verify(chain).doFilter(any(TeeHttpServletRequest.class), any(HttpServletResponse.class));
+    }
+
+    @Test
+    public void testDebugHeaderIgnoredWithoutDebug() throws Exception {
+        filterlogger.setLevel(Level.INFO);
+
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter(LoggingFilter.BODY_DEBUG_HEADER)).thenReturn("x-debug-body");
+        when(request.getHeader("x-debug-body")).thenReturn("true");
+        when(request.getContentType()).thenReturn("application/json");
+        when(request.getContentLength()).thenReturn(15);
+
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+
+        verify(request, never()).getInputStream();
+        verify(chain).doFilter(eq(request), any(HttpServletResponse.class));
+
+        ArgumentCaptor<ILoggingEvent> events = ArgumentCaptor.forClass(ILoggingEvent.class);
+        verify(mockapp, atLeastOnce()).doAppend(events.capture());
+        for (ILoggingEvent event : events.getAllValues()) {
+            assertFalse(event.getFormattedMessage().contains("---"));
+        }
+    }
+
+    @Test
+    public void testOversizedBodyNotBuffered() throws Exception {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter(LoggingFilter.BODY_MAX_SIZE)).thenReturn("10");
+        when(request.getContentType()).thenReturn("application/json");
+        when(request.getContentLength()).thenReturn(11);
+
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+
+        verify(request, never()).getInputStream();
+    }
 }
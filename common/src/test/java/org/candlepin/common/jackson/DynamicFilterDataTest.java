@@ -65,6 +65,19 @@ public class DynamicFilterDataTest {
         assertFalse(filterData.isAttributeExcluded(Arrays.asList("bacon", "egg", "cheese")));
     }
 
+    @Test
+    public void testExplicitInclusion() {
+        DynamicFilterData filterData = new DynamicFilterData(false);
+        filterData.includeAttribute("bacon");
+        filterData.excludeAttribute("bacon.spinach");
+
+        assertTrue(filterData.isAttributeIncluded("bacon"));
+        assertTrue(filterData.isAttributeIncluded("bacon.egg"));
+        assertFalse(filterData.isAttributeIncluded("bacon.spinach"));
+        assertFalse(filterData.isAttributeIncluded("egg"));
+        assertFalse(filterData.isAttributeExcluded("egg"));
+    }
+
     @Test
     public void testSimpleBlacklistFiltering() {
         DynamicFilterData filterData = new DynamicFilterData(false);
@@ -130,4 +143,22 @@ public class DynamicFilterDataTest {
         assertTrue(filterData.isAttributeExcluded(Arrays.asList("a", "b2", "d3")));
     }
 
+    @Test
+    public void testFiltersSharingPrefixes() {
+        DynamicFilterData filterData = new DynamicFilterData(true);
+        filterData.includeAttribute("a.b.c");
+        filterData.includeAttribute("a.b.d");
+        filterData.includeAttribute("A.E");
+
+        assertFalse(filterData.isAttributeExcluded("a"));
+        assertFalse(filterData.isAttributeExcluded("a.b"));
+        assertFalse(filterData.isAttributeExcluded("a.b.c"));
+        assertFalse(filterData.isAttributeExcluded("a.b.d"));
+        assertTrue(filterData.isAttributeExcluded("a.b.f"));
+        assertFalse(filterData.isAttributeExcluded("a.e"));
+        assertFalse(filterData.isAttributeExcluded(Arrays.asList("A", "b", "C")));
+        assertTrue(filterData.isAttributeExcluded(Arrays.asList("a", "f")));
+        assertTrue(filterData.isAttributeExcluded(Arrays.asList("b")));
+    }
+
 }
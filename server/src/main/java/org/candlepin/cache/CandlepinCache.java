@@ -14,6 +14,7 @@
  */
 package org.candlepin.cache;
 
+import org.candlepin.model.OwnerServiceLevels;
 import org.candlepin.model.Product;
 
 import com.google.inject.Inject;
@@ -28,6 +29,7 @@ import javax.cache.CacheManager;
  */
 public class CandlepinCache {
     private static final String CACHE_PRODUCT_FULL = "productfullcache";
+    private static final String CACHE_OWNER_SERVICE_LEVELS = "ownerservicelevelcache";
 
     /**
      * Cache manager for Ehcache configured caches.
@@ -67,4 +69,13 @@ public class CandlepinCache {
     public Cache<String, Product> getProductCache() {
         return cacheManager.getCache(CACHE_PRODUCT_FULL);
     }
+
+    /**
+     * Cache for the service levels offered by each owner's pools, keyed by owner ID
+     *
+     * @return Cache for OwnerServiceLevels
+     */
+    public Cache<String, OwnerServiceLevels> getOwnerServiceLevelCache() {
+        return cacheManager.getCache(CACHE_OWNER_SERVICE_LEVELS);
+    }
 }
@@ -20,12 +20,14 @@ import static org.candlepin.common.config.ConfigurationPrefixes.JPA_CONFIG_PREFI
 import org.candlepin.pinsetter.tasks.ActiveEntitlementJob;
 import org.candlepin.pinsetter.tasks.CancelJobJob;
 import org.candlepin.pinsetter.tasks.CertificateRevocationListTask;
+import org.candlepin.pinsetter.tasks.ConsumerFactIndexJob;
 import org.candlepin.pinsetter.tasks.EntitlerJob;
 import org.candlepin.pinsetter.tasks.ExpiredPoolsJob;
 import org.candlepin.pinsetter.tasks.ImportRecordJob;
 import org.candlepin.pinsetter.tasks.JobCleaner;
 import org.candlepin.pinsetter.tasks.ManifestCleanerJob;
 import org.candlepin.pinsetter.tasks.OrphanCleanupJob;
+import org.candlepin.pinsetter.tasks.RegenerateDirtyEntitlementsJob;
 import org.candlepin.pinsetter.tasks.SweepBarJob;
 import org.candlepin.pinsetter.tasks.UnmappedGuestEntitlementCleanerJob;
 import org.candlepin.pinsetter.tasks.UnpauseJob;
@@ -192,15 +194,36 @@ public class ConfigProperties {
     public static final String PINSETTER_MAX_RETRIES = "pinsetter.retries.max";
     public static final int PINSETTER_MAX_RETRIES_DEFAULT = 10;
 
+    /**
+     * The named pinsetter execution lanes. Each lane runs its jobs on a dedicated scheduler whose
+     * size and worker thread priority are set by pinsetter.lane.[name].threads and
+     * pinsetter.lane.[name].thread_priority. Jobs are assigned to a lane with
+     * pinsetter.[job class].lane; jobs without a lane run on the default scheduler. As lanes do
+     * not share schedulers, there is no Quartz trigger priority between lanes; the thread
+     * priority only affects how the JVM schedules the lanes' worker threads.
+     */
+    public static final String PINSETTER_LANES = "pinsetter.lanes";
+
+    // The cleanup jobs delete old rows in blocks of this size, each in its own transaction,
+    // pausing for the given number of milliseconds between blocks
+    public static final String PINSETTER_CLEANUP_BLOCK_SIZE = "pinsetter.cleanup.block_size";
+    public static final String PINSETTER_CLEANUP_BLOCK_DELAY = "pinsetter.cleanup.block_delay_ms";
+
+    // When enabled, the orphan cleanup job only reports the number of orphaned products and
+    // content rather than deleting them
+    public static final String ORPHAN_CLEANUP_DRY_RUN = "pinsetter.orphan_cleanup.dry_run";
+
     public static final String[] DEFAULT_TASK_LIST = new String[] {
         ActiveEntitlementJob.class.getName(),
         CancelJobJob.class.getName(),
         CertificateRevocationListTask.class.getName(),
+        ConsumerFactIndexJob.class.getName(),
         ExpiredPoolsJob.class.getName(),
         ImportRecordJob.class.getName(),
         JobCleaner.class.getName(),
         ManifestCleanerJob.class.getName(),
         OrphanCleanupJob.class.getName(),
+        RegenerateDirtyEntitlementsJob.class.getName(),
         SweepBarJob.class.getName(),
         UnmappedGuestEntitlementCleanerJob.class.getName(),
         UnpauseJob.class.getName(),
@@ -217,6 +240,79 @@ public class ConfigProperties {
 
     public static final String SYNC_WORK_DIR = "candlepin.sync.work_dir";
 
+    /**
+     * Request/response body logging. Bodies are only buffered and logged when debug logging is
+     * enabled for the LoggingFilter, and then only for sampled requests and requests carrying the
+     * debug header (if one is configured). Only bodies of the listed content types are logged,
+     * truncated to the maximum size in bytes, with PEM encoded keys and certificates redacted.
+     */
+    public static final String LOG_BODY_MAX_SIZE = "candlepin.request_logging.body.max_size";
+    public static final String LOG_BODY_CONTENT_TYPES = "candlepin.request_logging.body.content_types";
+    public static final String LOG_BODY_SAMPLE_RATE = "candlepin.request_logging.body.sample_rate";
+    public static final String LOG_BODY_DEBUG_HEADER = "candlepin.request_logging.body.debug_header";
+
+    /**
+     * Selects the ManifestFileService implementation used to store async import/export manifests:
+     * "db" stores the files as blobs in the database, "filesystem" stores them in the directory
+     * configured by MANIFEST_FILE_STORE_DIR, addressed by content hash.
+     * <p></p>
+     * Content files written or reused within the grace period, in seconds, are never removed, as
+     * the record referencing them may not have been committed yet. The grace period must exceed
+     * the longest running import or export transaction.
+     */
+    public static final String MANIFEST_FILE_STORE = "candlepin.sync.manifest_store";
+    public static final String MANIFEST_FILE_STORE_DIR = "candlepin.sync.manifest_store.dir";
+    public static final String MANIFEST_FILE_STORE_GRACE_PERIOD =
+        "candlepin.sync.manifest_store.grace_period";
+
+    /**
+     * Pool of pre-generated consumer key pairs. Background threads keep up to the configured size
+     * of key pairs ready, refilling the pool whenever it drops to the low-water mark. A size of
+     * zero disables the pool, in which case key pairs are always generated inline.
+     */
+    public static final String KEYPAIR_POOL_SIZE = "candlepin.pki.keypair_pool.size";
+    public static final String KEYPAIR_POOL_LOW_WATER_MARK = "candlepin.pki.keypair_pool.low_water_mark";
+    public static final String KEYPAIR_POOL_THREADS = "candlepin.pki.keypair_pool.threads";
+
+    /**
+     * The number of certificate serial numbers each node reserves from the database at a time. A
+     * block size of zero, the default, disables block allocation in favour of randomly generated
+     * serials. Serials allocated from blocks are sequential and therefore predictable, so block
+     * allocation should only be enabled where certificates need not meet the CA/Browser Forum
+     * requirement for serials carrying at least 64 bits of entropy.
+     */
+    public static final String CERT_SERIAL_BLOCK_SIZE = "candlepin.cert_serial.block_size";
+
+    /**
+     * Batch compliance checks evaluate consumers on a shared pool of this many worker threads,
+     * loading the consumers and their entitlements in blocks of the configured size.
+     */
+    public static final String COMPLIANCE_BATCH_THREADS = "candlepin.compliance.batch.threads";
+    public static final String COMPLIANCE_BATCH_SIZE = "candlepin.compliance.batch.size";
+
+    /**
+     * Entitlements marked dirty are queued in the database for background certificate
+     * regeneration by the RegenerateDirtyEntitlementsJob. Each run of the job regenerates
+     * certificates in batches of the configured size, stopping once it has run for the configured
+     * number of seconds.
+     */
+    public static final String ENTITLEMENT_REGEN_BATCH_SIZE = "candlepin.entitlement.regen.batch_size";
+    public static final String ENTITLEMENT_REGEN_TIME_LIMIT = "candlepin.entitlement.regen.time_limit";
+
+    /**
+     * The maximum number of consumers which may be registered in a single bulk registration
+     * request. Asynchronous bulk registrations are processed in chunks of this size.
+     */
+    public static final String CONSUMER_BULK_REGISTRATION_MAX_SIZE =
+        "candlepin.consumer.bulk_registration.max_size";
+
+    /**
+     * The maximum number of consumers which may be registered in a single asynchronous bulk
+     * registration request.
+     */
+    public static final String CONSUMER_BULK_REGISTRATION_ASYNC_MAX_SIZE =
+        "candlepin.consumer.bulk_registration.async_max_size";
+
     /**
      *  Controls which facts will be stored by Candlepin -- facts with keys that do not match this
      *  value will be discarded.
@@ -274,6 +370,41 @@ public class ConfigProperties {
         "management_enabled," +
         "virt_only";
 
+    /**
+     * Attributes which are filtered through the indexed attribute columns of the pool and product
+     * tables, rather than through subqueries on the attribute tables. Only the attributes backed by
+     * such columns (see PromotedAttributes) can be listed here; any others are ignored.
+     */
+    public static final String PROMOTED_ATTRIBUTES = "candlepin.db.promoted_attributes";
+    private static final String PROMOTED_ATTRIBUTE_LIST =
+        "virt_only," +
+        "requires_host," +
+        "dev_pool," +
+        "stacking_id," +
+        "support_level," +
+        "type," +
+        "product_family";
+
+    /**
+     * Facts which are copied into the consumer fact index, with their values normalized to lower
+     * case, so that consumer searches on them can be served from an index rather than scanning
+     * the fact table. After adding a fact to this list, searches on it keep using the fact table
+     * until the ConsumerFactIndexJob has indexed it for every existing consumer.
+     */
+    public static final String SEARCHABLE_FACTS = "candlepin.consumer.facts.searchable";
+    private static final String SEARCHABLE_FACT_LIST =
+        "cpu.cpu_socket(s)," +
+        "cpu.core(s)_per_socket," +
+        "cpu.cpu(s)," +
+        "distribution.name," +
+        "distribution.version," +
+        "dmi.system.manufacturer," +
+        "network.hostname," +
+        "uname.machine," +
+        "virt.host_type," +
+        "virt.is_guest," +
+        "virt.uuid";
+
     /**
      * The number of days from today to set the nextUpdate date when generating the CRL.
      * See http://security.stackexchange.com/a/55784
@@ -340,6 +471,21 @@ public class ConfigProperties {
             this.put(CRL_NEXT_UPDATE_DELTA, "1");
 
             this.put(SYNC_WORK_DIR, "/var/cache/candlepin/sync");
+            this.put(LOG_BODY_MAX_SIZE, "65536");
+            this.put(LOG_BODY_SAMPLE_RATE, "1.0");
+            this.put(MANIFEST_FILE_STORE, "db");
+            this.put(MANIFEST_FILE_STORE_DIR, "/var/lib/candlepin/manifests");
+            this.put(MANIFEST_FILE_STORE_GRACE_PERIOD, "3600");
+            this.put(KEYPAIR_POOL_SIZE, "100");
+            this.put(KEYPAIR_POOL_LOW_WATER_MARK, "25");
+            this.put(KEYPAIR_POOL_THREADS, "1");
+            this.put(CERT_SERIAL_BLOCK_SIZE, "0");
+            this.put(COMPLIANCE_BATCH_THREADS, "4");
+            this.put(COMPLIANCE_BATCH_SIZE, "100");
+            this.put(ENTITLEMENT_REGEN_BATCH_SIZE, "50");
+            this.put(ENTITLEMENT_REGEN_TIME_LIMIT, "40");
+            this.put(CONSUMER_BULK_REGISTRATION_MAX_SIZE, "100");
+            this.put(CONSUMER_BULK_REGISTRATION_ASYNC_MAX_SIZE, "10000");
             this.put(CONSUMER_FACTS_MATCHER, ".*");
             this.put(TRUSTED_AUTHENTICATION, "false");
             this.put(SSL_AUTHENTICATION, "true");
@@ -419,10 +565,15 @@ public class ConfigProperties {
             this.put(LONG_ATTRIBUTES, LONG_ATTRIBUTE_LIST);
             this.put(NON_NEG_LONG_ATTRIBUTES, NON_NEG_LONG_ATTRIBUTE_LIST);
             this.put(BOOLEAN_ATTRIBUTES, BOOLEAN_ATTRIBUTE_LIST);
+            this.put(PROMOTED_ATTRIBUTES, PROMOTED_ATTRIBUTE_LIST);
+            this.put(SEARCHABLE_FACTS, SEARCHABLE_FACT_LIST);
 
             // Default 20 minutes
             this.put(PINSETTER_ASYNC_JOB_TIMEOUT, Integer.toString(1200));
             this.put(PINSETTER_MAX_RETRIES, Integer.toString(PINSETTER_MAX_RETRIES_DEFAULT));
+            this.put(PINSETTER_CLEANUP_BLOCK_SIZE, "1000");
+            this.put(PINSETTER_CLEANUP_BLOCK_DELAY, "50");
+            this.put(ORPHAN_CLEANUP_DRY_RUN, "false");
             this.put(SWAGGER_ENABLED, Boolean.toString(true));
 
             // ManifestCleanerJob config
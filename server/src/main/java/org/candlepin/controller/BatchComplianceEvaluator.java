@@ -0,0 +1,530 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.controller;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.Owner;
+import org.candlepin.policy.js.JsRunner;
+import org.candlepin.policy.js.JsonJsContext;
+import org.candlepin.policy.js.RuleExecutionException;
+import org.candlepin.policy.js.compliance.ComplianceRules;
+import org.candlepin.policy.js.compliance.ComplianceStatus;
+import org.candlepin.resteasy.JsonProvider;
+import org.candlepin.util.Util;
+
+import com.google.common.collect.Iterables;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+
+
+/**
+ * The BatchComplianceEvaluator calculates the compliance status of many consumers at once.
+ * <p></p>
+ * Consumers are loaded in blocks along with their entitlements, and the rules contexts for each
+ * block are serialized on the calling thread. The rules themselves, which account for most of
+ * the cost of a compliance check, are then run on a bounded pool of worker threads, each using
+ * its own rules runner. Results are handed back to the calling thread as each check completes.
+ * <p></p>
+ * The worker pool is shared by all requests, and is shut down along with the application by
+ * {@link #stop()}.
+ */
+@Singleton
+public class BatchComplianceEvaluator {
+    private static Logger log = LoggerFactory.getLogger(BatchComplianceEvaluator.class);
+
+    /**
+     * Receives the compliance status of each consumer as its check completes.
+     */
+    public interface ResultHandler {
+        void handle(Consumer consumer, ComplianceStatus status) throws IOException;
+    }
+
+    private final ConsumerCurator consumerCurator;
+    private final Provider<ComplianceRules> complianceRulesProvider;
+    private final Provider<JsRunner> jsRunnerProvider;
+    private final JsonProvider jsonProvider;
+    private final int threads;
+    private final int blockSize;
+    private final ExecutorService executor;
+
+    @Inject
+    public BatchComplianceEvaluator(Configuration config, ConsumerCurator consumerCurator,
+        Provider<ComplianceRules> complianceRulesProvider, Provider<JsRunner> jsRunnerProvider,
+        JsonProvider jsonProvider) {
+
+        this.consumerCurator = consumerCurator;
+        this.complianceRulesProvider = complianceRulesProvider;
+        this.jsRunnerProvider = jsRunnerProvider;
+        this.jsonProvider = jsonProvider;
+
+        this.threads = Math.max(1, config.getInt(ConfigProperties.COMPLIANCE_BATCH_THREADS));
+        this.blockSize = Math.max(1, config.getInt(ConfigProperties.COMPLIANCE_BATCH_SIZE));
+        this.executor = Executors.newFixedThreadPool(this.threads, new WorkerThreadFactory());
+    }
+
+    /**
+     * Builds a streaming response which writes the compliance status of each consumer as a JSON
+     * object keyed by consumer UUID, in the order in which the checks complete.
+     *
+     * @param uuids
+     *  the UUIDs of the consumers to check
+     *
+     * @param lightweight
+     *  if true, only the status and reasons are written for each consumer, and the expensive
+     *  compliant-until date is not calculated
+     *
+     * @return
+     *  a StreamingOutput which evaluates and writes the statuses
+     */
+    public StreamingOutput stream(final Collection<String> uuids, final boolean lightweight) {
+        final ObjectMapper mapper = this.jsonProvider.locateMapper(Object.class,
+            MediaType.APPLICATION_JSON_TYPE);
+
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream stream) throws IOException, WebApplicationException {
+                JsonGenerator generator = mapper.getJsonFactory().createGenerator(stream);
+                generator.writeStartObject();
+
+                if (uuids != null && !uuids.isEmpty()) {
+                    ComplianceRules complianceRules = complianceRulesProvider.get();
+                    BlockingQueue<JsRunner> runners = createRunners();
+
+                    for (List<String> block : Iterables.partition(uuids, blockSize)) {
+                        // Each block is rendered within its own transaction, while the entities
+                        // are still attached, and only written out once the transaction is
+                        // over, so a slow client never holds a transaction open.
+                        Map<String, String> rendered = renderBlock(complianceRules, runners, block,
+                            lightweight, mapper);
+
+                        for (Map.Entry<String, String> entry : rendered.entrySet()) {
+                            generator.writeFieldName(entry.getKey());
+                            generator.writeRawValue(entry.getValue());
+                        }
+
+                        generator.flush();
+                    }
+                }
+
+                generator.writeEndObject();
+                generator.flush();
+                generator.close();
+            }
+        };
+    }
+
+    /**
+     * Shuts down the worker pool. Batches still being evaluated will fail, and later batches
+     * cannot be evaluated.
+     */
+    public void stop() {
+        log.info("Stopping batch compliance workers");
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Calculates the current compliance status of the consumers with the given UUIDs, passing
+     * each status to the handler as soon as it is available. Consumers which cannot be found are
+     * skipped. Status changes are applied to the consumers as with a single compliance check.
+     * Each block of consumers is checked in its own transaction, within which the handler is
+     * called.
+     *
+     * @param uuids
+     *  the UUIDs of the consumers to check
+     *
+     * @param calculateCompliantUntil
+     *  whether or not to calculate how long each consumer will remain compliant (expensive)
+     *
+     * @param handler
+     *  the handler to receive each consumer's status
+     *
+     * @throws IOException
+     *  if the handler fails to process a status
+     */
+    public void evaluate(Collection<String> uuids, boolean calculateCompliantUntil, ResultHandler handler)
+        throws IOException {
+
+        if (uuids == null || uuids.isEmpty()) {
+            return;
+        }
+
+        ComplianceRules complianceRules = this.complianceRulesProvider.get();
+        BlockingQueue<JsRunner> runners = this.createRunners();
+
+        for (List<String> block : Iterables.partition(uuids, this.blockSize)) {
+            this.evaluateUuids(complianceRules, runners, block, calculateCompliantUntil, handler);
+        }
+    }
+
+    @Transactional
+    protected void evaluateUuids(ComplianceRules complianceRules, BlockingQueue<JsRunner> runners,
+        List<String> uuids, boolean calculateCompliantUntil, ResultHandler handler) throws IOException {
+
+        CompletionService<Evaluation> completion = new ExecutorCompletionService<Evaluation>(this.executor);
+        List<Consumer> consumers = this.consumerCurator.findByUuidsWithEntitlements(uuids);
+        this.evaluateBlock(complianceRules, runners, completion, consumers, calculateCompliantUntil, true,
+            handler);
+
+        // Write out any status changes and release the block's entities before moving on
+        this.consumerCurator.flush();
+        this.consumerCurator.clear();
+    }
+
+    /**
+     * Checks a block of consumers and renders each status as JSON, keyed by consumer UUID in the
+     * order in which the checks complete.
+     */
+    protected Map<String, String> renderBlock(ComplianceRules complianceRules,
+        BlockingQueue<JsRunner> runners, List<String> uuids, final boolean lightweight,
+        final ObjectMapper mapper) throws IOException {
+
+        final Map<String, String> rendered = new LinkedHashMap<String, String>();
+
+        this.evaluateUuids(complianceRules, runners, uuids, !lightweight, new ResultHandler() {
+            @Override
+            public void handle(Consumer consumer, ComplianceStatus status) throws IOException {
+                Object output = status;
+
+                if (lightweight) {
+                    Map<String, Object> summary = new LinkedHashMap<String, Object>();
+                    summary.put("status", status.getStatus());
+                    summary.put("reasons", status.getReasons());
+                    output = summary;
+                }
+
+                rendered.put(consumer.getUuid(), mapper.writeValueAsString(output));
+            }
+        });
+
+        return rendered;
+    }
+
+    /**
+     * Recalculates the current compliance status of every consumer belonging to the given owner.
+     * <p></p>
+     * Consumers are walked in ID order, one block per transaction, with each block's
+     * entitlements, pools and products loaded up front. Status changes are written back with a
+     * bulk update per block rather than an update per consumer, and compliance events are only
+     * emitted for consumers whose compliance status hash has changed.
+     *
+     * @param owner
+     *  the owner whose consumers should be checked
+     *
+     * @return
+     *  the number of consumers whose stored status changed
+     */
+    public int recalculateOwner(Owner owner) {
+        ComplianceRules complianceRules = this.complianceRulesProvider.get();
+        BlockingQueue<JsRunner> runners = this.createRunners();
+
+        int changed = 0;
+        int checked = 0;
+        String lastId = null;
+        List<String> ids;
+
+        do {
+            ids = this.consumerCurator.getConsumerIdPage(owner, lastId, this.blockSize);
+
+            if (!ids.isEmpty()) {
+                changed += this.recalculateBlock(complianceRules, runners, ids);
+                checked += ids.size();
+                lastId = ids.get(ids.size() - 1);
+            }
+        }
+        while (ids.size() == this.blockSize);
+
+        log.info("Recalculated compliance for {} consumers of owner {}; {} changed", checked,
+            owner.getKey(), changed);
+
+        return changed;
+    }
+
+    /**
+     * Recalculates the current compliance status of the consumers with the given IDs, such as
+     * after entitlements have been revoked from many consumers at once. Consumers are checked in
+     * blocks, as with {@link #recalculateOwner(Owner)}, and consumers which can no longer be found
+     * are skipped.
+     *
+     * @param consumerIds
+     *  the IDs of the consumers to check
+     *
+     * @return
+     *  the number of consumers whose stored status changed
+     */
+    public int recalculateConsumers(Collection<String> consumerIds) {
+        if (consumerIds == null || consumerIds.isEmpty()) {
+            return 0;
+        }
+
+        ComplianceRules complianceRules = this.complianceRulesProvider.get();
+        BlockingQueue<JsRunner> runners = this.createRunners();
+
+        int changed = 0;
+        for (List<String> block : Iterables.partition(consumerIds, this.blockSize)) {
+            changed += this.recalculateBlock(complianceRules, runners, block);
+        }
+
+        log.info("Recalculated compliance for {} consumers; {} changed", consumerIds.size(), changed);
+
+        return changed;
+    }
+
+    /**
+     * Recalculates the current compliance status of the given consumers within the current
+     * transaction, such as after a refresh has revoked entitlements from many consumers. Unlike
+     * {@link #recalculateConsumers(Collection)}, the consumers remain attached to the current
+     * session, and status changes are written back as with a single compliance check. The
+     * consumers' entitlements, pools and products are loaded one block at a time before the
+     * block is checked.
+     *
+     * @param consumers
+     *  the consumers to check
+     */
+    @Transactional
+    public void recalculate(Collection<Consumer> consumers) {
+        if (consumers == null || consumers.isEmpty()) {
+            return;
+        }
+
+        ComplianceRules complianceRules = this.complianceRulesProvider.get();
+        BlockingQueue<JsRunner> runners = this.createRunners();
+
+        for (List<Consumer> block : Iterables.partition(consumers, this.blockSize)) {
+            CompletionService<Evaluation> completion =
+                new ExecutorCompletionService<Evaluation>(this.executor);
+
+            List<String> ids = new ArrayList<String>(block.size());
+            for (Consumer consumer : block) {
+                ids.add(consumer.getId());
+            }
+
+            List<Consumer> loaded = this.consumerCurator.findByIdsWithEntitlements(ids, false);
+
+            try {
+                this.evaluateBlock(complianceRules, runners, completion, loaded, false, true,
+                    new ResultHandler() {
+                        @Override
+                        public void handle(Consumer consumer, ComplianceStatus status) {
+                            // Nothing to do; the status has already been applied to the consumer
+                        }
+                    });
+            }
+            catch (IOException e) {
+                // Our handler performs no I/O
+                throw new RuleExecutionException(e);
+            }
+        }
+
+        log.info("Recalculated compliance for {} consumers", consumers.size());
+    }
+
+    @Transactional
+    protected int recalculateBlock(ComplianceRules complianceRules, BlockingQueue<JsRunner> runners,
+        List<String> ids) {
+
+        CompletionService<Evaluation> completion = new ExecutorCompletionService<Evaluation>(this.executor);
+        List<Consumer> consumers = this.consumerCurator.findByIdsWithEntitlements(ids);
+
+        // Note the stored values before the checks overwrite them, so we only write out the
+        // consumers which actually changed
+        final Map<String, String> statuses = new HashMap<String, String>();
+        final Map<String, String> hashes = new HashMap<String, String>();
+        for (Consumer consumer : consumers) {
+            statuses.put(consumer.getId(), consumer.getEntitlementStatus());
+            hashes.put(consumer.getId(), consumer.getComplianceStatusHash());
+        }
+
+        final List<Consumer> changed = new ArrayList<Consumer>();
+
+        try {
+            this.evaluateBlock(complianceRules, runners, completion, consumers, false, false,
+                new ResultHandler() {
+                    @Override
+                    public void handle(Consumer consumer, ComplianceStatus status) {
+                        String id = consumer.getId();
+
+                        if (!Util.equals(statuses.get(id), consumer.getEntitlementStatus()) ||
+                            !Util.equals(hashes.get(id), consumer.getComplianceStatusHash())) {
+                            changed.add(consumer);
+                        }
+                    }
+                });
+        }
+        catch (IOException e) {
+            // Our handler performs no I/O
+            throw new RuleExecutionException(e);
+        }
+
+        this.consumerCurator.bulkUpdateComplianceStatus(changed);
+        this.consumerCurator.flush();
+        this.consumerCurator.clear();
+
+        return changed.size();
+    }
+
+    private BlockingQueue<JsRunner> createRunners() {
+        // Rules runners hold per-call state in their scope, so each worker needs its own. They
+        // must be created here, as the runner provider depends on request-scoped state.
+        BlockingQueue<JsRunner> runners = new ArrayBlockingQueue<JsRunner>(this.threads);
+        for (int i = 0; i < this.threads; ++i) {
+            JsRunner runner = this.jsRunnerProvider.get();
+            runner.init(ComplianceRules.NAMESPACE);
+            runners.add(runner);
+        }
+
+        return runners;
+    }
+
+    private void evaluateBlock(ComplianceRules complianceRules, BlockingQueue<JsRunner> runners,
+        CompletionService<Evaluation> completion, List<Consumer> consumers, boolean calculateCompliantUntil,
+        boolean updateConsumers, ResultHandler handler) throws IOException {
+
+        List<Future<Evaluation>> futures = new ArrayList<Future<Evaluation>>(consumers.size());
+
+        try {
+            for (Consumer consumer : consumers) {
+                JsonJsContext context = complianceRules.prepareStatus(consumer, calculateCompliantUntil);
+
+                if (context != null) {
+                    futures.add(completion.submit(
+                        new Evaluation(complianceRules, runners, consumer, context)));
+                }
+                else {
+                    // Compliance is not calculated for distributors and shares
+                    handler.handle(consumer, new ComplianceStatus(new Date()));
+                }
+            }
+
+            for (int i = 0; i < futures.size(); ++i) {
+                Evaluation evaluation = this.take(completion);
+                ComplianceStatus status = complianceRules.completeStatus(evaluation.consumer,
+                    evaluation.json, updateConsumers, true);
+
+                handler.handle(evaluation.consumer, status);
+            }
+        }
+        finally {
+            for (Future<Evaluation> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Evaluation take(CompletionService<Evaluation> completion) {
+        try {
+            return completion.take().get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuleExecutionException(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new RuleExecutionException(cause);
+        }
+    }
+
+    /**
+     * A single consumer's compliance check, run on a worker thread with a runner borrowed from
+     * the evaluation's runner pool.
+     */
+    private static class Evaluation implements Callable<Evaluation> {
+        private final ComplianceRules complianceRules;
+        private final BlockingQueue<JsRunner> runners;
+        private final Consumer consumer;
+        private final JsonJsContext context;
+        private String json;
+
+        public Evaluation(ComplianceRules complianceRules, BlockingQueue<JsRunner> runners,
+            Consumer consumer, JsonJsContext context) {
+
+            this.complianceRules = complianceRules;
+            this.runners = runners;
+            this.consumer = consumer;
+            this.context = context;
+        }
+
+        @Override
+        public Evaluation call() throws InterruptedException {
+            JsRunner runner = this.runners.take();
+
+            try {
+                log.debug("Evaluating compliance for consumer: {}", this.consumer.getUuid());
+                this.json = this.complianceRules.runStatus(runner, this.context);
+                return this;
+            }
+            finally {
+                this.runners.add(runner);
+            }
+        }
+    }
+
+    /**
+     * Creates daemon worker threads, so idle workers never hold up shutdown.
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "compliance-batch-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -85,7 +85,9 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -126,6 +128,7 @@ public class CandlepinPoolManager implements PoolManager {
     private PinsetterKernel pinsetterKernel;
     private OwnerManager ownerManager;
     private BindChainFactory bindChainFactory;
+    private BatchComplianceEvaluator complianceEvaluator;
 
     /**
      * @param poolCurator
@@ -157,7 +160,8 @@ public class CandlepinPoolManager implements PoolManager {
         OwnerManager ownerManager,
         PinsetterKernel pinsetterKernel,
         I18n i18n,
-        BindChainFactory bindChainFactory) {
+        BindChainFactory bindChainFactory,
+        BatchComplianceEvaluator complianceEvaluator) {
 
         this.poolCurator = poolCurator;
         this.sink = sink;
@@ -183,6 +187,7 @@ public class CandlepinPoolManager implements PoolManager {
         this.pinsetterKernel = pinsetterKernel;
         this.i18n = i18n;
         this.bindChainFactory = bindChainFactory;
+        this.complianceEvaluator = complianceEvaluator;
     }
 
     /*
@@ -359,6 +364,10 @@ public class CandlepinPoolManager implements PoolManager {
         List<Pool> floatingPools = poolCurator.getOwnersFloatingPools(owner);
         updateFloatingPools(floatingPools, lazy, updatedProducts);
 
+        // Pools may have been updated in place during the refresh; make sure the owner's service
+        // levels are recompiled on their next use.
+        poolCurator.invalidateServiceLevelsForOwner(owner);
+
         log.info("Refresh pools for owner: {} completed in: {}ms", owner.getKey(),
             System.currentTimeMillis() - now.getTime());
     }
@@ -444,38 +453,53 @@ public class CandlepinPoolManager implements PoolManager {
 
     /**
      * Deletes all known expired pools. The deletion of expired pools also triggers entitlement
-     * revocation and consumer compliance recalculation.
+     * revocation and the recalculation of the affected consumers' compliance statuses.
      * <p></p>
      * This method will delete pools in blocks, using a new transaction for each block unless a
-     * transaction was already started before this method is called.
+     * transaction was already started before this method is called. Once a block has been deleted,
+     * its events are dispatched and the consumers which lost entitlements are recalculated in
+     * bulk, so a failure in a later block does not leave the statuses of earlier ones stale.
      */
     public void cleanupExpiredPools() {
         int count = 0;
+        int consumers = 0;
         boolean loop;
 
         log.debug("Beginning cleanup expired pools job");
 
         do {
+            Set<String> consumerIds = new HashSet<String>();
+
             // This call is run within a new transaction if we're not already in a transaction
-            int blockSize = this.cleanupExpiredPoolsImpl();
+            int blockSize = this.cleanupExpiredPoolsImpl(consumerIds);
             count += blockSize;
 
+            if (blockSize > 0) {
+                this.sink.sendEvents();
+                this.complianceEvaluator.recalculateConsumers(consumerIds);
+                consumers += consumerIds.size();
+            }
+
             loop = blockSize >= PoolCurator.EXPIRED_POOL_BLOCK_SIZE;
         } while (loop);
 
         if (count > 0) {
-            log.info("Cleaned up {} expired pools", count);
+            log.info("Cleaned up {} expired pools; revoked entitlements from {} consumers", count,
+                consumers);
         }
     }
 
     /**
      * Performs the cleanup of a block of expired pools.
      *
+     * @param consumerIds
+     *  a set to receive the IDs of the consumers which had entitlements revoked
+     *
      * @return
      *  the number of expired pools deleted as a result of this method
      */
     @Transactional
-    protected int cleanupExpiredPoolsImpl() {
+    protected int cleanupExpiredPoolsImpl(Set<String> consumerIds) {
         List<Pool> pools = poolCurator.listExpiredPools(PoolCurator.EXPIRED_POOL_BLOCK_SIZE);
 
         for (Pool pool : pools) {
@@ -485,12 +509,62 @@ public class CandlepinPoolManager implements PoolManager {
         // Delete the block of pools & flush the results to tell Hibernate to evict the objects
         // (we hope). Even if it doesn't, and even if the transaction completion is going to
         // flush the objects anyway, it should not hurt and is an explicit call.
-        this.deletePools(pools);
+        this.deleteExpiredPools(pools, consumerIds);
         this.poolCurator.flush();
 
         return pools.size();
     }
 
+    /**
+     * Deletes a block of expired pools, along with the pools of their subscriptions and any pools
+     * derived from their entitlements. The entitlements of every deleted pool are gathered up
+     * front and revoked together.
+     */
+    private void deleteExpiredPools(List<Pool> pools, Set<String> consumerIds) {
+        if (pools.isEmpty()) {
+            return;
+        }
+
+        Set<String> subscriptionIds = new HashSet<String>();
+        Set<Pool> poolsToDelete = new HashSet<Pool>(pools);
+
+        for (Pool pool : pools) {
+            SourceSubscription srcSub = pool.getSourceSubscription();
+            if (srcSub != null && srcSub.getSubscriptionId() != null &&
+                "master".equals(srcSub.getSubscriptionSubKey())) {
+
+                subscriptionIds.add(srcSub.getSubscriptionId());
+            }
+        }
+
+        if (!subscriptionIds.isEmpty()) {
+            poolsToDelete.addAll(this.poolCurator.getPoolsBySubscriptionIds(subscriptionIds));
+        }
+
+        Set<Entitlement> entitlements = new LinkedHashSet<Entitlement>();
+        for (Pool pool : poolsToDelete) {
+            entitlements.addAll(pool.getEntitlements());
+        }
+
+        Set<String> alreadyDeletedPools = new HashSet<String>();
+        if (!entitlements.isEmpty()) {
+            this.revokeEntitlements(new ArrayList<Entitlement>(entitlements), alreadyDeletedPools, true,
+                consumerIds);
+        }
+
+        List<Event> events = new ArrayList<Event>(poolsToDelete.size());
+        for (Pool pool : poolsToDelete) {
+            events.add(eventFactory.poolDeleted(pool));
+        }
+
+        log.debug("Batch deleting {} pools after successful revocation", poolsToDelete.size());
+        poolCurator.batchDelete(poolsToDelete, alreadyDeletedPools);
+
+        for (Event event : events) {
+            sink.queueEvent(event);
+        }
+    }
+
     private boolean isExpired(Subscription subscription) {
         Date now = new Date();
         return now.after(subscription.getEndDate());
@@ -1258,7 +1332,7 @@ public class CandlepinPoolManager implements PoolManager {
         logPools(filteredPools);
         List<PoolQuantity> enforced = autobindRules.selectBestPools(host,
             productIds, filteredPools, hostCompliance, serviceLevelOverride,
-            poolCurator.retrieveServiceLevelsForOwner(owner, true), true);
+            poolCurator.retrieveServiceLevelsForOwnerCached(owner, true), true);
 
         if (log.isDebugEnabled()) {
             log.debug("Host selectBestPools returned {} pools: ", enforced.size());
@@ -1424,7 +1498,7 @@ public class CandlepinPoolManager implements PoolManager {
 
         List<PoolQuantity> enforced = autobindRules.selectBestPools(consumer,
             productIds, filteredPools, compliance, serviceLevelOverride,
-            poolCurator.retrieveServiceLevelsForOwner(owner, true), false);
+            poolCurator.retrieveServiceLevelsForOwnerCached(owner, true), false);
         // Sort the resulting pools to avoid deadlocks
         Collections.sort(enforced);
         return enforced;
@@ -1687,6 +1761,27 @@ public class CandlepinPoolManager implements PoolManager {
     @Transactional
     public void revokeEntitlements(List<Entitlement> entsToRevoke, Set<String> alreadyDeletedPools,
         boolean regenCertsAndStatuses) {
+        revokeEntitlements(entsToRevoke, alreadyDeletedPools, regenCertsAndStatuses, null);
+    }
+
+    /**
+     * Revokes the given set of entitlements.
+     * <p></p>
+     * If a set of affected consumer IDs is provided, the entitlements and their certificates are
+     * removed with bulk statements, and the statuses of the consumers are not recomputed. Instead,
+     * the IDs of the consumers are added to the set, so the caller may recompute them in bulk once
+     * the revocation has been committed.
+     *
+     * @param entsToRevoke entitlements to revoke
+     * @param alreadyDeletedPools pools to skip deletion as they have already been deleted
+     * @param regenCertsAndStatuses if this revocation should also trigger regeneration of certificates
+     * and recomputation of statuses
+     * @param affectedConsumerIds a set to receive the IDs of the consumers which had entitlements
+     * revoked, or null to revoke the entitlements individually
+     */
+    @Transactional
+    protected void revokeEntitlements(List<Entitlement> entsToRevoke, Set<String> alreadyDeletedPools,
+        boolean regenCertsAndStatuses, Set<String> affectedConsumerIds) {
         if (log.isDebugEnabled()) {
             log.debug("Starting batch revoke of entitlements: {}", getEntIds(entsToRevoke));
         }
@@ -1715,16 +1810,22 @@ public class CandlepinPoolManager implements PoolManager {
         poolCurator.lockAndLoad(poolsToLock);
         log.info("Batch revoking {} entitlements ", entsToRevoke.size());
         entsToRevoke = new ArrayList<Entitlement>(entsToRevoke);
+        Set<Entitlement> revoking = Collections.newSetFromMap(new IdentityHashMap<Entitlement, Boolean>());
+        revoking.addAll(entsToRevoke);
 
         for (Pool pool : poolsToDelete) {
             for (Entitlement ent : pool.getEntitlements()) {
-                ent.setDeletedFromPool(true);
-                entsToRevoke.add(ent);
+                // The entitlements of a derived pool may already be among those being revoked
+                if (revoking.add(ent)) {
+                    ent.setDeletedFromPool(true);
+                    entsToRevoke.add(ent);
+                }
             }
         }
 
         log.debug("Adjusting consumed quantities on pools");
         List<Pool> poolsToSave = new ArrayList<Pool>();
+        Map<Consumer, Integer> consumerQuantities = new IdentityHashMap<Consumer, Integer>();
         for (Entitlement ent : entsToRevoke) {
             //We need to trigger lazy load of provided products
             //to have access to those products later in this method.
@@ -1739,10 +1840,21 @@ public class CandlepinPoolManager implements PoolManager {
             else if (consumer.isShare()) {
                 pool.setShared(pool.getShared() - entQuantity);
             }
-            consumer.setEntitlementCount(consumer.getEntitlementCount() - entQuantity);
-            consumerCurator.update(consumer);
+            Integer quantity = consumerQuantities.get(consumer);
+            consumerQuantities.put(consumer, (quantity != null ? quantity : 0) + entQuantity);
             poolsToSave.add(pool);
         }
+
+        // Update each consumer once, however many of its entitlements are being revoked
+        for (Entry<Consumer, Integer> entry : consumerQuantities.entrySet()) {
+            Consumer consumer = entry.getKey();
+            consumer.setEntitlementCount(consumer.getEntitlementCount() - entry.getValue());
+            consumerCurator.update(consumer);
+
+            if (affectedConsumerIds != null) {
+                affectedConsumerIds.add(consumer.getId());
+            }
+        }
         poolCurator.updateAll(poolsToSave, false, false);
 
         /*
@@ -1754,24 +1866,45 @@ public class CandlepinPoolManager implements PoolManager {
             log.debug("Marked {} modifying entitlements as dirty.", update);
         }
 
-        log.info("Starting batch delete of pools");
-        poolCurator.batchDelete(poolsToDelete, alreadyDeletedPools);
-        log.info("Starting batch delete of entitlements");
-        entitlementCurator.batchDelete(entsToRevoke);
-        log.info("Starting delete flush");
-        entitlementCurator.flush();
-        log.info("All deletes flushed successfully");
-
         Map<Consumer, List<Entitlement>> consumerSortedEntitlements = entitlementCurator
             .getDistinctConsumers(entsToRevoke);
 
-        filterAndUpdateStackingEntitlements(consumerSortedEntitlements, alreadyDeletedPools);
+        // Collect the stacks of the revoked entitlements while they are still attached; the
+        // stacks themselves are updated once the entitlements are gone.
+        Map<Consumer, Set<String>> consumerStackIds = getStackIdsByConsumer(consumerSortedEntitlements);
 
-        // post unbind actions
-        for (Entitlement ent : entsToRevoke) {
-            enforcer.postUnbind(ent.getConsumer(), this, ent);
+        if (affectedConsumerIds != null) {
+            // The bulk delete detaches the entitlements, so the events and post unbind actions
+            // are run beforehand. The pools are deleted only once the bulk delete has cleared
+            // their source entitlements.
+            sendDeletedEvents(entsToRevoke);
+            postUnbind(entsToRevoke);
+
+            log.info("Starting bulk delete of entitlements");
+            int deleted = entitlementCurator.bulkDeleteEntitlements(entsToRevoke);
+            log.info("Bulk deleted {} entitlements", deleted);
+            log.info("Starting batch delete of pools");
+            poolCurator.batchDelete(poolsToDelete, alreadyDeletedPools);
+        }
+        else {
+            log.info("Starting batch delete of pools");
+            poolCurator.batchDelete(poolsToDelete, alreadyDeletedPools);
+            log.info("Starting batch delete of entitlements");
+            entitlementCurator.batchDelete(entsToRevoke);
+            log.info("Starting delete flush");
+            entitlementCurator.flush();
+            log.info("All deletes flushed successfully");
         }
 
+        updateStackingPools(consumerStackIds, alreadyDeletedPools);
+
+        if (affectedConsumerIds != null) {
+            log.info("Status computation for {} consumers left to the caller", consumerQuantities.size());
+            return;
+        }
+
+        postUnbind(entsToRevoke);
+
         if (!regenCertsAndStatuses) {
             log.info("Regeneration and status computation was not requested finishing batch revoke");
 
@@ -1780,12 +1913,15 @@ public class CandlepinPoolManager implements PoolManager {
         }
 
         log.info("Recomputing status for {} consumers.", consumerSortedEntitlements.size());
-        int i = 1;
-        for (Consumer consumer : consumerSortedEntitlements.keySet()) {
-            if (i++ % 1000 == 0) {
-                consumerCurator.flush();
+        if (consumerSortedEntitlements.size() > 1) {
+            // Refreshes and product updates can revoke entitlements from many consumers at once;
+            // check them in blocks on the shared worker pool rather than one at a time.
+            this.complianceEvaluator.recalculate(consumerSortedEntitlements.keySet());
+        }
+        else {
+            for (Consumer consumer : consumerSortedEntitlements.keySet()) {
+                complianceRules.getStatus(consumer);
             }
-            complianceRules.getStatus(consumer);
         }
         consumerCurator.flush();
 
@@ -1839,17 +1975,26 @@ public class CandlepinPoolManager implements PoolManager {
     }
 
     /**
-     * Filter the given entitlements so that this method returns only
-     * the entitlements that are part of some stack. Then update them
-     * accordingly
+     * Runs the post unbind actions of the enforcer for each of the given entitlements.
+     *
+     * @param entitlements the revoked entitlements
+     */
+    private void postUnbind(List<Entitlement> entitlements) {
+        for (Entitlement ent : entitlements) {
+            enforcer.postUnbind(ent.getConsumer(), this, ent);
+        }
+    }
+
+    /**
+     * Filter the given entitlements so that this method returns only the stack IDs of the
+     * entitlements that are part of some stack, grouped by consumer.
      *
      * @param consumerSortedEntitlements Entitlements to be filtered
-     * @param alreadyDeletedPools pools to skip deletion as they have already been deleted
-     * @return Entitlements that are stacked
+     * @return the stack IDs of the stacked entitlements, by consumer
      */
-    private void filterAndUpdateStackingEntitlements(
-        Map<Consumer, List<Entitlement>> consumerSortedEntitlements, Set<String> alreadyDeletedPools) {
-        Map<Consumer, List<Entitlement>> stackingEntitlements = new HashMap<Consumer, List<Entitlement>>();
+    private Map<Consumer, Set<String>> getStackIdsByConsumer(
+        Map<Consumer, List<Entitlement>> consumerSortedEntitlements) {
+        Map<Consumer, Set<String>> stackIds = new HashMap<Consumer, Set<String>>();
 
         for (Consumer consumer : consumerSortedEntitlements.keySet()) {
             List<Entitlement> ents = consumerSortedEntitlements.get(consumer);
@@ -1859,28 +2004,37 @@ public class CandlepinPoolManager implements PoolManager {
 
                     if (!"true".equals(pool.getAttributeValue(Pool.Attributes.DERIVED_POOL)) &&
                         pool.getProduct().hasAttribute(Product.Attributes.STACKING_ID)) {
-                        List<Entitlement> entList = stackingEntitlements.get(consumer);
-                        if (entList == null) {
-                            entList = new ArrayList<Entitlement>();
-                            stackingEntitlements.put(consumer, entList);
+                        Set<String> consumerStackIds = stackIds.get(consumer);
+                        if (consumerStackIds == null) {
+                            consumerStackIds = new HashSet<String>();
+                            stackIds.put(consumer, consumerStackIds);
                         }
-                        entList.add(ent);
+                        consumerStackIds.add(pool.getStackId());
                     }
                 }
             }
         }
 
-        for (Entry<Consumer, List<Entitlement>> entry : stackingEntitlements.entrySet()) {
+        return stackIds;
+    }
+
+    /**
+     * Updates the stack derived pools of the given stacks from the entitlements which remain in
+     * them, once the stacked entitlements have been revoked.
+     *
+     * @param consumerStackIds the stack IDs of the revoked entitlements, by consumer
+     * @param alreadyDeletedPools pools to skip deletion as they have already been deleted
+     */
+    private void updateStackingPools(Map<Consumer, Set<String>> consumerStackIds,
+        Set<String> alreadyDeletedPools) {
+
+        for (Entry<Consumer, Set<String>> entry : consumerStackIds.entrySet()) {
             if (log.isDebugEnabled()) {
-                log.debug("Found {} stacking entitlements to delete for consumer: {}",
+                log.debug("Found {} stacks with entitlements deleted for consumer: {}",
                     entry.getValue().size(), entry.getKey());
             }
 
-            Set<String> stackIds = new HashSet<String>();
-            for (Entitlement ent : entry.getValue()) {
-                stackIds.add(ent.getPool().getStackId());
-            }
-            List<Pool> subPools = poolCurator.getSubPoolForStackIds(entry.getKey(), stackIds);
+            List<Pool> subPools = poolCurator.getSubPoolForStackIds(entry.getKey(), entry.getValue());
             if (CollectionUtils.isNotEmpty(subPools)) {
                 poolRules.updatePoolsFromStack(entry.getKey(), subPools, alreadyDeletedPools, true);
             }
@@ -2217,6 +2371,8 @@ public class CandlepinPoolManager implements PoolManager {
 
     @Override
     public Set<String> retrieveServiceLevelsForOwner(Owner owner, boolean exempt) {
+        // Used to validate requested service levels, so this must not be served from the node-local
+        // cache, which other nodes' pool changes do not evict
         return poolCurator.retrieveServiceLevelsForOwner(owner, exempt);
     }
 
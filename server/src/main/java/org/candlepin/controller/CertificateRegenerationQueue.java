@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.controller;
+
+import org.candlepin.model.CertificateRegenerationRecordCurator;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.persist.UnitOfWork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+
+/**
+ * The CertificateRegenerationQueue tracks entitlements whose certificates have been marked dirty,
+ * so they can be regenerated in the background rather than on the consumer's next certificate
+ * request.
+ * <p></p>
+ * The queue is kept in the database, so entitlements queued on any node can be regenerated by
+ * whichever node runs the regeneration job. Entitlements are queued within the transaction which
+ * marks them dirty. Queueing an entitlement which is already queued does not move or duplicate
+ * it. As the dirty flag on the entitlement remains the source of truth, entitlements marked dirty
+ * without being queued are still picked up by the regeneration job's sweep of the database, or
+ * regenerated inline when the consumer next fetches its certificates.
+ */
+@Singleton
+public class CertificateRegenerationQueue implements CertificateRegenerationQueueMXBean {
+    private static Logger log = LoggerFactory.getLogger(CertificateRegenerationQueue.class);
+
+    public static final String MBEAN_NAME = "org.candlepin:type=CertificateRegenerationQueue";
+
+    private final Provider<CertificateRegenerationRecordCurator> curatorProvider;
+    private final UnitOfWork unitOfWork;
+
+    private final AtomicLong enqueued;
+    private final AtomicLong regenerated;
+
+    private ObjectName mbeanName;
+
+    @Inject
+    public CertificateRegenerationQueue(Provider<CertificateRegenerationRecordCurator> curatorProvider,
+        UnitOfWork unitOfWork) {
+
+        this.curatorProvider = curatorProvider;
+        this.unitOfWork = unitOfWork;
+
+        this.enqueued = new AtomicLong();
+        this.regenerated = new AtomicLong();
+    }
+
+    /**
+     * Registers the queue's management bean. Does nothing if the bean is already registered.
+     */
+    public synchronized void start() {
+        if (this.mbeanName != null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+                this.mbeanName = name;
+            }
+        }
+        catch (JMException e) {
+            log.warn("Unable to register certificate regeneration queue management bean", e);
+        }
+    }
+
+    /**
+     * Unregisters the queue's management bean. Queued entitlements remain in the database.
+     */
+    public synchronized void stop() {
+        if (this.mbeanName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.mbeanName);
+        }
+        catch (JMException e) {
+            log.warn("Unable to unregister certificate regeneration queue management bean", e);
+        }
+
+        this.mbeanName = null;
+    }
+
+    /**
+     * Queues the given entitlement for certificate regeneration.
+     *
+     * @param entitlementId
+     *  the ID of the entitlement to queue
+     */
+    public void add(String entitlementId) {
+        if (entitlementId != null) {
+            this.addAll(Collections.singleton(entitlementId));
+        }
+    }
+
+    /**
+     * Queues the given entitlements for certificate regeneration. Entitlements which are already
+     * queued keep their existing position.
+     *
+     * @param entitlementIds
+     *  the IDs of the entitlements to queue
+     *
+     * @return
+     *  the number of entitlements newly added to the queue
+     */
+    public int addAll(Iterable<String> entitlementIds) {
+        int added = this.curatorProvider.get().enqueue(entitlementIds);
+        this.enqueued.addAndGet(added);
+
+        return added;
+    }
+
+    /**
+     * Fetches up to the given number of entitlement IDs from the head of the queue, without
+     * removing them. The entitlements of the consumers which checked in most recently come first.
+     *
+     * @param limit
+     *  the maximum number of entitlement IDs to fetch
+     *
+     * @return
+     *  a list of queued entitlement IDs, in priority order
+     */
+    public List<String> peek(int limit) {
+        return this.curatorProvider.get().peek(limit);
+    }
+
+    /**
+     * Removes the given entitlement IDs from the queue.
+     *
+     * @param entitlementIds
+     *  the IDs of the entitlements to remove
+     */
+    public void removeAll(Collection<String> entitlementIds) {
+        this.curatorProvider.get().remove(entitlementIds);
+    }
+
+    /**
+     * Removes the entitlements which have been deleted, or are no longer dirty, from the queue.
+     *
+     * @return
+     *  the number of queue records removed
+     */
+    public int removeStale() {
+        return this.curatorProvider.get().removeStale();
+    }
+
+    /**
+     * Fetches the number of entitlements currently queued. Must be called within a unit of work.
+     *
+     * @return
+     *  the number of distinct entitlements queued
+     */
+    public long size() {
+        return this.curatorProvider.get().getDepth();
+    }
+
+    /**
+     * Records that certificates were regenerated for the given number of queued entitlements.
+     *
+     * @param count
+     *  the number of entitlements regenerated
+     */
+    public void recordRegenerated(int count) {
+        this.regenerated.addAndGet(count);
+    }
+
+    /*
+     * The management bean's attributes are read on JMX threads, outside of any request or job, so
+     * they need a unit of work of their own.
+     */
+
+    @Override
+    public long getDepth() {
+        this.unitOfWork.begin();
+
+        try {
+            return this.size();
+        }
+        finally {
+            this.unitOfWork.end();
+        }
+    }
+
+    @Override
+    public long getOldestAgeMillis() {
+        this.unitOfWork.begin();
+
+        try {
+            Date oldest = this.curatorProvider.get().getOldestQueued();
+            return oldest != null ? Math.max(0, System.currentTimeMillis() - oldest.getTime()) : 0;
+        }
+        finally {
+            this.unitOfWork.end();
+        }
+    }
+
+    @Override
+    public long getEnqueued() {
+        return this.enqueued.get();
+    }
+
+    @Override
+    public long getRegenerated() {
+        return this.regenerated.get();
+    }
+
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.controller;
+
+/**
+ * Management interface exposing the depth and throughput of the
+ * {@link CertificateRegenerationQueue}.
+ */
+public interface CertificateRegenerationQueueMXBean {
+
+    /**
+     * @return the number of entitlements currently queued, across all nodes
+     */
+    long getDepth();
+
+    /**
+     * @return the time, in milliseconds, the oldest queued entitlement has been waiting, or zero
+     *  if the queue is empty
+     */
+    long getOldestAgeMillis();
+
+    /**
+     * @return the number of entitlements added to the queue by this node; entitlements already
+     *  queued are not counted
+     */
+    long getEnqueued();
+
+    /**
+     * @return the number of entitlements whose certificates were regenerated from the queue by
+     *  this node
+     */
+    long getRegenerated();
+
+}
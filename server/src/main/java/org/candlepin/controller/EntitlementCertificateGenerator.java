@@ -32,6 +32,7 @@ import org.candlepin.service.EntitlementCertServiceAdapter;
 import org.candlepin.util.CertificateSizeException;
 import org.candlepin.version.CertVersionConflictException;
 
+import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 
@@ -58,10 +59,17 @@ import java.util.Set;
  * are incredibly expensive and, in the case of immediate regeneration, can hold database locks for the
  * duration. Usage of these methods should be carefully evaluated, and bulk operations should be
  * preferred to singular ones.
+ * <p></p>
+ * Entitlements marked dirty by lazy regeneration are also added to the
+ * {@link CertificateRegenerationQueue}, so their certificates can be regenerated in the background
+ * before the consumer next requests them.
  */
 public class EntitlementCertificateGenerator {
     private static Logger log = LoggerFactory.getLogger(EntitlementCertificateGenerator.class);
 
+    /** The number of entitlements regenerated together when regenerating by environment content */
+    private static final int REGENERATION_BLOCK_SIZE = 1000;
+
     private EntitlementCertificateCurator entitlementCertificateCurator;
     private EntitlementCertServiceAdapter entCertServiceAdapter;
     private EntitlementCurator entitlementCurator;
@@ -69,13 +77,13 @@ public class EntitlementCertificateGenerator {
     private ProductCurator productCurator;
     private EventSink eventSink;
     private EventFactory eventFactory;
-
+    private CertificateRegenerationQueue regenQueue;
 
     @Inject
     public EntitlementCertificateGenerator(EntitlementCertificateCurator entitlementCertificateCurator,
         EntitlementCertServiceAdapter entCertServiceAdapter, EntitlementCurator entitlementCurator,
         PoolCurator poolCurator, EventSink eventSink, EventFactory eventFactory,
-        ProductCurator productCurator) {
+        ProductCurator productCurator, CertificateRegenerationQueue regenQueue) {
 
         this.entitlementCertificateCurator = entitlementCertificateCurator;
         this.entCertServiceAdapter = entCertServiceAdapter;
@@ -85,6 +93,7 @@ public class EntitlementCertificateGenerator {
         this.eventSink = eventSink;
         this.eventFactory = eventFactory;
         this.productCurator = productCurator;
+        this.regenQueue = regenQueue;
     }
 
     /**
@@ -166,6 +175,7 @@ public class EntitlementCertificateGenerator {
         if (lazy) {
             log.info("Marking certificates dirty for entitlement: {}", entitlement);
             entitlement.setDirty(true);
+            this.regenQueue.add(entitlement.getId());
             return;
         }
 
@@ -235,6 +245,7 @@ public class EntitlementCertificateGenerator {
 
         if (lazy) {
             this.entitlementCurator.markEntitlementsDirty(entitlementIds);
+            this.regenQueue.addAll(entitlementIds);
         }
         else {
             for (String entitlementId : entitlementIds) {
@@ -291,32 +302,16 @@ public class EntitlementCertificateGenerator {
 
         log.info("Regenerating relevant certificates in environment: {}", environment);
 
-        Set<Entitlement> entsToRegen = new HashSet<Entitlement>();
+        // The affected entitlements are resolved by the database, and processed in blocks so the
+        // entitlements need not be loaded when regenerating lazily.
+        List<String> entitlementIds = this.entitlementCurator
+            .listEntitlementIdsByEnvironmentAndContent(environment, contentIds);
 
-        entLoop: for (Entitlement entitlement : this.entitlementCurator.listByEnvironment(environment)) {
-            // Impl note:
-            // Since the entitlements came from the DB, we should be safe to traverse the graph as
-            // necessary without any sanity checks (so long as our model's restrictions aren't
-            // broken).
+        log.info("Found {} certificates to regenerate.", entitlementIds.size());
 
-            for (String contentId : contentIds) {
-                if (entitlement.getPool().getProduct().hasContent(contentId)) {
-                    entsToRegen.add(entitlement);
-                    continue entLoop;
-                }
-                Set<Product> providedProducts = productCurator
-                    .getPoolProvidedProductsCached(entitlement.getPool().getId());
-                for (Product provided : providedProducts) {
-                    if (provided.hasContent(contentId)) {
-                        entsToRegen.add(entitlement);
-                        continue entLoop;
-                    }
-                }
-            }
+        for (List<String> block : Iterables.partition(entitlementIds, REGENERATION_BLOCK_SIZE)) {
+            this.regenerateCertificatesByEntitlementIds(block, lazy);
         }
-
-        log.info("Found {} certificates to regenerate.", entsToRegen.size());
-        this.regenerateCertificatesOf(entsToRegen, lazy);
     }
 
     /**
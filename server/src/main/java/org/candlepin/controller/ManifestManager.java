@@ -17,7 +17,7 @@ package org.candlepin.controller;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.Date;
 import java.util.Map;
 import java.util.Set;
 
@@ -50,7 +50,6 @@ import org.candlepin.sync.file.ManifestFile;
 import org.candlepin.sync.file.ManifestFileService;
 import org.candlepin.sync.file.ManifestFileType;
 import org.candlepin.sync.file.ManifestFileServiceException;
-import org.candlepin.util.Util;
 import org.quartz.JobDetail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -209,22 +208,17 @@ public class ManifestManager {
     }
 
     /**
-     * Performs a cleanup of the manifest records. It will remove records that
-     * are of the specified age (in minutes) and will clean up all related files.
-     * Because the uploaded/downloaded manifest files are provided by a service
-     * any rogue records are removed as well.
+     * Removes a single block of manifest records, and their related files, created before the
+     * given expiry date. This method does not run in a transaction of its own making, so
+     * repeated calls delete the expired records in a series of short transactions.
      *
-     * @param maxAgeInMinutes the maximum age of the file in minutes. A negative value
-     *                        indicates no expiry.
-     * @return the number of expired exports that were deleted.
+     * @param expiryDate the date before which manifest records are expired
+     * @param blockSize the maximum number of records to remove
+     * @return the number of expired records that were deleted.
      * @throws ManifestFileServiceException if an error occurs when cleaning up records.
      */
-    @Transactional
-    public int cleanup(int maxAgeInMinutes) throws ManifestFileServiceException {
-        if (maxAgeInMinutes < 0) {
-            return 0;
-        }
-        return manifestFileService.deleteExpired(Util.addMinutesToDt(maxAgeInMinutes * -1));
+    public int cleanupBlock(Date expiryDate, int blockSize) throws ManifestFileServiceException {
+        return manifestFileService.deleteExpired(expiryDate, blockSize);
     }
 
     /**
@@ -266,20 +260,13 @@ public class ManifestManager {
                     exportedConsumer.getUuid()));
         }
 
-        BufferedOutputStream output = null;
-        InputStream input = null;
         try {
             response.setContentType("application/zip");
             response.setHeader("Content-Disposition", "attachment; filename=" + manifest.getName());
 
-            // NOTE: Input and output streams are expected to be closed by their creators.
-            input = manifest.getInputStream();
-            output = new BufferedOutputStream(response.getOutputStream());
-            int data = input.read();
-            while (data != -1) {
-                output.write(data);
-                data = input.read();
-            }
+            // NOTE: The response output stream is expected to be closed by its creator.
+            BufferedOutputStream output = new BufferedOutputStream(response.getOutputStream());
+            manifest.writeTo(output);
             output.flush();
         }
         catch (Exception e) {
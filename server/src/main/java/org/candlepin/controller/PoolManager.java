@@ -161,7 +161,8 @@ public interface PoolManager {
 
     /**
      * Search for any expired pools on the server, cleanup their subscription,
-     * entitlements, and the pool itself.
+     * entitlements, and the pool itself. The compliance status of consumers which
+     * lose entitlements is recalculated in bulk as each block of pools is deleted.
      */
     void cleanupExpiredPools();
 
@@ -29,9 +29,12 @@ import org.candlepin.common.config.MapConfiguration;
 import org.candlepin.common.logging.LoggingConfigurator;
 import org.candlepin.config.ConfigProperties;
 import org.candlepin.config.DatabaseConfigFactory;
+import org.candlepin.controller.BatchComplianceEvaluator;
+import org.candlepin.controller.CertificateRegenerationQueue;
 import org.candlepin.controller.SuspendModeTransitioner;
 import org.candlepin.logging.LoggerContextListener;
 import org.candlepin.pinsetter.core.PinsetterContextListener;
+import org.candlepin.pki.KeyPairPool;
 import org.candlepin.resteasy.ResourceLocatorMap;
 import org.candlepin.swagger.CandlepinSwaggerModelConverter;
 import org.candlepin.util.Util;
@@ -87,6 +90,9 @@ public class CandlepinContextListener extends GuiceResteasyBootstrapServletConte
     private HornetqContextListener hornetqListener;
     private PinsetterContextListener pinsetterListener;
     private LoggerContextListener loggerListener;
+    private KeyPairPool keyPairPool;
+    private CertificateRegenerationQueue regenQueue;
+    private BatchComplianceEvaluator batchComplianceEvaluator;
 
     // a bit of application-initialization code. Not sure if this is the
     // best spot for it.
@@ -180,6 +186,14 @@ public class CandlepinContextListener extends GuiceResteasyBootstrapServletConte
 
         loggerListener = injector.getInstance(LoggerContextListener.class);
 
+        keyPairPool = injector.getInstance(KeyPairPool.class);
+        keyPairPool.start();
+
+        regenQueue = injector.getInstance(CertificateRegenerationQueue.class);
+        regenQueue.start();
+
+        batchComplianceEvaluator = injector.getInstance(BatchComplianceEvaluator.class);
+
         /**
          * Custom ModelConverter to handle our specific serialization requirements
          */
@@ -197,6 +211,9 @@ public class CandlepinContextListener extends GuiceResteasyBootstrapServletConte
         }
         pinsetterListener.contextDestroyed();
         loggerListener.contextDestroyed();
+        keyPairPool.stop();
+        regenQueue.stop();
+        batchComplianceEvaluator.stop();
 
         // if amqp is enabled, close all connections.
         if (config.getBoolean(ConfigProperties.AMQP_INTEGRATION_ENABLED)) {
@@ -42,8 +42,13 @@ public class CandlepinFilterModule extends ServletModule {
     @Override
     protected void configureServlets() {
         Map<String, String> loggingFilterConfig = new HashMap<String, String>();
-        loggingFilterConfig.put("header.name", "x-candlepin-request-uuid");
-
+        loggingFilterConfig.put(LoggingFilter.HEADER_NAME, "x-candlepin-request-uuid");
+        putIfSet(loggingFilterConfig, LoggingFilter.BODY_MAX_SIZE, ConfigProperties.LOG_BODY_MAX_SIZE);
+        putIfSet(loggingFilterConfig, LoggingFilter.BODY_CONTENT_TYPES,
+            ConfigProperties.LOG_BODY_CONTENT_TYPES);
+        putIfSet(loggingFilterConfig, LoggingFilter.BODY_SAMPLE_RATE, ConfigProperties.LOG_BODY_SAMPLE_RATE);
+        putIfSet(loggingFilterConfig, LoggingFilter.BODY_DEBUG_HEADER,
+            ConfigProperties.LOG_BODY_DEBUG_HEADER);
 
         String regex = ".*";
 
@@ -63,4 +68,11 @@ public class CandlepinFilterModule extends ServletModule {
 
         serveRegex(regex).with(HttpServletDispatcher.class);
     }
+
+    private void putIfSet(Map<String, String> filterConfig, String param, String configKey) {
+        String value = config.getString(configKey, null);
+        if (value != null) {
+            filterConfig.put(param, value);
+        }
+    }
 }
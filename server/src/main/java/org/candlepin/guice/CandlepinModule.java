@@ -74,6 +74,7 @@ import org.candlepin.pinsetter.tasks.JobCleaner;
 import org.candlepin.pinsetter.tasks.RefreshPoolsJob;
 import org.candlepin.pinsetter.tasks.SweepBarJob;
 import org.candlepin.pinsetter.tasks.UnpauseJob;
+import org.candlepin.pki.CertificateSigningExecutorProvider;
 import org.candlepin.pki.PKIReader;
 import org.candlepin.pki.PKIUtility;
 import org.candlepin.pki.impl.BouncyCastlePKIReader;
@@ -164,6 +165,7 @@ import org.quartz.spi.JobFactory;
 import org.xnap.commons.i18n.I18n;
 
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import javax.cache.CacheManager;
@@ -291,6 +293,10 @@ public class CandlepinModule extends AbstractModule {
         bind(Function.class).annotatedWith(Names.named("endDateGenerator"))
             .to(ExpiryDateFunction.class).in(Singleton.class);
 
+        // shared workers for signing certificates generated in bulk
+        bind(ExecutorService.class).annotatedWith(Names.named("certificateSigningExecutor"))
+            .toProvider(CertificateSigningExecutorProvider.class).in(Singleton.class);
+
         // only initialize if we've enabled AMQP integration
         if (config.getBoolean(ConfigProperties.AMQP_INTEGRATION_ENABLED)) {
             configureAmqp();
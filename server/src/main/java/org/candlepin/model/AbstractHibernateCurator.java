@@ -34,6 +34,7 @@ import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.SQLQuery;
+import org.hibernate.Transaction;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
@@ -59,11 +60,13 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import javax.cache.Cache;
 import javax.persistence.CacheRetrieveMode;
 import javax.persistence.CacheStoreMode;
 import javax.persistence.EntityManager;
@@ -78,6 +81,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
+import javax.transaction.Synchronization;
 
 
 
@@ -577,6 +581,36 @@ public abstract class AbstractHibernateCurator<E extends Persisted> {
         return factory.openSession();
     }
 
+    /**
+     * Evicts the given keys from a cache now, and again once the current transaction completes.
+     * Evicting only before the commit would let concurrent requests cache values read before
+     * the changes being made became visible to them.
+     *
+     * @param cache
+     *  the cache from which to evict the keys
+     *
+     * @param keys
+     *  the keys to evict
+     */
+    protected <K> void evictOnCompletion(final Cache<K, ?> cache, final Set<K> keys) {
+        cache.removeAll(keys);
+
+        Transaction transaction = this.currentSession().getTransaction();
+        if (transaction != null && transaction.isActive()) {
+            transaction.registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // Nothing to do until the transaction has completed
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    cache.removeAll(keys);
+                }
+            });
+        }
+    }
+
     public EntityManager getEntityManager() {
         return entityManager.get();
     }
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+
+
+/**
+ * A CertificateRegenerationRecord queues the certificates of a dirty entitlement for regeneration
+ * in the background. Records are shared by every node, so the queue can be drained by whichever
+ * node runs the regeneration job. The same entitlement may be queued more than once by concurrent
+ * transactions; duplicates are collapsed when the queue is read.
+ */
+@Entity
+@Table(name = CertificateRegenerationRecord.DB_TABLE)
+public class CertificateRegenerationRecord extends AbstractHibernateObject {
+
+    /** Name of the table backing this object in the database */
+    public static final String DB_TABLE = "cp_cert_regen_queue";
+
+    @Id
+    @GeneratedValue(generator = "system-uuid")
+    @GenericGenerator(name = "system-uuid", strategy = "uuid")
+    @Column(length = 32)
+    @NotNull
+    private String id;
+
+    @Column(name = "entitlement_id", length = 32, nullable = false)
+    @Index(name = "cp_cert_regen_queue_ent_idx")
+    @NotNull
+    private String entitlementId;
+
+    public CertificateRegenerationRecord() {
+        // Intentionally left empty
+    }
+
+    public CertificateRegenerationRecord(String entitlementId) {
+        this.entitlementId = entitlementId;
+    }
+
+    @Override
+    public String getId() {
+        return this.id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getEntitlementId() {
+        return this.entitlementId;
+    }
+
+    public void setEntitlementId(String entitlementId) {
+        this.entitlementId = entitlementId;
+    }
+
+}
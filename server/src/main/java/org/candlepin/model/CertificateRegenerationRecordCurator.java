@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import com.google.common.collect.Iterables;
+import com.google.inject.persist.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.Query;
+
+
+
+/**
+ * The CertificateRegenerationRecordCurator maintains the queue of entitlements whose certificates
+ * should be regenerated in the background.
+ */
+public class CertificateRegenerationRecordCurator
+    extends AbstractHibernateCurator<CertificateRegenerationRecord> {
+
+    private static final String QUERY_CLASS_NAME =
+        CertificateRegenerationRecord.class.getCanonicalName();
+
+    public CertificateRegenerationRecordCurator() {
+        super(CertificateRegenerationRecord.class);
+    }
+
+    /**
+     * Queues the given entitlements for certificate regeneration, skipping any which are already
+     * queued. The records are written in the current transaction, so they only become visible to
+     * the regeneration job along with the change which made the entitlements dirty.
+     *
+     * @param entitlementIds
+     *  the IDs of the entitlements to queue
+     *
+     * @return
+     *  the number of entitlements newly queued
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public int enqueue(Iterable<String> entitlementIds) {
+        Set<String> pending = new LinkedHashSet<String>();
+
+        if (entitlementIds != null) {
+            Iterables.addAll(pending, entitlementIds);
+            pending.remove(null);
+        }
+
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        String queryString = String.format("select distinct r.entitlementId from %s r " +
+            "where r.entitlementId in (:ids)", QUERY_CLASS_NAME);
+
+        for (List<String> block : Iterables.partition(new ArrayList<String>(pending),
+            this.getInBlockSize())) {
+
+            Query query = this.getEntityManager().createQuery(queryString);
+            query.setParameter("ids", block);
+            pending.removeAll(query.getResultList());
+        }
+
+        List<CertificateRegenerationRecord> records =
+            new ArrayList<CertificateRegenerationRecord>(pending.size());
+
+        for (String entitlementId : pending) {
+            records.add(new CertificateRegenerationRecord(entitlementId));
+        }
+
+        this.saveAll(records, false, false);
+        return records.size();
+    }
+
+    /**
+     * Fetches up to the given number of queued entitlement IDs, without removing them from the
+     * queue. The entitlements of the consumers which checked in most recently, and so are most
+     * likely to request their certificates soon, come first; entitlements of consumers which
+     * checked in at the same time are returned in the order they were queued.
+     *
+     * @param limit
+     *  the maximum number of entitlement IDs to fetch
+     *
+     * @return
+     *  a list of queued entitlement IDs, in priority order
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> peek(int limit) {
+        String queryString = String.format("select r.entitlementId from %s r, Entitlement e " +
+            "join e.consumer c " +
+            "where e.id = r.entitlementId " +
+            "group by r.entitlementId, c.lastCheckin " +
+            "order by c.lastCheckin desc nulls last, min(r.created) asc", QUERY_CLASS_NAME);
+
+        Query query = this.getEntityManager().createQuery(queryString);
+        query.setMaxResults(limit);
+
+        return query.getResultList();
+    }
+
+    /**
+     * Removes the given entitlements from the queue.
+     *
+     * @param entitlementIds
+     *  the IDs of the entitlements to remove
+     *
+     * @return
+     *  the number of queue records removed
+     */
+    @Transactional
+    public int remove(Collection<String> entitlementIds) {
+        int removed = 0;
+
+        if (entitlementIds != null && !entitlementIds.isEmpty()) {
+            String queryString = String.format("delete from %s r where r.entitlementId in (:ids)",
+                QUERY_CLASS_NAME);
+
+            for (List<String> block : Iterables.partition(entitlementIds, this.getInBlockSize())) {
+                Query query = this.getEntityManager().createQuery(queryString);
+                query.setParameter("ids", block);
+                removed += query.executeUpdate();
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes the queued entitlements which have since been deleted, or whose certificates have
+     * already been regenerated, such as by the consumer fetching them.
+     *
+     * @return
+     *  the number of queue records removed
+     */
+    @Transactional
+    public int removeStale() {
+        String queryString = String.format("delete from %s r where not exists (" +
+            "select e.id from Entitlement e where e.id = r.entitlementId and e.dirty = true)",
+            QUERY_CLASS_NAME);
+
+        return this.getEntityManager().createQuery(queryString).executeUpdate();
+    }
+
+    /**
+     * @return
+     *  the number of distinct entitlements currently queued
+     */
+    public long getDepth() {
+        String queryString = String.format("select count(distinct r.entitlementId) from %s r",
+            QUERY_CLASS_NAME);
+
+        Number depth = (Number) this.getEntityManager().createQuery(queryString).getSingleResult();
+        return depth.longValue();
+    }
+
+    /**
+     * @return
+     *  the time at which the oldest queued entitlement was queued, or null if the queue is empty
+     */
+    public Date getOldestQueued() {
+        String queryString = String.format("select min(r.created) from %s r", QUERY_CLASS_NAME);
+        return (Date) this.getEntityManager().createQuery(queryString).getSingleResult();
+    }
+
+}
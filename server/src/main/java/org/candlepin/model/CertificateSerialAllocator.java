@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.PersistenceException;
+
+
+
+/**
+ * The CertificateSerialAllocator hands out certificate serial numbers from blocks reserved from
+ * a counter in the database. Each block is reserved with a single update in its own transaction,
+ * so serials remain unique across all nodes sharing the database, while serials within a block
+ * are handed out in memory without locking.
+ * <p></p>
+ * Reservations are committed independently of the caller's transaction; serials from a block
+ * whose certificates are never persisted are simply skipped.
+ */
+@Singleton
+public class CertificateSerialAllocator {
+    private static Logger log = LoggerFactory.getLogger(CertificateSerialAllocator.class);
+
+    /** Name of the table holding the serial block counter */
+    public static final String DB_TABLE = "cp_cert_serial_block";
+
+    /** The ID of the counter row in the serial block table */
+    public static final String COUNTER_ID = "cert_serial";
+
+    /** The first serial handed out by a new counter, matching the seed in the changelog */
+    private static final long FIRST_SERIAL = 1L;
+
+    private final Provider<EntityManagerFactory> emfProvider;
+    private final int blockSize;
+    private final AtomicReference<Block> current;
+
+    @Inject
+    public CertificateSerialAllocator(Configuration config, Provider<EntityManagerFactory> emfProvider) {
+        this.emfProvider = emfProvider;
+        this.blockSize = Math.max(0, config.getInt(ConfigProperties.CERT_SERIAL_BLOCK_SIZE));
+        this.current = new AtomicReference<Block>();
+    }
+
+    /**
+     * @return
+     *  true if serials are allocated from reserved blocks; false if serials should be generated
+     *  randomly instead
+     */
+    public boolean isEnabled() {
+        return this.blockSize > 0;
+    }
+
+    /**
+     * Fetches the next serial number from this node's current block, reserving a new block if
+     * the current one has been exhausted.
+     *
+     * @throws IllegalStateException
+     *  if block allocation is disabled
+     *
+     * @return
+     *  a serial number which has not been handed out by any node
+     */
+    public long nextSerial() {
+        if (!this.isEnabled()) {
+            throw new IllegalStateException("Certificate serial block allocation is disabled");
+        }
+
+        while (true) {
+            Block block = this.current.get();
+
+            if (block != null) {
+                long serial = block.next.getAndIncrement();
+
+                if (serial < block.limit) {
+                    return serial;
+                }
+            }
+
+            this.replaceBlock(block);
+        }
+    }
+
+    /**
+     * Reserves a new block, unless another thread has already replaced the exhausted block.
+     */
+    private synchronized void replaceBlock(Block exhausted) {
+        if (this.current.get() == exhausted) {
+            long start = this.reserveBlock(this.blockSize);
+            this.current.set(new Block(start, start + this.blockSize));
+
+            log.debug("Reserved certificate serial block [{}, {})", start, start + this.blockSize);
+        }
+    }
+
+    /**
+     * Advances the database counter by the given number of serials in a separate transaction,
+     * returning the first serial of the reserved range. The row lock taken by the update keeps
+     * concurrent reservations from other nodes from overlapping.
+     * <p></p>
+     * If the counter row is missing, it is created with the reserved block already accounted
+     * for. Should another node create it at the same time, the insert fails on the primary key
+     * and the reservation is retried against the row the other node created.
+     *
+     * @param size
+     *  the number of serials to reserve
+     *
+     * @return
+     *  the first serial number of the reserved block
+     */
+    protected long reserveBlock(int size) {
+        try {
+            return this.advanceCounter(size);
+        }
+        catch (PersistenceException e) {
+            log.debug("Certificate serial block counter was created concurrently; retrying", e);
+            return this.advanceCounter(size);
+        }
+    }
+
+    private long advanceCounter(int size) {
+        EntityManager em = this.emfProvider.get().createEntityManager();
+        EntityTransaction transaction = em.getTransaction();
+
+        try {
+            transaction.begin();
+
+            int updated = em.createNativeQuery(
+                "UPDATE " + DB_TABLE + " SET next_id = next_id + ?1 WHERE id = ?2")
+                .setParameter(1, (long) size)
+                .setParameter(2, COUNTER_ID)
+                .executeUpdate();
+
+            if (updated != 1) {
+                em.createNativeQuery("INSERT INTO " + DB_TABLE + " (id, next_id) VALUES (?1, ?2)")
+                    .setParameter(1, COUNTER_ID)
+                    .setParameter(2, FIRST_SERIAL + size)
+                    .executeUpdate();
+
+                transaction.commit();
+                log.info("Created missing certificate serial block counter");
+                return FIRST_SERIAL;
+            }
+
+            Number next = (Number) em.createNativeQuery(
+                "SELECT next_id FROM " + DB_TABLE + " WHERE id = ?1")
+                .setParameter(1, COUNTER_ID)
+                .getSingleResult();
+
+            transaction.commit();
+            return next.longValue() - size;
+        }
+        catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        }
+        finally {
+            em.close();
+        }
+    }
+
+    /**
+     * A reserved range of serials, from the next serial to hand out up to an exclusive limit.
+     */
+    private static class Block {
+        final AtomicLong next;
+        final long limit;
+
+        Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+
+}
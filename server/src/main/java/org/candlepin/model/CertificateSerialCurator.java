@@ -17,6 +17,7 @@ package org.candlepin.model;
 import org.candlepin.util.Util;
 
 import com.google.common.collect.Iterables;
+import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 
 import org.hibernate.Query;
@@ -39,8 +40,43 @@ public class CertificateSerialCurator extends AbstractHibernateCurator<Certifica
 
     private static int inClauseLimit = 1000;
 
-    public CertificateSerialCurator() {
+    private CertificateSerialAllocator allocator;
+
+    @Inject
+    public CertificateSerialCurator(CertificateSerialAllocator allocator) {
         super(CertificateSerial.class);
+        this.allocator = allocator;
+    }
+
+    /**
+     * Assigns serial numbers from this node's reserved block to the given new certificate
+     * serials, replacing their randomly generated IDs. This must be done before the serials are
+     * used to build certificates or persisted. If block allocation is disabled, the serials are
+     * left unchanged.
+     *
+     * @param serials
+     *  a collection of new certificate serials
+     */
+    public void assignSerials(Collection<CertificateSerial> serials) {
+        if (serials != null) {
+            for (CertificateSerial serial : serials) {
+                this.assignSerial(serial);
+            }
+        }
+    }
+
+    /**
+     * Assigns a serial number from this node's reserved block to the given new certificate
+     * serial, replacing its randomly generated ID. If block allocation is disabled, the serial
+     * is left unchanged.
+     *
+     * @param serial
+     *  the new certificate serial
+     */
+    public void assignSerial(CertificateSerial serial) {
+        if (serial != null && this.allocator != null && this.allocator.isEnabled()) {
+            serial.setId(this.allocator.nextSerial());
+        }
     }
 
     /**
@@ -34,10 +34,12 @@ import org.hibernate.annotations.Index;
 import org.hibernate.annotations.Type;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -182,6 +184,19 @@ public class Consumer extends AbstractHibernateObject implements Linkable, Owned
     @JsonDeserialize(contentConverter = StringTrimmingConverter.class)
     private Map<String, String> facts;
 
+    /**
+     * Normalized copies of the facts which may be searched on, as configured by
+     * ConfigProperties.SEARCHABLE_FACTS. Maintained by the ConsumerCurator; values are stored in
+     * lower case, with null values stored as empty strings.
+     */
+    @ElementCollection
+    @CollectionTable(name = "cp_consumer_fact_index",
+        joinColumns = @JoinColumn(name = "cp_consumer_id"))
+    @MapKeyColumn(name = "mapkey")
+    @Column(name = "element")
+    @Cascade({org.hibernate.annotations.CascadeType.ALL})
+    private Map<String, String> searchableFacts;
+
     @OneToOne(cascade = CascadeType.ALL)
     private KeyPair keyPair;
 
@@ -257,6 +272,7 @@ public class Consumer extends AbstractHibernateObject implements Linkable, Owned
         // generate a UUID at this point.
         this.ensureUUID();
         this.entitlements = new HashSet<Entitlement>();
+        this.searchableFacts = new HashMap<String, String>();
         this.setEntitlementCount(0L);
     }
 
@@ -408,10 +424,80 @@ public class Consumer extends AbstractHibernateObject implements Linkable, Owned
     }
 
     /**
+     * Sets the facts of this consumer. Rather than replacing the backing collection, the given
+     * facts are applied to the existing map as a diff: facts which are no longer present are
+     * removed, and only new or changed facts are written. This allows Hibernate to issue
+     * row-level inserts, updates and deletes for a managed consumer instead of deleting and
+     * re-inserting every fact whenever a single fact changes.
+     *
      * @param factsIn facts about this consumer.
      */
     public void setFacts(Map<String, String> factsIn) {
-        facts = factsIn;
+        if (factsIn == null) {
+            this.facts = null;
+            return;
+        }
+
+        if (this.facts == null) {
+            this.facts = new HashMap<String, String>(factsIn);
+            return;
+        }
+
+        if (this.facts == factsIn) {
+            return;
+        }
+
+        this.facts.keySet().retainAll(factsIn.keySet());
+
+        for (Entry<String, String> fact : factsIn.entrySet()) {
+            String key = fact.getKey();
+            String value = fact.getValue();
+
+            if (!this.facts.containsKey(key) || !StringUtils.equals(this.facts.get(key), value)) {
+                this.facts.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Refreshes the searchable fact index of this consumer from its facts. Only facts with the
+     * given keys are indexed; like setFacts, the index is updated in place so only changed rows
+     * are written.
+     *
+     * @param searchableKeys
+     *  The keys of the facts which should be indexed
+     */
+    void updateSearchableFacts(Collection<String> searchableKeys) {
+        if (this.searchableFacts == null) {
+            this.searchableFacts = new HashMap<String, String>();
+        }
+
+        Map<String, String> indexed = new HashMap<String, String>();
+        if (this.facts != null && searchableKeys != null) {
+            for (String key : searchableKeys) {
+                if (this.facts.containsKey(key)) {
+                    String value = this.facts.get(key);
+                    indexed.put(key, value != null ? value.toLowerCase(Locale.ROOT) : "");
+                }
+            }
+        }
+
+        this.searchableFacts.keySet().retainAll(indexed.keySet());
+
+        for (Entry<String, String> entry : indexed.entrySet()) {
+            if (!entry.getValue().equals(this.searchableFacts.get(entry.getKey()))) {
+                this.searchableFacts.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the searchable fact index of this consumer
+     */
+    @XmlTransient
+    @JsonIgnore
+    Map<String, String> getSearchableFacts() {
+        return this.searchableFacts;
     }
 
     /**
@@ -17,6 +17,7 @@ package org.candlepin.model;
 import org.candlepin.common.config.Configuration;
 import org.candlepin.common.exceptions.BadRequestException;
 import org.candlepin.common.exceptions.NotFoundException;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.resteasy.parameter.KeyValueParameter;
 import org.candlepin.util.FactValidator;
 import org.candlepin.util.Util;
@@ -27,9 +28,11 @@ import com.google.inject.persist.Transactional;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.ReplicationMode;
+import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Disjunction;
@@ -78,10 +81,18 @@ public class ConsumerCurator extends AbstractHibernateCurator<Consumer> {
     public Consumer create(Consumer entity) {
         entity.ensureUUID();
         this.validateFacts(entity);
+        entity.updateSearchableFacts(this.getSearchableFactKeys());
 
         return super.create(entity);
     }
 
+    @Override
+    @Transactional
+    public Consumer merge(Consumer entity) {
+        entity.updateSearchableFacts(this.getSearchableFactKeys());
+        return super.merge(entity);
+    }
+
     @Override
     @Transactional
     public void delete(Consumer entity) {
@@ -277,6 +288,181 @@ public class ConsumerCurator extends AbstractHibernateCurator<Consumer> {
         return this.cpQueryFactory.<Consumer>buildQuery(this.currentSession(), criteria);
     }
 
+    /**
+     * Looks up the consumers with the given UUIDs, fetching their entitlements, the entitlements'
+     * pools and the pools' products and provided products in the same queries. This allows
+     * operations which need the entitlements of many consumers, such as compliance checks, to
+     * avoid a query per consumer.
+     *
+     * @param uuids
+     *  the UUIDs of the consumers to look up
+     *
+     * @return
+     *  a list of the consumers found, with their entitlements initialized
+     */
+    public List<Consumer> findByUuidsWithEntitlements(Collection<String> uuids) {
+        return this.findWithEntitlements("uuid", uuids);
+    }
+
+    /**
+     * Looks up the consumers with the given IDs, fetching their entitlements, the entitlements'
+     * pools and the pools' products and provided products in the same queries.
+     * <p></p>
+     * The consumers returned are marked read-only in the current session, so changes made to them
+     * are not written back when the session is flushed. This allows callers processing many
+     * consumers to apply their changes with a single bulk update, such as
+     * {@link #bulkUpdateComplianceStatus}, rather than an update per consumer. Changes to the
+     * consumers' entitlements are unaffected.
+     *
+     * @param ids
+     *  the IDs of the consumers to look up
+     *
+     * @return
+     *  a list of the consumers found, with their entitlements initialized
+     */
+    public List<Consumer> findByIdsWithEntitlements(Collection<String> ids) {
+        return this.findByIdsWithEntitlements(ids, true);
+    }
+
+    /**
+     * Looks up the consumers with the given IDs, fetching their entitlements, the entitlements'
+     * pools and the pools' products and provided products in the same queries. Consumers already
+     * in the current session are returned as-is, with any of these associations which have not
+     * yet been loaded initialized by the same queries.
+     *
+     * @param ids
+     *  the IDs of the consumers to look up
+     *
+     * @param readOnly
+     *  whether or not to mark the consumers returned read-only in the current session; see
+     *  {@link #findByIdsWithEntitlements(Collection)}
+     *
+     * @return
+     *  a list of the consumers found, with their entitlements initialized
+     */
+    public List<Consumer> findByIdsWithEntitlements(Collection<String> ids, boolean readOnly) {
+        List<Consumer> consumers = this.findWithEntitlements("id", ids);
+
+        if (readOnly) {
+            Session session = this.currentSession();
+
+            for (Consumer consumer : consumers) {
+                session.setReadOnly(consumer, true);
+            }
+        }
+
+        return consumers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Consumer> findWithEntitlements(String property, Collection<String> values) {
+        List<Consumer> consumers = new ArrayList<Consumer>();
+
+        if (values != null && !values.isEmpty()) {
+            for (List<String> block : Iterables.partition(values, this.getInBlockSize())) {
+                Criteria criteria = this.createSecureCriteria()
+                    .add(Restrictions.in(property, block))
+                    .setFetchMode("entitlements", FetchMode.JOIN)
+                    .setFetchMode("entitlements.pool", FetchMode.JOIN)
+                    .setFetchMode("entitlements.pool.product", FetchMode.JOIN)
+                    .setFetchMode("entitlements.pool.providedProducts", FetchMode.JOIN)
+                    .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+
+                consumers.addAll(criteria.list());
+            }
+        }
+
+        return consumers;
+    }
+
+    /**
+     * Fetches a page of the IDs of the consumers belonging to the given owner, in ascending ID
+     * order. Pages are selected by the last ID of the previous page rather than by offset, so each
+     * page costs the same to fetch regardless of how far into the owner's consumers it lies.
+     *
+     * @param owner
+     *  the owner whose consumer IDs should be fetched
+     *
+     * @param afterId
+     *  the last consumer ID of the previous page, or null to fetch the first page
+     *
+     * @param limit
+     *  the maximum number of IDs to fetch
+     *
+     * @return
+     *  a list of up to limit consumer IDs, in ascending order
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getConsumerIdPage(Owner owner, String afterId, int limit) {
+        Criteria criteria = this.currentSession().createCriteria(Consumer.class)
+            .add(Restrictions.eq("owner", owner))
+            .setProjection(Projections.id())
+            .addOrder(Order.asc("id"))
+            .setMaxResults(limit);
+
+        if (afterId != null) {
+            criteria.add(Restrictions.gt("id", afterId));
+        }
+
+        return criteria.list();
+    }
+
+    /**
+     * Writes the entitlement status and compliance status hash of the given consumers to the
+     * database, using as few update statements as possible. This bypasses Hibernate's dirty
+     * checking, and is intended for use with consumers fetched by
+     * {@link #findByIdsWithEntitlements}.
+     *
+     * @param consumers
+     *  the consumers whose compliance status should be written
+     *
+     * @return
+     *  the number of consumers updated
+     */
+    @Transactional
+    public int bulkUpdateComplianceStatus(Collection<Consumer> consumers) {
+        if (consumers == null || consumers.isEmpty()) {
+            return 0;
+        }
+
+        Date updated = new Date();
+        int count = 0;
+
+        for (List<Consumer> block : Iterables.partition(consumers, this.getCaseBlockSize())) {
+            StringBuilder status = new StringBuilder("CASE id");
+            StringBuilder hash = new StringBuilder("CASE id");
+            Map<String, Object> params = new HashMap<String, Object>();
+            List<String> ids = new ArrayList<String>(block.size());
+
+            for (int i = 0; i < block.size(); ++i) {
+                Consumer consumer = block.get(i);
+
+                status.append(" WHEN :id").append(i).append(" THEN :status").append(i);
+                hash.append(" WHEN :id").append(i).append(" THEN :hash").append(i);
+
+                params.put("id" + i, consumer.getId());
+                params.put("status" + i, consumer.getEntitlementStatus());
+                params.put("hash" + i, consumer.getComplianceStatusHash());
+                ids.add(consumer.getId());
+            }
+
+            String sql = "UPDATE " + Consumer.DB_TABLE + " SET entitlementstatus = " + status +
+                " END, compliancestatushash = " + hash + " END, updated = :updated WHERE id IN (:ids)";
+
+            Query query = this.currentSession().createSQLQuery(sql)
+                .setTimestamp("updated", updated)
+                .setParameterList("ids", ids);
+
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                query.setParameter(param.getKey(), param.getValue());
+            }
+
+            count += query.executeUpdate();
+        }
+
+        return count;
+    }
+
     @Transactional
     public CandlepinQuery<Consumer> findByUuidsAndOwner(Collection<String> uuids, Owner owner) {
         DetachedCriteria criteria = DetachedCriteria.forClass(Consumer.class)
@@ -404,6 +590,7 @@ public class ConsumerCurator extends AbstractHibernateCurator<Consumer> {
         // This set of updates is strange. We're ignoring the "null-as-no-change" semantics we use
         // everywhere else, and just blindly copying everything over.
         existingConsumer.setFacts(updatedConsumer.getFacts());
+        existingConsumer.updateSearchableFacts(this.getSearchableFactKeys());
         existingConsumer.setName(updatedConsumer.getName());
         existingConsumer.setOwner(updatedConsumer.getOwner());
         existingConsumer.setType(updatedConsumer.getType());
@@ -434,6 +621,173 @@ public class ConsumerCurator extends AbstractHibernateCurator<Consumer> {
             .executeUpdate();
     }
 
+    /**
+     * Fetches the keys of the facts which are maintained in the consumer fact index, as
+     * configured by ConfigProperties.SEARCHABLE_FACTS.
+     *
+     * @return
+     *  the set of searchable fact keys; never null
+     */
+    private Set<String> getSearchableFactKeys() {
+        Set<String> keys = new HashSet<String>();
+        Set<String> configured = this.config.getSet(ConfigProperties.SEARCHABLE_FACTS, null);
+
+        if (configured != null) {
+            keys.addAll(configured);
+            keys.remove("");
+        }
+
+        return keys;
+    }
+
+    /**
+     * Fetches the searchable facts which have been backfilled into the consumer fact index for
+     * every consumer. Only these facts can be searched through the index; searches on any other
+     * fact must fall back to the fact table.
+     *
+     * @return
+     *  the set of indexed fact keys; never null
+     */
+    public Set<String> getIndexedFactKeys() {
+        Set<String> keys = this.getSearchableFactKeys();
+
+        if (!keys.isEmpty()) {
+            List<String> indexed = this.currentSession()
+                .createQuery("SELECT k.key FROM ConsumerFactIndexKey k")
+                .list();
+
+            keys.retainAll(indexed);
+        }
+
+        return keys;
+    }
+
+    /**
+     * Fetches the searchable facts which have not yet been backfilled into the consumer fact
+     * index.
+     *
+     * @return
+     *  the set of searchable fact keys which are not yet indexed; never null
+     */
+    public Set<String> getUnindexedFactKeys() {
+        Set<String> keys = this.getSearchableFactKeys();
+        keys.removeAll(this.getIndexedFactKeys());
+
+        return keys;
+    }
+
+    /**
+     * Forgets the indexed state of any facts which are no longer searchable, so that they are
+     * backfilled again should they be made searchable once more.
+     *
+     * @return
+     *  the number of fact keys removed
+     */
+    @Transactional
+    public int removeUnsearchableFactKeys() {
+        Set<String> keys = this.getSearchableFactKeys();
+        String hql = "DELETE FROM ConsumerFactIndexKey k";
+
+        Query query = keys.isEmpty() ?
+            this.currentSession().createQuery(hql) :
+            this.currentSession().createQuery(hql + " WHERE k.key NOT IN (:keys)")
+                .setParameterList("keys", keys);
+
+        return query.executeUpdate();
+    }
+
+    /**
+     * Removes the index rows of facts which are no longer searchable for a block of consumers.
+     *
+     * @param blockSize
+     *  the maximum number of consumers to process
+     *
+     * @return
+     *  the number of index rows deleted; at least the number of consumers processed
+     */
+    @Transactional
+    public int deleteUnsearchableFactIndexBlock(int blockSize) {
+        Set<String> keys = this.getSearchableFactKeys();
+        String criteria = keys.isEmpty() ? "" : "mapkey NOT IN (:keys)";
+
+        Query select = this.currentSession().createSQLQuery(
+            "SELECT DISTINCT cp_consumer_id FROM cp_consumer_fact_index" +
+            (keys.isEmpty() ? "" : " WHERE " + criteria))
+            .setMaxResults(blockSize);
+        Query delete = this.currentSession().createSQLQuery(
+            "DELETE FROM cp_consumer_fact_index WHERE cp_consumer_id IN (:ids)" +
+            (keys.isEmpty() ? "" : " AND " + criteria));
+
+        if (!keys.isEmpty()) {
+            select.setParameterList("keys", keys);
+            delete.setParameterList("keys", keys);
+        }
+
+        List<String> ids = select.list();
+
+        int deleted = 0;
+        for (List<String> block : Iterables.partition(ids, getInBlockSize())) {
+            deleted += delete.setParameterList("ids", block).executeUpdate();
+        }
+
+        log.debug("Deleted {} unsearchable fact index rows", deleted);
+        return deleted;
+    }
+
+    /**
+     * Adds index rows for the given fact to a block of consumers which hold the fact but have
+     * not yet indexed it.
+     *
+     * @param key
+     *  the key of the fact to index
+     *
+     * @param blockSize
+     *  the maximum number of consumers to index
+     *
+     * @return
+     *  the number of consumers found without an index row for the fact
+     */
+    @Transactional
+    public int indexSearchableFactBlock(String key, int blockSize) {
+        String unindexed = "FROM cp_consumer_facts f WHERE f.mapkey = :key AND NOT EXISTS (" +
+            "SELECT 1 FROM cp_consumer_fact_index i " +
+            "WHERE i.cp_consumer_id = f.cp_consumer_id AND i.mapkey = f.mapkey)";
+
+        List<String> ids = this.currentSession()
+            .createSQLQuery("SELECT f.cp_consumer_id " + unindexed)
+            .setParameter("key", key)
+            .setMaxResults(blockSize)
+            .list();
+
+        Query insert = this.currentSession().createSQLQuery(
+            "INSERT INTO cp_consumer_fact_index (cp_consumer_id, mapkey, element) " +
+            "SELECT f.cp_consumer_id, f.mapkey, LOWER(COALESCE(f.element, '')) " + unindexed +
+            " AND f.cp_consumer_id IN (:ids)")
+            .setParameter("key", key);
+
+        int inserted = 0;
+        for (List<String> block : Iterables.partition(ids, getInBlockSize())) {
+            inserted += insert.setParameterList("ids", block).executeUpdate();
+        }
+
+        log.debug("Indexed fact {} for {} consumers", key, inserted);
+        return ids.size();
+    }
+
+    /**
+     * Records that the given fact has been backfilled into the consumer fact index for every
+     * consumer, allowing searches on the fact to use the index.
+     *
+     * @param key
+     *  the key of the indexed fact
+     */
+    @Transactional
+    public void markFactIndexed(String key) {
+        if (this.currentSession().get(ConsumerFactIndexKey.class, key) == null) {
+            this.currentSession().save(new ConsumerFactIndexKey(key));
+        }
+    }
+
     private boolean factsChanged(Map<String, String> updatedFacts, Map<String, String> existingFacts) {
         return !existingFacts.equals(updatedFacts);
     }
@@ -732,7 +1086,7 @@ public class ConsumerCurator extends AbstractHibernateCurator<Consumer> {
         }
         if (factFilters != null && !factFilters.isEmpty()) {
             // Process the filters passed for the attributes
-            FilterBuilder factFilter = new FactFilterBuilder();
+            FilterBuilder factFilter = new FactFilterBuilder(this.getIndexedFactKeys());
             for (KeyValueParameter filterParam : factFilters) {
                 factFilter.addAttributeFilter(filterParam.key(), filterParam.value());
             }
@@ -752,13 +1106,22 @@ public class ConsumerCurator extends AbstractHibernateCurator<Consumer> {
                         subCrit.add(Restrictions.eq("owner", owner));
                     }
 
-                    subCrit.createCriteria("entitlements")
+                    DetachedCriteria productCrit = subCrit.createCriteria("entitlements")
                         .createCriteria("pool")
-                        .createCriteria("product")
-                        .createAlias("attributes", "attrib")
-                        .add(Restrictions.eq("id", sku))
-                        .add(Restrictions.eq("attrib.indices", "type"))
-                        .add(Restrictions.eq("attrib.elements", "MKT"));
+                        .createCriteria("product", "subquery_product")
+                        .add(Restrictions.eq("id", sku));
+
+                    if (PromotedAttributes.isPromoted(this.config, Product.Attributes.TYPE)) {
+                        String property = PromotedAttributes.getProperty("subquery_product",
+                            Product.Attributes.TYPE);
+
+                        productCrit.add(Restrictions.eq(property, "mkt"));
+                    }
+                    else {
+                        productCrit.createAlias("attributes", "attrib")
+                            .add(Restrictions.eq("attrib.indices", "type"))
+                            .add(Restrictions.eq("attrib.elements", "MKT"));
+                    }
 
                     subCrit.add(Restrictions.eqProperty("this.id", "subquery_consumer.id"));
 
@@ -853,10 +1216,17 @@ public class ConsumerCurator extends AbstractHibernateCurator<Consumer> {
 
         if (hasSkus) {
             crit.createAlias("po.product", "pr")
-                .createAlias("pr.attributes", "pa")
-                .add(Restrictions.in("pr.id", skus))
-                .add(Restrictions.eq("pa.indices", "type"))
-                .add(Restrictions.eq("pa.elements", "MKT"));
+                .add(Restrictions.in("pr.id", skus));
+
+            if (PromotedAttributes.isPromoted(this.config, Product.Attributes.TYPE)) {
+                crit.add(Restrictions.eq(
+                    PromotedAttributes.getProperty("pr", Product.Attributes.TYPE), "mkt"));
+            }
+            else {
+                crit.createAlias("pr.attributes", "pa")
+                    .add(Restrictions.eq("pa.indices", "type"))
+                    .add(Restrictions.eq("pa.elements", "MKT"));
+            }
         }
 
         if (hasSubscriptionIds) {
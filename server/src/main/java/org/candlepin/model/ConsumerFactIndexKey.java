@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+
+
+/**
+ * A ConsumerFactIndexKey records that the consumer fact index holds the given fact for every
+ * consumer. Consumers index their searchable facts as they are created and updated, but a fact
+ * added to the searchable facts is only indexed for existing consumers once the
+ * ConsumerFactIndexJob has backfilled it; until then, searches on the fact are served from the
+ * fact table.
+ */
+@Entity
+@Table(name = ConsumerFactIndexKey.DB_TABLE)
+public class ConsumerFactIndexKey extends AbstractHibernateObject {
+
+    /** Name of the table backing this object in the database */
+    public static final String DB_TABLE = "cp_consumer_fact_index_key";
+
+    @Id
+    @Column(name = "mapkey", length = 255)
+    @Size(max = 255)
+    @NotNull
+    private String key;
+
+    public ConsumerFactIndexKey() {
+        // Intentionally left empty
+    }
+
+    public ConsumerFactIndexKey(String key) {
+        this.key = key;
+    }
+
+    @Override
+    public String getId() {
+        return this.key;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+}
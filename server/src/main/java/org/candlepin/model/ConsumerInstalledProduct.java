@@ -75,7 +75,9 @@ public class ConsumerInstalledProduct extends AbstractHibernateObject {
     @Size(max = 63)
     private String arch;
 
-    @Transient
+    // Updated whenever the consumer's current compliance is calculated
+    @Column(name = "status")
+    @Size(max = 32)
     private String status;
 
     @Transient
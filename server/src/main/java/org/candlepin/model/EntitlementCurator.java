@@ -25,6 +25,7 @@ import com.google.inject.persist.Transactional;
 import org.apache.commons.collections.CollectionUtils;
 import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
+import org.hibernate.NullPrecedence;
 import org.hibernate.ReplicationMode;
 import org.hibernate.criterion.CriteriaSpecification;
 import org.hibernate.criterion.Criterion;
@@ -44,11 +45,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -219,6 +223,10 @@ public class EntitlementCurator extends AbstractHibernateCurator<Entitlement> {
 
     @SuppressWarnings("checkstyle:indentation")
     private Criterion addAttributeFilterSubquery(String key, Collection<String> values) {
+        if (PromotedAttributes.isPromoted(this.config, key)) {
+            return PromotedAttributes.buildPoolFilter("Pool", "Product", key, values);
+        }
+
         // Find all pools which have the given attribute (and values) on a product, unless the pool
         // defines that same attribute
         DetachedCriteria poolAttrSubquery = DetachedCriteria.forClass(Pool.class, "PoolI")
@@ -276,6 +284,10 @@ public class EntitlementCurator extends AbstractHibernateCurator<Entitlement> {
 
     @SuppressWarnings("checkstyle:indentation")
     private Criterion addProductAttributeFilterSubquery(String key, Collection<String> values) {
+        if (PromotedAttributes.isPromoted(this.config, key)) {
+            return PromotedAttributes.buildProductFilter("Pool", "Product", key, values);
+        }
+
         // Find all pools which have the given attribute (and values) on a product, unless the pool
         // defines that same attribute
 
@@ -385,6 +397,25 @@ public class EntitlementCurator extends AbstractHibernateCurator<Entitlement> {
 
     }
 
+    /**
+     * Fetches the entitlements belonging to the given consumer, ordered by ID. Unlike
+     * listByConsumer, the entitlements are not loaded into memory up front, allowing large sets of
+     * entitlements to be stepped through with a scrolling cursor.
+     *
+     * @param consumer
+     *  The consumer for which to fetch entitlements
+     *
+     * @return
+     *  a CandlepinQuery for fetching the consumer's entitlements
+     */
+    public CandlepinQuery<Entitlement> findByConsumer(Consumer consumer) {
+        DetachedCriteria criteria = DetachedCriteria.forClass(Entitlement.class)
+            .add(Restrictions.eq("consumer", consumer))
+            .addOrder(Order.asc("id"));
+
+        return this.cpQueryFactory.<Entitlement>buildQuery(this.currentSession(), criteria);
+    }
+
     @SuppressWarnings("unchecked")
     public List<Entitlement> listByConsumerAndPoolId(Consumer consumer, String poolId) {
         Criteria query = currentSession().createCriteria(Entitlement.class)
@@ -465,6 +496,52 @@ public class EntitlementCurator extends AbstractHibernateCurator<Entitlement> {
         return this.cpQueryFactory.<Entitlement>buildQuery(this.currentSession(), criteria);
     }
 
+    /**
+     * Lists the IDs of the entitlements in the given environment whose pool provides any of the
+     * specified content, either through the pool's product or one of its provided products. The
+     * content lookup is performed in the database, so the entitlements themselves are never loaded.
+     *
+     * @param environment
+     *  The environment in which to look for affected entitlements
+     *
+     * @param contentIds
+     *  A collection of content IDs to look for
+     *
+     * @return
+     *  a list of the IDs of the entitlements providing any of the given content
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> listEntitlementIdsByEnvironmentAndContent(Environment environment,
+        Collection<String> contentIds) {
+
+        Set<String> entitlementIds = new LinkedHashSet<String>();
+
+        if (environment != null && contentIds != null && !contentIds.isEmpty()) {
+            // HQL does not support unions, so the marketing and provided products are matched by
+            // two separate queries
+            String[] joins = new String[] { "JOIN p.product prod", "JOIN p.providedProducts prod" };
+
+            for (String join : joins) {
+                String hql = "SELECT DISTINCT e.id FROM Entitlement e " +
+                    "    JOIN e.pool p " +
+                    "    " + join +
+                    "    JOIN prod.productContent pc " +
+                    "    JOIN pc.content c " +
+                    "WHERE e.consumer.environment = :environment " +
+                    "    AND c.id IN (:content_ids)";
+
+                Query query = this.getEntityManager().createQuery(hql)
+                    .setParameter("environment", environment);
+
+                for (List<String> block : Iterables.partition(contentIds, getInBlockSize())) {
+                    entitlementIds.addAll(query.setParameter("content_ids", block).getResultList());
+                }
+            }
+        }
+
+        return new ArrayList<String>(entitlementIds);
+    }
+
     /**
      * List entitlements for a consumer which are valid for a specific date.
      *
@@ -845,6 +922,80 @@ public class EntitlementCurator extends AbstractHibernateCurator<Entitlement> {
         }
     }
 
+    /**
+     * Deletes the given collection of entitlements using bulk statements rather than removing
+     * each entitlement and certificate entity in turn.
+     * <p></p>
+     * Any pending changes are flushed first. The serials of the entitlements' certificates are
+     * then marked as revoked, since the certificates' @PreRemove callbacks are not fired for
+     * bulk deletes, and any remaining references from derived pools to the entitlements are
+     * cleared. Callers are expected to delete such pools themselves. Once deleted, the
+     * entitlements are removed from any initialized collections of their consumers and pools
+     * and detached from the session.
+     *
+     * @param entitlements
+     *  The collection of entitlement entities to delete
+     *
+     * @return
+     *  the number of entitlements deleted
+     */
+    @SuppressWarnings("unchecked")
+    public int bulkDeleteEntitlements(Collection<Entitlement> entitlements) {
+        if (entitlements == null || entitlements.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> entitlementIds = new HashSet<String>();
+        for (Entitlement entitlement : entitlements) {
+            entitlementIds.add(entitlement.getId());
+        }
+
+        EntityManager entityManager = this.getEntityManager();
+        this.flush();
+
+        Query serialQuery = entityManager.createQuery(
+            "SELECT cert.serial.id FROM EntitlementCertificate cert " +
+            "WHERE cert.entitlement.id IN (:entitlement_ids) AND cert.serial IS NOT NULL");
+        Query revokeQuery = entityManager.createQuery(
+            "UPDATE CertificateSerial SET revoked = true WHERE id IN (:serial_ids)");
+        Query sourceQuery = entityManager.createQuery(
+            "UPDATE Pool SET sourceEntitlement = NULL WHERE sourceEntitlement.id IN (:entitlement_ids)");
+        Query certQuery = entityManager.createQuery(
+            "DELETE FROM EntitlementCertificate WHERE entitlement.id IN (:entitlement_ids)");
+        Query entitlementQuery = entityManager.createQuery(
+            "DELETE FROM Entitlement WHERE id IN (:entitlement_ids)");
+
+        int deleted = 0;
+        for (List<String> block : Iterables.partition(entitlementIds, getInBlockSize())) {
+            List<Long> serialIds = serialQuery.setParameter("entitlement_ids", block).getResultList();
+            if (!serialIds.isEmpty()) {
+                revokeQuery.setParameter("serial_ids", serialIds).executeUpdate();
+            }
+
+            sourceQuery.setParameter("entitlement_ids", block).executeUpdate();
+            certQuery.setParameter("entitlement_ids", block).executeUpdate();
+            deleted += entitlementQuery.setParameter("entitlement_ids", block).executeUpdate();
+        }
+
+        // Maintain runtime consistency.
+        for (Entitlement entitlement : entitlements) {
+            if (Hibernate.isInitialized(entitlement.getConsumer().getEntitlements())) {
+                entitlement.getConsumer().getEntitlements().remove(entitlement);
+            }
+
+            if (Hibernate.isInitialized(entitlement.getPool().getEntitlements())) {
+                entitlement.getPool().getEntitlements().remove(entitlement);
+            }
+
+            if (entityManager.contains(entitlement)) {
+                entityManager.detach(entitlement);
+            }
+        }
+
+        log.debug("Bulk deleted {} entitlements", deleted);
+        return deleted;
+    }
+
     private void deleteImpl(Entitlement entity) {
         log.debug("Deleting entitlement: {}", entity);
         EntityManager entityManager = this.getEntityManager();
@@ -956,20 +1107,101 @@ public class EntitlementCurator extends AbstractHibernateCurator<Entitlement> {
             .add(Restrictions.eq("consumer", consumer))
             .createAlias("pool", "ent_pool")
             .createAlias("ent_pool.product", "product")
-            .createAlias("product.attributes", "attrs")
             .add(Restrictions.le("ent_pool.startDate", currentDate))
             .add(Restrictions.ge("ent_pool.endDate", currentDate))
-            .add(Restrictions.eq("attrs.indices", Product.Attributes.STACKING_ID))
-            .add(Restrictions.eq("attrs.elements", stackId).ignoreCase())
             .add(Restrictions.isNull("ent_pool.sourceEntitlement"))
             .createAlias("ent_pool.sourceSubscription", "sourceSub")
             .add(Restrictions.isNotNull("sourceSub.id"))
             .addOrder(Order.asc("created")) // eldest entitlement
             .setMaxResults(1);
 
+        if (PromotedAttributes.isPromoted(this.config, Product.Attributes.STACKING_ID)) {
+            activeNowQuery.add(Restrictions.eq(
+                PromotedAttributes.getProperty("product", Product.Attributes.STACKING_ID),
+                stackId != null ? stackId.toLowerCase(Locale.ROOT) : null));
+        }
+        else {
+            activeNowQuery.createAlias("product.attributes", "attrs")
+                .add(Restrictions.eq("attrs.indices", Product.Attributes.STACKING_ID))
+                .add(Restrictions.eq("attrs.elements", stackId).ignoreCase());
+        }
+
         return (Entitlement) activeNowQuery.uniqueResult();
     }
 
+    /**
+     * Lists the IDs of dirty entitlements, ordered so that the entitlements of the consumers which
+     * checked in most recently come first. Consumers which check in frequently are the most likely
+     * to request their certificates soon, so their entitlements benefit most from being
+     * regenerated ahead of time.
+     *
+     * @param limit
+     *  the maximum number of entitlement IDs to list
+     *
+     * @return
+     *  a list of dirty entitlement IDs, in priority order
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> listDirtyIds(int limit) {
+        return this.currentSession().createCriteria(Entitlement.class)
+            .createAlias("consumer", "c")
+            .add(Restrictions.eq("dirty", true))
+            .setProjection(Projections.id())
+            .addOrder(Order.desc("c.lastCheckin").nulls(NullPrecedence.LAST))
+            .setMaxResults(limit)
+            .list();
+    }
+
+    /**
+     * Filters the given entitlement IDs down to those of entitlements which still exist and are
+     * still dirty, ordered as by {@link #listDirtyIds(int)}.
+     *
+     * @param entitlementIds
+     *  the entitlement IDs to filter
+     *
+     * @return
+     *  a list of the dirty entitlement IDs, in priority order
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> filterDirtyIds(Collection<String> entitlementIds) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+
+        if (entitlementIds != null && !entitlementIds.isEmpty()) {
+            for (List<String> block : Iterables.partition(entitlementIds, getInBlockSize())) {
+                rows.addAll(this.currentSession().createCriteria(Entitlement.class)
+                    .createAlias("consumer", "c")
+                    .add(Restrictions.in("id", block))
+                    .add(Restrictions.eq("dirty", true))
+                    .setProjection(Projections.projectionList()
+                        .add(Projections.id())
+                        .add(Projections.property("c.lastCheckin")))
+                    .list());
+            }
+        }
+
+        // The blocks are ordered independently, so the combined result must be sorted here
+        Collections.sort(rows, new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] row1, Object[] row2) {
+                Date checkin1 = (Date) row1[1];
+                Date checkin2 = (Date) row2[1];
+
+                if (checkin1 == null || checkin2 == null) {
+                    return checkin1 == checkin2 ? 0 : (checkin1 == null ? 1 : -1);
+                }
+
+                return checkin2.compareTo(checkin1);
+            }
+        });
+
+        List<String> ids = new ArrayList<String>(rows.size());
+        for (Object[] row : rows) {
+            ids.add((String) row[0]);
+        }
+
+        return ids;
+    }
+
     /**
      * Marks the given entitlements as dirty; forcing a regeneration the next time it is requested.
      *
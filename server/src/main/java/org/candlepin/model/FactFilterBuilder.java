@@ -22,17 +22,45 @@ import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.Subqueries;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * FactFilterBuilder
  *
- * Builds criteria to find consumers based upon their facts
+ * Builds criteria to find consumers based upon their facts. Filters on indexed facts are
+ * served from the consumers' normalized fact index; any other facts are matched with
+ * case-insensitive like expressions against the full fact table.
  */
 public class FactFilterBuilder extends FilterBuilder {
 
+    private final Set<String> searchableKeys;
+
+    public FactFilterBuilder() {
+        this(null);
+    }
+
+    /**
+     * Creates a new fact filter builder which uses the fact index for the given keys.
+     *
+     * @param searchableKeys
+     *  The keys of the facts maintained in the fact index; may be null
+     */
+    public FactFilterBuilder(Collection<String> searchableKeys) {
+        this.searchableKeys = searchableKeys != null ?
+            new HashSet<String>(searchableKeys) :
+            Collections.<String>emptySet();
+    }
+
     @Override
     protected Criterion buildCriteriaForKey(String key, List<String> values) {
+        if (this.searchableKeys.contains(key)) {
+            return this.buildIndexedCriteriaForKey(key, values);
+        }
+
         Disjunction valuesCriteria = Restrictions.disjunction();
         for (String value : values) {
             if (StringUtils.isEmpty(value)) {
@@ -55,4 +83,17 @@ public class FactFilterBuilder extends FilterBuilder {
 
         return Subqueries.exists(dc);
     }
+
+    private Criterion buildIndexedCriteriaForKey(String key, List<String> values) {
+        // Indexed values are stored in lower case, so exact and prefix matches can be resolved
+        // against the (key, value) index without resorting to case-insensitive scans.
+        DetachedCriteria dc = DetachedCriteria.forClass(Consumer.class, "subcons")
+            .add(Restrictions.eqProperty("this.id", "subcons.id"))
+            .createAlias("subcons.searchableFacts", "sfacts")
+            .add(Restrictions.eq("sfacts.indices", key))
+            .add(buildNormalizedValueFilter("sfacts.elements", values))
+            .setProjection(Projections.property("subcons.id"));
+
+        return Subqueries.exists(dc);
+    }
 }
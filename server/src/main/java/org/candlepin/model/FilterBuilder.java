@@ -18,6 +18,7 @@ import org.hibernate.Criteria;
 import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.LikeExpression;
 import org.hibernate.criterion.Restrictions;
 import org.slf4j.Logger;
@@ -28,6 +29,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
@@ -151,6 +153,68 @@ public abstract class FilterBuilder {
 
     protected abstract Criterion buildCriteriaForKey(String key, List<String> values);
 
+    /**
+     * Builds a criterion matching a column of normalized, lower-case values against any of the
+     * given filter values. Empty values match empty strings, values containing the '*' or '?'
+     * wildcards are matched with a like expression, and any other values are matched exactly so
+     * the lookup can be served from an index on the column. Wildcards may be escaped with a
+     * backslash.
+     *
+     * @param property
+     *  The path to the normalized property, including its alias
+     *
+     * @param values
+     *  The values to match
+     *
+     * @return
+     *  a criterion matching the property against the values
+     */
+    public static Criterion buildNormalizedValueFilter(String property, Collection<String> values) {
+        Disjunction disjunction = Restrictions.disjunction();
+
+        for (String value : values) {
+            if (value == null || value.isEmpty()) {
+                disjunction.add(Restrictions.eq(property, ""));
+                continue;
+            }
+
+            // Convert the value into a like-pattern, escaping the database wildcards and noting
+            // whether we need a like at all; exact values can make use of the column index.
+            StringBuilder pattern = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            boolean wildcard = false;
+            boolean escaped = false;
+
+            for (char c : value.toLowerCase(Locale.ROOT).toCharArray()) {
+                if (c == '\\' && !escaped) {
+                    escaped = true;
+                    continue;
+                }
+
+                if ((c == '*' || c == '?') && !escaped) {
+                    pattern.append(c == '*' ? '%' : '_');
+                    wildcard = true;
+                }
+                else {
+                    if (c == '!' || c == '_' || c == '%') {
+                        pattern.append('!');
+                    }
+
+                    pattern.append(c);
+                    literal.append(c);
+                }
+
+                escaped = false;
+            }
+
+            disjunction.add(wildcard ?
+                CPRestrictions.like(property, pattern.toString(), '!') :
+                Restrictions.eq(property, literal.toString()));
+        }
+
+        return disjunction;
+    }
+
     /**
      * FilterLikeExpression to easily build like clauses, escaping all sql wildcards
      * from input while allowing us to use a custom wildcard
@@ -14,10 +14,14 @@
  */
 package org.candlepin.model;
 
+import com.google.inject.persist.Transactional;
+
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 
+import java.util.List;
+
 
 
 /**
@@ -43,4 +47,33 @@ public class ImportRecordCurator extends AbstractHibernateCurator<ImportRecord>
 
         return this.cpQueryFactory.<ImportRecord>buildQuery(this.currentSession(), criteria);
     }
+
+    /**
+     * Deletes a single block of the owner's import records, skipping the newest records to keep.
+     * Each call runs in its own transaction, so all but the newest records can be removed through
+     * a series of short deletes.
+     *
+     * @param owner the {@link Owner}
+     * @param keep the number of newest records to keep
+     * @param blockSize the maximum number of records to delete
+     * @return the number of records deleted
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public int deleteOldRecordsBlock(Owner owner, int keep, int blockSize) {
+        List<ImportRecord> records = this.currentSession().createCriteria(ImportRecord.class)
+            .add(Restrictions.eq("owner", owner))
+            .addOrder(Order.desc("created"))
+            .addOrder(Order.desc("id"))
+            .setFirstResult(keep)
+            .setMaxResults(blockSize)
+            .list();
+
+        for (ImportRecord record : records) {
+            this.currentSession().delete(record);
+        }
+
+        this.currentSession().flush();
+        return records.size();
+    }
 }
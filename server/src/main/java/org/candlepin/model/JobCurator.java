@@ -26,6 +26,7 @@ import org.candlepin.pinsetter.tasks.KingpinJob;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 
+import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
@@ -83,21 +84,44 @@ public class JobCurator extends AbstractHibernateCurator<JobStatus> {
                 .executeUpdate();
     }
 
-    public int cleanupAllOldJobs(Date deadline) {
-        return this.currentSession().createQuery(
-            "delete from JobStatus where updated <= :date")
-               .setTimestamp("date", deadline)
-               .executeUpdate();
-    }
+    /**
+     * Deletes a single block of job statuses last updated on or before the given deadline. The
+     * oldest job IDs are deleted first, and each call runs in its own transaction, allowing large
+     * cleanups to be performed as a series of short deletes.
+     *
+     * @param deadline
+     *  the date on or before which job statuses are considered old
+     *
+     * @param completedOnly
+     *  whether to limit the deletion to finished and canceled jobs
+     *
+     * @param blockSize
+     *  the maximum number of job statuses to delete
+     *
+     * @return
+     *  the number of job statuses deleted
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public int deleteOldJobsBlock(Date deadline, boolean completedOnly, int blockSize) {
+        Criteria criteria = this.currentSession().createCriteria(JobStatus.class)
+            .add(Restrictions.le("updated", deadline))
+            .setProjection(Projections.id())
+            .addOrder(Order.asc("id"))
+            .setMaxResults(blockSize);
+
+        if (completedOnly) {
+            criteria.add(Restrictions.in("state", new Object[] { JobState.FINISHED, JobState.CANCELED }));
+        }
 
-    public int cleanUpOldCompletedJobs(Date deadLineDt) {
-        return this.currentSession().createQuery(
-            "delete from JobStatus where updated <= :date and " +
-            "(state = :completed or state = :canceled)")
-               .setTimestamp("date", deadLineDt)
-               .setInteger("completed", JobState.FINISHED.ordinal())
-               .setInteger("canceled", JobState.CANCELED.ordinal())
-               .executeUpdate();
+        List<String> ids = criteria.list();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        return this.currentSession().createQuery("delete from JobStatus where id in (:ids)")
+            .setParameterList("ids", ids)
+            .executeUpdate();
     }
 
     @SuppressWarnings("unchecked")
@@ -151,11 +175,56 @@ public class JobCurator extends AbstractHibernateCurator<JobStatus> {
         // Perhaps unique jobClass/target combinations, However we're already in a weird state if
         // that makes a difference
         DetachedCriteria criteria = DetachedCriteria.forClass(JobStatus.class)
-            .add(Restrictions.eq("state", JobState.WAITING));
+            .add(Restrictions.eq("state", JobState.WAITING))
+            .addOrder(Order.asc("created"));
 
         return this.cpQueryFactory.<JobStatus>buildQuery(this.currentSession(), criteria);
     }
 
+    /**
+     * Fetches the oldest waiting job of the given class for the specified target, which is the
+     * next job to be started once no job of that class is running against the target.
+     *
+     * @param target the id of the target entity
+     * @param jobClass the class of the waiting job
+     * @return the oldest waiting job, or null if no job is waiting
+     */
+    public JobStatus findNextWaitingByClassAndTarget(String target, Class<? extends KingpinJob> jobClass) {
+        if (jobClass == null) {
+            throw new IllegalArgumentException("jobClass can not be null");
+        }
+
+        return (JobStatus) this.currentSession().createCriteria(JobStatus.class)
+            .add(Restrictions.eq("state", JobState.WAITING))
+            .add(Restrictions.eq("targetId", target))
+            .add(Restrictions.eq("jobClass", jobClass.getCanonicalName()))
+            .addOrder(Order.asc("created"))
+            .setMaxResults(1)
+            .uniqueResult();
+    }
+
+    /**
+     * Fetches the jobs of the given class waiting to run against the specified target, oldest
+     * first.
+     *
+     * @param target the id of the target entity
+     * @param jobClass the class of the waiting jobs
+     * @return a list of waiting jobs
+     */
+    @SuppressWarnings("unchecked")
+    public List<JobStatus> findWaitingByClassAndTarget(String target, Class<? extends KingpinJob> jobClass) {
+        if (jobClass == null) {
+            throw new IllegalArgumentException("jobClass can not be null");
+        }
+
+        return this.currentSession().createCriteria(JobStatus.class)
+            .add(Restrictions.eq("state", JobState.WAITING))
+            .add(Restrictions.eq("targetId", target))
+            .add(Restrictions.eq("jobClass", jobClass.getCanonicalName()))
+            .addOrder(Order.asc("created"))
+            .list();
+    }
+
     public long findNumRunningByClassAndTarget(String target, Class<? extends KingpinJob> jobClass) {
         if (jobClass == null) {
             throw new IllegalArgumentException("jobClass can not be null");
@@ -170,6 +239,36 @@ public class JobCurator extends AbstractHibernateCurator<JobStatus> {
             .uniqueResult();
     }
 
+    /**
+     * Counts the jobs of the given class and target which prevent a waiting job from being
+     * started: those running, and those already claimed or triggered but not yet running. The
+     * waiting job itself is never counted, even while it is claimed.
+     *
+     * @param target the target of the jobs
+     * @param jobClass the class of the jobs
+     * @param excludedId the ID of the waiting job being considered, or null
+     * @return the number of blocking jobs
+     */
+    public long findNumBlockingByClassAndTarget(String target, Class<? extends KingpinJob> jobClass,
+        String excludedId) {
+        if (jobClass == null) {
+            throw new IllegalArgumentException("jobClass can not be null");
+        }
+
+        Criteria criteria = this.currentSession().createCriteria(JobStatus.class)
+            .add(Restrictions.ge("updated", getBlockingCutoff()))
+            .add(Restrictions.in("state", new Object[] {
+                JobState.PENDING, JobState.CREATED, JobState.RUNNING }))
+            .add(Restrictions.eq("targetId", target))
+            .add(Restrictions.eq("jobClass", jobClass.getCanonicalName()));
+
+        if (excludedId != null) {
+            criteria.add(Restrictions.ne("id", excludedId));
+        }
+
+        return (Long) criteria.setProjection(Projections.count("id")).uniqueResult();
+    }
+
     public JobStatus getByClassAndTarget(String target, Class<? extends KingpinJob> jobClass) {
         // FIXME:
         // This is not guaranteed to find the intended target if more than one job in the DB
@@ -191,6 +290,35 @@ public class JobCurator extends AbstractHibernateCurator<JobStatus> {
             .uniqueResult();
     }
 
+    /**
+     * Atomically moves a waiting job to the given state. Only one caller can claim a waiting job,
+     * so a job being triggered cannot also have its data replaced, and vice versa.
+     *
+     * @param status the waiting job to claim
+     * @param state the state to move the job to
+     * @return true if the job was still waiting and has been claimed; false otherwise
+     */
+    @Transactional
+    public boolean claimWaitingJob(JobStatus status, JobState state) {
+        String hql = "update JobStatus j " +
+            "set j.state = :state, j.updated = :now " +
+            "where j.id = :id and j.state = :waiting";
+
+        int updated = this.currentSession().createQuery(hql)
+            .setInteger("state", state.ordinal())
+            .setTimestamp("now", new Date())
+            .setParameter("id", status.getId())
+            .setInteger("waiting", JobState.WAITING.ordinal())
+            .executeUpdate();
+
+        if (updated > 0) {
+            status.setState(state);
+            return true;
+        }
+
+        return false;
+    }
+
     /*
      * Cancel jobs that should have a quartz job (but don't),
      * and have not been updated within the last 2 minutes.
@@ -14,7 +14,7 @@
  */
 package org.candlepin.model;
 
-import org.candlepin.pki.PKIUtility;
+import org.candlepin.pki.KeyPairPool;
 
 import com.google.inject.Inject;
 
@@ -26,12 +26,12 @@ import java.security.NoSuchAlgorithmException;
 public class KeyPairCurator extends
     AbstractHibernateCurator<KeyPair> {
 
-    private PKIUtility pki;
+    private KeyPairPool keyPairPool;
 
     @Inject
-    public KeyPairCurator(PKIUtility pki) {
+    public KeyPairCurator(KeyPairPool keyPairPool) {
         super(KeyPair.class);
-        this.pki = pki;
+        this.keyPairPool = keyPairPool;
     }
 
     /**
@@ -66,7 +66,7 @@ public class KeyPairCurator extends
 
     private KeyPair generateKeyPair() {
         try {
-            java.security.KeyPair newPair = pki.generateNewKeyPair();
+            java.security.KeyPair newPair = keyPairPool.getKeyPair();
             KeyPair cpKeyPair = new KeyPair(newPair.getPrivate(), newPair.getPublic());
             return create(cpKeyPair);
         }
@@ -15,7 +15,9 @@
 package org.candlepin.model;
 
 import java.beans.Transient;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Blob;
 import java.sql.SQLException;
 
@@ -34,6 +36,7 @@ import javax.xml.bind.annotation.XmlTransient;
 
 import org.candlepin.sync.file.ManifestFile;
 import org.candlepin.sync.file.ManifestFileType;
+import org.apache.commons.io.IOUtils;
 import org.hibernate.annotations.GenericGenerator;
 
 /**
@@ -75,6 +78,13 @@ public class ManifestFileRecord extends AbstractHibernateObject implements Manif
 
     private String filename;
 
+    /**
+     * The hash of the file contents when they are stored outside of the database. Records
+     * stored in the database carry their contents in fileData and leave this unset.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Lob
     @Basic(fetch = FetchType.LAZY)
     private Blob fileData;
@@ -133,6 +143,14 @@ public class ManifestFileRecord extends AbstractHibernateObject implements Manif
         this.filename = fileName;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     @XmlTransient
     public Blob getFileData() {
         return fileData;
@@ -158,4 +176,16 @@ public class ManifestFileRecord extends AbstractHibernateObject implements Manif
             throw new RuntimeException("InputStream not available for manifest file.", e);
         }
     }
+
+    @Override
+    @Transient
+    public void writeTo(OutputStream out) throws IOException {
+        InputStream input = this.getInputStream();
+        try {
+            IOUtils.copy(input, out);
+        }
+        finally {
+            input.close();
+        }
+    }
 }
@@ -18,7 +18,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Blob;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 import javax.persistence.Query;
 
@@ -63,11 +65,70 @@ public class ManifestFileRecordCurator extends AbstractHibernateCurator<Manifest
         return create(new ManifestFileRecord(type, fileToStore.getName(), principalName, targetId, data));
     }
 
+    /**
+     * Creates a record for a manifest file whose contents are stored outside of the database,
+     * addressed by the specified content hash.
+     *
+     * @param type the type of the manifest file (IMPORT/EXPORT)
+     * @param filename the name of the stored file
+     * @param principalName the name of the principal who stored the file
+     * @param targetId the id of the target entity of the file
+     * @param contentHash the hash of the file contents
+     * @return the created record
+     */
     @Transactional
-    public int deleteExpired(Date expiryDate) {
-        String queryString = String.format("delete from %s r where r.created < :expiry", QUERY_CLASS_NAME);
+    public ManifestFileRecord createRecord(ManifestFileType type, String filename, String principalName,
+        String targetId, String contentHash) {
+        ManifestFileRecord record = new ManifestFileRecord(type, filename, principalName, targetId, null);
+        record.setContentHash(contentHash);
+        return create(record);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> findContentHashes(ManifestFileType type, String targetId) {
+        String queryString = String.format("select distinct r.contentHash from %s r " +
+            "where r.type=:type and r.targetId=:target and r.contentHash is not null", QUERY_CLASS_NAME);
+        Query q = getEntityManager().createQuery(queryString);
+        q.setParameter("type", type);
+        q.setParameter("target", targetId);
+        return q.getResultList();
+    }
+
+    public boolean isContentHashReferenced(String contentHash) {
+        String queryString = String.format("select count(r) from %s r where r.contentHash=:hash",
+            QUERY_CLASS_NAME);
+        Query q = getEntityManager().createQuery(queryString);
+        q.setParameter("hash", contentHash);
+        return ((Number) q.getSingleResult()).longValue() > 0;
+    }
+
+    /**
+     * Lists the IDs and content hashes of up to blockSize records created before the given expiry
+     * date, in ID order.
+     *
+     * @param expiryDate the date before which records are expired
+     * @param blockSize the maximum number of records to list
+     * @return a list of [id, contentHash] rows
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findExpiredBlock(Date expiryDate, int blockSize) {
+        String queryString = String.format("select r.id, r.contentHash from %s r " +
+            "where r.created < :expiry order by r.id", QUERY_CLASS_NAME);
         Query q = getEntityManager().createQuery(queryString);
         q.setParameter("expiry", expiryDate);
+        q.setMaxResults(blockSize);
+        return q.getResultList();
+    }
+
+    @Transactional
+    public int deleteByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        String queryString = String.format("delete from %s r where r.id in (:ids)", QUERY_CLASS_NAME);
+        Query q = getEntityManager().createQuery(queryString);
+        q.setParameter("ids", ids);
         return q.executeUpdate();
     }
 
@@ -14,6 +14,7 @@
  */
 package org.candlepin.model;
 
+import com.google.common.collect.Iterables;
 import com.google.inject.persist.Transactional;
 
 import org.hibernate.Criteria;
@@ -33,6 +34,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.persistence.Query;
+
 
 
 /**
@@ -418,6 +421,91 @@ public class OwnerContentCurator extends AbstractHibernateCurator<OwnerContent>
         return this.cpQueryFactory.<Content>buildQuery();
     }
 
+    /**
+     * Counts the content which is not linked to any owner.
+     *
+     * @return
+     *  the number of orphaned content entities
+     */
+    public int getOrphanedContentCount() {
+        String sql = "SELECT COUNT(*) " +
+            "FROM cp2_content c LEFT JOIN cp2_owner_content oc ON c.uuid = oc.content_uuid " +
+            "WHERE oc.owner_id IS NULL";
+
+        Number count = (Number) this.getEntityManager()
+            .createNativeQuery(sql)
+            .getSingleResult();
+
+        return count.intValue();
+    }
+
+    /**
+     * Fetches the UUIDs of up to the given number of content entities which are not linked to any
+     * owner.
+     *
+     * @param limit
+     *  the maximum number of UUIDs to fetch
+     *
+     * @return
+     *  a list of orphaned content UUIDs
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getOrphanedContentUuids(int limit) {
+        String sql = "SELECT c.uuid " +
+            "FROM cp2_content c LEFT JOIN cp2_owner_content oc ON c.uuid = oc.content_uuid " +
+            "WHERE oc.owner_id IS NULL " +
+            "ORDER BY c.uuid";
+
+        return this.getEntityManager()
+            .createNativeQuery(sql)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    /**
+     * Deletes a block of orphaned content with bulk statements, without loading the content
+     * itself. Any product links to the content and its modified product IDs are deleted before
+     * the content.
+     * <p></p>
+     * Each statement checks again that the content is still orphaned, so content linked to an
+     * owner after the block was selected is left untouched.
+     *
+     * @param blockSize
+     *  the maximum number of content entities to delete
+     *
+     * @return
+     *  the number of content entities deleted
+     */
+    @Transactional
+    public int deleteOrphanedContentBlock(int blockSize) {
+        List<String> uuids = this.getOrphanedContentUuids(blockSize);
+        if (uuids.isEmpty()) {
+            return 0;
+        }
+
+        String orphaned = " AND NOT EXISTS (SELECT 1 FROM cp2_owner_content oc WHERE oc.content_uuid = %s)";
+
+        Query productContentQuery = this.getEntityManager().createNativeQuery(
+            "DELETE FROM cp2_product_content WHERE content_uuid IN (:uuids)" +
+            String.format(orphaned, "cp2_product_content.content_uuid"));
+        Query modifiedQuery = this.getEntityManager().createNativeQuery(
+            "DELETE FROM cp2_content_modified_products WHERE content_uuid IN (:uuids)" +
+            String.format(orphaned, "cp2_content_modified_products.content_uuid"));
+        Query contentQuery = this.getEntityManager().createNativeQuery(
+            "DELETE FROM cp2_content WHERE uuid IN (:uuids)" +
+            String.format(orphaned, "cp2_content.uuid"));
+
+        int deleted = 0;
+        for (List<String> block : Iterables.partition(uuids, getInBlockSize())) {
+            productContentQuery.setParameter("uuids", block).executeUpdate();
+            modifiedQuery.setParameter("uuids", block).executeUpdate();
+            deleted += contentQuery.setParameter("uuids", block).executeUpdate();
+        }
+
+        log.debug("Deleted {} orphaned content entities", deleted);
+        return deleted;
+    }
+
     /**
      * Updates the content references currently pointing to the original content to instead point to
      * the updated content for the specified owners.
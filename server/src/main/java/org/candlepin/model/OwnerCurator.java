@@ -190,5 +190,30 @@ public class OwnerCurator extends AbstractHibernateCurator<Owner> {
 
         return this.cpQueryFactory.<String>buildQuery(this.currentSession(), criteria);
     }
+
+    /**
+     * Fetches the UUIDs of the given owner's consumers whose stored entitlement status is not the
+     * given status, including consumers which have no stored status.
+     *
+     * @param owner
+     *  the owner whose consumer UUIDs should be fetched
+     *
+     * @param status
+     *  the entitlement status of the consumers to leave out
+     *
+     * @return
+     *  a query to fetch the UUIDs of the consumers without the given status
+     */
+    @SuppressWarnings("unchecked")
+    public CandlepinQuery<String> getConsumerUuidsWithoutStatus(Owner owner, String status) {
+        DetachedCriteria criteria = DetachedCriteria.forClass(Consumer.class)
+            .add(Restrictions.eq("owner.id", owner.getId()))
+            .add(Restrictions.or(
+                Restrictions.isNull("entitlementStatus"),
+                Restrictions.ne("entitlementStatus", status)))
+            .setProjection(Property.forName("uuid"));
+
+        return this.cpQueryFactory.<String>buildQuery(this.currentSession(), criteria);
+    }
 }
 
@@ -14,6 +14,8 @@
  */
 package org.candlepin.model;
 
+import org.candlepin.common.config.Configuration;
+
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
@@ -56,15 +58,17 @@ public class OwnerInfoCurator {
     private ConsumerTypeCurator consumerTypeCurator;
     private ConsumerCurator consumerCurator;
     private PoolCurator poolCurator;
+    private Configuration config;
 
     @Inject
     public OwnerInfoCurator(Provider<EntityManager> entityManager,
         ConsumerCurator consumerCurator, ConsumerTypeCurator consumerTypeCurator,
-        PoolCurator poolCurator) {
+        PoolCurator poolCurator, Configuration config) {
         this.entityManager = entityManager;
         this.consumerCurator = consumerCurator;
         this.consumerTypeCurator = consumerTypeCurator;
         this.poolCurator = poolCurator;
+        this.config = config;
     }
 
     public OwnerInfo lookupByOwner(Owner owner) {
@@ -201,6 +205,10 @@ public class OwnerInfoCurator {
 
     @SuppressWarnings("checkstyle:indentation")
     private Criterion addAttributeFilterSubquery(String key, Collection<String> values) {
+        if (PromotedAttributes.isPromoted(this.config, key)) {
+            return PromotedAttributes.buildPoolFilter("Pool", "Product", key, values);
+        }
+
         key = this.sanitizeMatchesFilter(key);
 
         // Find all pools which have the given attribute (and values) on a product, unless the pool
@@ -14,8 +14,11 @@
  */
 package org.candlepin.model;
 
+import org.candlepin.cache.CandlepinCache;
 import org.candlepin.model.activationkeys.ActivationKey;
 
+import com.google.common.collect.Iterables;
+import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 
 import org.hibernate.Criteria;
@@ -38,6 +41,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.persistence.Query;
+
 
 
 /**
@@ -47,11 +52,16 @@ import java.util.Set;
 public class OwnerProductCurator extends AbstractHibernateCurator<OwnerProduct> {
     private static Logger log = LoggerFactory.getLogger(OwnerProductCurator.class);
 
+    private CandlepinCache candlepinCache;
+
     /**
      * Default constructor
      */
-    public OwnerProductCurator() {
+    @Inject
+    public OwnerProductCurator(CandlepinCache candlepinCache) {
         super(OwnerProduct.class);
+
+        this.candlepinCache = candlepinCache;
     }
 
     public Product getProductById(Owner owner, String productId) {
@@ -390,6 +400,88 @@ public class OwnerProductCurator extends AbstractHibernateCurator<OwnerProduct>
         return this.cpQueryFactory.<Product>buildQuery();
     }
 
+    /**
+     * Counts the products which are not linked to any owner.
+     *
+     * @return
+     *  the number of orphaned products
+     */
+    public int getOrphanedProductCount() {
+        String sql = "SELECT COUNT(*) " +
+            "FROM cp2_products p LEFT JOIN cp2_owner_products op ON p.uuid = op.product_uuid " +
+            "WHERE op.owner_id IS NULL";
+
+        Number count = (Number) this.getEntityManager()
+            .createNativeQuery(sql)
+            .getSingleResult();
+
+        return count.intValue();
+    }
+
+    /**
+     * Fetches the UUIDs of up to the given number of products which are not linked to any owner.
+     *
+     * @param limit
+     *  the maximum number of UUIDs to fetch
+     *
+     * @return
+     *  a list of orphaned product UUIDs
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getOrphanedProductUuids(int limit) {
+        String sql = "SELECT p.uuid " +
+            "FROM cp2_products p LEFT JOIN cp2_owner_products op ON p.uuid = op.product_uuid " +
+            "WHERE op.owner_id IS NULL " +
+            "ORDER BY p.uuid";
+
+        return this.getEntityManager()
+            .createNativeQuery(sql)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    /**
+     * Deletes a block of orphaned products with bulk statements, without loading the products
+     * themselves. The content links of the products are deleted before the products; rows in the
+     * products' other collection tables are removed by the database's cascading deletes.
+     * <p></p>
+     * Each statement checks again that the products are still orphaned, so a product linked to
+     * an owner after the block was selected is left untouched.
+     *
+     * @param blockSize
+     *  the maximum number of products to delete
+     *
+     * @return
+     *  the number of products deleted
+     */
+    @Transactional
+    public int deleteOrphanedProductsBlock(int blockSize) {
+        List<String> uuids = this.getOrphanedProductUuids(blockSize);
+        if (uuids.isEmpty()) {
+            return 0;
+        }
+
+        String orphaned = " AND NOT EXISTS (SELECT 1 FROM cp2_owner_products op WHERE op.product_uuid = %s)";
+
+        Query productContentQuery = this.getEntityManager().createNativeQuery(
+            "DELETE FROM cp2_product_content WHERE product_uuid IN (:uuids)" +
+            String.format(orphaned, "cp2_product_content.product_uuid"));
+        Query productQuery = this.getEntityManager().createNativeQuery(
+            "DELETE FROM cp2_products WHERE uuid IN (:uuids)" +
+            String.format(orphaned, "cp2_products.uuid"));
+
+        int deleted = 0;
+        for (List<String> block : Iterables.partition(uuids, getInBlockSize())) {
+            productContentQuery.setParameter("uuids", block).executeUpdate();
+            deleted += productQuery.setParameter("uuids", block).executeUpdate();
+        }
+
+        this.candlepinCache.getProductCache().removeAll(new HashSet<String>(uuids));
+
+        log.debug("Deleted {} orphaned products", deleted);
+        return deleted;
+    }
+
     /**
      * Retrieves a criteria which can be used to fetch a list of products with the specified Red Hat
      * product ID and entity version belonging to owners other than the owner provided. If no
@@ -503,6 +595,12 @@ public class OwnerProductCurator extends AbstractHibernateCurator<OwnerProduct>
 
         log.debug("{} pools updated", count);
 
+        // The pools' service levels come from their products
+        if (count > 0) {
+            this.evictOnCompletion(this.candlepinCache.getOwnerServiceLevelCache(),
+                Collections.singleton(owner.getId()));
+        }
+
         // pool provided products
         List<String> ids = session.createSQLQuery("SELECT id FROM cp_pool WHERE owner_id = ?1")
             .setParameter("1", owner.getId())
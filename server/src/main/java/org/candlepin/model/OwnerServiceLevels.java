@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+
+/**
+ * The OwnerServiceLevels class is an immutable snapshot of the service levels offered by an
+ * owner's active pools, split into the levels available for selection and the levels which are
+ * exempt from service level matching. Both sets compare their values case-insensitively.
+ */
+public class OwnerServiceLevels implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Set<String> levels;
+    private final Set<String> exemptLevels;
+
+    public OwnerServiceLevels(Set<String> levels, Set<String> exemptLevels) {
+        this.levels = immutableCopy(levels);
+        this.exemptLevels = immutableCopy(exemptLevels);
+    }
+
+    private static Set<String> immutableCopy(Set<String> source) {
+        Set<String> copy = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+
+        if (source != null) {
+            copy.addAll(source);
+        }
+
+        return Collections.unmodifiableSet(copy);
+    }
+
+    /**
+     * @return the service levels which may be requested by consumers of the owner
+     */
+    public Set<String> getLevels() {
+        return this.levels;
+    }
+
+    /**
+     * @return the service levels which are exempt from service level matching
+     */
+    public Set<String> getExemptLevels() {
+        return this.exemptLevels;
+    }
+
+    /**
+     * Fetches either the exempt or the non-exempt service levels.
+     *
+     * @param exempt
+     *  whether or not to return the exempt service levels
+     *
+     * @return
+     *  the exempt service levels if exempt is true; the non-exempt levels otherwise
+     */
+    public Set<String> getLevels(boolean exempt) {
+        return exempt ? this.exemptLevels : this.levels;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OwnerServiceLevels [levels: %s, exempt: %s]", this.levels, this.exemptLevels);
+    }
+}
@@ -47,6 +47,7 @@ import javax.persistence.CascadeType;
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
@@ -59,6 +60,8 @@ import javax.persistence.ManyToOne;
 import javax.persistence.MapKeyColumn;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 import javax.validation.constraints.Min;
@@ -309,6 +312,12 @@ public class Pool extends AbstractHibernateObject implements Persisted, Owned, N
     @JsonDeserialize(using = CandlepinAttributeDeserializer.class)
     private Map<String, String> attributes;
 
+    // Copies of the attributes which are filtered through indexed columns; kept in sync with the
+    // attributes map by the attribute mutators.
+    @Embedded
+    @JsonIgnore
+    private PromotedAttributes promotedAttributes;
+
     @OneToMany(mappedBy = "pool")
     @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Entitlement> entitlements;
@@ -416,6 +425,7 @@ public class Pool extends AbstractHibernateObject implements Persisted, Owned, N
         this.providedProducts = new HashSet<Product>();
         this.derivedProvidedProducts = new HashSet<Product>();
         this.attributes = new HashMap<String, String>();
+        this.promotedAttributes = new PromotedAttributes();
         this.branding = new HashSet<Branding>();
         this.entitlements = new HashSet<Entitlement>();
 
@@ -705,6 +715,7 @@ public class Pool extends AbstractHibernateObject implements Persisted, Owned, N
         // effort to fix all of these inconsistencies with a massive database update, we can't
         // perform any input sanitation/massaging.
         this.attributes.put(key, value);
+        this.updatePromotedAttributes();
         return this;
     }
 
@@ -728,6 +739,7 @@ public class Pool extends AbstractHibernateObject implements Persisted, Owned, N
         boolean present = this.attributes.containsKey(key);
 
         this.attributes.remove(key);
+        this.updatePromotedAttributes();
         return present;
     }
 
@@ -739,6 +751,7 @@ public class Pool extends AbstractHibernateObject implements Persisted, Owned, N
      */
     public Pool clearAttributes() {
         this.attributes.clear();
+        this.updatePromotedAttributes();
         return this;
     }
 
@@ -759,9 +772,25 @@ public class Pool extends AbstractHibernateObject implements Persisted, Owned, N
             this.attributes.putAll(attributes);
         }
 
+        this.updatePromotedAttributes();
         return this;
     }
 
+    /**
+     * Copies the promoted attributes of this pool from its attributes map. Called whenever the
+     * attributes change, and before the pool is persisted.
+     */
+    @PrePersist
+    @PreUpdate
+    protected void updatePromotedAttributes() {
+        // Hibernate leaves embedded objects null when all of their columns are null
+        if (this.promotedAttributes == null) {
+            this.promotedAttributes = new PromotedAttributes();
+        }
+
+        this.promotedAttributes.update(this.attributes);
+    }
+
     /**
      * Checks if the given attribute is defined on this pool or its product.
      *
@@ -14,6 +14,7 @@
  */
 package org.candlepin.model;
 
+import org.candlepin.cache.CandlepinCache;
 import org.candlepin.common.paging.Page;
 import org.candlepin.common.paging.PageRequest;
 import org.candlepin.model.Pool.PoolType;
@@ -62,6 +63,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 
+import javax.cache.Cache;
 import javax.persistence.TypedQuery;
 
 
@@ -76,13 +78,15 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
 
     private static Logger log = LoggerFactory.getLogger(PoolCurator.class);
     private ConsumerCurator consumerCurator;
+    private CandlepinCache candlepinCache;
     @Inject
     protected Injector injector;
 
     @Inject
-    public PoolCurator(ConsumerCurator consumerCurator) {
+    public PoolCurator(ConsumerCurator consumerCurator, CandlepinCache candlepinCache) {
         super(Pool.class);
         this.consumerCurator = consumerCurator;
+        this.candlepinCache = candlepinCache;
     }
 
     @Override
@@ -350,13 +354,19 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
             owner = consumer.getOwner();
 
             if (consumer.isManifestDistributor()) {
-                DetachedCriteria hostPoolSubquery = DetachedCriteria.forClass(Pool.class, "PoolI")
-                    .createAlias("PoolI.attributes", "attrib")
-                    .setProjection(Projections.id())
-                    .add(Property.forName("Pool.id").eqProperty("PoolI.id"))
-                    .add(Restrictions.eq("attrib.indices", Pool.Attributes.REQUIRES_HOST));
+                if (PromotedAttributes.isPromoted(this.config, Pool.Attributes.REQUIRES_HOST)) {
+                    criteria.add(Restrictions.isNull(
+                        PromotedAttributes.getProperty("Pool", Pool.Attributes.REQUIRES_HOST)));
+                }
+                else {
+                    DetachedCriteria hostPoolSubquery = DetachedCriteria.forClass(Pool.class, "PoolI")
+                        .createAlias("PoolI.attributes", "attrib")
+                        .setProjection(Projections.id())
+                        .add(Property.forName("Pool.id").eqProperty("PoolI.id"))
+                        .add(Restrictions.eq("attrib.indices", Pool.Attributes.REQUIRES_HOST));
 
-                criteria.add(Subqueries.notExists(hostPoolSubquery));
+                    criteria.add(Subqueries.notExists(hostPoolSubquery));
+                }
             }
             else if (!consumer.isGuest()) {
                 criteria.add(Restrictions.not(
@@ -375,14 +385,25 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
                 // TODO: If we don't have a host, should this be filtering at all? Seems strange to
                 // be filtering pools which have a null/empty required host value. Probably just
                 // wasted cycles.
-                DetachedCriteria hostPoolSubquery = DetachedCriteria.forClass(Pool.class, "PoolI")
-                    .createAlias("PoolI.attributes", "attrib")
-                    .setProjection(Projections.id())
-                    .add(Property.forName("Pool.id").eqProperty("PoolI.id"))
-                    .add(Restrictions.eq("attrib.indices", Pool.Attributes.REQUIRES_HOST))
-                    .add(Restrictions.ne("attrib.elements", host != null ? host.getUuid() : "").ignoreCase());
-
-                criteria.add(Subqueries.notExists(hostPoolSubquery));
+                String hostUuid = host != null ? host.getUuid() : "";
+
+                if (PromotedAttributes.isPromoted(this.config, Pool.Attributes.REQUIRES_HOST)) {
+                    String property = PromotedAttributes.getProperty("Pool", Pool.Attributes.REQUIRES_HOST);
+
+                    criteria.add(Restrictions.or(
+                        Restrictions.isNull(property),
+                        PromotedAttributes.buildValueFilter(property, Arrays.asList(hostUuid))));
+                }
+                else {
+                    DetachedCriteria hostPoolSubquery = DetachedCriteria.forClass(Pool.class, "PoolI")
+                        .createAlias("PoolI.attributes", "attrib")
+                        .setProjection(Projections.id())
+                        .add(Property.forName("Pool.id").eqProperty("PoolI.id"))
+                        .add(Restrictions.eq("attrib.indices", Pool.Attributes.REQUIRES_HOST))
+                        .add(Restrictions.ne("attrib.elements", hostUuid).ignoreCase());
+
+                    criteria.add(Subqueries.notExists(hostPoolSubquery));
+                }
             }
         }
 
@@ -544,6 +565,10 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
 
     @SuppressWarnings("checkstyle:indentation")
     private Criterion addAttributeFilterSubquery(String key, Collection<String> values) {
+        if (PromotedAttributes.isPromoted(this.config, key)) {
+            return PromotedAttributes.buildPoolFilter("Pool", "Product", key, values);
+        }
+
         // key = this.sanitizeMatchesFilter(key);
 
         // Find all pools which have the given attribute (and values) on a product, unless the pool
@@ -603,6 +628,10 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
 
     @SuppressWarnings("checkstyle:indentation")
     private Criterion addProductAttributeFilterSubquery(String key, Collection<String> values) {
+        if (PromotedAttributes.isPromoted(this.config, key)) {
+            return PromotedAttributes.buildProductFilter("Pool", "Product", key, values);
+        }
+
         // Find all pools which have the given attribute (and values) on a product, unless the pool
         // defines that same attribute
 
@@ -854,9 +883,41 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
          * this pool. This is useful for pools being created from
          * incoming json.
          */
+        this.invalidateServiceLevelsForPools(Collections.singleton(entity));
         return super.create(entity);
     }
 
+    @Override
+    @Transactional
+    public Pool merge(Pool entity) {
+        this.invalidateServiceLevelsForPools(Collections.singleton(entity));
+        return super.merge(entity);
+    }
+
+    @Override
+    public Collection<Pool> saveAll(Collection<Pool> entities, boolean flush, boolean evict) {
+        this.invalidateServiceLevelsForPools(entities);
+        return super.saveAll(entities, flush, evict);
+    }
+
+    @Override
+    public Collection<Pool> updateAll(Collection<Pool> entities, boolean flush, boolean evict) {
+        this.invalidateServiceLevelsForPools(entities);
+        return super.updateAll(entities, flush, evict);
+    }
+
+    @Override
+    public Collection<Pool> saveOrUpdateAll(Collection<Pool> entities, boolean flush, boolean evict) {
+        this.invalidateServiceLevelsForPools(entities);
+        return super.saveOrUpdateAll(entities, flush, evict);
+    }
+
+    @Override
+    public Collection<Pool> mergeAll(Collection<Pool> entities, boolean flush) {
+        this.invalidateServiceLevelsForPools(entities);
+        return super.mergeAll(entities, flush);
+    }
+
     private static final String CONSUMER_FILTER = "Entitlement_CONSUMER_FILTER";
 
     @SuppressWarnings("checkstyle:indentation")
@@ -931,14 +992,92 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
      * @return Set of levels based on exempt flag.
      */
     public Set<String> retrieveServiceLevelsForOwner(Owner owner, boolean exempt) {
+        return this.lookupServiceLevelsForOwner(owner).getLevels(exempt);
+    }
+
+    /**
+     * Fetches the service levels for the given owner from the owner service level cache,
+     * compiling and caching them if they are not yet present. The cached levels are evicted
+     * whenever the owner's pools are created, updated or deleted through this curator, or when
+     * the product references of the owner's pools change, both at the time of the change and
+     * once its transaction completes. Callers which change pools by other means, including
+     * changes to managed pools which are only flushed by dirty checking, should call
+     * invalidateServiceLevelsForOwner.
+     * <p></p>
+     * The cache is local to each node and evictions are not replicated, so on a clustered
+     * deployment other nodes may serve stale levels for up to the cache's time to live, as
+     * configured in ehcache.xml. The cached levels are therefore only suitable for ranking pools
+     * during autobind; anything which accepts or rejects a service level, or reports the levels
+     * to clients, must use retrieveServiceLevelsForOwner instead.
+     *
+     * @param owner The owner that has the list of available service levels for
+     *              its consumers
+     * @param exempt boolean to show if the desired list is the levels that are
+     *               explicitly marked with the support_level_exempt attribute.
+     * @return Set of levels based on exempt flag.
+     */
+    public Set<String> retrieveServiceLevelsForOwnerCached(Owner owner, boolean exempt) {
+        Cache<String, OwnerServiceLevels> cache = this.candlepinCache.getOwnerServiceLevelCache();
+        OwnerServiceLevels levels = cache.get(owner.getId());
+
+        if (levels == null) {
+            levels = this.lookupServiceLevelsForOwner(owner);
+            cache.put(owner.getId(), levels);
+        }
+
+        return levels.getLevels(exempt);
+    }
+
+    /**
+     * Evicts the cached service levels of the given owner.
+     *
+     * @param owner
+     *  The owner for which to evict the cached service levels
+     */
+    public void invalidateServiceLevelsForOwner(Owner owner) {
+        if (owner != null && owner.getId() != null) {
+            this.evictOnCompletion(this.candlepinCache.getOwnerServiceLevelCache(),
+                Collections.singleton(owner.getId()));
+        }
+    }
+
+    /**
+     * Evicts the cached service levels of the owners of the given pools.
+     *
+     * @param pools
+     *  The pools which are being changed
+     */
+    private void invalidateServiceLevelsForPools(Iterable<Pool> pools) {
+        if (pools == null) {
+            return;
+        }
+
+        Set<String> ownerIds = new HashSet<String>();
+        for (Pool pool : pools) {
+            if (pool != null && pool.getOwner() != null && pool.getOwner().getId() != null) {
+                ownerIds.add(pool.getOwner().getId());
+            }
+        }
+
+        if (!ownerIds.isEmpty()) {
+            this.evictOnCompletion(this.candlepinCache.getOwnerServiceLevelCache(), ownerIds);
+        }
+    }
+
+    private OwnerServiceLevels lookupServiceLevelsForOwner(Owner owner) {
+        // Impl note:
+        // Entitlements are checked with a subquery rather than joined, as joining them multiplies
+        // the rows to scan by the number of entitlements in the org before the DISTINCT can
+        // collapse them again.
         String stmt = "SELECT DISTINCT key(Attribute), value(Attribute), Product.id " +
             "FROM Pool AS Pool " +
             "  INNER JOIN Pool.product AS Product " +
             "  INNER JOIN Product.attributes AS Attribute " +
-            "  LEFT JOIN Pool.entitlements AS Entitlement " +
             "WHERE Pool.owner.id = :owner_id " +
             "  AND (key(Attribute) = :sl_attr OR key(Attribute) = :sle_attr) " +
-            "  AND (Pool.endDate >= current_date() OR Entitlement.endDateOverride >= current_date()) " +
+            "  AND (Pool.endDate >= current_date() OR EXISTS (" +
+            "    SELECT Entitlement.id FROM Entitlement AS Entitlement " +
+            "    WHERE Entitlement.pool = Pool AND Entitlement.endDateOverride >= current_date())) " +
             // Needs to be ordered, because the code below assumes exempt levels are first
             "ORDER BY key(Attribute) DESC";
 
@@ -983,10 +1122,7 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
             }
         }
 
-        if (exempt) {
-            return exemptSlaSet;
-        }
-        return slaSet;
+        return new OwnerServiceLevels(slaSet, exemptSlaSet);
     }
 
     private void deleteImpl(Pool entity) {
@@ -1036,6 +1172,7 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
     public void delete(Pool entity) {
         Pool toDelete = find(entity.getId());
         if (toDelete != null) {
+            this.invalidateServiceLevelsForPools(Collections.singleton(toDelete));
             this.deleteImpl(toDelete);
             this.flush();
         }
@@ -1055,6 +1192,8 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
             alreadyDeletedPools = new HashSet<String>();
         }
 
+        this.invalidateServiceLevelsForPools(pools);
+
         for (Pool pool : pools) {
             // As we batch pool operations, pools may be deleted at multiple places in the code path.
             // We may request to delete the same pool in multiple places too, for example if an expired
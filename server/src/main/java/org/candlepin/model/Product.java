@@ -54,6 +54,7 @@ import java.util.StringTokenizer;
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -200,6 +201,12 @@ public class Product extends AbstractHibernateObject implements SharedEntity, Li
     @JsonDeserialize(using = CandlepinAttributeDeserializer.class)
     private Map<String, String> attributes;
 
+    // Copies of the attributes which are filtered through indexed columns; kept in sync with the
+    // attributes map by the attribute mutators.
+    @XmlTransient
+    @Embedded
+    private PromotedAttributes promotedAttributes;
+
     @OneToMany(mappedBy = "product", orphanRemoval = true)
     @BatchSize(size = 32)
     @Cascade({ CascadeType.ALL })
@@ -230,6 +237,7 @@ public class Product extends AbstractHibernateObject implements SharedEntity, Li
 
     public Product() {
         this.attributes = new HashMap<String, String>();
+        this.promotedAttributes = new PromotedAttributes();
         this.productContent = new LinkedList<ProductContent>();
         this.dependentProductIds = new HashSet<String>();
     }
@@ -374,6 +382,7 @@ public class Product extends AbstractHibernateObject implements SharedEntity, Li
         // Copy attributes
         copy.attributes = new HashMap<String, String>();
         copy.attributes.putAll(this.attributes);
+        copy.promotedAttributes = new PromotedAttributes(copy.attributes);
 
         // Copy content
         copy.productContent = new LinkedList<ProductContent>();
@@ -567,6 +576,7 @@ public class Product extends AbstractHibernateObject implements SharedEntity, Li
         // effort to fix all of these inconsistencies with a massive database update, we can't
         // perform any input sanitation/massaging.
         this.attributes.put(key, value);
+        this.updatePromotedAttributes();
         return this;
     }
 
@@ -590,6 +600,7 @@ public class Product extends AbstractHibernateObject implements SharedEntity, Li
         boolean present = this.attributes.containsKey(key);
 
         this.attributes.remove(key);
+        this.updatePromotedAttributes();
         return present;
     }
 
@@ -601,6 +612,7 @@ public class Product extends AbstractHibernateObject implements SharedEntity, Li
      */
     public Product clearAttributes() {
         this.attributes.clear();
+        this.updatePromotedAttributes();
         return this;
     }
 
@@ -621,9 +633,22 @@ public class Product extends AbstractHibernateObject implements SharedEntity, Li
             this.attributes.putAll(attributes);
         }
 
+        this.updatePromotedAttributes();
         return this;
     }
 
+    /**
+     * Copies the promoted attributes of this product from its attributes map.
+     */
+    private void updatePromotedAttributes() {
+        // Hibernate leaves embedded objects null when all of their columns are null
+        if (this.promotedAttributes == null) {
+            this.promotedAttributes = new PromotedAttributes();
+        }
+
+        this.promotedAttributes.update(this.attributes);
+    }
+
     @XmlTransient
     public List<String> getSkuEnabledContentIds() {
         List<String> skus = new LinkedList<String>();
@@ -1195,6 +1220,9 @@ public class Product extends AbstractHibernateObject implements SharedEntity, Li
     @PreUpdate
     public void updateEntityVersion() {
         this.entityVersion = this.getEntityVersion();
+
+        // The attributes map may have been changed through the view returned by getAttributes
+        this.updatePromotedAttributes();
     }
 
 }
@@ -0,0 +1,310 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Restrictions;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.validation.constraints.Size;
+
+
+
+/**
+ * The PromotedAttributes class holds copies of frequently filtered attributes, materialized into
+ * indexed columns of the pool and product tables. Filtering on these columns avoids the subqueries
+ * against the attribute tables otherwise needed to match an attribute.
+ * <p></p>
+ * An attribute which is not set is stored as null, while an attribute set to a null value is
+ * stored as an empty string. Values are stored in lower case, as attribute values are matched
+ * case-insensitively.
+ */
+@Embeddable
+public class PromotedAttributes implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Mapping of the promoted attribute names to the properties backing them */
+    private static final Map<String, String> PROPERTIES;
+
+    static {
+        Map<String, String> properties = new LinkedHashMap<String, String>();
+        properties.put(Pool.Attributes.VIRT_ONLY, "virtOnly");
+        properties.put(Pool.Attributes.REQUIRES_HOST, "requiresHost");
+        properties.put(Pool.Attributes.DEVELOPMENT_POOL, "devPool");
+        properties.put(Product.Attributes.STACKING_ID, "stackingId");
+        properties.put(Product.Attributes.SUPPORT_LEVEL, "supportLevel");
+        properties.put(Product.Attributes.TYPE, "type");
+        properties.put(Pool.Attributes.PRODUCT_FAMILY, "productFamily");
+
+        PROPERTIES = Collections.unmodifiableMap(properties);
+    }
+
+    @Column(name = "attr_virt_only")
+    @Size(max = 255)
+    private String virtOnly;
+
+    @Column(name = "attr_requires_host")
+    @Size(max = 255)
+    private String requiresHost;
+
+    @Column(name = "attr_dev_pool")
+    @Size(max = 255)
+    private String devPool;
+
+    @Column(name = "attr_stacking_id")
+    @Size(max = 255)
+    private String stackingId;
+
+    @Column(name = "attr_support_level")
+    @Size(max = 255)
+    private String supportLevel;
+
+    @Column(name = "attr_type")
+    @Size(max = 255)
+    private String type;
+
+    @Column(name = "attr_product_family")
+    @Size(max = 255)
+    private String productFamily;
+
+    public PromotedAttributes() {
+        // Intentionally left empty
+    }
+
+    /**
+     * Creates a new PromotedAttributes instance holding the promoted attributes from the given
+     * attribute map.
+     *
+     * @param attributes
+     *  The attributes from which to copy the promoted attributes
+     */
+    public PromotedAttributes(Map<String, String> attributes) {
+        this.update(attributes);
+    }
+
+    /**
+     * Copies the promoted attributes from the given attribute map, clearing any promoted attributes
+     * not present in the map.
+     *
+     * @param attributes
+     *  The attributes from which to copy the promoted attributes
+     *
+     * @return
+     *  a reference to this PromotedAttributes instance
+     */
+    public PromotedAttributes update(Map<String, String> attributes) {
+        this.virtOnly = normalize(attributes, Pool.Attributes.VIRT_ONLY);
+        this.requiresHost = normalize(attributes, Pool.Attributes.REQUIRES_HOST);
+        this.devPool = normalize(attributes, Pool.Attributes.DEVELOPMENT_POOL);
+        this.stackingId = normalize(attributes, Product.Attributes.STACKING_ID);
+        this.supportLevel = normalize(attributes, Product.Attributes.SUPPORT_LEVEL);
+        this.type = normalize(attributes, Product.Attributes.TYPE);
+        this.productFamily = normalize(attributes, Pool.Attributes.PRODUCT_FAMILY);
+
+        return this;
+    }
+
+    private static String normalize(Map<String, String> attributes, String key) {
+        if (attributes == null || !attributes.containsKey(key)) {
+            return null;
+        }
+
+        String value = attributes.get(key);
+        return value != null ? value.toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Fetches the names of the attributes which can be promoted.
+     *
+     * @return
+     *  the names of the attributes backed by promoted columns
+     */
+    public static Set<String> getSupportedAttributes() {
+        return PROPERTIES.keySet();
+    }
+
+    /**
+     * Fetches the criteria property path of the column backing the given promoted attribute.
+     *
+     * @param alias
+     *  The alias of the pool or product in the criteria
+     *
+     * @param attribute
+     *  The name of the promoted attribute
+     *
+     * @throws IllegalArgumentException
+     *  if the attribute is not backed by a promoted column
+     *
+     * @return
+     *  the property path of the promoted column, prefixed with the given alias
+     */
+    public static String getProperty(String alias, String attribute) {
+        String property = PROPERTIES.get(attribute);
+        if (property == null) {
+            throw new IllegalArgumentException("attribute is not promoted: " + attribute);
+        }
+
+        return alias + ".promotedAttributes." + property;
+    }
+
+    /**
+     * Checks whether filters on the given attribute should use the promoted columns. An attribute is
+     * promoted if it is backed by a promoted column and is listed in the promoted attributes
+     * configuration.
+     *
+     * @param config
+     *  The configuration listing the promoted attributes
+     *
+     * @param attribute
+     *  The name of the attribute to check
+     *
+     * @return
+     *  true if filters on the attribute should use the promoted columns; false otherwise
+     */
+    public static boolean isPromoted(Configuration config, String attribute) {
+        if (attribute == null || !PROPERTIES.containsKey(attribute)) {
+            return false;
+        }
+
+        Set<String> promoted = config.getSet(ConfigProperties.PROMOTED_ATTRIBUTES, null);
+        return promoted != null && promoted.contains(attribute);
+    }
+
+    /**
+     * Builds a criterion matching pools which have the given attribute set to any of the given
+     * values, either on the pool itself or, if the pool does not define the attribute, on its
+     * product. This mirrors the attribute subqueries built by the curators, but runs against the
+     * promoted columns of the pool and product aliases.
+     * <p></p>
+     * Values may contain the * and ? wildcards, which can be escaped with a backslash. An empty or
+     * null value matches attributes set to an empty or null value. If no values are provided, the
+     * criterion matches pools which have the attribute set to any value.
+     *
+     * @param poolAlias
+     *  The alias of the pool in the criteria
+     *
+     * @param productAlias
+     *  The alias of the pool's product in the criteria
+     *
+     * @param attribute
+     *  The name of the promoted attribute to match
+     *
+     * @param values
+     *  The values to match
+     *
+     * @throws IllegalArgumentException
+     *  if the attribute is not backed by a promoted column
+     *
+     * @return
+     *  a criterion matching pools with the given attribute values
+     */
+    public static Criterion buildPoolFilter(String poolAlias, String productAlias, String attribute,
+        Collection<String> values) {
+
+        String poolProperty = getProperty(poolAlias, attribute);
+
+        if (values == null || values.isEmpty()) {
+            return Restrictions.or(
+                Restrictions.isNotNull(poolProperty),
+                buildProductFilter(poolAlias, productAlias, attribute, values));
+        }
+
+        // Impl note:
+        // Each side is guarded with a null check, so the criterion never evaluates to unknown and
+        // can be safely negated.
+        return Restrictions.or(
+            Restrictions.and(
+                Restrictions.isNotNull(poolProperty),
+                buildValueFilter(poolProperty, values)),
+            buildProductFilter(poolAlias, productAlias, attribute, values));
+    }
+
+    /**
+     * Builds a criterion matching pools whose product has the given attribute set to any of the
+     * given values, unless the pool itself defines the attribute. Values are matched as described
+     * in buildPoolFilter.
+     *
+     * @param poolAlias
+     *  The alias of the pool in the criteria
+     *
+     * @param productAlias
+     *  The alias of the pool's product in the criteria
+     *
+     * @param attribute
+     *  The name of the promoted attribute to match
+     *
+     * @param values
+     *  The values to match
+     *
+     * @throws IllegalArgumentException
+     *  if the attribute is not backed by a promoted column
+     *
+     * @return
+     *  a criterion matching pools with the given product attribute values
+     */
+    public static Criterion buildProductFilter(String poolAlias, String productAlias, String attribute,
+        Collection<String> values) {
+
+        String poolProperty = getProperty(poolAlias, attribute);
+        String productProperty = getProperty(productAlias, attribute);
+
+        if (values == null || values.isEmpty()) {
+            return Restrictions.and(
+                Restrictions.isNull(poolProperty),
+                Restrictions.isNotNull(productProperty));
+        }
+
+        return Restrictions.and(
+            Restrictions.isNull(poolProperty),
+            Restrictions.isNotNull(productProperty),
+            buildValueFilter(productProperty, values));
+    }
+
+    /**
+     * Builds a criterion matching a single promoted column against any of the given values.
+     *
+     * @param property
+     *  The path to the promoted property, including its alias
+     *
+     * @param values
+     *  The values to match
+     *
+     * @return
+     *  a criterion matching the property against the values
+     */
+    public static Criterion buildValueFilter(String property, Collection<String> values) {
+        return FilterBuilder.buildNormalizedValueFilter(property, values);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PromotedAttributes [virt_only: %s, requires_host: %s, dev_pool: %s, " +
+            "stacking_id: %s, support_level: %s, type: %s, product_family: %s]", this.virtOnly,
+            this.requiresHost, this.devPool, this.stackingId, this.supportLevel, this.type,
+            this.productFamily);
+    }
+}
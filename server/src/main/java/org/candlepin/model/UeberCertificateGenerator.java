@@ -109,6 +109,7 @@ public class UeberCertificateGenerator {
         UeberCertData ueberCertData = new UeberCertData(owner, generatedByUsername);
 
         CertificateSerial serial = new CertificateSerial(ueberCertData.getEndDate());
+        serialCurator.assignSerial(serial);
         serialCurator.create(serial);
 
         KeyPair keyPair = keyPairCurator.getKeyPair();
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.core;
+
+import static org.quartz.impl.matchers.GroupMatcher.triggerGroupEquals;
+
+import org.candlepin.pinsetter.core.model.JobLaneStatus;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobListener;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+
+
+
+/**
+ * A JobLane is a named execution lane for pinsetter jobs. Each lane owns its own Quartz scheduler,
+ * and therefore its own thread pool, so long running jobs assigned to one lane cannot starve the
+ * jobs of another. The lane also listens to the jobs it executes to keep simple queue and
+ * execution statistics.
+ */
+public class JobLane implements JobListener {
+    private static Logger log = LoggerFactory.getLogger(JobLane.class);
+
+    public static final String DEFAULT_LANE = "default";
+
+    private final String name;
+    private final Scheduler scheduler;
+    private final int threads;
+
+    private int running;
+    private long executed;
+    private long started;
+    private long totalWaitTime;
+    private long maxWaitTime;
+    private long totalRunTime;
+    private long maxRunTime;
+
+    public JobLane(String name, Scheduler scheduler, int threads) {
+        this.name = name;
+        this.scheduler = scheduler;
+        this.threads = threads;
+    }
+
+    @Override
+    public String getName() {
+        return "Job lane listener: " + this.name;
+    }
+
+    public String getLaneName() {
+        return this.name;
+    }
+
+    public Scheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    @Override
+    public synchronized void jobToBeExecuted(JobExecutionContext context) {
+        Date fired = context.getFireTime();
+        Date scheduled = context.getScheduledFireTime();
+        long wait = fired != null && scheduled != null ?
+            Math.max(0, fired.getTime() - scheduled.getTime()) : 0;
+
+        ++this.running;
+        ++this.started;
+        this.totalWaitTime += wait;
+        this.maxWaitTime = Math.max(this.maxWaitTime, wait);
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        // Vetoed jobs never ran, so they do not count toward the lane statistics
+    }
+
+    @Override
+    public synchronized void jobWasExecuted(JobExecutionContext context,
+        JobExecutionException exception) {
+
+        long runTime = Math.max(0, context.getJobRunTime());
+
+        this.running = Math.max(0, this.running - 1);
+        ++this.executed;
+        this.totalRunTime += runTime;
+        this.maxRunTime = Math.max(this.maxRunTime, runTime);
+    }
+
+    /**
+     * Builds a snapshot of this lane's statistics. The queue depth is the number of single-run
+     * jobs whose triggers have not yet completed, less those currently running on this node; in
+     * a clustered deployment it therefore includes jobs queued by the other nodes.
+     * <p></p>
+     * The statistics are copied under the lane's lock, but the scheduler is queried for the
+     * queue depth outside of it, so a slow job store does not hold up the jobs being started and
+     * completed on this lane.
+     *
+     * @return
+     *  the current status of this lane
+     */
+    public JobLaneStatus getStatus() {
+        JobLaneStatus status = new JobLaneStatus();
+        status.setName(this.name);
+        status.setThreads(this.threads);
+
+        synchronized (this) {
+            status.setRunning(this.running);
+            status.setExecuted(this.executed);
+            status.setAverageWaitTime(this.started > 0 ? this.totalWaitTime / this.started : 0);
+            status.setMaxWaitTime(this.maxWaitTime);
+            status.setAverageRunTime(this.executed > 0 ? this.totalRunTime / this.executed : 0);
+            status.setMaxRunTime(this.maxRunTime);
+        }
+
+        try {
+            int pending = this.scheduler
+                .getTriggerKeys(triggerGroupEquals(PinsetterKernel.SINGLE_JOB_GROUP))
+                .size();
+
+            status.setQueued(Math.max(0, pending - status.getRunning()));
+        }
+        catch (SchedulerException e) {
+            log.warn("Unable to determine the queue depth of job lane: {}", this.name, e);
+        }
+
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JobLane [name: %s, threads: %d]", this.name, this.threads);
+    }
+}
@@ -19,6 +19,8 @@ import org.candlepin.common.exceptions.CandlepinException;
 import org.candlepin.model.JobCurator;
 import org.candlepin.pinsetter.core.model.JobStatus;
 import org.candlepin.pinsetter.core.model.JobStatus.JobState;
+import org.candlepin.pinsetter.tasks.HypervisorUpdateJob;
+import org.candlepin.pinsetter.tasks.KingpinJob;
 import org.candlepin.pinsetter.tasks.UniqueByEntityJob;
 
 import com.google.inject.Inject;
@@ -26,10 +28,13 @@ import com.google.inject.persist.Transactional;
 import com.google.inject.persist.UnitOfWork;
 
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.quartz.Job;
+import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.quartz.JobKey;
 import org.quartz.JobListener;
+import org.quartz.ObjectAlreadyExistsException;
 import org.quartz.SchedulerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -113,11 +118,62 @@ public class PinsetterJobListener implements JobListener {
             }
         }
         finally {
+            dispatchWaitingJob(context);
             unitOfWork.end();
             ResteasyProviderFactory.popContextData(Principal.class);
         }
     }
 
+    /**
+     * Starts the next job waiting on the completed job, if any. Jobs extending
+     * {@link UniqueByEntityJob}, as well as {@link HypervisorUpdateJob}s, are stored in the
+     * WAITING state without a trigger while a job of the same class runs against the same
+     * target; triggering the oldest of them here lets it start as soon as its blocker finishes
+     * rather than on the next UnpauseJob run.
+     */
+    private void dispatchWaitingJob(JobExecutionContext context) {
+        JobDetail detail = context.getJobDetail();
+        Class<? extends Job> jobClass = detail.getJobClass();
+        if (jobClass == null || !(UniqueByEntityJob.class.isAssignableFrom(jobClass) ||
+            HypervisorUpdateJob.class.equals(jobClass))) {
+            return;
+        }
+
+        JobStatus next = null;
+
+        try {
+            String target = detail.getJobDataMap().getString(JobStatus.TARGET_ID);
+            next = curator.findNextWaitingByClassAndTarget(target,
+                jobClass.asSubclass(KingpinJob.class));
+
+            if (next != null && UniqueByEntityJob.isSchedulable(curator, next) &&
+                curator.claimWaitingJob(next, JobState.CREATED)) {
+
+                log.debug("Triggering waiting job: {}", next.getId());
+                context.getScheduler().scheduleJob(PinsetterKernel.buildWaitingJobTrigger(next));
+            }
+        }
+        catch (ObjectAlreadyExistsException e) {
+            // The waiting job was already triggered by UnpauseJob.
+            log.debug("Waiting job was already triggered", e);
+        }
+        catch (Exception e) {
+            log.warn("Unable to trigger waiting job; it will be started by UnpauseJob", e);
+            releaseClaim(next);
+        }
+    }
+
+    /**
+     * Returns a job claimed for triggering to the waiting state after its trigger could not be
+     * scheduled, so that it can be claimed again.
+     */
+    private void releaseClaim(JobStatus status) {
+        if (status != null && status.getState() == JobState.CREATED) {
+            status.setState(JobState.WAITING);
+            curator.merge(status);
+        }
+    }
+
     private void updateJob(JobExecutionContext ctx) {
         updateJob(ctx, null);
     }
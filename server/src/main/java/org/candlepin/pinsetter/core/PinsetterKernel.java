@@ -29,6 +29,7 @@ import org.candlepin.controller.ModeChangeListener;
 import org.candlepin.controller.ModeManager;
 import org.candlepin.model.CandlepinModeChange.Mode;
 import org.candlepin.model.JobCurator;
+import org.candlepin.pinsetter.core.model.JobLaneStatus;
 import org.candlepin.pinsetter.core.model.JobStatus;
 import org.candlepin.pinsetter.tasks.CancelJobJob;
 import org.candlepin.util.PropertyUtil;
@@ -57,14 +58,21 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
 /**
  * Pinsetter Kernel.
+ * <p></p>
+ * Jobs run on the default Quartz scheduler unless their class is assigned to one of the execution
+ * lanes listed in {@link ConfigProperties#PINSETTER_LANES}, in which case they are scheduled on,
+ * and executed by, the lane's own scheduler.
  * @version $Rev$
  */
 @Singleton
@@ -77,8 +85,13 @@ public class PinsetterKernel implements ModeChangeListener {
         "ExportCleaner"
     };
 
+    private static final int DEFAULT_LANE_THREADS = 5;
+    private static final String DEFAULT_INSTANCE_NAME = "QuartzScheduler";
+
     private static Logger log = LoggerFactory.getLogger(PinsetterKernel.class);
     private Scheduler scheduler;
+    private JobLane defaultLane;
+    private Map<String, JobLane> lanes;
     private Configuration config;
     private JobCurator jobCurator;
     private ModeManager modeManager;
@@ -115,13 +128,22 @@ public class PinsetterKernel implements ModeChangeListener {
         try {
             fact.initialize(props);
             scheduler = fact.getScheduler();
-            scheduler.setJobFactory(jobFactory);
-
-            if (listener != null) {
-                scheduler.getListenerManager().addJobListener(listener);
-            }
-            if (triggerListener != null) {
-                scheduler.getListenerManager().addTriggerListener(triggerListener);
+            this.initScheduler(scheduler, jobFactory, listener, triggerListener);
+
+            this.lanes = new LinkedHashMap<String, JobLane>();
+            this.defaultLane = new JobLane(JobLane.DEFAULT_LANE, scheduler,
+                config.getInt("org.quartz.threadPool.threadCount", DEFAULT_LANE_THREADS));
+            scheduler.getListenerManager().addJobListener(this.defaultLane);
+            this.lanes.put(JobLane.DEFAULT_LANE, this.defaultLane);
+
+            List<String> laneNames = config.getList(ConfigProperties.PINSETTER_LANES, null);
+            if (laneNames != null) {
+                for (String laneName : laneNames) {
+                    if (!StringUtils.isEmpty(laneName) && !this.lanes.containsKey(laneName)) {
+                        this.lanes.put(laneName,
+                            this.createLane(laneName, props, jobFactory, listener, triggerListener));
+                    }
+                }
             }
         }
         catch (SchedulerException e) {
@@ -129,6 +151,92 @@ public class PinsetterKernel implements ModeChangeListener {
         }
     }
 
+    private void initScheduler(Scheduler sched, JobFactory jobFactory, JobListener listener,
+        TriggerListener triggerListener) throws SchedulerException {
+
+        sched.setJobFactory(jobFactory);
+
+        if (listener != null) {
+            sched.getListenerManager().addJobListener(listener);
+        }
+        if (triggerListener != null) {
+            sched.getListenerManager().addTriggerListener(triggerListener);
+        }
+    }
+
+    /**
+     * Creates the scheduler of an execution lane. The lane scheduler shares the configuration of
+     * the default scheduler, but has its own instance name, and thus its own jobs and triggers,
+     * and a thread pool sized by the lane's configuration.
+     */
+    private JobLane createLane(String name, Properties defaults, JobFactory jobFactory,
+        JobListener listener, TriggerListener triggerListener) throws SchedulerException {
+
+        int threads = config.getInt("pinsetter.lane." + name + ".threads", DEFAULT_LANE_THREADS);
+        int priority = config.getInt("pinsetter.lane." + name + ".thread_priority", Thread.NORM_PRIORITY);
+
+        Properties props = new Properties();
+        props.putAll(defaults);
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, defaults.getProperty(
+            StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, DEFAULT_INSTANCE_NAME) + "-" + name);
+        props.setProperty("org.quartz.threadPool.threadCount", String.valueOf(threads));
+        props.setProperty("org.quartz.threadPool.threadPriority", String.valueOf(priority));
+
+        StdSchedulerFactory factory = this.createSchedulerFactory();
+        factory.initialize(props);
+
+        Scheduler laneScheduler = factory.getScheduler();
+        this.initScheduler(laneScheduler, jobFactory, listener, triggerListener);
+
+        JobLane lane = new JobLane(name, laneScheduler, threads);
+        laneScheduler.getListenerManager().addJobListener(lane);
+
+        log.info("Created pinsetter execution lane: {}", lane);
+        return lane;
+    }
+
+    protected StdSchedulerFactory createSchedulerFactory() {
+        return new StdSchedulerFactory();
+    }
+
+    /**
+     * Fetches the execution lane the given job class is assigned to, falling back to the default
+     * lane for jobs without a lane or with an unknown one.
+     */
+    private JobLane getLane(String jobClass) {
+        String laneName = jobClass != null ?
+            this.config.getString("pinsetter." + jobClass + ".lane", null) :
+            null;
+
+        if (laneName != null) {
+            JobLane lane = this.lanes.get(laneName);
+            if (lane != null) {
+                return lane;
+            }
+
+            log.warn("Job {} is assigned to an unknown lane: {}; using the default lane",
+                jobClass, laneName);
+        }
+
+        return this.defaultLane;
+    }
+
+    /**
+     * Retrieves the configuration and execution statistics of each execution lane, beginning
+     * with the default lane.
+     *
+     * @return
+     *  a list of lane statuses
+     */
+    public List<JobLaneStatus> getLaneStatuses() {
+        List<JobLaneStatus> statuses = new ArrayList<JobLaneStatus>(this.lanes.size());
+        for (JobLane lane : this.lanes.values()) {
+            statuses.add(lane.getStatus());
+        }
+
+        return statuses;
+    }
+
     /**
      * Starts Pinsetter
      * This method does not return until the this.scheduler is shutdown
@@ -137,9 +245,11 @@ public class PinsetterKernel implements ModeChangeListener {
      */
     public void startup() throws PinsetterException {
         try {
-            scheduler.start();
-            if (modeManager.getLastCandlepinModeChange().getMode() != Mode.NORMAL) {
-                scheduler.pauseAll();
+            for (JobLane lane : this.lanes.values()) {
+                lane.getScheduler().start();
+                if (modeManager.getLastCandlepinModeChange().getMode() != Mode.NORMAL) {
+                    lane.getScheduler().pauseAll();
+                }
             }
             modeManager.registerModeChangeListener(this);
             configure();
@@ -193,20 +303,28 @@ public class PinsetterKernel implements ModeChangeListener {
                 return;
             }
             log.debug("Jobs implemented:" + jobImpls);
-            Set<JobKey> jobKeys = scheduler.getJobKeys(jobGroupEquals(CRON_GROUP));
-
-            /*
-             * purge jobs that have been deleted from this version of Candlepin.
-             * This is necessary as we might not even have the Class definition
-             * at classpath, Hence any attempt at fetching the JobDetail by the
-             * Scheduler or JobStatus by the JobCurator will fail.
-             */
-            for (JobKey jobKey : jobKeys) {
-                for (String deletedJob : DELETED_JOBS) {
-                    if (jobKey.getName().contains(deletedJob)) {
-                        scheduler.deleteJob(jobKey);
-                        jobCurator.deleteJobNoStatusReturn(jobKey.getName());
-                        break;
+            Map<JobLane, Set<JobKey>> laneJobKeys = new HashMap<JobLane, Set<JobKey>>();
+
+            for (JobLane lane : this.lanes.values()) {
+                Scheduler laneScheduler = lane.getScheduler();
+                Set<JobKey> jobKeys = laneScheduler.getJobKeys(jobGroupEquals(CRON_GROUP));
+                laneJobKeys.put(lane, jobKeys);
+
+                /*
+                 * purge jobs that have been deleted from this version of Candlepin.
+                 * This is necessary as we might not even have the Class definition
+                 * at classpath, Hence any attempt at fetching the JobDetail by the
+                 * Scheduler or JobStatus by the JobCurator will fail.
+                 */
+                if (jobKeys != null) {
+                    for (JobKey jobKey : jobKeys) {
+                        for (String deletedJob : DELETED_JOBS) {
+                            if (jobKey.getName().contains(deletedJob)) {
+                                laneScheduler.deleteJob(jobKey);
+                                jobCurator.deleteJobNoStatusReturn(jobKey.getName());
+                                break;
+                            }
+                        }
                     }
                 }
             }
@@ -216,14 +334,27 @@ public class PinsetterKernel implements ModeChangeListener {
                     log.debug("Scheduling " + jobImpl);
                 }
 
-                // Find all existing cron triggers matching this job impl
+                // Find all existing cron triggers matching this job impl. Triggers left in
+                // another lane by a previous lane configuration are removed.
+                JobLane jobLane = this.getLane(jobImpl);
                 List<CronTrigger> existingCronTriggers = new LinkedList<CronTrigger>();
-                if (jobKeys != null) {
-                    for (JobKey key : jobKeys) {
-                        JobDetail jd = scheduler.getJobDetail(key);
+                for (Map.Entry<JobLane, Set<JobKey>> entry : laneJobKeys.entrySet()) {
+                    if (entry.getValue() == null) {
+                        continue;
+                    }
+
+                    Scheduler laneScheduler = entry.getKey().getScheduler();
+                    for (JobKey key : entry.getValue()) {
+                        JobDetail jd = laneScheduler.getJobDetail(key);
                         if (jd != null &&
                             jd.getJobClass().getName().equals(jobImpl)) {
-                            CronTrigger trigger = (CronTrigger) scheduler.getTrigger(
+                            if (entry.getKey() != jobLane) {
+                                log.info("Moving " + key + " to lane " + jobLane.getLaneName());
+                                laneScheduler.deleteJob(key);
+                                continue;
+                            }
+
+                            CronTrigger trigger = (CronTrigger) laneScheduler.getTrigger(
                                 triggerKey(key.getName(), CRON_GROUP));
                             if (trigger != null) {
                                 existingCronTriggers.add(trigger);
@@ -248,7 +379,7 @@ public class PinsetterKernel implements ModeChangeListener {
                             schedule);
                     }
 
-                    addUniqueJob(pendingJobs, jobImpl,
+                    addUniqueJob(pendingJobs, jobLane.getScheduler(), jobImpl,
                         existingCronTriggers, schedule);
                 }
                 else {
@@ -268,7 +399,7 @@ public class PinsetterKernel implements ModeChangeListener {
     /*
      * Adds a unique job, replacing any old ones with different schedules.
      */
-    private void addUniqueJob(List<JobEntry> pendingJobs,
+    private void addUniqueJob(List<JobEntry> pendingJobs, Scheduler laneScheduler,
         String jobImpl, List<CronTrigger> existingCronTriggers, String schedule)
         throws SchedulerException {
 
@@ -291,7 +422,7 @@ public class PinsetterKernel implements ModeChangeListener {
             log.warn("Cleaning up " + existingCronTriggers.size() + " obsolete triggers.");
         }
         for (CronTrigger t : existingCronTriggers) {
-            boolean result = scheduler.deleteJob(t.getJobKey());
+            boolean result = laneScheduler.deleteJob(t.getJobKey());
             log.warn(t.getJobKey() + " deletion success?: " + result);
         }
 
@@ -307,10 +438,14 @@ public class PinsetterKernel implements ModeChangeListener {
     public void shutdown() throws PinsetterException {
         try {
             log.info("shutting down pinsetter kernel");
-            scheduler.standby(); // do not allow any new jobs to be scheduled
+            for (JobLane lane : this.lanes.values()) {
+                lane.getScheduler().standby(); // do not allow any new jobs to be scheduled
+            }
             deleteAllJobs(); // delete all jobs if we are not clustered
             log.info("allowing running jobs to finish..");
-            scheduler.shutdown(true);
+            for (JobLane lane : this.lanes.values()) {
+                lane.getScheduler().shutdown(true);
+            }
             log.info("pinsetter kernel is shut down");
         }
         catch (SchedulerException e) {
@@ -380,9 +515,10 @@ public class PinsetterKernel implements ModeChangeListener {
         detailImpl.setGroup(grpName);
 
         try {
+            Scheduler laneScheduler = this.getLane(detail.getJobClass().getName()).getScheduler();
             JobStatus status = (JobStatus) (detail.getJobClass()
                 .getMethod("scheduleJob", JobCurator.class, Scheduler.class, JobDetail.class, Trigger.class)
-                .invoke(null, jobCurator, scheduler, detail, trigger));
+                .invoke(null, jobCurator, laneScheduler, detail, trigger));
 
             if (log.isDebugEnabled()) {
                 log.debug("Scheduled " + detailImpl.getFullName());
@@ -403,8 +539,11 @@ public class PinsetterKernel implements ModeChangeListener {
         try {
             // this deletes from the scheduler, it's already marked as
             // canceled in the JobStatus table
-            if (scheduler.deleteJob(jobKey((String) id, group))) {
-                log.info("canceled job " + group + ":" + id + " in scheduler");
+            for (JobLane lane : this.lanes.values()) {
+                if (lane.getScheduler().deleteJob(jobKey((String) id, group))) {
+                    log.info("canceled job " + group + ":" + id + " in scheduler");
+                    break;
+                }
             }
         }
         catch (SchedulerException e) {
@@ -444,17 +583,34 @@ public class PinsetterKernel implements ModeChangeListener {
     }
 
     public void addTrigger(JobStatus status) throws SchedulerException {
-        Trigger trigger = newTrigger()
+        this.getLane(status.getJobClass()).getScheduler().scheduleJob(buildWaitingJobTrigger(status));
+    }
+
+    /**
+     * Builds the trigger used to start a job that was stored without one while it waited
+     * for a blocking job to finish. The trigger identity is derived from the job id, so a
+     * waiting job can only be triggered once.
+     *
+     * @param status the status of the waiting job
+     * @return a trigger starting the waiting job immediately
+     */
+    public static Trigger buildWaitingJobTrigger(JobStatus status) {
+        return newTrigger()
             .withIdentity(status.getId() + " trigger", SINGLE_JOB_GROUP)
             .forJob(status.getJobKey())
             .build();
-        scheduler.scheduleJob(trigger);
     }
 
     public boolean getSchedulerStatus() throws PinsetterException {
         try {
-            // return true when scheduler is running (double negative)
-            return !scheduler.isInStandbyMode();
+            // the scheduler is only running when every lane is running (double negative)
+            for (JobLane lane : this.lanes.values()) {
+                if (lane.getScheduler().isInStandbyMode()) {
+                    return false;
+                }
+            }
+
+            return true;
         }
         catch (SchedulerException e) {
             throw new PinsetterException("There was a problem gathering" +
@@ -465,7 +621,9 @@ public class PinsetterKernel implements ModeChangeListener {
     public void pauseScheduler() throws PinsetterException {
         // go into standby mode
         try {
-            scheduler.standby();
+            for (JobLane lane : this.lanes.values()) {
+                lane.getScheduler().standby();
+            }
         }
         catch (SchedulerException e) {
             throw new PinsetterException("There was a problem pausing the scheduler", e);
@@ -484,7 +642,9 @@ public class PinsetterKernel implements ModeChangeListener {
         }
         log.debug("restarting scheduler");
         try {
-            scheduler.start();
+            for (JobLane lane : this.lanes.values()) {
+                lane.getScheduler().start();
+            }
         }
         catch (SchedulerException e) {
             throw new PinsetterException("There was a problem unpausing the scheduler", e);
@@ -493,10 +653,12 @@ public class PinsetterKernel implements ModeChangeListener {
 
     private void deleteJobs(String groupName) {
         try {
-            Set<JobKey> jobs = this.scheduler.getJobKeys(jobGroupEquals(groupName));
+            for (JobLane lane : this.lanes.values()) {
+                Set<JobKey> jobs = lane.getScheduler().getJobKeys(jobGroupEquals(groupName));
 
-            for (JobKey jobKey : jobs) {
-                this.scheduler.deleteJob(jobKey);
+                for (JobKey jobKey : jobs) {
+                    lane.getScheduler().deleteJob(jobKey);
+                }
             }
         }
         catch (SchedulerException e) {
@@ -512,7 +674,16 @@ public class PinsetterKernel implements ModeChangeListener {
     }
 
     public Set<JobKey> getSingleJobKeys() throws SchedulerException {
-        return scheduler.getJobKeys(GroupMatcher.jobGroupEquals(SINGLE_JOB_GROUP));
+        if (this.lanes.size() == 1) {
+            return scheduler.getJobKeys(GroupMatcher.jobGroupEquals(SINGLE_JOB_GROUP));
+        }
+
+        Set<JobKey> keys = new HashSet<JobKey>();
+        for (JobLane lane : this.lanes.values()) {
+            keys.addAll(lane.getScheduler().getJobKeys(GroupMatcher.jobGroupEquals(SINGLE_JOB_GROUP)));
+        }
+
+        return keys;
     }
 
     private boolean isClustered() {
@@ -554,7 +725,9 @@ public class PinsetterKernel implements ModeChangeListener {
     private void pauseAll() {
         try {
             log.debug("Pinsetter Kernel is being paused");
-            scheduler.pauseAll();
+            for (JobLane lane : this.lanes.values()) {
+                lane.getScheduler().pauseAll();
+            }
         }
         catch (SchedulerException e) {
             throw new RuntimeException(e);
@@ -564,7 +737,9 @@ public class PinsetterKernel implements ModeChangeListener {
     private void resumeAll() {
         try {
             log.debug("Pinsetter Kernel is being resumed");
-            scheduler.resumeAll();
+            for (JobLane lane : this.lanes.values()) {
+                lane.getScheduler().resumeAll();
+            }
         }
         catch (SchedulerException e) {
             throw new RuntimeException(e);
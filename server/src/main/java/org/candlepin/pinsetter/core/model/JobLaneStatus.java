@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.core.model;
+
+/**
+ * JobLaneStatus describes the configuration and execution statistics of a single pinsetter
+ * execution lane. All times are in milliseconds.
+ */
+public class JobLaneStatus {
+    private String name;
+    private int threads;
+    private int running;
+    private int queued;
+    private long executed;
+    private long averageWaitTime;
+    private long maxWaitTime;
+    private long averageRunTime;
+    private long maxRunTime;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public void setRunning(int running) {
+        this.running = running;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public long getExecuted() {
+        return executed;
+    }
+
+    public void setExecuted(long executed) {
+        this.executed = executed;
+    }
+
+    public long getAverageWaitTime() {
+        return averageWaitTime;
+    }
+
+    public void setAverageWaitTime(long averageWaitTime) {
+        this.averageWaitTime = averageWaitTime;
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    public void setMaxWaitTime(long maxWaitTime) {
+        this.maxWaitTime = maxWaitTime;
+    }
+
+    public long getAverageRunTime() {
+        return averageRunTime;
+    }
+
+    public void setAverageRunTime(long averageRunTime) {
+        this.averageRunTime = averageRunTime;
+    }
+
+    public long getMaxRunTime() {
+        return maxRunTime;
+    }
+
+    public void setMaxRunTime(long maxRunTime) {
+        this.maxRunTime = maxRunTime;
+    }
+}
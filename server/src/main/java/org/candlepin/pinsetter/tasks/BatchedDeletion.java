@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+
+/**
+ * BatchedDeletion runs a bounded delete repeatedly until a block removes fewer rows than the
+ * block size. The cleanup jobs use it so old rows are removed in a series of short transactions,
+ * pausing between blocks, instead of in a single long running delete.
+ */
+public abstract class BatchedDeletion {
+    private static Logger log = LoggerFactory.getLogger(BatchedDeletion.class);
+
+    private static final int DEFAULT_BLOCK_SIZE = 1000;
+    private static final long DEFAULT_BLOCK_DELAY = 50;
+
+    private final String description;
+    private final int blockSize;
+    private final long blockDelay;
+
+    private int blocks;
+
+    /**
+     * @param config
+     *  the configuration providing the block size and delay; may be null, in which case the
+     *  defaults are used
+     *
+     * @param description
+     *  a description of the rows being deleted, used when reporting progress
+     */
+    public BatchedDeletion(Configuration config, String description) {
+        this.description = description;
+        this.blockSize = Math.max(1, config != null ?
+            config.getInt(ConfigProperties.PINSETTER_CLEANUP_BLOCK_SIZE, DEFAULT_BLOCK_SIZE) :
+            DEFAULT_BLOCK_SIZE);
+        this.blockDelay = Math.max(0, config != null ?
+            config.getLong(ConfigProperties.PINSETTER_CLEANUP_BLOCK_DELAY, DEFAULT_BLOCK_DELAY) :
+            DEFAULT_BLOCK_DELAY);
+    }
+
+    /**
+     * Deletes a single block of rows in its own transaction.
+     *
+     * @param blockSize
+     *  the maximum number of rows to delete
+     *
+     * @return
+     *  the number of rows deleted
+     */
+    protected abstract int deleteBlock(int blockSize) throws Exception;
+
+    /**
+     * Deletes blocks of rows until no full block remains. If the thread is interrupted while
+     * pausing between blocks, the deletion stops early and the rows deleted so far are reported.
+     *
+     * @return
+     *  the total number of rows deleted
+     */
+    public int run() throws Exception {
+        int total = 0;
+        int deleted;
+
+        do {
+            deleted = this.deleteBlock(this.blockSize);
+            total += deleted;
+            ++this.blocks;
+
+            log.debug("Deleted {} {} in block {} ({} so far)", deleted, this.description, this.blocks,
+                total);
+
+            if (deleted >= this.blockSize && this.blockDelay > 0) {
+                try {
+                    Thread.sleep(this.blockDelay);
+                }
+                catch (InterruptedException e) {
+                    log.warn("Interrupted while deleting {}; stopping after {} rows", this.description,
+                        total);
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        while (deleted >= this.blockSize);
+
+        log.debug("Deleted {} {} in {} blocks", total, this.description, this.blocks);
+        return total;
+    }
+
+    public int getBlocks() {
+        return this.blocks;
+    }
+}
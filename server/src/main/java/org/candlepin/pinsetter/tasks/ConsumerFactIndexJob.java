@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.ConsumerCurator;
+
+import com.google.inject.Inject;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+
+/**
+ * The ConsumerFactIndexJob brings the consumer fact index in line with the configured list of
+ * searchable facts, removing index rows for facts which are no longer searchable and indexing
+ * facts which have been made searchable since the consumers holding them were last updated.
+ * <p></p>
+ * Both are done in blocks of consumers, each in a transaction of its own. A newly searchable fact
+ * is only recorded as indexed, and used by consumer searches, once every consumer holding it has
+ * been indexed.
+ */
+public class ConsumerFactIndexJob extends KingpinJob {
+    private static Logger log = LoggerFactory.getLogger(ConsumerFactIndexJob.class);
+
+    // Every day at 2:30am
+    public static final String DEFAULT_SCHEDULE = "0 30 2 * * ?";
+
+    private static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    private ConsumerCurator consumerCurator;
+
+    @Inject
+    public ConsumerFactIndexJob(ConsumerCurator consumerCurator) {
+        this.consumerCurator = consumerCurator;
+    }
+
+    @Override
+    public void toExecute(JobExecutionContext ctx) throws JobExecutionException {
+        int removed;
+        int indexed = 0;
+
+        try {
+            this.consumerCurator.removeUnsearchableFactKeys();
+
+            removed = new BatchedDeletion(this.config, "unsearchable fact index rows") {
+                @Override
+                protected int deleteBlock(int blockSize) {
+                    return consumerCurator.deleteUnsearchableFactIndexBlock(blockSize);
+                }
+            }.run();
+
+            int blockSize = Math.max(1, this.config != null ?
+                this.config.getInt(ConfigProperties.PINSETTER_CLEANUP_BLOCK_SIZE, DEFAULT_BLOCK_SIZE) :
+                DEFAULT_BLOCK_SIZE);
+
+            for (String key : this.consumerCurator.getUnindexedFactKeys()) {
+                int count;
+
+                do {
+                    count = this.consumerCurator.indexSearchableFactBlock(key, blockSize);
+                    indexed += count;
+                }
+                while (count >= blockSize);
+
+                this.consumerCurator.markFactIndexed(key);
+                log.debug("Fact {} is now indexed for every consumer", key);
+            }
+        }
+        catch (Exception e) {
+            throw new JobExecutionException(e, false);
+        }
+
+        this.setResult(ctx, "Consumer fact index updated; %d index rows removed, %d consumers indexed",
+            removed, indexed);
+    }
+}
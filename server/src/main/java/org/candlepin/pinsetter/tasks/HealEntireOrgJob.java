@@ -18,6 +18,7 @@ import static org.quartz.JobBuilder.*;
 
 import org.candlepin.common.filter.LoggingFilter;
 import org.candlepin.controller.AutobindDisabledForOwnerException;
+import org.candlepin.controller.BatchComplianceEvaluator;
 import org.candlepin.controller.Entitler;
 import org.candlepin.model.Consumer;
 import org.candlepin.model.ConsumerCurator;
@@ -25,6 +26,7 @@ import org.candlepin.model.Entitlement;
 import org.candlepin.model.Owner;
 import org.candlepin.model.OwnerCurator;
 import org.candlepin.pinsetter.core.model.JobStatus;
+import org.candlepin.policy.js.compliance.ComplianceStatus;
 import org.candlepin.resource.dto.AutobindData;
 import org.candlepin.util.Util;
 
@@ -55,14 +57,17 @@ public class HealEntireOrgJob extends UniqueByEntityJob {
     protected OwnerCurator ownerCurator;
     protected Entitler entitler;
     protected ConsumerCurator consumerCurator;
+    protected BatchComplianceEvaluator complianceEvaluator;
     private I18n i18n;
 
     @Inject
-    public HealEntireOrgJob(Entitler e, ConsumerCurator c, OwnerCurator o, I18n i18n) {
+    public HealEntireOrgJob(Entitler e, ConsumerCurator c, OwnerCurator o, I18n i18n,
+        BatchComplianceEvaluator complianceEvaluator) {
         this.entitler = e;
         this.consumerCurator = c;
         this.ownerCurator = o;
         this.i18n = i18n;
+        this.complianceEvaluator = complianceEvaluator;
     }
 
     @Override
@@ -79,8 +84,21 @@ public class HealEntireOrgJob extends UniqueByEntityJob {
             }
 
             Date entitleDate = (Date) map.get("entitle_date");
+            List<String> uuids;
 
-            for (String uuid : ownerCurator.getConsumerUuids(owner).list()) {
+            if (entitleDate == null || !entitleDate.after(new Date())) {
+                // Bring the stored statuses up to date in bulk, so we only need to heal the
+                // consumers which are not already fully compliant one at a time
+                complianceEvaluator.recalculateOwner(owner);
+                uuids = ownerCurator.getConsumerUuidsWithoutStatus(owner, ComplianceStatus.GREEN).list();
+            }
+            else {
+                uuids = ownerCurator.getConsumerUuids(owner).list();
+            }
+
+            log.info("Healing {} consumers of owner {}", uuids.size(), owner.getKey());
+
+            for (String uuid : uuids) {
                 // Do not send in product IDs.  CandlepinPoolManager will take care
                 // of looking up the non or partially compliant products to bind.
                 try {
@@ -29,11 +29,16 @@ import org.candlepin.model.JobCurator;
 import org.candlepin.model.Owner;
 import org.candlepin.model.OwnerCurator;
 import org.candlepin.model.VirtConsumerMap;
+import org.candlepin.pinsetter.core.PinsetterKernel;
 import org.candlepin.pinsetter.core.model.JobStatus;
+import org.candlepin.pinsetter.core.model.JobStatus.JobState;
 import org.candlepin.resource.ConsumerResource;
 import org.candlepin.resource.dto.HypervisorUpdateResult;
 import org.candlepin.util.Util;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 
@@ -60,6 +65,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,7 +75,8 @@ import java.util.zip.InflaterInputStream;
 /**
  * Asynchronous job for refreshing the entitlement pools for specific
  * {@link Owner}. A job will wait for a running job of the same Owner to
- * finish before beginning execution
+ * finish before beginning execution. Reports received from a reporter while
+ * an earlier report of theirs is still waiting are merged into the waiting job.
  */
 public class HypervisorUpdateJob extends KingpinJob {
 
@@ -83,6 +90,9 @@ public class HypervisorUpdateJob extends KingpinJob {
     public static final String REPORTER_ID = "reporter_id";
     public static final String DATA = "data";
     public static final String PRINCIPAL = "principal";
+    public static final String COALESCED_COUNT = "coalesced_count";
+    private static final String HYPERVISORS = "hypervisors";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
     protected static String prefix = "hypervisor_update_";
 
     @Inject
@@ -103,15 +113,138 @@ public class HypervisorUpdateJob extends KingpinJob {
         if (result == null) {
             return KingpinJob.scheduleJob(jobCurator, scheduler, detail, trigger);
         }
+
+        JobStatus coalesced = coalesceIntoWaitingJob(jobCurator, scheduler, detail);
+        if (coalesced != null) {
+            return coalesced;
+        }
+
         log.debug("Scheduling job without a trigger: " + detail.getKey().getName());
         JobStatus status = KingpinJob.scheduleJob(jobCurator, scheduler, detail, null);
         return status;
     }
 
+    /**
+     * Merges the report carried by the specified job into a job from the same reporter that is
+     * still waiting to run against the same owner. A newer report supersedes the mappings of
+     * the hypervisors it contains, so queued reports never have to be applied only to be
+     * overwritten by the next one.
+     *
+     * @return the status of the waiting job the report was merged into, or null if the report
+     * must be scheduled as a job of its own
+     */
+    protected static JobStatus coalesceIntoWaitingJob(JobCurator jobCurator, Scheduler scheduler,
+        JobDetail detail) throws SchedulerException {
+        JobDataMap map = detail.getJobDataMap();
+        String reporterId = map.getString(REPORTER_ID);
+        if (reporterId == null) {
+            // Without a reporter we cannot tell whether reports describe the same hypervisors
+            return null;
+        }
+
+        String principalName = getPrincipalName(map);
+        List<JobStatus> waitingJobs = jobCurator.findWaitingByClassAndTarget(
+            map.getString(JobStatus.TARGET_ID), HypervisorUpdateJob.class);
+
+        for (JobStatus waiting : waitingJobs) {
+            JobDetail waitingDetail = scheduler.getJobDetail(waiting.getJobKey());
+            if (waitingDetail == null) {
+                continue;
+            }
+
+            JobDataMap waitingMap = waitingDetail.getJobDataMap();
+            if (!reporterId.equals(waitingMap.getString(REPORTER_ID)) ||
+                map.getBoolean(CREATE) != waitingMap.getBoolean(CREATE) ||
+                !StringUtils.equals(principalName, getPrincipalName(waitingMap))) {
+                continue;
+            }
+
+            // Move the job out of the waiting state before touching its data so it cannot be
+            // triggered with a partially replaced report. If it was triggered in the meantime,
+            // the report has to be scheduled on its own.
+            if (!jobCurator.claimWaitingJob(waiting, JobState.PENDING)) {
+                log.debug("Waiting job {} was started before it could be claimed", waiting.getId());
+                continue;
+            }
+
+            try {
+                String merged = mergeReports(decompress((byte[]) waitingMap.get(DATA)),
+                    decompress((byte[]) map.get(DATA)));
+
+                int coalesced = getCoalescedCount(waitingMap) + getCoalescedCount(map) + 1;
+                waitingMap.put(DATA, compress(merged));
+                waitingMap.put(COALESCED_COUNT, coalesced);
+                scheduler.addJob(waitingDetail, true);
+
+                log.debug("Coalesced hypervisor report from {} into waiting job {} ({} reports)",
+                    reporterId, waiting.getId(), coalesced);
+            }
+            catch (IOException e) {
+                log.warn("Unable to merge hypervisor report into waiting job {}", waiting.getId(), e);
+                return null;
+            }
+            finally {
+                waiting.setState(JobState.WAITING);
+                jobCurator.merge(waiting);
+            }
+
+            // The job blocking the waiting one may have finished while we held the claim, in
+            // which case nothing else will trigger it until the next UnpauseJob run.
+            if (isSchedulable(jobCurator, waiting) &&
+                jobCurator.claimWaitingJob(waiting, JobState.CREATED)) {
+                scheduler.scheduleJob(PinsetterKernel.buildWaitingJobTrigger(waiting));
+            }
+
+            return waiting;
+        }
+
+        return null;
+    }
+
+    /**
+     * Merges two hypervisor reports, replacing the mappings of the older report with those of
+     * the hypervisors present in the newer report.
+     */
+    protected static String mergeReports(String olderJson, String newerJson) throws IOException {
+        JsonNode older = MAPPER.readTree(olderJson);
+        ObjectNode newer = (ObjectNode) MAPPER.readTree(newerJson);
+
+        Map<String, JsonNode> hypervisors = new LinkedHashMap<String, JsonNode>();
+        addHypervisors(hypervisors, older.path(HYPERVISORS));
+        addHypervisors(hypervisors, newer.path(HYPERVISORS));
+
+        newer.putArray(HYPERVISORS).addAll(hypervisors.values());
+        return MAPPER.writeValueAsString(newer);
+    }
+
+    private static void addHypervisors(Map<String, JsonNode> hypervisors, JsonNode reported) {
+        for (JsonNode hypervisor : reported) {
+            String id = hypervisor.path("hypervisorId").path("hypervisorId").asText();
+
+            // Entries without a hypervisor ID are ignored when the report is applied. IDs are
+            // compared ignoring case, as they are when the report is applied.
+            if (!StringUtils.isEmpty(id)) {
+                String key = id.toLowerCase();
+                hypervisors.remove(key);
+                hypervisors.put(key, hypervisor);
+            }
+        }
+    }
+
+    private static int getCoalescedCount(JobDataMap map) {
+        return map.containsKey(COALESCED_COUNT) ? map.getInt(COALESCED_COUNT) : 0;
+    }
+
+    private static String getPrincipalName(JobDataMap map) {
+        Principal principal = (Principal) map.get(PRINCIPAL);
+        return principal != null ? principal.getPrincipalName() : null;
+    }
+
     public static boolean isSchedulable(JobCurator jobCurator, JobStatus status) {
-        long running = jobCurator.findNumRunningByClassAndTarget(
-            status.getTargetId(), HypervisorUpdateJob.class);
-        return running == 0;  // We can start the job if there are 0 like it running
+        // We can start the job if no other like it is running, or about to run
+        long blocking = jobCurator.findNumBlockingByClassAndTarget(
+            status.getTargetId(), HypervisorUpdateJob.class, status.getId());
+        return blocking == 0;
     }
 
     private void parseHypervisorList(HypervisorList hypervisorList, Set<String> hosts,
@@ -275,6 +408,7 @@ public class HypervisorUpdateJob extends KingpinJob {
                         "for hypervisor:{} of owner:{}", hypervisorId, ownerKey);
                 }
             }
+            result.setCoalescedReports(getCoalescedCount(map));
             log.info("Summary for report from {} by principal {}\n {}", jobReporterId, principal, result);
             context.setResult(result);
         }
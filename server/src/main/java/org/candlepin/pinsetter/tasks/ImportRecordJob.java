@@ -15,7 +15,6 @@
 package org.candlepin.pinsetter.tasks;
 
 import org.candlepin.common.config.Configuration;
-import org.candlepin.model.ImportRecord;
 import org.candlepin.model.ImportRecordCurator;
 import org.candlepin.model.Owner;
 import org.candlepin.model.OwnerCurator;
@@ -24,10 +23,6 @@ import com.google.inject.Inject;
 
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.List;
 
 /**
  * Deletes all but the oldest N records, defined by the
@@ -36,7 +31,6 @@ import java.util.List;
 public class ImportRecordJob extends KingpinJob {
 
     public static final String DEFAULT_SCHEDULE = "0 0 12 * * ?";
-    private static Logger log = LoggerFactory.getLogger(ImportRecordJob.class);
 
     // TODO:  Pull this in from the config?
     private static final int DEFAULT_KEEP = 10;
@@ -49,22 +43,33 @@ public class ImportRecordJob extends KingpinJob {
         OwnerCurator ownerCurator, Configuration config) {
         this.importRecordCurator = importRecordCurator;
         this.ownerCurator = ownerCurator;
+        this.config = config;
     }
 
-    // TODO:  This seems pretty slow... I'm sure there is a fancy JPA
-    //        query that can do this, but I am a little hesitant to get
-    //        really fancy with sub-selects as they are not supported by
-    //        all databases.
     @Override
     public void toExecute(JobExecutionContext jec) throws JobExecutionException {
-        for (Owner owner : this.ownerCurator.listAll().list()) {
-            List<ImportRecord> records = this.importRecordCurator.findRecords(owner).list();
+        int owners = 0;
+        int deleted = 0;
+
+        // Each owner's surplus records are deleted in blocks, each in its own transaction,
+        // rather than loading and deleting all of them at once.
+        try {
+            for (final Owner owner : this.ownerCurator.listAll().list()) {
+                deleted += new BatchedDeletion(this.config, "import records") {
+                    @Override
+                    protected int deleteBlock(int blockSize) {
+                        return importRecordCurator.deleteOldRecordsBlock(owner, DEFAULT_KEEP, blockSize);
+                    }
+                }.run();
 
-            if (DEFAULT_KEEP < records.size()) {
-                // records are already sorted by date, so just shave off of the end
-                this.importRecordCurator.bulkDelete(records.subList(DEFAULT_KEEP, records.size()));
+                ++owners;
             }
         }
+        catch (Exception e) {
+            throw new JobExecutionException(e, false);
+        }
+
+        this.setResult(jec, "Deleted %d import records from %d owners.", deleted, owners);
     }
 
 }
@@ -21,8 +21,6 @@ import com.google.inject.Inject;
 
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.Date;
 
@@ -32,8 +30,6 @@ import java.util.Date;
  */
 public class JobCleaner extends KingpinJob {
 
-    private static Logger log = LoggerFactory.getLogger(JobCleaner.class);
-
     private final int MAX_JOB_AGE_IN_DAYS = 4;
 
     private JobCurator jobCurator;
@@ -45,18 +41,34 @@ public class JobCleaner extends KingpinJob {
     }
 
     @Override
-    public void toExecute(JobExecutionContext arg0) throws JobExecutionException {
+    public void toExecute(JobExecutionContext context) throws JobExecutionException {
         // TODO: Configure deadline date to something else..
-        // CAUTION: jobCurator uses setDate on the delete query,
-        // so all time info is stripped off
-        Date deadLineDt = Util.yesterday();
-        int oldCompletedJobs = this.jobCurator.cleanUpOldCompletedJobs(deadLineDt);
+        final Date deadLineDt = Util.yesterday();
+        final Date failedJobDeadLineDt = Util.addDaysToDt(-1 * MAX_JOB_AGE_IN_DAYS);
+
+        // Old jobs are deleted in blocks, each in a transaction of its own, so the cleanup
+        // does not hold a long running delete against the job table.
+        try {
+            int oldCompletedJobs = new BatchedDeletion(this.config, "completed jobs") {
+                @Override
+                protected int deleteBlock(int blockSize) {
+                    return jobCurator.deleteOldJobsBlock(deadLineDt, true, blockSize);
+                }
+            }.run();
 
-        Date failedJobDeadLineDt = Util.addDaysToDt(-1 * MAX_JOB_AGE_IN_DAYS);
-        int asOf4DaysAgo = this.jobCurator.cleanupAllOldJobs(failedJobDeadLineDt);
+            int asOf4DaysAgo = new BatchedDeletion(this.config, "old jobs") {
+                @Override
+                protected int deleteBlock(int blockSize) {
+                    return jobCurator.deleteOldJobsBlock(failedJobDeadLineDt, false, blockSize);
+                }
+            }.run();
 
-        log.debug("Cleaned up {} completed jobs and {} jobs older than {} days old.",
-            oldCompletedJobs, asOf4DaysAgo, MAX_JOB_AGE_IN_DAYS);
+            this.setResult(context, "Cleaned up %d completed jobs and %d jobs older than %d days old.",
+                oldCompletedJobs, asOf4DaysAgo, MAX_JOB_AGE_IN_DAYS);
+        }
+        catch (Exception e) {
+            throw new JobExecutionException(e, false);
+        }
     }
 
 }
@@ -146,6 +146,28 @@ public abstract class KingpinJob implements Job {
     public abstract void toExecute(JobExecutionContext context)
         throws JobExecutionException;
 
+    /**
+     * Formats the summary of a job run, logs it with the job's own logger and records it as the
+     * result of the job.
+     *
+     * @param context
+     *  the job's execution context; may be null if the job was created by hand
+     *
+     * @param format
+     *  the format of the summary, as accepted by String.format
+     *
+     * @param args
+     *  the arguments referenced by the format
+     */
+    protected void setResult(JobExecutionContext context, String format, Object... args) {
+        String result = String.format(format, args);
+        LoggerFactory.getLogger(this.getClass()).info(result);
+
+        if (context != null) {
+            context.setResult(result);
+        }
+    }
+
     public static JobStatus scheduleJob(JobCurator jobCurator,
         Scheduler scheduler, JobDetail detail, Trigger trigger) throws SchedulerException {
 
@@ -59,17 +59,20 @@ public class ManifestCleanerJob extends KingpinJob {
     }
 
     @Override
-    public void toExecute(JobExecutionContext arg0) throws JobExecutionException {
+    public void toExecute(JobExecutionContext context) throws JobExecutionException {
         File baseDir = new File(config.getString(ConfigProperties.SYNC_WORK_DIR));
         int maxAgeInMinutes = config.getInt(ConfigProperties.MANIFEST_CLEANER_JOB_MAX_AGE_IN_MINUTES);
 
         log.info("Manifest cleanup started:");
         log.info("Max Age: {} mins ({} hours)", maxAgeInMinutes, maxAgeInMinutes / 60);
-        cleanupExportWorkDirs(baseDir, maxAgeInMinutes);
-        manifestServiceCleanup(maxAgeInMinutes);
+        long dirsDeleted = cleanupExportWorkDirs(baseDir, maxAgeInMinutes);
+        int manifestsDeleted = manifestServiceCleanup(maxAgeInMinutes);
+
+        this.setResult(context, "Deleted %d export directories and %d stored manifests.", dirsDeleted,
+            manifestsDeleted);
     }
 
-    private void cleanupExportWorkDirs(File baseDir, int maxAgeInMinutes) {
+    private long cleanupExportWorkDirs(File baseDir, int maxAgeInMinutes) {
         long dirCount = 0;
         long delCount = 0;
         long leftCount = 0;
@@ -98,10 +101,33 @@ public class ManifestCleanerJob extends KingpinJob {
         log.info("Begining directory count: {}", dirCount);
         log.info("Directories deleted: {}", delCount);
         log.info("Directories remaining: {}", leftCount);
+        return delCount;
     }
 
-    private void manifestServiceCleanup(int maxAgeInMinutes) {
-        int deleted = manifestManager.cleanup(maxAgeInMinutes);
-        log.info("Deleted from file service: {}", deleted);
+    /*
+     * Expired manifests are deleted in blocks, each in its own transaction, so a large backlog
+     * of stored manifests does not turn into a single long running delete.
+     */
+    private int manifestServiceCleanup(int maxAgeInMinutes) throws JobExecutionException {
+        if (maxAgeInMinutes < 0) {
+            return 0;
+        }
+
+        final Date cutOff = Util.addMinutesToDt(maxAgeInMinutes * -1);
+
+        try {
+            int deleted = new BatchedDeletion(config, "expired manifests") {
+                @Override
+                protected int deleteBlock(int blockSize) throws Exception {
+                    return manifestManager.cleanupBlock(cutOff, blockSize);
+                }
+            }.run();
+
+            log.info("Deleted from file service: {}", deleted);
+            return deleted;
+        }
+        catch (Exception e) {
+            throw new JobExecutionException(e, false);
+        }
     }
 }
@@ -14,16 +14,11 @@
  */
 package org.candlepin.pinsetter.tasks;
 
-import org.candlepin.model.CandlepinQuery;
-import org.candlepin.model.Content;
-import org.candlepin.model.ContentCurator;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.model.OwnerContentCurator;
-import org.candlepin.model.Product;
-import org.candlepin.model.ProductCurator;
 import org.candlepin.model.OwnerProductCurator;
 
 import com.google.inject.Inject;
-import com.google.inject.persist.Transactional;
 
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
@@ -31,13 +26,16 @@ import org.quartz.JobExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.persistence.LockModeType;
-
 
 
 /**
  * The OrphanCleanupJob searches for orphaned entities (products and content and the time of
  * writing) and removes them.
+ * <p></p>
+ * Orphans are found by their UUIDs alone and deleted with bulk statements in blocks, each in a
+ * transaction of its own. Products are removed before content, and each entity's product-content
+ * links are removed before the entity itself. When the job is configured for a dry run, it only
+ * reports the number of orphans found.
  */
 public class OrphanCleanupJob extends KingpinJob {
     private static Logger log = LoggerFactory.getLogger(OrphanCleanupJob.class);
@@ -45,51 +43,51 @@ public class OrphanCleanupJob extends KingpinJob {
     // Every Sunday at 3:00am
     public static final String DEFAULT_SCHEDULE = "0 0 3 ? * 1";
 
-    private ContentCurator contentCurator;
     private OwnerContentCurator ownerContentCurator;
-    private ProductCurator productCurator;
     private OwnerProductCurator ownerProductCurator;
 
     @Inject
-    public OrphanCleanupJob(ContentCurator contentCurator, OwnerContentCurator ownerContentCurator,
-        ProductCurator productCurator, OwnerProductCurator ownerProductCurator) {
+    public OrphanCleanupJob(OwnerContentCurator ownerContentCurator,
+        OwnerProductCurator ownerProductCurator) {
 
         this.ownerContentCurator = ownerContentCurator;
-        this.contentCurator = contentCurator;
         this.ownerProductCurator = ownerProductCurator;
-        this.productCurator = productCurator;
     }
 
     @Override
-    @Transactional
     public void toExecute(JobExecutionContext ctx) throws JobExecutionException {
-        log.debug("Deleting orphaned entities...");
-        int count;
-
-        // Content
-        count = 0;
-        CandlepinQuery<Content> contentQuery = this.ownerContentCurator.getOrphanedContent()
-            .setLockMode(LockModeType.PESSIMISTIC_WRITE);
-
-        for (Content content : contentQuery) {
-            this.contentCurator.delete(content);
-            ++count;
+        boolean dryRun = this.config != null &&
+            this.config.getBoolean(ConfigProperties.ORPHAN_CLEANUP_DRY_RUN, false);
+
+        try {
+            if (dryRun) {
+                this.setResult(ctx, "Dry run: found %d orphaned product entities and %d orphaned " +
+                    "content entities", this.ownerProductCurator.getOrphanedProductCount(),
+                    this.ownerContentCurator.getOrphanedContentCount());
+            }
+            else {
+                log.debug("Deleting orphaned entities...");
+
+                int products = new BatchedDeletion(this.config, "orphaned product entities") {
+                    @Override
+                    protected int deleteBlock(int blockSize) {
+                        return ownerProductCurator.deleteOrphanedProductsBlock(blockSize);
+                    }
+                }.run();
+
+                int content = new BatchedDeletion(this.config, "orphaned content entities") {
+                    @Override
+                    protected int deleteBlock(int blockSize) {
+                        return ownerContentCurator.deleteOrphanedContentBlock(blockSize);
+                    }
+                }.run();
+
+                this.setResult(ctx, "Deleted %d orphaned product entities and %d orphaned " +
+                    "content entities", products, content);
+            }
         }
-
-        this.contentCurator.flush();
-        log.debug("{} orphaned content entities deleted", count);
-
-        // Products
-        count = 0;
-        CandlepinQuery<Product> productQuery = this.ownerProductCurator.getOrphanedProducts()
-            .setLockMode(LockModeType.PESSIMISTIC_WRITE);
-
-        for (Product product : productQuery) {
-            this.productCurator.delete(product);
-            ++count;
+        catch (Exception e) {
+            throw new JobExecutionException(e, false);
         }
-
-        this.productCurator.flush();
-        log.debug("{} orphaned product entities deleted", count);
     }
 }
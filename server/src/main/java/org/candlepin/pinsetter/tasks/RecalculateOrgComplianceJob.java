@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import static org.quartz.JobBuilder.newJob;
+
+import org.candlepin.common.filter.LoggingFilter;
+import org.candlepin.controller.BatchComplianceEvaluator;
+import org.candlepin.model.Owner;
+import org.candlepin.model.OwnerCurator;
+import org.candlepin.pinsetter.core.RetryJobException;
+import org.candlepin.pinsetter.core.model.JobStatus;
+import org.candlepin.util.Util;
+
+import com.google.inject.Inject;
+
+import org.apache.log4j.MDC;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.PersistenceException;
+
+
+
+/**
+ * Asynchronous job which recalculates the compliance status of every consumer belonging to an
+ * {@link Owner}, such as after the owner's pools or products have changed.
+ */
+public class RecalculateOrgComplianceJob extends UniqueByEntityJob {
+    private static Logger log = LoggerFactory.getLogger(RecalculateOrgComplianceJob.class);
+
+    public static final String JOB_NAME_PREFIX = "recalculate_org_compliance_";
+
+    protected OwnerCurator ownerCurator;
+    protected BatchComplianceEvaluator evaluator;
+
+    @Inject
+    public RecalculateOrgComplianceJob(OwnerCurator ownerCurator, BatchComplianceEvaluator evaluator) {
+        this.ownerCurator = ownerCurator;
+        this.evaluator = evaluator;
+    }
+
+    @Override
+    public void toExecute(JobExecutionContext context) throws JobExecutionException {
+        try {
+            JobDataMap map = context.getMergedJobDataMap();
+            String ownerKey = map.getString(JobStatus.TARGET_ID);
+            Owner owner = this.ownerCurator.lookupByKey(ownerKey);
+
+            if (owner == null) {
+                context.setResult("Nothing to do. Owner no longer exists");
+                return;
+            }
+
+            int changed = this.evaluator.recalculateOwner(owner);
+            context.setResult("Compliance recalculated for owner " + owner.getDisplayName() + "; " +
+                changed + " consumer(s) changed status");
+        }
+        catch (PersistenceException e) {
+            throw new RetryJobException("RecalculateOrgComplianceJob encountered a problem.", e);
+        }
+        catch (Exception e) {
+            log.error("RecalculateOrgComplianceJob encountered a problem.", e);
+            context.setResult(e.toString());
+            throw new JobExecutionException(e.toString(), e, false);
+        }
+    }
+
+    /**
+     * Creates a {@link JobDetail} that runs this job for the given {@link Owner}.
+     *
+     * @param owner the owner whose consumers should be checked
+     * @return a {@link JobDetail} that describes the job run
+     */
+    public static JobDetail forOwner(Owner owner) {
+        JobDataMap map = new JobDataMap();
+        map.put(JobStatus.OWNER_ID, owner.getKey());
+        map.put(JobStatus.TARGET_TYPE, JobStatus.TargetType.OWNER);
+        map.put(JobStatus.TARGET_ID, owner.getKey());
+        map.put(JobStatus.CORRELATION_ID, MDC.get(LoggingFilter.CSID));
+
+        JobDetail detail = newJob(RecalculateOrgComplianceJob.class)
+            .withIdentity(JOB_NAME_PREFIX + Util.generateUUID())
+            .usingJobData(map)
+            .storeDurably(true) // required if we have to postpone the job
+            .build();
+
+        return detail;
+    }
+
+}
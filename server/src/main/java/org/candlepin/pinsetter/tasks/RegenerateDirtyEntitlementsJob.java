@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.controller.CertificateRegenerationQueue;
+import org.candlepin.controller.EntitlementCertificateGenerator;
+import org.candlepin.model.Entitlement;
+import org.candlepin.model.EntitlementCurator;
+
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+
+/**
+ * RegenerateDirtyEntitlementsJob: Regenerates the certificates of dirty entitlements in the
+ * background, so consumers rarely have to wait for regeneration when fetching their certificates.
+ * <p></p>
+ * Entitlements are taken from the {@link CertificateRegenerationQueue} in batches. Each batch is
+ * chosen from a window at the head of the queue, favouring the entitlements of the consumers which
+ * checked in most recently. The queue is shared by every node, so entitlements queued on any node
+ * are regenerated by whichever node runs the job. When the queue is empty, the job sweeps the
+ * database for entitlements which were marked dirty without being queued. Each run stops once the
+ * configured time limit has passed, leaving any remaining work for the next run.
+ */
+@DisallowConcurrentExecution
+public class RegenerateDirtyEntitlementsJob extends KingpinJob {
+    private static Logger log = LoggerFactory.getLogger(RegenerateDirtyEntitlementsJob.class);
+
+    // Every minute:
+    public static final String DEFAULT_SCHEDULE = "0 0/1 * * * ?";
+
+    // The number of batches' worth of queued entitlements considered when choosing each batch
+    private static final int WINDOW_BATCHES = 10;
+
+    private CertificateRegenerationQueue queue;
+    private EntitlementCurator entitlementCurator;
+    private EntitlementCertificateGenerator ecGenerator;
+
+    @Inject
+    public RegenerateDirtyEntitlementsJob(CertificateRegenerationQueue queue,
+        EntitlementCurator entitlementCurator, EntitlementCertificateGenerator ecGenerator) {
+
+        this.queue = queue;
+        this.entitlementCurator = entitlementCurator;
+        this.ecGenerator = ecGenerator;
+    }
+
+    @Override
+    public void toExecute(JobExecutionContext ctx) throws JobExecutionException {
+        int batchSize = Math.max(1, config.getInt(ConfigProperties.ENTITLEMENT_REGEN_BATCH_SIZE));
+        long deadline = System.currentTimeMillis() +
+            1000L * config.getInt(ConfigProperties.ENTITLEMENT_REGEN_TIME_LIMIT);
+
+        boolean swept = false;
+        int total = 0;
+
+        // Drop entitlements which were deleted, or regenerated on request, since being queued
+        int stale = this.queue.removeStale();
+        if (stale > 0) {
+            log.debug("Removed {} stale entries from the certificate regeneration queue", stale);
+        }
+
+        while (System.currentTimeMillis() < deadline) {
+            List<String> window = this.queue.peek(batchSize * WINDOW_BATCHES);
+
+            if (window.isEmpty()) {
+                if (swept || this.queue.addAll(
+                    this.entitlementCurator.listDirtyIds(batchSize * WINDOW_BATCHES)) == 0) {
+                    break;
+                }
+
+                swept = true;
+                continue;
+            }
+
+            List<String> dirty = this.entitlementCurator.filterDirtyIds(window);
+            List<String> batch = dirty.subList(0, Math.min(batchSize, dirty.size()));
+
+            try {
+                int count = this.regenerate(batch);
+                this.queue.recordRegenerated(count);
+                total += count;
+            }
+            catch (RuntimeException e) {
+                // Leave the entitlements dirty, to be regenerated when next requested
+                log.error("Unable to regenerate certificates for entitlements: {}", batch, e);
+            }
+
+            // Drop the batch along with any entitlements which are no longer dirty
+            Set<String> processed = new HashSet<String>(window);
+            processed.removeAll(dirty);
+            processed.addAll(batch);
+
+            this.queue.removeAll(processed);
+            this.entitlementCurator.clear();
+        }
+
+        if (total > 0) {
+            log.info("Regenerated certificates for {} dirty entitlements; {} still queued", total,
+                this.queue.size());
+        }
+    }
+
+    @Transactional
+    protected int regenerate(List<String> entitlementIds) {
+        int count = 0;
+
+        for (String entitlementId : entitlementIds) {
+            Entitlement entitlement = this.entitlementCurator.find(entitlementId);
+
+            // The entitlement may have been removed or regenerated since we checked
+            if (entitlement != null && entitlement.isDirty()) {
+                this.ecGenerator.regenerateCertificatesOf(entitlement, false);
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import static org.quartz.JobBuilder.newJob;
+
+import org.candlepin.auth.Principal;
+import org.candlepin.common.config.Configuration;
+import org.candlepin.common.filter.LoggingFilter;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.Owner;
+import org.candlepin.pinsetter.core.PinsetterJobListener;
+import org.candlepin.pinsetter.core.model.JobStatus;
+import org.candlepin.resource.ConsumerResource;
+import org.candlepin.resource.dto.BulkRegistrationResult;
+import org.candlepin.util.Util;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+
+import org.apache.log4j.MDC;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+/**
+ * Asynchronous job for registering a batch of consumers with an {@link Owner}. The consumers are
+ * registered in chunks of at most the configured bulk registration size, each chunk in its own
+ * transaction, so a failure only affects the consumers of the chunk in which it occurred.
+ */
+public class RegisterConsumersJob extends KingpinJob {
+    private static Logger log = LoggerFactory.getLogger(RegisterConsumersJob.class);
+
+    public static final String DATA = "data";
+    public static final String USERNAME = "username";
+    public static final String ACTIVATION_KEYS = "activation_keys";
+    public static final String IDENTITY_CERT_CREATION = "identity_cert_creation";
+    protected static String prefix = "register_consumers_";
+
+    private ConsumerResource consumerResource;
+    private ConsumerCurator consumerCurator;
+    private Configuration config;
+
+    @Inject
+    public RegisterConsumersJob(ConsumerResource consumerResource, ConsumerCurator consumerCurator,
+        Configuration config) {
+
+        this.consumerResource = consumerResource;
+        this.consumerCurator = consumerCurator;
+        this.config = config;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Executes {@link ConsumerResource#createBulk} for each chunk of the consumers carried by the
+     * job.
+     *
+     * @param context the job's execution context
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void toExecute(JobExecutionContext context) throws JobExecutionException {
+        try {
+            JobDataMap map = context.getMergedJobDataMap();
+            String ownerKey = map.getString(JobStatus.TARGET_ID);
+            Principal principal = (Principal) map.get(PinsetterJobListener.PRINCIPAL_KEY);
+            String userName = map.getString(USERNAME);
+            String activationKeys = map.getString(ACTIVATION_KEYS);
+            boolean identityCertCreation = map.getBoolean(IDENTITY_CERT_CREATION);
+
+            List<Consumer> consumers = (List<Consumer>) map.get(DATA);
+
+            int chunkSize = Math.max(1, config.getInt(ConfigProperties.CONSUMER_BULK_REGISTRATION_MAX_SIZE));
+            BulkRegistrationResult result = new BulkRegistrationResult();
+            int offset = 0;
+
+            for (List<Consumer> chunk : Lists.partition(consumers, chunkSize)) {
+                try {
+                    List<Consumer> created = this.consumerResource.createBulk(chunk, principal, userName,
+                        ownerKey, activationKeys, identityCertCreation);
+
+                    for (Consumer consumer : created) {
+                        result.registered(consumer.getUuid());
+                    }
+                }
+                catch (Exception e) {
+                    log.warn("Unable to register a chunk of {} consumers in org {}", chunk.size(),
+                        ownerKey, e);
+
+                    // The consumers were never persisted, so report them by position and name
+                    for (int i = 0; i < chunk.size(); ++i) {
+                        result.failed(offset + i, chunk.get(i).getName(), e.getMessage());
+                    }
+                }
+                finally {
+                    // Release the chunk's entities before moving on to the next one
+                    this.consumerCurator.clear();
+                    offset += chunk.size();
+                }
+            }
+
+            log.info("Bulk registration of {} consumers in org {} by principal {}: {}", consumers.size(),
+                ownerKey, principal, result);
+
+            context.setResult(result);
+        }
+        catch (Exception e) {
+            log.error("RegisterConsumersJob encountered a problem.", e);
+            context.setResult(e.getMessage());
+            throw new JobExecutionException(e.getMessage(), e, false);
+        }
+    }
+
+    /**
+     * Creates a {@link JobDetail} that registers the given consumers with the given {@link Owner}.
+     *
+     * @param owner the owner with which to register the consumers
+     * @param consumers the consumers to register
+     * @param principal the principal requesting the registration
+     * @param userName the user name with which to register the consumers, if any
+     * @param activationKeys the comma-separated activation keys to apply, if any
+     * @param identityCertCreation whether or not to generate identity certificates
+     * @return a {@link JobDetail} that describes the job run
+     */
+    public static JobDetail forOwner(Owner owner, List<Consumer> consumers, Principal principal,
+        String userName, String activationKeys, boolean identityCertCreation) {
+
+        JobDataMap map = new JobDataMap();
+        map.put(JobStatus.TARGET_TYPE, JobStatus.TargetType.OWNER);
+        map.put(JobStatus.TARGET_ID, owner.getKey());
+        map.put(JobStatus.OWNER_ID, owner.getKey());
+        map.put(DATA, new ArrayList<Consumer>(consumers));
+        map.put(PinsetterJobListener.PRINCIPAL_KEY, principal);
+        map.put(USERNAME, userName);
+        map.put(ACTIVATION_KEYS, activationKeys);
+        map.put(IDENTITY_CERT_CREATION, identityCertCreation);
+        map.put(JobStatus.CORRELATION_ID, MDC.get(LoggingFilter.CSID));
+
+        // Give each job a UUID to ensure that it is unique
+        JobDetail detail = newJob(RegisterConsumersJob.class)
+            .withIdentity(prefix + Util.generateUUID())
+            .requestRecovery(true) // recover the job upon restarts
+            .usingJobData(map)
+            .storeDurably(true) // required if we have to postpone the job
+            .build();
+
+        return detail;
+    }
+}
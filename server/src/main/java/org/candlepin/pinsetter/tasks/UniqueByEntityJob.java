@@ -66,8 +66,9 @@ public abstract class UniqueByEntityJob extends KingpinJob {
             return false;
         }
 
-        long running = jobCurator.findNumRunningByClassAndTarget(
-            status.getTargetId(), jobClass);
-        return running == 0;  // We can start the job if there are 0 like it running
+        // We can start the job if no other like it is running, or about to run
+        long blocking = jobCurator.findNumBlockingByClassAndTarget(
+            status.getTargetId(), jobClass, status.getId());
+        return blocking == 0;
     }
 }
@@ -25,22 +25,26 @@ import org.hibernate.HibernateException;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.ObjectAlreadyExistsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * UnpauseJob prompts each paused job to check if it
- * is safe to continue executing every 5 seconds.  The polling
- * approach isn't as fast or efficient as allowing blocking jobs
- * to trigger the next in line, but this avoids concurrency
- * and locking problems
+ * UnpauseJob prompts paused jobs to check if it is safe to continue
+ * executing. Waiting jobs are normally triggered by the PinsetterJobListener
+ * as soon as the job blocking them finishes, so this job only runs once a
+ * minute as a safety net for jobs whose blocker finished on a node that
+ * failed to trigger them. Only the oldest waiting job for each job class and
+ * target is checked, since at most one of them may run at a time.
  */
 @DisallowConcurrentExecution
 public class UnpauseJob extends KingpinJob {
     private static Logger log = LoggerFactory.getLogger(UnpauseJob.class);
-    public static final String DEFAULT_SCHEDULE = "0/5 * * * * ?"; //every five seconds
+    public static final String DEFAULT_SCHEDULE = "0 0/1 * * * ?"; //every minute
     private JobCurator jobCurator;
     private PinsetterKernel pinsetterKernel;
 
@@ -61,16 +65,22 @@ public class UnpauseJob extends KingpinJob {
             log.error("Cannot execute query: ", e);
             throw new JobExecutionException(e);
         }
+        Set<String> checked = new HashSet<String>();
         for (JobStatus j : waitingJobs) {
             try {
                 Class jobClass = Class.forName(j.getJobClass());
+                if ((UniqueByEntityJob.class.isAssignableFrom(jobClass) ||
+                    HypervisorUpdateJob.class.equals(jobClass)) &&
+                    !checked.add(j.getJobClass() + ":" + j.getTargetId())) {
+                    // An older job for this class and target is already waiting
+                    continue;
+                }
+
                 boolean schedule = (Boolean) jobClass.getMethod("isSchedulable", JobCurator.class,
                     JobStatus.class).invoke(null, jobCurator, j);
-                if (schedule) {
+                if (schedule && jobCurator.claimWaitingJob(j, JobState.CREATED)) {
                     log.debug("Triggering waiting job: " + j.getId());
                     pinsetterKernel.addTrigger(j);
-                    j.setState(JobState.CREATED);
-                    jobCurator.merge(j);
                 }
             }
             catch (ClassNotFoundException cnfe) {
@@ -81,8 +91,17 @@ public class UnpauseJob extends KingpinJob {
                 j.setResult("Job canceled because job class no longer exists.");
                 jobCurator.merge(j);
             }
+            catch (ObjectAlreadyExistsException e) {
+                log.debug("Waiting job {} was already triggered", j.getId());
+            }
             catch (Exception e) {
                 log.error("Failed to schedule waiting job: " + j.getId(), e);
+
+                // Release our claim on the job so it can be triggered again
+                if (j.getState() == JobState.CREATED) {
+                    j.setState(JobState.WAITING);
+                    jobCurator.merge(j);
+                }
             }
         }
     }
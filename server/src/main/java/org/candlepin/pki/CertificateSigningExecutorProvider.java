@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import com.google.inject.Provider;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+
+/**
+ * Provides the executor on which certificates generated in bulk are signed and encoded. It is
+ * meant to be bound as a singleton, so that concurrent bulk requests share one pool of worker
+ * threads sized to the number of available processors, rather than each creating its own.
+ */
+public class CertificateSigningExecutorProvider implements Provider<ExecutorService> {
+
+    @Override
+    public ExecutorService get() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        return Executors.newFixedThreadPool(threads, new SigningThreadFactory());
+    }
+
+    /**
+     * Creates daemon threads, so idle signing workers do not keep the server from shutting down.
+     */
+    private static class SigningThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cert-signing-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
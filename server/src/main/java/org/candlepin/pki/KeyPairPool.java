@@ -0,0 +1,302 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+
+/**
+ * The KeyPairPool keeps a bounded supply of pre-generated RSA key pairs, so that requests needing
+ * a new consumer key pair (typically registration or a consumer's first bind) do not have to pay
+ * for key generation inline.
+ * <p></p>
+ * Once started, background producer threads fill the pool up to its capacity, and refill it
+ * whenever taking a key pair leaves it at or below the low-water mark. If the pool is empty, or
+ * has not been started, key pairs are generated inline by the calling thread.
+ */
+@Singleton
+public class KeyPairPool implements KeyPairPoolMXBean {
+    private static Logger log = LoggerFactory.getLogger(KeyPairPool.class);
+
+    public static final String MBEAN_NAME = "org.candlepin:type=KeyPairPool";
+
+    private final PKIUtility pki;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final int threads;
+
+    private final BlockingQueue<KeyPair> pool;
+    private final AtomicInteger producers;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong generated;
+    private final AtomicLong waitNanos;
+
+    private ExecutorService executor;
+    private ObjectName mbeanName;
+
+    @Inject
+    public KeyPairPool(PKIUtility pki, Configuration config) {
+        this.pki = pki;
+        this.capacity = Math.max(0, config.getInt(ConfigProperties.KEYPAIR_POOL_SIZE));
+        this.lowWaterMark = Math.min(this.capacity,
+            Math.max(0, config.getInt(ConfigProperties.KEYPAIR_POOL_LOW_WATER_MARK)));
+        this.threads = Math.max(1, config.getInt(ConfigProperties.KEYPAIR_POOL_THREADS));
+
+        this.pool = new ArrayBlockingQueue<KeyPair>(Math.max(1, this.capacity));
+        this.producers = new AtomicInteger();
+
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.generated = new AtomicLong();
+        this.waitNanos = new AtomicLong();
+    }
+
+    /**
+     * Starts the background producers and registers the pool's management bean. Does nothing if
+     * the pool is disabled or already started.
+     */
+    public synchronized void start() {
+        if (this.capacity < 1 || this.executor != null) {
+            return;
+        }
+
+        log.info("Starting key pair pool with capacity {} and low-water mark {}",
+            this.capacity, this.lowWaterMark);
+
+        this.executor = Executors.newFixedThreadPool(this.threads, new ProducerThreadFactory());
+        this.registerMBean();
+        this.refill();
+    }
+
+    /**
+     * Stops the background producers and discards any pooled key pairs. Subsequent requests for
+     * key pairs are served by inline generation.
+     */
+    public synchronized void stop() {
+        if (this.executor == null) {
+            return;
+        }
+
+        log.info("Stopping key pair pool");
+
+        this.executor.shutdownNow();
+        this.executor = null;
+        this.pool.clear();
+        this.unregisterMBean();
+    }
+
+    /**
+     * Fetches a key pair from the pool, generating one inline if the pool is empty. Each key pair
+     * is handed out at most once.
+     *
+     * @throws NoSuchAlgorithmException
+     *  if a key pair must be generated inline and the RSA algorithm is unavailable
+     *
+     * @return
+     *  a new key pair
+     */
+    public KeyPair getKeyPair() throws NoSuchAlgorithmException {
+        long start = System.nanoTime();
+        KeyPair keyPair = this.pool.poll();
+
+        if (keyPair != null) {
+            this.hits.incrementAndGet();
+        }
+        else {
+            this.misses.incrementAndGet();
+            keyPair = this.pki.generateNewKeyPair();
+        }
+
+        this.waitNanos.addAndGet(System.nanoTime() - start);
+
+        if (this.pool.size() <= this.lowWaterMark) {
+            this.refill();
+        }
+
+        return keyPair;
+    }
+
+    /**
+     * Dispatches the background producers, unless they are already running.
+     */
+    private synchronized void refill() {
+        if (this.executor == null || !this.producers.compareAndSet(0, this.threads)) {
+            return;
+        }
+
+        log.debug("Refilling key pair pool; {} of {} key pairs available",
+            this.pool.size(), this.capacity);
+
+        for (int i = 0; i < this.threads; ++i) {
+            try {
+                this.executor.execute(new Producer());
+            }
+            catch (RejectedExecutionException e) {
+                this.producers.decrementAndGet();
+            }
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+                this.mbeanName = name;
+            }
+        }
+        catch (JMException e) {
+            log.warn("Unable to register key pair pool management bean", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        if (this.mbeanName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.mbeanName);
+        }
+        catch (JMException e) {
+            log.warn("Unable to unregister key pair pool management bean", e);
+        }
+
+        this.mbeanName = null;
+    }
+
+    @Override
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    @Override
+    public int getLowWaterMark() {
+        return this.lowWaterMark;
+    }
+
+    @Override
+    public int getAvailable() {
+        return this.pool.size();
+    }
+
+    @Override
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    @Override
+    public long getGenerated() {
+        return this.generated.get();
+    }
+
+    @Override
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.waitNanos.get());
+    }
+
+    @Override
+    public long getAverageWaitMicros() {
+        long requests = this.hits.get() + this.misses.get();
+        return requests > 0 ? TimeUnit.NANOSECONDS.toMicros(this.waitNanos.get()) / requests : 0;
+    }
+
+    /**
+     * Generates key pairs until the pool is full or the producer is interrupted.
+     */
+    private class Producer implements Runnable {
+        @Override
+        public void run() {
+            boolean filled = false;
+
+            try {
+                while (!Thread.currentThread().isInterrupted() && pool.remainingCapacity() > 0) {
+                    KeyPair keyPair = pki.generateNewKeyPair();
+                    generated.incrementAndGet();
+
+                    if (!pool.offer(keyPair)) {
+                        break;
+                    }
+                }
+
+                filled = !Thread.currentThread().isInterrupted();
+            }
+            catch (NoSuchAlgorithmException e) {
+                log.error("Unable to generate key pairs for the key pair pool", e);
+            }
+            catch (RuntimeException e) {
+                log.error("Unexpected exception while filling the key pair pool", e);
+            }
+            finally {
+                // Key pairs taken while the last producer was finishing up would not have
+                // triggered a refill, so check the level again on the way out.
+                if (producers.decrementAndGet() == 0 && filled && pool.size() <= lowWaterMark) {
+                    refill();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates low-priority daemon threads, so the producers only use spare cycles and never hold
+     * up shutdown.
+     */
+    private static class ProducerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "keypair-pool-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+/**
+ * Management interface exposing the fill level and wait statistics of the {@link KeyPairPool}.
+ */
+public interface KeyPairPoolMXBean {
+
+    /**
+     * @return the maximum number of key pairs held by the pool
+     */
+    int getCapacity();
+
+    /**
+     * @return the pool size at or below which background generation is triggered
+     */
+    int getLowWaterMark();
+
+    /**
+     * @return the number of key pairs currently available in the pool
+     */
+    int getAvailable();
+
+    /**
+     * @return the number of key pairs served from the pool
+     */
+    long getHits();
+
+    /**
+     * @return the number of key pairs that had to be generated inline because the pool was empty
+     */
+    long getMisses();
+
+    /**
+     * @return the number of key pairs generated by the background producers
+     */
+    long getGenerated();
+
+    /**
+     * @return the total time, in milliseconds, callers have spent waiting for key pairs
+     */
+    long getTotalWaitMillis();
+
+    /**
+     * @return the average time, in microseconds, callers have spent waiting for a key pair
+     */
+    long getAverageWaitMicros();
+
+}
@@ -20,8 +20,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -44,6 +42,7 @@ import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -173,8 +172,7 @@ public abstract class PKIUtility {
 
     public byte[] getSHA256WithRSAHash(InputStream input) {
         try {
-            Signature signature = Signature.getInstance("SHA256withRSA");
-            signature.initSign(reader.getCaKey());
+            Signature signature = this.getSHA256WithRSASignature();
 
             updateSignature(input, signature);
             return signature.sign();
@@ -184,21 +182,53 @@ public abstract class PKIUtility {
         }
     }
 
-    public boolean verifySHA256WithRSAHashAgainstCACerts(
-        File input, byte[] signedHash) throws CertificateException, IOException {
-        log.debug("Verify against: " + reader.getCACert().getSerialNumber());
-        if (verifySHA256WithRSAHash(new FileInputStream(input), signedHash,
-            reader.getCACert())) {
-            return true;
+    /**
+     * Creates a new SHA256withRSA signature initialized for signing with the CA key. The
+     * signature can be updated incrementally, such as through a {@link SignatureOutputStream},
+     * for data which should not be buffered or read back in its entirety.
+     *
+     * @return
+     *  a new signature, initialized for signing
+     */
+    public Signature getSHA256WithRSASignature() {
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(reader.getCaKey());
+
+            return signature;
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
         }
-        for (X509Certificate cert : reader.getUpstreamCACerts()) {
-            log.debug("Verify against: " + cert.getSerialNumber());
-            if (verifySHA256WithRSAHash(new FileInputStream(input), signedHash,
-                cert)) {
-                return true;
+    }
+
+    /**
+     * Creates SHA256withRSA signatures initialized for verification against the CA certificate
+     * and each of the upstream CA certificates, in that order. This allows a signed stream to be
+     * verified against every trusted certificate in a single pass over its data.
+     *
+     * @return
+     *  a list of signatures, initialized for verification
+     */
+    public List<Signature> getSHA256WithRSAVerifiers() throws CertificateException, IOException {
+        List<Signature> verifiers = new ArrayList<Signature>();
+
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(reader.getCACert());
+            verifiers.add(signature);
+
+            for (X509Certificate cert : reader.getUpstreamCACerts()) {
+                signature = Signature.getInstance("SHA256withRSA");
+                signature.initVerify(cert);
+                verifiers.add(signature);
             }
         }
-        return false;
+        catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+
+        return verifiers;
     }
 
     public boolean verifySHA256WithRSAHash(InputStream input,
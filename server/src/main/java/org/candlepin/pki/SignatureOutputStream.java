@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.Signature;
+import java.security.SignatureException;
+
+
+
+/**
+ * The SignatureOutputStream passes all written bytes through to the wrapped output stream while
+ * feeding them to a signature, allowing data to be signed or verified in the same pass that
+ * writes it out.
+ */
+public class SignatureOutputStream extends FilterOutputStream {
+
+    private final Signature signature;
+
+    /**
+     * Creates a new SignatureOutputStream.
+     *
+     * @param out
+     *  The output stream to which written data should be passed through
+     *
+     * @param signature
+     *  A signature, already initialized for signing or verification, to update with the written
+     *  data
+     */
+    public SignatureOutputStream(OutputStream out, Signature signature) {
+        super(out);
+
+        if (signature == null) {
+            throw new IllegalArgumentException("signature is null");
+        }
+
+        this.signature = signature;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        try {
+            this.signature.update((byte) b);
+        }
+        catch (SignatureException e) {
+            throw new IOException(e);
+        }
+
+        this.out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        try {
+            this.signature.update(b, off, len);
+        }
+        catch (SignatureException e) {
+            throw new IOException(e);
+        }
+
+        this.out.write(b, off, len);
+    }
+
+    /**
+     * Completes the signature over all of the data written to this stream so far. Once called,
+     * the underlying signature is reset and no further data should be written to this stream.
+     *
+     * @throws IOException
+     *  if the signature cannot be completed
+     *
+     * @return
+     *  the signature bytes
+     */
+    public byte[] sign() throws IOException {
+        try {
+            return this.signature.sign();
+        }
+        catch (SignatureException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Verifies the given signature bytes against all of the data written to this stream so far.
+     * Once called, the underlying signature is reset and no further data should be written to
+     * this stream.
+     *
+     * @param signed
+     *  The signature bytes to verify
+     *
+     * @return
+     *  true if the signature bytes are valid for the written data; false otherwise
+     */
+    public boolean verify(byte[] signed) {
+        try {
+            return this.signature.verify(signed);
+        }
+        catch (SignatureException e) {
+            return false;
+        }
+    }
+}
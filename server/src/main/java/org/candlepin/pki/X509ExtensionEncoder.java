@@ -0,0 +1,391 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import java.math.BigInteger;
+
+
+
+/**
+ * The X509ExtensionEncoder writes DER encoded certificate extensions, and the structures around
+ * them, into a single working buffer.
+ * <p></p>
+ * Our V1 certificate extensions are all UTF8String values, and a single certificate can carry
+ * thousands of them. Rather than building an ASN.1 object graph for each extension and then
+ * encoding it, the encoder writes each extension's OID, critical flag and value straight into the
+ * buffer, which grows as needed and is reused between certificates. Extensions which are the same
+ * in every certificate can be encoded once with {@link #encodeExtension} and copied into the
+ * buffer with {@link #writeEncoded(byte[])}.
+ * <p></p>
+ * Constructed values whose length isn't known up front, such as the certificate's extension
+ * block, are written by marking the start of their content with {@link #mark()}, writing the
+ * content, and then calling {@link #writeHeader(int, int)}.
+ * <p></p>
+ * Instances are not thread-safe; each thread should use its own encoder.
+ */
+public class X509ExtensionEncoder {
+
+    public static final int SEQUENCE_TAG = 0x30;
+
+    private static final int BOOLEAN_TAG = 0x01;
+    private static final int OCTET_STRING_TAG = 0x04;
+    private static final int OBJECT_IDENTIFIER_TAG = 0x06;
+    private static final int UTF8_STRING_TAG = 0x0C;
+
+    // The longest DER tag and length header we write: the long form with four length bytes
+    private static final int MAX_HEADER_LENGTH = 6;
+
+    // The longest arc we encode without falling back to BigInteger
+    private static final int MAX_LONG_ARC_DIGITS = 18;
+
+    private byte[] buffer;
+    private int length;
+
+    public X509ExtensionEncoder() {
+        this.buffer = new byte[1024];
+        this.length = 0;
+    }
+
+    /**
+     * Discards everything written so far, keeping the buffer for reuse.
+     */
+    public void reset() {
+        this.length = 0;
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public int size() {
+        return this.length;
+    }
+
+    /**
+     * @return a copy of the bytes written
+     */
+    public byte[] toByteArray() {
+        byte[] output = new byte[this.length];
+        System.arraycopy(this.buffer, 0, output, 0, this.length);
+
+        return output;
+    }
+
+    /**
+     * Returns the current offset, to be passed to {@link #writeHeader(int, int)} once the content
+     * of a constructed value starting here has been written.
+     *
+     * @return
+     *  the current offset
+     */
+    public int mark() {
+        return this.length;
+    }
+
+    /**
+     * Writes the tag and length of a value whose content has been written from the given mark to
+     * the current offset, moving the content along to make room for the header.
+     *
+     * @param mark
+     *  the offset at which the content starts, as returned by {@link #mark()}
+     *
+     * @param tag
+     *  the single byte tag of the value
+     */
+    public void writeHeader(int mark, int tag) {
+        int contentLength = this.length - mark;
+        int headerLength = 1 + lengthOfLength(contentLength);
+
+        this.ensureCapacity(this.length + headerLength);
+        System.arraycopy(this.buffer, mark, this.buffer, mark + headerLength, contentLength);
+
+        int end = this.length + headerLength;
+        this.length = mark;
+        this.writeTagAndLength(tag, contentLength);
+        this.length = end;
+    }
+
+    /**
+     * Copies the given DER encoded value into the buffer.
+     *
+     * @param encoded
+     *  the DER encoding to copy
+     */
+    public void writeEncoded(byte[] encoded) {
+        this.writeEncoded(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Copies part of a DER encoded value into the buffer.
+     */
+    public void writeEncoded(byte[] encoded, int offset, int count) {
+        this.ensureCapacity(this.length + count);
+        System.arraycopy(encoded, offset, this.buffer, this.length, count);
+        this.length += count;
+    }
+
+    /**
+     * Copies the content of the given DER encoded value into the buffer, without its tag and
+     * length. Used to merge the elements of an encoded sequence into a sequence being written.
+     *
+     * @param encoded
+     *  the DER encoding of a single value
+     */
+    public void writeContent(byte[] encoded) {
+        int offset = 2;
+
+        if ((encoded[1] & 0x80) != 0) {
+            offset += encoded[1] & 0x7F;
+        }
+
+        this.writeEncoded(encoded, offset, encoded.length - offset);
+    }
+
+    /**
+     * Writes an extension with the given OID and UTF8String value. For well-formed strings, the
+     * encoding is identical to that produced by BouncyCastle for an extension whose value is a
+     * DERUTF8String; unpaired surrogates, which BouncyCastle rejects, are replaced with '?'.
+     *
+     * @param oid
+     *  the dotted decimal OID of the extension
+     *
+     * @param critical
+     *  whether or not the extension is critical
+     *
+     * @param value
+     *  the value of the extension; null values are encoded as an empty string
+     *
+     * @throws IllegalArgumentException
+     *  if the OID is not a valid dotted decimal OID
+     */
+    public void writeExtension(String oid, boolean critical, String value) {
+        int oidLength = this.processOid(oid, false);
+        int stringLength = encodedUtf8Length(value);
+
+        int stringTlv = 1 + lengthOfLength(stringLength) + stringLength;
+        int octetTlv = 1 + lengthOfLength(stringTlv) + stringTlv;
+        int sequenceLength = 1 + lengthOfLength(oidLength) + oidLength + (critical ? 3 : 0) +
+            octetTlv;
+
+        this.ensureCapacity(this.length + 1 + lengthOfLength(sequenceLength) + sequenceLength);
+
+        this.writeTagAndLength(SEQUENCE_TAG, sequenceLength);
+        this.writeTagAndLength(OBJECT_IDENTIFIER_TAG, oidLength);
+        this.processOid(oid, true);
+
+        if (critical) {
+            this.buffer[this.length++] = BOOLEAN_TAG;
+            this.buffer[this.length++] = 1;
+            this.buffer[this.length++] = (byte) 0xFF;
+        }
+
+        this.writeTagAndLength(OCTET_STRING_TAG, stringTlv);
+        this.writeTagAndLength(UTF8_STRING_TAG, stringLength);
+        this.writeUtf8(value);
+    }
+
+    /**
+     * Encodes a single extension, as written by {@link #writeExtension}, for reuse in later
+     * certificates. Anything already written to the buffer is left untouched.
+     *
+     * @return
+     *  the DER encoding of the extension
+     */
+    public byte[] encodeExtension(String oid, boolean critical, String value) {
+        int start = this.length;
+        this.writeExtension(oid, critical, value);
+
+        byte[] encoded = new byte[this.length - start];
+        System.arraycopy(this.buffer, start, encoded, 0, encoded.length);
+        this.length = start;
+
+        return encoded;
+    }
+
+    private void writeTagAndLength(int tag, int contentLength) {
+        this.buffer[this.length++] = (byte) tag;
+
+        if (contentLength < 0x80) {
+            this.buffer[this.length++] = (byte) contentLength;
+            return;
+        }
+
+        int bytes = lengthOfLength(contentLength) - 1;
+        this.buffer[this.length++] = (byte) (0x80 | bytes);
+
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            this.buffer[this.length++] = (byte) (contentLength >>> shift);
+        }
+    }
+
+    /**
+     * Walks the arcs of the given OID, writing their encoding to the buffer if requested. The
+     * buffer must already have room for the encoding.
+     *
+     * @return
+     *  the length of the encoded OID content
+     */
+    private int processOid(String oid, boolean write) {
+        if (oid == null || oid.length() < 3 || oid.charAt(0) < '0' || oid.charAt(0) > '2' ||
+            oid.charAt(1) != '.') {
+
+            throw new IllegalArgumentException("Invalid OID: " + oid);
+        }
+
+        // The first two arcs are combined into a single subidentifier
+        long offset = 40 * (oid.charAt(0) - '0');
+        int encoded = 0;
+
+        for (int start = 2; start <= oid.length(); ) {
+            int end = oid.indexOf('.', start);
+            end = end >= 0 ? end : oid.length();
+
+            encoded += this.processArc(oid, start, end, offset, write);
+            offset = 0;
+            start = end + 1;
+        }
+
+        return encoded;
+    }
+
+    private int processArc(String oid, int start, int end, long offset, boolean write) {
+        if (start >= end) {
+            throw new IllegalArgumentException("Invalid OID: " + oid);
+        }
+
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            char ch = oid.charAt(i);
+
+            if (ch < '0' || ch > '9') {
+                throw new IllegalArgumentException("Invalid OID: " + oid);
+            }
+
+            if (end - start <= MAX_LONG_ARC_DIGITS) {
+                value = value * 10 + (ch - '0');
+            }
+        }
+
+        if (end - start > MAX_LONG_ARC_DIGITS) {
+            // Too large for a long; rare enough that we don't mind the allocation
+            BigInteger arc = new BigInteger(oid.substring(start, end)).add(BigInteger.valueOf(offset));
+            int groups = Math.max(1, (arc.bitLength() + 6) / 7);
+
+            for (int group = groups - 1; write && group >= 0; --group) {
+                int bits = arc.shiftRight(group * 7).intValue() & 0x7F;
+                this.buffer[this.length++] = (byte) (group > 0 ? bits | 0x80 : bits);
+            }
+
+            return groups;
+        }
+
+        value += offset;
+        int groups = Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+
+        for (int group = groups - 1; write && group >= 0; --group) {
+            int bits = (int) ((value >>> (group * 7)) & 0x7F);
+            this.buffer[this.length++] = (byte) (group > 0 ? bits | 0x80 : bits);
+        }
+
+        return groups;
+    }
+
+    private void writeUtf8(String value) {
+        int length = value != null ? value.length() : 0;
+
+        for (int i = 0; i < length; ++i) {
+            char ch = value.charAt(i);
+
+            if (ch < 0x80) {
+                this.buffer[this.length++] = (byte) ch;
+            }
+            else if (ch < 0x800) {
+                this.buffer[this.length++] = (byte) (0xC0 | (ch >> 6));
+                this.buffer[this.length++] = (byte) (0x80 | (ch & 0x3F));
+            }
+            else if (isSurrogatePair(value, i)) {
+                int cp = Character.toCodePoint(ch, value.charAt(++i));
+                this.buffer[this.length++] = (byte) (0xF0 | (cp >> 18));
+                this.buffer[this.length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                this.buffer[this.length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                this.buffer[this.length++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            else if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+                // Unpaired surrogates are replaced, as String.getBytes would
+                this.buffer[this.length++] = (byte) '?';
+            }
+            else {
+                this.buffer[this.length++] = (byte) (0xE0 | (ch >> 12));
+                this.buffer[this.length++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                this.buffer[this.length++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (this.buffer.length < capacity) {
+            byte[] expanded = new byte[Math.max(capacity, this.buffer.length * 2)];
+            System.arraycopy(this.buffer, 0, expanded, 0, this.length);
+
+            this.buffer = expanded;
+        }
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length() &&
+            Character.isLowSurrogate(value.charAt(index + 1));
+    }
+
+    private static int encodedUtf8Length(String value) {
+        int length = value != null ? value.length() : 0;
+        int encoded = 0;
+
+        for (int i = 0; i < length; ++i) {
+            char ch = value.charAt(i);
+
+            if (ch < 0x80) {
+                encoded += 1;
+            }
+            else if (ch < 0x800) {
+                encoded += 2;
+            }
+            else if (isSurrogatePair(value, i)) {
+                encoded += 4;
+                ++i;
+            }
+            else if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+                encoded += 1;
+            }
+            else {
+                encoded += 3;
+            }
+        }
+
+        return encoded;
+    }
+
+    private static int lengthOfLength(int contentLength) {
+        if (contentLength < 0x80) {
+            return 1;
+        }
+
+        int bytes = 1;
+        for (int remaining = contentLength; remaining > 0; remaining >>>= 8) {
+            ++bytes;
+        }
+
+        return bytes;
+    }
+
+}
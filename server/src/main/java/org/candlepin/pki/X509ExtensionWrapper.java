@@ -21,6 +21,7 @@ public class X509ExtensionWrapper {
     private String oid = null;
     private boolean critical;
     private String value;
+    private byte[] encoded;
 
     public X509ExtensionWrapper(String oid, boolean critical,
         String value) {
@@ -29,6 +30,16 @@ public class X509ExtensionWrapper {
         this.value = value;
     }
 
+    /**
+     * Creates an extension which has already been DER encoded, OID and all, by
+     * {@link X509ExtensionEncoder#encodeExtension}, allowing extensions which are reused between
+     * certificates to be encoded only once.
+     */
+    public X509ExtensionWrapper(String oid, boolean critical, String value, byte[] encoded) {
+        this(oid, critical, value);
+        this.encoded = encoded;
+    }
+
     public String toString() {
         return "[" + oid + " = " + value + "]";
     }
@@ -45,6 +56,14 @@ public class X509ExtensionWrapper {
         return value;
     }
 
+    /**
+     * @return the DER encoding of the whole extension, or null if the extension has not been
+     *  encoded
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
     @Override
     public int hashCode() {
         return oid.hashCode();
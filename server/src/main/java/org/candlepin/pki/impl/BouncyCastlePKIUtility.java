@@ -21,6 +21,7 @@ import org.candlepin.pki.PKIUtility;
 import org.candlepin.pki.SubjectKeyIdentifierWriter;
 import org.candlepin.pki.X509ByteExtensionWrapper;
 import org.candlepin.pki.X509CRLEntryWrapper;
+import org.candlepin.pki.X509ExtensionEncoder;
 import org.candlepin.pki.X509ExtensionWrapper;
 import org.candlepin.util.Util;
 
@@ -28,11 +29,15 @@ import com.google.inject.Inject;
 
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.DERInteger;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DERObjectIdentifier;
 import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.DERSequence;
-import org.bouncycastle.asn1.DERUTF8String;
 import org.bouncycastle.asn1.misc.MiscObjectIdentifiers;
 import org.bouncycastle.asn1.misc.NetscapeCertType;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.CRLNumber;
 import org.bouncycastle.asn1.x509.CRLReason;
 import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
@@ -40,14 +45,16 @@ import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.asn1.x509.GeneralNames;
 import org.bouncycastle.asn1.x509.KeyPurposeId;
 import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.asn1.x509.Time;
 import org.bouncycastle.asn1.x509.X509Extensions;
+import org.bouncycastle.asn1.x509.X509ExtensionsGenerator;
 import org.bouncycastle.openssl.PEMWriter;
 import org.bouncycastle.x509.X509V2CRLGenerator;
-import org.bouncycastle.x509.X509V3CertificateGenerator;
 import org.bouncycastle.x509.extension.AuthorityKeyIdentifierStructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -56,6 +63,8 @@ import java.math.BigInteger;
 import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyPair;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.Date;
@@ -96,6 +105,24 @@ import javax.security.auth.x500.X500Principal;
 public class BouncyCastlePKIUtility extends PKIUtility {
     private static Logger log = LoggerFactory.getLogger(BouncyCastlePKIUtility.class);
 
+    // The explicitly tagged version field of a V3 certificate
+    private static final byte[] VERSION_3 = { (byte) 0xA0, 0x03, 0x02, 0x01, 0x02 };
+
+    private static final byte[] SIGNATURE_ALGO_ID = new AlgorithmIdentifier(
+        PKCSObjectIdentifiers.sha1WithRSAEncryption, DERNull.INSTANCE).getDEREncoded();
+
+    private static final int BIT_STRING_TAG = 0x03;
+    private static final int EXTENSIONS_TAG = 0xA3;
+
+    // Each thread keeps its encoder, and the buffer behind it, between certificates
+    private static final ThreadLocal<X509ExtensionEncoder> ENCODERS =
+        new ThreadLocal<X509ExtensionEncoder>() {
+            @Override
+            protected X509ExtensionEncoder initialValue() {
+                return new X509ExtensionEncoder();
+            }
+        };
+
     @Inject
     public BouncyCastlePKIUtility(PKIReader reader,
         SubjectKeyIdentifierWriter subjectKeyWriter,
@@ -110,18 +137,8 @@ public class BouncyCastlePKIUtility extends PKIUtility {
         KeyPair clientKeyPair, BigInteger serialNumber, String alternateName)
         throws GeneralSecurityException, IOException {
 
-        X509V3CertificateGenerator certGen = new X509V3CertificateGenerator();
         X509Certificate caCert = reader.getCACert();
-        // set cert fields
-        certGen.setSerialNumber(serialNumber);
-        certGen.setIssuerDN(caCert.getSubjectX500Principal());
-        certGen.setNotBefore(startDate);
-        certGen.setNotAfter(endDate);
-
         X500Principal subjectPrincipal = new X500Principal(dn);
-        certGen.setSubjectDN(subjectPrincipal);
-        certGen.setPublicKey(clientKeyPair.getPublic());
-        certGen.setSignatureAlgorithm(SIGNATURE_ALGO);
 
         // set key usage - required for proper x509 function
         KeyUsage keyUsage = new KeyUsage(KeyUsage.digitalSignature |
@@ -131,16 +148,15 @@ public class BouncyCastlePKIUtility extends PKIUtility {
         NetscapeCertType certType = new NetscapeCertType(
             NetscapeCertType.sslClient | NetscapeCertType.smime);
 
-        certGen.addExtension(MiscObjectIdentifiers.netscapeCertType.toString(),
-            false, certType);
-        certGen.addExtension(X509Extensions.KeyUsage.toString(), false,
-            keyUsage);
+        X509ExtensionsGenerator extGen = new X509ExtensionsGenerator();
+        extGen.addExtension(MiscObjectIdentifiers.netscapeCertType, false, certType);
+        extGen.addExtension(X509Extensions.KeyUsage, false, keyUsage);
 
-        certGen.addExtension(X509Extensions.AuthorityKeyIdentifier, false,
+        extGen.addExtension(X509Extensions.AuthorityKeyIdentifier, false,
             new AuthorityKeyIdentifierStructure(caCert));
-        certGen.addExtension(X509Extensions.SubjectKeyIdentifier, false,
+        extGen.addExtension(X509Extensions.SubjectKeyIdentifier, false,
             subjectKeyWriter.getSubjectKeyIdentifier(clientKeyPair, extensions));
-        certGen.addExtension(X509Extensions.ExtendedKeyUsage, false,
+        extGen.addExtension(X509Extensions.ExtendedKeyUsage, false,
             new ExtendedKeyUsage(KeyPurposeId.id_kp_clientAuth));
 
         // Add an additional alternative name if provided.
@@ -160,32 +176,85 @@ public class BouncyCastlePKIUtility extends PKIUtility {
             GeneralName name = new GeneralName(GeneralName.directoryName, "CN=" + alternateName);
             ASN1Encodable[] altNameArray = {subject, name};
             GeneralNames altNames = new GeneralNames(new DERSequence(altNameArray));
-            certGen.addExtension(X509Extensions.SubjectAlternativeName, false, altNames);
+            extGen.addExtension(X509Extensions.SubjectAlternativeName, false, altNames);
         }
 
+        /*
+         Certificates can carry thousands of extensions, so rather than adding them to a
+         certificate generator, which would build and encode an ASN.1 object for each of them, we
+         write the DER encoding of the TBS certificate ourselves, with each extension written
+         straight into the thread's encoder buffer.
+        */
+        X509ExtensionEncoder encoder = ENCODERS.get();
+        encoder.reset();
+
+        int tbs = encoder.mark();
+        encoder.writeEncoded(VERSION_3);
+        encoder.writeEncoded(new DERInteger(serialNumber).getDEREncoded());
+        encoder.writeEncoded(SIGNATURE_ALGO_ID);
+        encoder.writeEncoded(caCert.getSubjectX500Principal().getEncoded());
+
+        int validity = encoder.mark();
+        encoder.writeEncoded(new Time(startDate).getDEREncoded());
+        encoder.writeEncoded(new Time(endDate).getDEREncoded());
+        encoder.writeHeader(validity, X509ExtensionEncoder.SEQUENCE_TAG);
+
+        encoder.writeEncoded(subjectPrincipal.getEncoded());
+        encoder.writeEncoded(clientKeyPair.getPublic().getEncoded());
+
+        int extensionBlock = encoder.mark();
+        encoder.writeContent(extGen.generate().getDEREncoded());
+
         if (extensions != null) {
+            // Bouncycastle hates null values, so the encoder writes them as blank.
             for (X509ExtensionWrapper wrapper : extensions) {
-                // Bouncycastle hates null values. So, set them to blank
-                // if they are null
-                String value = wrapper.getValue() == null ? "" :  wrapper.getValue();
-                certGen.addExtension(wrapper.getOid(), wrapper.isCritical(),
-                    new DERUTF8String(value));
+                if (wrapper.getEncoded() != null) {
+                    encoder.writeEncoded(wrapper.getEncoded());
+                }
+                else {
+                    encoder.writeExtension(wrapper.getOid(), wrapper.isCritical(), wrapper.getValue());
+                }
             }
         }
 
-        if (byteExtensions != null) {
+        if (byteExtensions != null && !byteExtensions.isEmpty()) {
+            X509ExtensionsGenerator byteExtGen = new X509ExtensionsGenerator();
+
             for (X509ByteExtensionWrapper wrapper : byteExtensions) {
                 // Bouncycastle hates null values. So, set them to blank
                 // if they are null
                 byte[] value = wrapper.getValue() == null ? new byte[0] :
                     wrapper.getValue();
-                certGen.addExtension(wrapper.getOid(), wrapper.isCritical(),
+                byteExtGen.addExtension(new DERObjectIdentifier(wrapper.getOid()), wrapper.isCritical(),
                     new DEROctetString(value));
             }
+
+            encoder.writeContent(byteExtGen.generate().getDEREncoded());
         }
 
-        // Generate the certificate
-        return certGen.generate(reader.getCaKey());
+        encoder.writeHeader(extensionBlock, X509ExtensionEncoder.SEQUENCE_TAG);
+        encoder.writeHeader(extensionBlock, EXTENSIONS_TAG);
+        encoder.writeHeader(tbs, X509ExtensionEncoder.SEQUENCE_TAG);
+
+        byte[] tbsCert = encoder.toByteArray();
+
+        // Sign the certificate
+        Signature signer = Signature.getInstance(SIGNATURE_ALGO);
+        signer.initSign(reader.getCaKey());
+        signer.update(tbsCert);
+
+        encoder.reset();
+        encoder.writeEncoded(tbsCert);
+        encoder.writeEncoded(SIGNATURE_ALGO_ID);
+
+        int signature = encoder.mark();
+        encoder.writeEncoded(new byte[] { 0 });
+        encoder.writeEncoded(signer.sign());
+        encoder.writeHeader(signature, BIT_STRING_TAG);
+        encoder.writeHeader(0, X509ExtensionEncoder.SEQUENCE_TAG);
+
+        return (X509Certificate) CertificateFactory.getInstance("X.509")
+            .generateCertificate(new ByteArrayInputStream(encoder.toByteArray()));
     }
 
     @Override
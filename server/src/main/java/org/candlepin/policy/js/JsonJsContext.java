@@ -28,6 +28,7 @@ public class JsonJsContext extends JsContext {
 
     private final RulesObjectMapper rulesObjectMapper;
     private ArgumentJsContext nonSerializableContext;
+    private String json;
 
     public JsonJsContext(RulesObjectMapper rulesObjectMapper) {
         this.rulesObjectMapper = rulesObjectMapper;
@@ -36,10 +37,22 @@ public class JsonJsContext extends JsContext {
 
     @Override
     public void applyTo(Scriptable scope) {
-        scope.put("json_context", scope, this.rulesObjectMapper.toJsonString(contextArgs));
+        String serialized = this.json != null ? this.json : this.rulesObjectMapper.toJsonString(contextArgs);
+
+        scope.put("json_context", scope, serialized);
         nonSerializableContext.applyTo(scope);
     }
 
+    /**
+     * Serializes the serializable context args immediately, rather than when the context is
+     * applied. Once serialized, the context no longer touches the original objects, so a context
+     * built from session-bound entities may be applied on another thread. Args put after this
+     * call are not included.
+     */
+    public void serialize() {
+        this.json = this.rulesObjectMapper.toJsonString(contextArgs);
+    }
+
     public void put(String contextKey, Object contextVal, boolean serializable) {
         if (!serializable) {
             nonSerializableContext.put(contextKey, contextVal);
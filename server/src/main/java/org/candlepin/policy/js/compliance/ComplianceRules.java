@@ -17,6 +17,7 @@ package org.candlepin.policy.js.compliance;
 import org.candlepin.audit.EventSink;
 import org.candlepin.model.Consumer;
 import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.ConsumerInstalledProduct;
 import org.candlepin.model.Entitlement;
 import org.candlepin.model.EntitlementCurator;
 import org.candlepin.policy.js.JsRunner;
@@ -44,6 +45,9 @@ import java.util.List;
  */
 public class ComplianceRules {
 
+    /** The rules namespace containing the compliance functions */
+    public static final String NAMESPACE = "compliance_name_space";
+
     private EntitlementCurator entCurator;
     private JsRunner jsRules;
     private RulesObjectMapper mapper;
@@ -63,7 +67,7 @@ public class ComplianceRules {
         this.eventSink = eventSink;
         this.consumerCurator = consumerCurator;
         this.mapper = mapper;
-        jsRules.init("compliance_name_space");
+        jsRules.init(NAMESPACE);
     }
 
     /**
@@ -155,17 +159,83 @@ public class ComplianceRules {
             return new ComplianceStatus(new Date());
         }
 
-        JsonJsContext args = new JsonJsContext(mapper);
-        args.put("consumer", c);
-        args.put("entitlements", allEnts);
-        args.put("ondate", date);
-        args.put("calculateCompliantUntil", calculateCompliantUntil);
-        args.put("calculateProductComplianceDateRanges", calculateProductComplianceDateRanges);
-        args.put("log", log, false);
-        args.put("guestIds", c.getGuestIds());
+        JsonJsContext args = this.buildStatusContext(c, allEnts, date, calculateCompliantUntil,
+            calculateProductComplianceDateRanges);
 
         // Convert the JSON returned into a ComplianceStatus object:
         String json = jsRules.runJsFunction(String.class, "get_status", args);
+        return this.completeStatus(c, json, updateConsumer, currentCompliance);
+    }
+
+    /**
+     * Prepares a check of the consumer's current compliance status which can be run later,
+     * possibly on another thread, using {@link #runStatus}. The rules context is serialized
+     * immediately, so the consumer and its entitlements must be loaded in the calling thread.
+     *
+     * @param c
+     *  the consumer to check
+     *
+     * @param calculateCompliantUntil
+     *  whether or not to calculate how long the consumer will remain compliant (expensive)
+     *
+     * @return
+     *  the serialized rules context for the check, or null if compliance is not calculated for
+     *  the consumer
+     */
+    public JsonJsContext prepareStatus(Consumer c, boolean calculateCompliantUntil) {
+        this.updateEntsOnStart(c);
+
+        if (c.isManifestDistributor() || c.isShare()) {
+            return null;
+        }
+
+        JsonJsContext args = this.buildStatusContext(c, c.getEntitlements(), new Date(),
+            calculateCompliantUntil, false);
+        args.serialize();
+
+        return args;
+    }
+
+    /**
+     * Runs a compliance check prepared by {@link #prepareStatus} on the given runner. Each
+     * runner must only be used by one thread at a time, and must be initialized to the
+     * compliance namespace.
+     *
+     * @param runner
+     *  the runner on which to run the rules
+     *
+     * @param context
+     *  the prepared rules context
+     *
+     * @return
+     *  the JSON compliance status returned by the rules
+     */
+    public String runStatus(JsRunner runner, JsonJsContext context) {
+        return runner.runJsFunction(String.class, "get_status", context);
+    }
+
+    /**
+     * Converts the JSON returned by the compliance rules into a ComplianceStatus, generating the
+     * reason messages and, for checks of current compliance, applying the status to the consumer.
+     *
+     * @param c
+     *  the consumer which was checked
+     *
+     * @param json
+     *  the JSON compliance status returned by the rules
+     *
+     * @param updateConsumer
+     *  whether or not to persist status changes to the consumer
+     *
+     * @param currentCompliance
+     *  whether or not the check was of the consumer's current compliance
+     *
+     * @return
+     *  the consumer's compliance status
+     */
+    public ComplianceStatus completeStatus(Consumer c, String json, boolean updateConsumer,
+        boolean currentCompliance) {
+
         try {
             ComplianceStatus status = mapper.toObject(json, ComplianceStatus.class);
             for (ComplianceReason reason : status.getReasons()) {
@@ -181,6 +251,21 @@ public class ComplianceRules {
         }
     }
 
+    private JsonJsContext buildStatusContext(Consumer c, Collection<Entitlement> entitlements, Date date,
+        boolean calculateCompliantUntil, boolean calculateProductComplianceDateRanges) {
+
+        JsonJsContext args = new JsonJsContext(mapper);
+        args.put("consumer", c);
+        args.put("entitlements", entitlements);
+        args.put("ondate", date);
+        args.put("calculateCompliantUntil", calculateCompliantUntil);
+        args.put("calculateProductComplianceDateRanges", calculateProductComplianceDateRanges);
+        args.put("log", log, false);
+        args.put("guestIds", c.getGuestIds());
+
+        return args;
+    }
+
     public void updateEntsOnStart(Consumer c) {
         for (Entitlement ent : c.getEntitlements()) {
             if (!ent.isUpdatedOnStart() && ent.isValid()) {
@@ -204,6 +289,14 @@ public class ComplianceRules {
             c.setEntitlementStatus(status.getStatus());
         }
 
+        // Persist the status of each installed product so reads of the consumer don't need to
+        // run the rules again
+        if (c.getInstalledProducts() != null) {
+            for (ConsumerInstalledProduct cip : c.getInstalledProducts()) {
+                cip.setStatus(status.getProductStatus(cip.getProductId()));
+            }
+        }
+
         if (updateConsumer && (complianceChanged || entStatusChanged)) {
             // Merge might work better here, but we use update in other places for this
             consumerCurator.update(c, false);
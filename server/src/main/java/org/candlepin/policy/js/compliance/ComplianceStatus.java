@@ -38,6 +38,11 @@ public class ComplianceStatus {
     public static final String YELLOW = "partial";
     public static final String RED = "invalid";
 
+    /** The statuses of individual installed products */
+    public static final String PRODUCT_GREEN = "green";
+    public static final String PRODUCT_YELLOW = "yellow";
+    public static final String PRODUCT_RED = "red";
+
     private Date date;
     private Date compliantUntil;
     private Set<String> nonCompliantProducts;
@@ -161,6 +166,38 @@ public class ComplianceStatus {
         return RED;
     }
 
+    /**
+     * Fetches the status of the given installed product.
+     *
+     * @param productId
+     *  the ID of the installed product
+     *
+     * @return
+     *  the status of the product, or null if the product was not part of this check
+     */
+    public String getProductStatus(String productId) {
+        // Impl note:
+        // Due to the nature of our compliance check, installed products which don't exist in
+        // CP get marked as non-compliant/red. We could possibly change this to "unknown," but
+        // this should be okay for now.
+
+        // The hash lookups are likely faster than the linear search through an array, so we'll
+        // do those first.
+        if (this.compliantProducts.containsKey(productId)) {
+            return PRODUCT_GREEN;
+        }
+
+        if (this.partiallyCompliantProducts.containsKey(productId)) {
+            return PRODUCT_YELLOW;
+        }
+
+        if (this.nonCompliantProducts.contains(productId)) {
+            return PRODUCT_RED;
+        }
+
+        return null;
+    }
+
     public Set<ComplianceReason> getReasons() {
         return reasons;
     }
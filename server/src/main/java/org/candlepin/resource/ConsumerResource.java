@@ -34,11 +34,13 @@ import org.candlepin.common.exceptions.CandlepinException;
 import org.candlepin.common.exceptions.ForbiddenException;
 import org.candlepin.common.exceptions.IseException;
 import org.candlepin.common.exceptions.NotFoundException;
+import org.candlepin.common.jackson.DynamicFilterData;
 import org.candlepin.common.paging.Page;
 import org.candlepin.common.paging.PageRequest;
 import org.candlepin.common.paging.Paginate;
 import org.candlepin.config.ConfigProperties;
 import org.candlepin.controller.AutobindDisabledForOwnerException;
+import org.candlepin.controller.BatchComplianceEvaluator;
 import org.candlepin.controller.Entitler;
 import org.candlepin.controller.ManifestManager;
 import org.candlepin.controller.PoolManager;
@@ -84,6 +86,7 @@ import org.candlepin.model.activationkeys.ActivationKeyCurator;
 import org.candlepin.model.dto.PoolIdAndQuantity;
 import org.candlepin.pinsetter.tasks.EntitleByProductsJob;
 import org.candlepin.pinsetter.tasks.EntitlerJob;
+import org.candlepin.pinsetter.tasks.RegisterConsumersJob;
 import org.candlepin.policy.js.compliance.ComplianceRules;
 import org.candlepin.policy.js.compliance.ComplianceStatus;
 import org.candlepin.policy.js.consumer.ConsumerRules;
@@ -155,6 +158,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -207,6 +211,7 @@ public class ConsumerResource {
     private FactValidator factValidator;
     private ConsumerTypeValidator consumerTypeValidator;
     private ConsumerEnricher consumerEnricher;
+    private BatchComplianceEvaluator batchComplianceEvaluator;
 
     @Inject
     @SuppressWarnings({"checkstyle:parameternumber"})
@@ -232,7 +237,8 @@ public class ConsumerResource {
         ContentAccessCertServiceAdapter contentAccessCertService,
         FactValidator factValidator,
         ConsumerTypeValidator consumerTypeValidator,
-        ConsumerEnricher consumerEnricher) {
+        ConsumerEnricher consumerEnricher,
+        BatchComplianceEvaluator batchComplianceEvaluator) {
 
         this.consumerCurator = consumerCurator;
         this.consumerTypeCurator = consumerTypeCurator;
@@ -270,6 +276,7 @@ public class ConsumerResource {
         this.factValidator = factValidator;
         this.consumerTypeValidator = consumerTypeValidator;
         this.consumerEnricher = consumerEnricher;
+        this.batchComplianceEvaluator = batchComplianceEvaluator;
     }
 
     /**
@@ -425,16 +432,34 @@ public class ConsumerResource {
                 }
             }
 
+            // Only compute the enriched fields the client will actually receive. The status of
+            // each installed product is persisted when the consumer's compliance is calculated;
+            // the compliance date ranges require running the rules, so they are only calculated
+            // when explicitly requested (i.e. ?include=installedProducts.startDate).
+            DynamicFilterData filterData = ResteasyProviderFactory.getContextData(DynamicFilterData.class);
+
             // enrich with subscription data
-            consumer.setCanActivate(subAdapter.canActivateSubscription(consumer));
+            if (this.isAttributeIncluded(filterData, "canActivate")) {
+                consumer.setCanActivate(subAdapter.canActivateSubscription(consumer));
+            }
 
             // enrich with installed product data
-            this.consumerEnricher.enrich(consumer);
+            if (this.isAttributeIncluded(filterData, "installedProducts")) {
+                boolean includeDateRanges = filterData != null &&
+                    (filterData.isAttributeIncluded("installedProducts.startDate") ||
+                    filterData.isAttributeIncluded("installedProducts.endDate"));
+
+                this.consumerEnricher.enrich(consumer, includeDateRanges);
+            }
         }
 
         return consumer;
     }
 
+    private boolean isAttributeIncluded(DynamicFilterData filterData, String path) {
+        return filterData == null || !filterData.isAttributeExcluded(path);
+    }
+
     @ApiOperation(notes = "Creates a Consumer. NOTE: Opening this method up " +
         "to everyone, as we have nothing we can reliably " +
         "verify in the method signature. Instead we have to " +
@@ -471,18 +496,215 @@ public class ConsumerResource {
         // Raise an exception if none of the keys specified exist for this owner.
         List<ActivationKey> keys = checkActivationKeys(principal, owner, keyStrings);
 
+        prepareNewConsumer(consumer, principal, userName, owner, keys, new HashMap<String, ConsumerType>());
+
+        if (consumer.isShare()) {
+            // Share consumers do not need identity certificates so refuse to create them.
+            identityCertCreation = false;
+        }
+
+        try {
+            consumer = persistNewConsumer(consumer);
+
+            if (identityCertCreation) {
+                IdentityCertificate idCert = generateIdCert(consumer, false);
+                consumer.setIdCert(idCert);
+            }
+
+            completeNewConsumer(consumer, keys);
+
+            return consumer;
+        }
+        catch (CandlepinException ce) {
+            // If it is one of ours, rethrow it.
+            throw ce;
+        }
+        catch (AutobindDisabledForOwnerException e) {
+            throw new BadRequestException(i18n.tr("Could not register unit with key enabling auto-attach. " +
+                "Auto-attach is disabled for org ''{0}''.", consumer.getOwner().getKey()));
+        }
+        catch (Exception e) {
+            log.error("Problem creating unit:", e);
+            throw new BadRequestException(i18n.tr("Problem creating unit {0}", consumer));
+        }
+    }
+
+    @ApiOperation(notes = "Registers a batch of Consumers in a single request. Each consumer is " +
+        "validated and registered as if created individually with the same parameters, but the " +
+        "organization and activation keys are only resolved once, and identity certificates are " +
+        "generated in parallel. The batch is registered in a single transaction; if any consumer " +
+        "fails validation, none are registered. The number of consumers per request is limited " +
+        "by the candlepin.consumer.bulk_registration.max_size setting.", value = "createBulk")
+    @ApiResponses({ @ApiResponse(code = 400, message = ""), @ApiResponse(code = 403, message = ""),
+        @ApiResponse(code = 404, message = "") })
+    @POST
+    @Path("/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @SecurityHole(noAuth = true)
+    @Transactional
+    public List<Consumer> createBulk(
+        @ApiParam(name = "consumers", required = true) List<Consumer> consumers,
+        @Context Principal principal,
+        @QueryParam("username") String userName,
+        @QueryParam("owner") String ownerKey,
+        @QueryParam("activation_keys") String activationKeys,
+        @QueryParam("identity_cert_creation") @DefaultValue("true") boolean identityCertCreation)
+        throws BadRequestException {
+
+        validateBulkRegistrationSize(consumers, ConfigProperties.CONSUMER_BULK_REGISTRATION_MAX_SIZE);
+        Set<String> keyStrings = splitKeys(activationKeys);
+
+        // Only let NoAuth principals through if there are activation keys to consider:
+        if ((principal instanceof NoAuthPrincipal) && keyStrings.isEmpty()) {
+            throw new ForbiddenException(i18n.tr("Insufficient permissions"));
+        }
+
+        validateOnKeyStrings(keyStrings, ownerKey, userName);
+
+        // Resolve the owner, keys and consumer types once for the entire batch
+        Owner owner = setupOwner(principal, ownerKey);
+        List<ActivationKey> keys = checkActivationKeys(principal, owner, keyStrings);
+        Map<String, ConsumerType> types = new HashMap<String, ConsumerType>();
+
+        for (Consumer consumer : consumers) {
+            prepareNewConsumer(consumer, principal, userName, owner, keys, types);
+        }
+
+        List<Consumer> created = new ArrayList<Consumer>(consumers.size());
+        List<Consumer> certConsumers = new ArrayList<Consumer>(consumers.size());
+        Consumer current = null;
+
+        try {
+            for (Consumer consumer : consumers) {
+                current = consumer;
+                consumer = persistNewConsumer(consumer);
+                created.add(consumer);
+
+                // Share consumers do not need identity certificates
+                if (identityCertCreation && !consumer.isShare()) {
+                    certConsumers.add(consumer);
+                }
+            }
+
+            current = null;
+            generateIdCerts(certConsumers);
+
+            // Activation keys are applied to each consumer in turn, as for a single registration.
+            // Any pool locks taken are held until the batch commits, so large batches should be
+            // registered asynchronously, where each chunk commits on its own.
+            for (Consumer consumer : created) {
+                current = consumer;
+                completeNewConsumer(consumer, keys);
+            }
+
+            log.info("{} consumers created in org {}", created.size(), owner.getKey());
+
+            return created;
+        }
+        catch (CandlepinException ce) {
+            // If it is one of ours, rethrow it.
+            throw ce;
+        }
+        catch (AutobindDisabledForOwnerException e) {
+            throw new BadRequestException(i18n.tr("Could not register unit with key enabling auto-attach. " +
+                "Auto-attach is disabled for org ''{0}''.", owner.getKey()));
+        }
+        catch (Exception e) {
+            log.error("Problem creating units:", e);
+
+            throw new BadRequestException(current != null ?
+                i18n.tr("Problem creating unit {0}", current) :
+                i18n.tr("Problem creating units"));
+        }
+    }
+
+    @ApiOperation(notes = "Registers a batch of Consumers asynchronously. Accepts the same " +
+        "input and parameters as the synchronous bulk registration, but performs the " +
+        "registration in a background job, which registers and commits the consumers in chunks " +
+        "of candlepin.consumer.bulk_registration.max_size. The number of consumers per request " +
+        "is limited by the candlepin.consumer.bulk_registration.async_max_size setting. The " +
+        "result of the job lists the UUIDs of the registered consumers, and the position and " +
+        "name of any which failed.",
+        value = "createBulkAsync")
+    @ApiResponses({ @ApiResponse(code = 202, message = ""), @ApiResponse(code = 400, message = ""),
+        @ApiResponse(code = 403, message = ""), @ApiResponse(code = 404, message = "") })
+    @POST
+    @Path("/bulk/async")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @SecurityHole(noAuth = true)
+    @Transactional
+    public JobDetail createBulkAsync(
+        @ApiParam(name = "consumers", required = true) List<Consumer> consumers,
+        @Context Principal principal,
+        @QueryParam("username") String userName,
+        @QueryParam("owner") String ownerKey,
+        @QueryParam("activation_keys") String activationKeys,
+        @QueryParam("identity_cert_creation") @DefaultValue("true") boolean identityCertCreation)
+        throws BadRequestException {
+
+        validateBulkRegistrationSize(consumers, ConfigProperties.CONSUMER_BULK_REGISTRATION_ASYNC_MAX_SIZE);
+        Set<String> keyStrings = splitKeys(activationKeys);
+
+        // Only let NoAuth principals through if there are activation keys to consider:
+        if ((principal instanceof NoAuthPrincipal) && keyStrings.isEmpty()) {
+            throw new ForbiddenException(i18n.tr("Insufficient permissions"));
+        }
+
+        // Check the owner and keys up front, so obviously bad requests fail immediately rather
+        // than in the job
+        validateOnKeyStrings(keyStrings, ownerKey, userName);
+        Owner owner = setupOwner(principal, ownerKey);
+        checkActivationKeys(principal, owner, keyStrings);
+
+        return RegisterConsumersJob.forOwner(owner, consumers, principal, userName, activationKeys,
+            identityCertCreation);
+    }
+
+    /**
+     * Checks that a bulk registration is neither empty nor larger than the given limit.
+     *
+     * @param maxSizeProperty
+     *  the configuration property holding the maximum number of consumers
+     */
+    private void validateBulkRegistrationSize(List<Consumer> consumers, String maxSizeProperty) {
+        if (consumers == null || consumers.isEmpty()) {
+            throw new BadRequestException(i18n.tr("No units were provided for registration."));
+        }
+
+        int max = config.getInt(maxSizeProperty);
+        if (consumers.size() > max) {
+            throw new BadRequestException(i18n.tr(
+                "Cannot register more than {0} units in a single request.", Integer.toString(max)));
+        }
+    }
+
+    /**
+     * Validates and sets up a new consumer for registration with the given owner, without
+     * persisting it.
+     *
+     * @param types
+     *  a cache of the consumer types looked up so far, keyed by label
+     */
+    private void prepareNewConsumer(Consumer consumer, Principal principal, String userName,
+        Owner owner, List<ActivationKey> keys, Map<String, ConsumerType> types) {
+
         userName = setUserName(consumer, principal, userName);
         checkConsumerName(consumer);
 
-        ConsumerType type = lookupConsumerType(consumer.getType().getLabel());
+        String label = consumer.getType() != null ? consumer.getType().getLabel() : null;
+        ConsumerType type = types.get(label);
+        if (type == null) {
+            type = lookupConsumerType(label);
+            types.put(label, type);
+        }
+
         validateViaConsumerType(consumer, type, keys, owner, userName, principal);
 
         if (consumer.isShare()) {
-            // Share consumers do not need identity certificates so refuse to create them.
-            identityCertCreation = false;
             validateShareConsumer(consumer, principal, keys);
             consumer.setAutoheal(false);
-
         }
         else {
             consumer.setCanActivate(subAdapter.canActivateSubscription(consumer));
@@ -529,51 +751,40 @@ public class ConsumerResource {
 
         validateContentAccessMode(consumer);
         consumerBindUtil.validateServiceLevel(owner, consumer.getServiceLevel());
+    }
 
-        try {
-            Date createdDate = consumer.getCreated();
-            Date lastCheckIn = consumer.getLastCheckin();
-            // create sets created to current time.
-            consumer = consumerCurator.create(consumer);
-            //  If we sent in a created date, we want it persisted at the update below
-            if (createdDate != null) {
-                consumer.setCreated(createdDate);
-            }
-            if (lastCheckIn != null) {
-                log.info("Creating with specific last check-in time: {}", consumer.getLastCheckin());
-                consumer.setLastCheckin(lastCheckIn);
-            }
-            if (identityCertCreation) {
-                IdentityCertificate idCert = generateIdCert(consumer, false);
-                consumer.setIdCert(idCert);
-            }
-            sink.emitConsumerCreated(consumer);
+    private Consumer persistNewConsumer(Consumer consumer) {
+        Date createdDate = consumer.getCreated();
+        Date lastCheckIn = consumer.getLastCheckin();
+        // create sets created to current time.
+        consumer = consumerCurator.create(consumer);
+        //  If we sent in a created date, we want it persisted at the update below
+        if (createdDate != null) {
+            consumer.setCreated(createdDate);
+        }
+        if (lastCheckIn != null) {
+            log.info("Creating with specific last check-in time: {}", consumer.getLastCheckin());
+            consumer.setLastCheckin(lastCheckIn);
+        }
 
-            if (keys.size() > 0) {
-                consumerBindUtil.handleActivationKeys(consumer, keys);
-            }
+        return consumer;
+    }
 
-            // Don't allow complianceRules to update entitlementStatus, because we're about to perform
-            // an update unconditionally.
-            complianceRules.getStatus(consumer, null, false, false);
-            consumerCurator.update(consumer);
+    private void completeNewConsumer(Consumer consumer, List<ActivationKey> keys)
+        throws AutobindDisabledForOwnerException {
 
-            log.info("Consumer {} created in org {}", consumer.getUuid(), consumer.getOwner().getKey());
+        sink.emitConsumerCreated(consumer);
 
-            return consumer;
-        }
-        catch (CandlepinException ce) {
-            // If it is one of ours, rethrow it.
-            throw ce;
-        }
-        catch (AutobindDisabledForOwnerException e) {
-            throw new BadRequestException(i18n.tr("Could not register unit with key enabling auto-attach. " +
-                "Auto-attach is disabled for org ''{0}''.", consumer.getOwner().getKey()));
-        }
-        catch (Exception e) {
-            log.error("Problem creating unit:", e);
-            throw new BadRequestException(i18n.tr("Problem creating unit {0}", consumer));
+        if (keys.size() > 0) {
+            consumerBindUtil.handleActivationKeys(consumer, keys);
         }
+
+        // Don't allow complianceRules to update entitlementStatus, because we're about to perform
+        // an update unconditionally.
+        complianceRules.getStatus(consumer, null, false, false);
+        consumerCurator.update(consumer);
+
+        log.info("Consumer {} created in org {}", consumer.getUuid(), consumer.getOwner().getKey());
     }
 
     /**
@@ -2370,6 +2581,32 @@ public class ConsumerResource {
         return idCert;
     }
 
+    /**
+     * Generates identity certificates for a batch of new consumers, signing the certificates in
+     * parallel. Throws a BadRequestException if any of the certificates could not be generated.
+     *
+     * @param consumers the consumers whose certificates need to be generated
+     */
+    private void generateIdCerts(List<Consumer> consumers) {
+        if (consumers.isEmpty()) {
+            return;
+        }
+
+        try {
+            identityCertService.generateIdentityCerts(consumers);
+        }
+        catch (GeneralSecurityException e) {
+            log.error("Problem generating ID certs for units:", e);
+            throw new BadRequestException(i18n.tr("Problem generating ID certs for units"));
+        }
+        catch (IOException e) {
+            log.error("Problem generating ID certs for units:", e);
+            throw new BadRequestException(i18n.tr("Problem generating ID certs for units"));
+        }
+
+        log.debug("Generated {} identity certs", consumers.size());
+    }
+
     @ApiOperation(notes = "Retrieves a list of Guest Consumers of a Consumer", value = "getGuests")
     @ApiResponses({ @ApiResponse(code = 404, message = "") })
     @GET
@@ -2470,6 +2707,22 @@ public class ConsumerResource {
         return results;
     }
 
+    @ApiOperation(notes = "Retrieves the Compliance Status of many Consumers, evaluated in parallel. The " +
+        "statuses are streamed as a JSON object keyed by Consumer UUID, in the order in which their " +
+        "evaluations complete.",
+        value = "getComplianceStatusBatch")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/compliance/batch")
+    public StreamingOutput getComplianceStatusBatch(
+        @QueryParam("uuid") @Verify(value = Consumer.class, nullable = true) List<String> uuids,
+        @ApiParam("Only return the status and reasons of each Consumer, skipping the calculation " +
+            "of how long each Consumer will remain compliant")
+        @QueryParam("lightweight") @DefaultValue("false") boolean lightweight) {
+
+        return this.batchComplianceEvaluator.stream(uuids, lightweight);
+    }
+
     @ApiOperation(
         notes = "Removes the Deletion Record for a Consumer Allowed for a superadmin." +
         " The main use case for this would be if a user accidently deleted a " +
@@ -24,6 +24,7 @@ import org.candlepin.model.JobCurator;
 import org.candlepin.model.SchedulerStatus;
 import org.candlepin.pinsetter.core.PinsetterException;
 import org.candlepin.pinsetter.core.PinsetterKernel;
+import org.candlepin.pinsetter.core.model.JobLaneStatus;
 import org.candlepin.pinsetter.core.model.JobStatus;
 import org.candlepin.pinsetter.core.model.JobStatus.JobState;
 import org.candlepin.pinsetter.tasks.KingpinJob;
@@ -165,6 +166,16 @@ public class JobResource {
         return ss;
     }
 
+    @ApiOperation(notes = "Retrieves the configuration, queue depth, wait and run times of each " +
+        "job execution lane", value = "getLaneStatuses", response = JobLaneStatus.class,
+        responseContainer = "list")
+    @GET
+    @Path("lanes")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<JobLaneStatus> getLaneStatuses() {
+        return pk.getLaneStatuses();
+    }
+
     @ApiOperation(notes = "Updates the Scheduler Status", value = "setSchedulerStatus")
     @ApiResponses({ @ApiResponse(code = 500, message = "") })
     @POST
@@ -74,6 +74,7 @@ import org.candlepin.model.activationkeys.ActivationKeyCurator;
 import org.candlepin.model.dto.Subscription;
 import org.candlepin.pinsetter.tasks.HealEntireOrgJob;
 import org.candlepin.pinsetter.tasks.ImportJob;
+import org.candlepin.pinsetter.tasks.RecalculateOrgComplianceJob;
 import org.candlepin.pinsetter.tasks.RefreshPoolsJob;
 import org.candlepin.pinsetter.tasks.UndoImportsJob;
 import org.candlepin.resource.util.CalculatedAttributesUtil;
@@ -460,6 +461,30 @@ public class OwnerResource {
         return HealEntireOrgJob.healEntireOrg(ownerKey, new Date());
     }
 
+    /**
+     * Recalculates the compliance status of an Owner's consumers
+     * <p>
+     * Starts an asynchronous recalculation of the compliance status of every
+     * consumer owned by the given Owner.
+     *
+     * @param ownerKey id of the owner whose consumers should be checked.
+     * @return a JobDetail object
+     * @httpcode 404
+     * @httpcode 202
+     */
+    @PUT
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.WILDCARD)
+    @Path("{owner_key}/compliance")
+    @ApiOperation(notes = "Starts an asynchronous recalculation of the compliance status of " +
+        "every consumer owned by the given Owner.", value = "Recalculate owner compliance")
+    @ApiResponses({ @ApiResponse(code = 404, message = "Owner not found") })
+    public JobDetail recalculateCompliance(
+        @ApiParam("ownerKey id of the owner whose consumers should be checked.")
+        @PathParam("owner_key") @Verify(Owner.class) String ownerKey) {
+        return RecalculateOrgComplianceJob.forOwner(findOwner(ownerKey));
+    }
+
     /**
      * Retrieves a list of Support Levels for an Owner
      *
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.resource.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO that encapsulates the results of an asynchronous bulk consumer registration.
+ *
+ * <pre>
+ *     registered: the UUIDs of the consumers that have been registered.
+ *     failed: a list of strings formatted as '{index} ({consumer_name}): Error message' for each
+ *             consumer which could not be registered, where index is the consumer's position in
+ *             the request, starting at zero.
+ * </pre>
+ */
+public class BulkRegistrationResult implements Serializable {
+    private static final long serialVersionUID = 2829362180524313647L;
+
+    private List<String> registered;
+    private List<String> failed;
+
+    public BulkRegistrationResult() {
+        this.registered = new ArrayList<String>();
+        this.failed = new ArrayList<String>();
+    }
+
+    public void registered(String consumerUuid) {
+        this.registered.add(consumerUuid);
+    }
+
+    public void failed(int index, String consumerName, String errorMessage) {
+        String error = errorMessage == null ? "" : errorMessage;
+        this.failed.add(index + " (" + consumerName + "): " + error);
+    }
+
+    public List<String> getRegistered() {
+        return registered;
+    }
+
+    public List<String> getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "Registered: " + registered.size() + ", Failed: " + failed.size();
+    }
+}
@@ -29,6 +29,8 @@ import java.util.Set;
  *     updated: the host consumers that have had their guest IDs updated.
  *     unchanged: the host consumers that have not been changed.
  *     failed: a list of strings formated as '{host_virt_id}: Error message'.
+ *     coalescedReports: the number of queued reports that were merged into the
+ *                       processed report before it was run.
  * </pre>
  */
 public class HypervisorUpdateResult implements Serializable {
@@ -38,6 +40,7 @@ public class HypervisorUpdateResult implements Serializable {
     private Set<Consumer> updated;
     private Set<Consumer> unchanged;
     private Set<String> failed;
+    private int coalescedReports;
 
     public HypervisorUpdateResult() {
         this.created = new HashSet<Consumer>();
@@ -79,9 +82,18 @@ public class HypervisorUpdateResult implements Serializable {
         return failed;
     }
 
+    public int getCoalescedReports() {
+        return coalescedReports;
+    }
+
+    public void setCoalescedReports(int coalescedReports) {
+        this.coalescedReports = coalescedReports;
+    }
+
     @Override
     public String toString() {
         return "Created: " + created.size() + ", Updated: " + updated.size() +
-                ", Unchanged:" + unchanged.size() + ", Failed: " + failed.size();
+                ", Unchanged:" + unchanged.size() + ", Failed: " + failed.size() +
+                ", Coalesced reports: " + coalescedReports;
     }
 }
@@ -42,10 +42,6 @@ import java.util.Set;
 public class ConsumerEnricher {
     private static Logger log = LoggerFactory.getLogger(ConsumerEnricher.class);
 
-    private static final String RED_STATUS = "red";
-    private static final String YELLOW_STATUS = "yellow";
-    private static final String GREEN_STATUS = "green";
-
     private ComplianceRules complianceRules;
     private OwnerProductCurator ownerProductCurator;
 
@@ -56,14 +52,38 @@ public class ConsumerEnricher {
     }
 
     public void enrich(Consumer consumer) {
+        this.enrich(consumer, true);
+    }
+
+    /**
+     * Populates the transient fields of the consumer's installed products. The status of each
+     * installed product is persisted whenever the consumer's compliance is calculated, so the
+     * compliance rules are only run when the date ranges, which are expensive to calculate, are
+     * requested, or when the status of an installed product has not yet been calculated.
+     *
+     * @param consumer
+     *  the consumer to enrich
+     *
+     * @param includeDateRanges
+     *  whether or not to populate the compliance date range of each installed product
+     */
+    public void enrich(Consumer consumer, boolean includeDateRanges) {
         if (consumer == null || CollectionUtils.isEmpty(consumer.getInstalledProducts())) {
             // No consumer or the consumer doesn't have any installed products -- nothing to do here.
             return;
         }
 
-        ComplianceStatus status = this.complianceRules.getStatus(consumer, null, null, false, true,
-            true, true);
-        Map<String, DateRange> ranges = status.getProductComplianceDateRanges();
+        Map<String, DateRange> ranges = null;
+
+        if (includeDateRanges || this.isStatusMissing(consumer)) {
+            // Checking current compliance also persists the status of each installed product
+            ComplianceStatus status = this.complianceRules.getStatus(consumer, null, null, false, true,
+                includeDateRanges, true);
+
+            if (includeDateRanges) {
+                ranges = status.getProductComplianceDateRanges();
+            }
+        }
 
         // Compile the product IDs for the products we're going to be enriching
         Set<String> productIds = new HashSet<String>();
@@ -82,23 +102,6 @@ public class ConsumerEnricher {
             String pid = cip.getProductId();
             DateRange range = ranges != null ? ranges.get(pid) : null;
 
-            // Impl note:
-            // Due to the nature of our compliance check, installed products which don't exist in
-            // CP get marked as non-compliant/red. We could possibly change this to "unknown," but
-            // this should be okay for now.
-
-            // The hash lookups are likely faster than the linear search through an array, so we'll
-            // do those first.
-            if (status.getCompliantProducts().containsKey(pid)) {
-                cip.setStatus(GREEN_STATUS);
-            }
-            else if (status.getPartiallyCompliantProducts().containsKey(pid)) {
-                cip.setStatus(YELLOW_STATUS);
-            }
-            else if (status.getNonCompliantProducts().contains(pid)) {
-                cip.setStatus(RED_STATUS);
-            }
-
             // Set the compliance date range if we have it
             if (range != null) {
                 cip.setStartDate(range.getStartDate());
@@ -119,4 +122,14 @@ public class ConsumerEnricher {
         }
     }
 
+    private boolean isStatusMissing(Consumer consumer) {
+        for (ConsumerInstalledProduct cip : consumer.getInstalledProducts()) {
+            if (cip.getStatus() == null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
 }
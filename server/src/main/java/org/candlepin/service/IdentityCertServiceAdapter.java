@@ -19,6 +19,7 @@ import org.candlepin.model.IdentityCertificate;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.List;
 
 /**
  * Interface to the Certificate Service.
@@ -38,6 +39,19 @@ public interface IdentityCertServiceAdapter {
     IdentityCertificate generateIdentityCert(Consumer consumer)
         throws GeneralSecurityException, IOException;
 
+    /**
+     * Generates identity certificates for a batch of consumers. This is equivalent to calling
+     * generateIdentityCert for each consumer, but allows implementations to amortize the cost of
+     * generating many certificates at once, such as by signing them in parallel.
+     *
+     * @param consumers the consumers for which to generate identity certificates.
+     * @return the identity certificates for the given consumers, in the same order.
+     * @throws IOException if there is a file system problem
+     * @throws GeneralSecurityException if there is a violation of policy
+     */
+    List<IdentityCertificate> generateIdentityCerts(List<Consumer> consumers)
+        throws GeneralSecurityException, IOException;
+
     /**
      * Regenerates the identity certificate for the given consumer.
      *
@@ -128,6 +128,7 @@ public class DefaultContentAccessCertServiceAdapter implements ContentAccessCert
             Date endDate = cal.getTime();
 
             CertificateSerial serial = new CertificateSerial(endDate);
+            serialCurator.assignSerial(serial);
             // We need the sequence generated id before we create the Certificate,
             // otherwise we could have used cascading create
             serialCurator.create(serial);
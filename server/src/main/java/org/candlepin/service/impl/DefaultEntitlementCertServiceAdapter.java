@@ -290,7 +290,7 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
             contentCounter += filteredContent.size();
 
             log.debug("Adding X509 extensions for content: {}", filteredContent);
-            result.addAll(extensionUtil.contentExtensions(filteredContent,
+            result.addAll(extensionUtil.contentExtensions(prod, filteredContent,
                 contentPrefix, promotedContent, consumer, skuProd));
         }
 
@@ -373,10 +373,12 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
 
         Map<String, CertificateSerial> serialMap = new HashMap<String, CertificateSerial>();
         for (Entry<String, PoolQuantity> entry : poolQuantities.entrySet()) {
-            // No need to persist the cert serial here as the IDs are generated on object creation.
+            // No need to persist the cert serial here as the IDs are assigned before persisting.
             serialMap.put(entry.getKey(), new CertificateSerial(entry.getValue().getPool().getEndDate()));
         }
 
+        serialCurator.assignSerials(serialMap.values());
+
         Map<String, EntitlementCertificate> entitlementCerts = new HashMap<String, EntitlementCertificate>();
         for (Entry<String, PoolQuantity> entry : poolQuantities.entrySet()) {
             Pool pool = entry.getValue().getPool();
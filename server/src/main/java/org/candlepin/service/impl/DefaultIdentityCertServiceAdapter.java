@@ -35,8 +35,15 @@ import java.math.BigInteger;
 import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * DefaultIdentityCertServiceAdapter
@@ -50,6 +57,7 @@ public class DefaultIdentityCertServiceAdapter implements
     private KeyPairCurator keyPairCurator;
     private CertificateSerialCurator serialCurator;
     private Function<Date, Date> endDateGenerator;
+    private ExecutorService signingExecutor;
 
     @SuppressWarnings("unchecked")
     @Inject
@@ -57,12 +65,14 @@ public class DefaultIdentityCertServiceAdapter implements
         IdentityCertificateCurator identityCertCurator,
         KeyPairCurator keyPairCurator,
         CertificateSerialCurator serialCurator,
-        @Named("endDateGenerator") Function endDtGen) {
+        @Named("endDateGenerator") Function endDtGen,
+        @Named("certificateSigningExecutor") ExecutorService signingExecutor) {
         this.pki = pki;
         this.idCertCurator = identityCertCurator;
         this.keyPairCurator = keyPairCurator;
         this.serialCurator = serialCurator;
         this.endDateGenerator = endDtGen;
+        this.signingExecutor = signingExecutor;
     }
 
     @Override
@@ -100,6 +110,125 @@ public class DefaultIdentityCertServiceAdapter implements
         return generate(consumer);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * Serials and key pairs are allocated on the calling thread, as they require database access,
+     * while the certificates themselves are signed and encoded on the shared certificate signing
+     * executor.
+     */
+    @Override
+    public List<IdentityCertificate> generateIdentityCerts(List<Consumer> consumers)
+        throws GeneralSecurityException, IOException {
+
+        IdentityCertificate[] certificates = new IdentityCertificate[consumers.size()];
+        List<Integer> pending = new ArrayList<Integer>();
+
+        for (int i = 0; i < consumers.size(); ++i) {
+            Consumer consumer = consumers.get(i);
+
+            if (consumer.getIdCert() != null) {
+                certificates[i] = idCertCurator.find(consumer.getIdCert().getId());
+            }
+
+            if (certificates[i] == null) {
+                pending.add(i);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            Calendar cal = Calendar.getInstance();
+            cal.add(Calendar.HOUR, -1);
+            final Date startDate = cal.getTime();
+            final Date endDate = this.endDateGenerator.apply(new Date());
+
+            List<CertificateSerial> serials = new ArrayList<CertificateSerial>(pending.size());
+            List<KeyPair> keyPairs = new ArrayList<KeyPair>(pending.size());
+            List<Future<String[]>> signed = new ArrayList<Future<String[]>>(pending.size());
+
+            for (int index : pending) {
+                serials.add(new CertificateSerial(endDate));
+                keyPairs.add(keyPairCurator.getConsumerKeyPair(consumers.get(index)));
+            }
+
+            serialCurator.assignSerials(serials);
+            for (CertificateSerial serial : serials) {
+                serialCurator.create(serial);
+            }
+
+            try {
+                for (int i = 0; i < pending.size(); ++i) {
+                    final Consumer consumer = consumers.get(pending.get(i));
+                    final KeyPair keyPair = keyPairs.get(i);
+                    final BigInteger serial = BigInteger.valueOf(serials.get(i).getId());
+
+                    signed.add(this.signingExecutor.submit(new Callable<String[]>() {
+                        @Override
+                        public String[] call() throws Exception {
+                            X509Certificate x509cert = pki.createX509Certificate(createDN(consumer),
+                                null, null, startDate, endDate, keyPair, serial, consumer.getName());
+
+                            return new String[] {
+                                new String(pki.getPemEncoded(x509cert)),
+                                new String(pki.getPemEncoded(keyPair.getPrivate()))
+                            };
+                        }
+                    }));
+                }
+
+                for (int i = 0; i < pending.size(); ++i) {
+                    int index = pending.get(i);
+                    String[] pem = this.getSigned(signed.get(i));
+
+                    IdentityCertificate identityCert = new IdentityCertificate();
+                    identityCert.setCert(pem[0]);
+                    identityCert.setKey(pem[1]);
+                    identityCert.setSerial(serials.get(i));
+                    consumers.get(index).setIdCert(identityCert);
+
+                    certificates[index] = idCertCurator.create(identityCert);
+                }
+            }
+            finally {
+                // Don't leave the shared workers busy with certificates which will not be used
+                for (Future<String[]> future : signed) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        return Arrays.asList(certificates);
+    }
+
+    private String[] getSigned(Future<String[]> future)
+        throws GeneralSecurityException, IOException {
+
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating identity certificates", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) cause;
+            }
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException("Unable to generate identity certificate", cause);
+        }
+    }
+
     @Override
     public IdentityCertificate regenerateIdentityCert(Consumer consumer)
         throws GeneralSecurityException, IOException {
@@ -126,6 +255,7 @@ public class DefaultIdentityCertServiceAdapter implements
         Date endDate = this.endDateGenerator.apply(new Date());
 
         CertificateSerial serial = new CertificateSerial(endDate);
+        serialCurator.assignSerial(serial);
         // We need the sequence generated id before we create the EntitlementCertificate,
         // otherwise we could have used cascading create
         serialCurator.create(serial);
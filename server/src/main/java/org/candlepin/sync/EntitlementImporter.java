@@ -63,11 +63,21 @@ public class EntitlementImporter {
         this.productCurator = productCurator;
     }
 
+    public Entitlement createObject(ObjectMapper mapper, Reader reader) throws IOException {
+        return mapper.readValue(reader, Entitlement.class);
+    }
+
     public Subscription importObject(ObjectMapper mapper, Reader reader, Owner owner,
         Map<String, Product> productsById, ConsumerDto consumer, Meta meta)
         throws IOException, SyncDataFormatException {
 
-        Entitlement entitlement = mapper.readValue(reader, Entitlement.class);
+        return this.importObject(this.createObject(mapper, reader), owner, productsById, consumer, meta);
+    }
+
+    public Subscription importObject(Entitlement entitlement, Owner owner,
+        Map<String, Product> productsById, ConsumerDto consumer, Meta meta)
+        throws SyncDataFormatException {
+
         Subscription subscription = new Subscription();
 
         log.debug("Building subscription for owner: {}", owner);
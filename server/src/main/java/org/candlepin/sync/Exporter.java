@@ -35,6 +35,7 @@ import org.candlepin.model.ProductCertificate;
 import org.candlepin.model.ResultIterator;
 import org.candlepin.model.ProductCurator;
 import org.candlepin.pki.PKIUtility;
+import org.candlepin.pki.SignatureOutputStream;
 import org.candlepin.policy.js.export.ExportRules;
 import org.candlepin.service.EntitlementCertServiceAdapter;
 import org.candlepin.service.ExportExtensionAdapter;
@@ -44,17 +45,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -68,6 +73,8 @@ import java.util.zip.ZipOutputStream;
  */
 public class Exporter {
     private static final String EXTENSIONS_BASE_DIR = "extensions";
+    private static final String EXPORT_BASE_DIR = "export";
+    private static final String INNER_ARCHIVE_NAME = "consumer_export.zip";
 
     private static Logger log = LoggerFactory.getLogger(Exporter.class);
 
@@ -157,25 +164,27 @@ public class Exporter {
      * @return a newly created manifest file for the target consumer.
      * @throws ExportCreationException when an error occurs while creating the manifest file.
      */
-    public File getFullExport(Consumer consumer, String cdnLabel, String webUrl,
-        String apiUrl, Map<String, String> extensionData) throws ExportCreationException {
+    public File getFullExport(final Consumer consumer, final String cdnLabel, final String webUrl,
+        final String apiUrl, final Map<String, String> extensionData) throws ExportCreationException {
         try {
-            File tmpDir = syncUtils.makeTempDir("export");
-            File baseDir = new File(tmpDir.getAbsolutePath(), "export");
-            baseDir.mkdir();
-
-            exportMeta(baseDir, cdnLabel);
-            exportConsumer(baseDir, consumer, webUrl, apiUrl);
-            exportIdentityCertificate(baseDir, consumer);
-            exportEntitlements(baseDir, consumer);
-            exportEntitlementsCerts(baseDir, consumer, null, true);
-            exportProducts(baseDir, consumer);
-            exportConsumerTypes(baseDir);
-            exportRules(baseDir);
-            exportDistributorVersions(baseDir);
-            exportContentDeliveryNetworks(baseDir);
-            exportExtensionData(baseDir, consumer, extensionData);
-            return makeArchive(consumer, tmpDir, baseDir);
+            final File tmpDir = syncUtils.makeTempDir("export");
+
+            return makeArchive(consumer, tmpDir, new ArchiveContentWriter() {
+                @Override
+                public void write(ZipOutputStream out) throws IOException, ExportCreationException {
+                    exportMeta(out, cdnLabel);
+                    exportConsumer(out, consumer, webUrl, apiUrl);
+                    exportIdentityCertificate(out, consumer);
+                    Collection<Product> products = exportEntitlements(out, consumer);
+                    exportEntitlementsCerts(out, consumer, null, true);
+                    exportProducts(out, consumer, products);
+                    exportConsumerTypes(out);
+                    exportRules(out);
+                    exportDistributorVersions(out);
+                    exportContentDeliveryNetworks(out);
+                    exportExtensionData(out, tmpDir, consumer, extensionData);
+                }
+            });
         }
         catch (IOException e) {
             log.error("Error generating entitlement export", e);
@@ -183,17 +192,20 @@ public class Exporter {
         }
     }
 
-    public File getEntitlementExport(Consumer consumer, Set<Long> serials) throws ExportCreationException {
+    public File getEntitlementExport(final Consumer consumer, final Set<Long> serials)
+        throws ExportCreationException {
         // TODO: need to delete tmpDir (which contains the archive,
         // which we need to return...)
         try {
             File tmpDir = syncUtils.makeTempDir("export");
-            File baseDir = new File(tmpDir.getAbsolutePath(), "export");
-            baseDir.mkdir();
 
-            exportMeta(baseDir, null);
-            exportEntitlementsCerts(baseDir, consumer, serials, false);
-            return makeArchive(consumer, tmpDir, baseDir);
+            return makeArchive(consumer, tmpDir, new ArchiveContentWriter() {
+                @Override
+                public void write(ZipOutputStream out) throws IOException, ExportCreationException {
+                    exportMeta(out, null);
+                    exportEntitlementsCerts(out, consumer, serials, false);
+                }
+            });
         }
         catch (IOException e) {
             log.error("Error generating entitlement export", e);
@@ -202,127 +214,108 @@ public class Exporter {
     }
 
     /**
-     * Create a tar.gz archive of the exported directory.
+     * Writes the entries of the inner export archive.
+     */
+    private interface ArchiveContentWriter {
+        void write(ZipOutputStream out) throws IOException, ExportCreationException;
+    }
+
+    /**
+     * Creates the signed export archive in a single pass. The inner archive is streamed directly
+     * into its entry in the outer archive while the signature is computed over its bytes, so
+     * neither the exported data nor the inner archive need to be written to, or read back from,
+     * disk separately.
      *
-     * @param exportDir Directory where Candlepin data was exported.
+     * @param consumer the consumer being exported
+     * @param tempDir the directory in which to create the archive
+     * @param contentWriter the writer responsible for the entries of the inner archive
      * @return File reference to the new archive zip.
      */
-    private File makeArchive(Consumer consumer, File tempDir, File exportDir)
-        throws IOException {
-        String exportFileName = String.format("%s-%s.zip", consumer.getUuid(), exportDir.getName());
-        log.info("Creating archive of " + exportDir.getAbsolutePath() + " in: " +
-            exportFileName);
+    private File makeArchive(Consumer consumer, File tempDir, ArchiveContentWriter contentWriter)
+        throws IOException, ExportCreationException {
+        String exportFileName = String.format("%s-%s.zip", consumer.getUuid(), EXPORT_BASE_DIR);
+        File archive = new File(tempDir, exportFileName);
+        log.info("Creating archive of export in: " + archive.getAbsolutePath());
 
-        File archive = createZipArchiveWithDir(tempDir, exportDir, "consumer_export.zip",
-            "Candlepin export for " + consumer.getUuid());
+        ZipOutputStream out = new ZipOutputStream(
+            new BufferedOutputStream(new FileOutputStream(archive)));
 
-        InputStream archiveInputStream = null;
         try {
-            archiveInputStream = new FileInputStream(archive);
-            File signedArchive = createSignedZipArchive(
-                tempDir, archive, exportFileName,
-                pki.getSHA256WithRSAHash(archiveInputStream),
-                "signed Candlepin export for " + consumer.getUuid());
+            out.setComment("signed Candlepin export for " + consumer.getUuid());
+            out.putNextEntry(new ZipEntry(INNER_ARCHIVE_NAME));
 
-            log.debug("Returning file: " + archive.getAbsolutePath());
-            return signedArchive;
-        }
-        finally {
-            if (archiveInputStream != null) {
-                try {
-                    archiveInputStream.close();
-                }
-                catch (Exception e) {
-                    // nothing to do
-                }
-            }
-        }
-    }
+            SignatureOutputStream signer = new SignatureOutputStream(
+                new CloseShieldOutputStream(out), pki.getSHA256WithRSASignature());
 
-    private File createZipArchiveWithDir(File tempDir, File exportDir,
-        String exportFileName, String comment)
-        throws FileNotFoundException, IOException {
+            ZipOutputStream inner = new ZipOutputStream(signer);
+            inner.setComment("Candlepin export for " + consumer.getUuid());
+            contentWriter.write(inner);
+            inner.finish();
+            inner.flush();
 
-        File archive = new File(tempDir, exportFileName);
-        ZipOutputStream out = null;
-        try {
-            out = new ZipOutputStream(new FileOutputStream(archive));
-            out.setComment(comment);
-            addFilesToArchive(out, exportDir.getParent().length() + 1, exportDir);
+            out.closeEntry();
+            addSignatureToArchive(out, signer.sign());
         }
         finally {
-            if (out != null) {
-                out.close();
-            }
+            out.close();
         }
+
+        log.debug("Returning file: " + archive.getAbsolutePath());
         return archive;
     }
 
-    private File createSignedZipArchive(File tempDir, File toAdd,
-        String exportFileName, byte[] signature, String comment)
-        throws FileNotFoundException, IOException {
+    /**
+     * Starts a new entry in the given archive, returning a writer for its content. Closing the
+     * writer flushes the entry, but leaves the archive open.
+     */
+    private Writer openEntry(ZipOutputStream out, String name) throws IOException {
+        log.debug("Adding file to archive: " + name);
+        out.putNextEntry(new ZipEntry(name));
+
+        return new OutputStreamWriter(new CloseShieldOutputStream(out), "UTF-8");
+    }
+
+    private void closeEntry(ZipOutputStream out, Writer writer) throws IOException {
+        writer.close();
+        out.closeEntry();
+    }
+
+    private void addStreamToArchive(ZipOutputStream out, String name, InputStream in)
+        throws IOException {
+        log.debug("Adding file to archive: " + name);
+        out.putNextEntry(new ZipEntry(name));
 
-        File archive = new File(tempDir, exportFileName);
-        ZipOutputStream out = null;
         try {
-            out = new ZipOutputStream(new FileOutputStream(archive));
-            out.setComment(comment);
-            addFileToArchive(out, toAdd.getParent().length() + 1, toAdd);
-            addSignatureToArchive(out, signature);
+            IOUtils.copy(in, out);
         }
         finally {
-            if (out != null) {
-                out.close();
-            }
+            in.close();
         }
-        return archive;
+
+        out.closeEntry();
     }
 
+    private void addFilesToArchive(ZipOutputStream out, String path, File directory)
+        throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
 
+        for (File file : files) {
+            String name = path + "/" + file.getName();
 
-    /**
-     * @param out
-     * @param exportDir
-     * @throws IOException
-     */
-    private void addFilesToArchive(ZipOutputStream out, int charsToDropFromName,
-        File directory) throws IOException {
-        for (File file : directory.listFiles()) {
             if (file.isDirectory()) {
-                addFilesToArchive(out, charsToDropFromName, file);
+                addFilesToArchive(out, name, file);
             }
             else {
-                addFileToArchive(out, charsToDropFromName, file);
-            }
-        }
-    }
-
-    private void addFileToArchive(ZipOutputStream out, int charsToDropFromName,
-        File file) throws IOException, FileNotFoundException {
-        log.debug("Adding file to archive: " +
-            file.getAbsolutePath().substring(charsToDropFromName));
-        out.putNextEntry(new ZipEntry(
-            file.getAbsolutePath().substring(charsToDropFromName)));
-        FileInputStream in = null;
-        try {
-            in = new FileInputStream(file);
-
-            byte [] buf = new byte[1024];
-            int len;
-            while ((len = in.read(buf)) > 0) {
-                out.write(buf, 0, len);
-            }
-            out.closeEntry();
-        }
-        finally {
-            if (in != null) {
-                in.close();
+                addStreamToArchive(out, name, new FileInputStream(file));
             }
         }
     }
 
     private void addSignatureToArchive(ZipOutputStream out, byte[] signature)
-        throws IOException, FileNotFoundException {
+        throws IOException {
 
         log.debug("Adding signature to archive.");
         out.putNextEntry(new ZipEntry("signature"));
@@ -330,21 +323,17 @@ public class Exporter {
         out.closeEntry();
     }
 
-    private void exportMeta(File baseDir, String cdnKey)
+    private void exportMeta(ZipOutputStream out, String cdnKey)
         throws IOException {
-        File file = new File(baseDir.getCanonicalPath(), "meta.json");
-        FileWriter writer = null;
+        Writer writer = openEntry(out, EXPORT_BASE_DIR + "/meta.json");
         try {
-            writer = new FileWriter(file);
             Meta m = new Meta(getVersion(), new Date(),
                 principalProvider.get().getName(),
                 null, cdnKey);
             meta.export(mapper, writer, m);
         }
         finally {
-            if (writer != null) {
-                writer.close();
-            }
+            closeEntry(out, writer);
         }
     }
 
@@ -375,29 +364,24 @@ public class Exporter {
         return map.get("version") + "-" + map.get("release");
     }
 
-    private void exportConsumer(File baseDir, Consumer consumer, String webAppPrefix,
+    private void exportConsumer(ZipOutputStream out, Consumer consumer, String webAppPrefix,
         String apiUrl)
         throws IOException {
-        File file = new File(baseDir.getCanonicalPath(), "consumer.json");
-        FileWriter writer = null;
+        Writer writer = openEntry(out, EXPORT_BASE_DIR + "/consumer.json");
         try {
-            writer = new FileWriter(file);
             this.consumerExporter.export(mapper, writer, consumer,
                 getPrefixWebUrl(webAppPrefix), getPrefixApiUrl(apiUrl));
         }
         finally {
-            if (writer != null) {
-                writer.close();
-            }
+            closeEntry(out, writer);
         }
     }
 
-    private void exportEntitlementsCerts(File baseDir, Consumer consumer,
+    private void exportEntitlementsCerts(ZipOutputStream out, Consumer consumer,
         Set<Long> serials, boolean manifest)
         throws IOException {
 
-        File entCertDir = new File(baseDir.getCanonicalPath(), "entitlement_certificates");
-        entCertDir.mkdir();
+        String entCertDir = EXPORT_BASE_DIR + "/entitlement_certificates/";
 
         for (EntitlementCertificate cert : entCertAdapter.listForConsumer(consumer)) {
             if (manifest && !this.exportRules.canExport(cert.getEntitlement())) {
@@ -410,128 +394,126 @@ public class Exporter {
 
             if ((serials == null) || (serials.contains(cert.getSerial().getId()))) {
                 log.debug("Exporting entitlement certificate: " + cert.getSerial());
-                File file = new File(entCertDir.getCanonicalPath(),
-                    cert.getSerial().getId() + ".pem");
-                FileWriter writer = null;
+                Writer writer = openEntry(out, entCertDir + cert.getSerial().getId() + ".pem");
                 try {
-                    writer = new FileWriter(file);
                     entCert.export(writer, cert);
                 }
                 finally {
-                    if (writer != null) {
-                        writer.close();
-                    }
+                    closeEntry(out, writer);
                 }
             }
         }
     }
 
-    private void exportIdentityCertificate(File baseDir, Consumer consumer)
+    private void exportIdentityCertificate(ZipOutputStream out, Consumer consumer)
         throws IOException {
 
-        File idcertdir = new File(baseDir.getCanonicalPath(), "upstream_consumer");
-        idcertdir.mkdir();
-
         IdentityCertificate cert = consumer.getIdCert();
-        File file = new File(idcertdir.getCanonicalPath(),
-            cert.getSerial().getId() + ".json");
 
         // paradigm dictates this should go in an exporter.export method
-        FileWriter writer = null;
+        Writer writer = openEntry(out,
+            EXPORT_BASE_DIR + "/upstream_consumer/" + cert.getSerial().getId() + ".json");
 
         try {
-            writer = new FileWriter(file);
             mapper.writeValue(writer, cert);
         }
         finally {
-            if (writer != null) {
-                writer.close();
-            }
+            closeEntry(out, writer);
         }
     }
 
-    private void exportEntitlements(File baseDir, Consumer consumer)
+    /**
+     * Exports the consumer's entitlements, stepping through them with a scrolling cursor. The
+     * products referenced by the entitlements' pools are collected along the way, so they can be
+     * exported without walking the entitlements a second time.
+     *
+     * @return the distinct products referenced by the consumer's entitlements
+     */
+    private Collection<Product> exportEntitlements(ZipOutputStream out, Consumer consumer)
         throws IOException, ExportCreationException {
-        File entCertDir = new File(baseDir.getCanonicalPath(), "entitlements");
-        entCertDir.mkdir();
+        String entDir = EXPORT_BASE_DIR + "/entitlements/";
+        Map<String, Product> products = new HashMap<String, Product>();
 
-        for (Entitlement ent : entitlementCurator.listByConsumer(consumer)) {
-            if (ent.isDirty()) {
-                log.error("Entitlement " + ent.getId() + " is marked as dirty.");
-                throw new ExportCreationException("Attempted to export dirty entitlements");
-            }
+        ResultIterator<Entitlement> iterator = entitlementCurator.findByConsumer(consumer)
+            .iterate(0, true);
 
-            if (!this.exportRules.canExport(ent)) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Skipping export of entitlement with product: {}",
-                        ent.getPool().getProductId());
+        try {
+            while (iterator.hasNext()) {
+                Entitlement ent = iterator.next();
+
+                if (ent.isDirty()) {
+                    log.error("Entitlement " + ent.getId() + " is marked as dirty.");
+                    throw new ExportCreationException("Attempted to export dirty entitlements");
                 }
 
-                continue;
-            }
+                collectProducts(products, ent.getPool());
 
-            if (log.isDebugEnabled()) {
-                log.debug("Exporting entitlement for product" + ent.getPool().getProductId());
-            }
-            FileWriter writer = null;
-            try {
-                File file = new File(entCertDir.getCanonicalPath(), ent.getId() + ".json");
-                writer = new FileWriter(file);
-                entExporter.export(mapper, writer, ent);
-            }
-            finally {
-                if (writer != null) {
-                    writer.close();
+                if (!this.exportRules.canExport(ent)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Skipping export of entitlement with product: {}",
+                            ent.getPool().getProductId());
+                    }
+
+                    continue;
+                }
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Exporting entitlement for product" + ent.getPool().getProductId());
+                }
+
+                Writer writer = openEntry(out, entDir + ent.getId() + ".json");
+                try {
+                    entExporter.export(mapper, writer, ent);
+                }
+                finally {
+                    closeEntry(out, writer);
                 }
             }
         }
-    }
-
-    private void exportProducts(File baseDir, Consumer consumer) throws IOException {
-        File productDir = new File(baseDir.getCanonicalPath(), "products");
-        productDir.mkdir();
+        finally {
+            iterator.close();
+        }
 
-        Map<String, Product> products = new HashMap<String, Product>();
-        for (Entitlement entitlement : consumer.getEntitlements()) {
-            Pool pool = entitlement.getPool();
+        return products.values();
+    }
 
-            for (Product providedProduct : productCurator.getPoolProvidedProductsCached(pool)) {
-                products.put(providedProduct.getId(), providedProduct);
-            }
+    private void collectProducts(Map<String, Product> products, Pool pool) {
+        for (Product providedProduct : productCurator.getPoolProvidedProductsCached(pool)) {
+            products.put(providedProduct.getId(), providedProduct);
+        }
 
-            // Don't forget the 'main' product!
-            Product product = pool.getProduct();
-            products.put(product.getId(), product);
+        // Don't forget the 'main' product!
+        Product product = pool.getProduct();
+        products.put(product.getId(), product);
 
-            // Also need to check for sub products
-            Product derivedProduct = pool.getDerivedProduct();
-            if (derivedProduct != null) {
-                products.put(derivedProduct.getId(), derivedProduct);
-            }
+        // Also need to check for sub products
+        Product derivedProduct = pool.getDerivedProduct();
+        if (derivedProduct != null) {
+            products.put(derivedProduct.getId(), derivedProduct);
+        }
 
-            for (Product derivedProvidedProduct : productCurator
-                .getPoolDerivedProvidedProductsCached(pool)) {
-                products.put(derivedProvidedProduct.getId(), derivedProvidedProduct);
-            }
+        for (Product derivedProvidedProduct : productCurator
+            .getPoolDerivedProvidedProductsCached(pool)) {
+            products.put(derivedProvidedProduct.getId(), derivedProvidedProduct);
         }
+    }
+
+    private void exportProducts(ZipOutputStream out, Consumer consumer, Collection<Product> products)
+        throws IOException {
+        String productDir = EXPORT_BASE_DIR + "/products/";
 
-        for (Product product : products.values()) {
+        for (Product product : products) {
             // Clear the owner and UUID so they can be re-generated/assigned on import
             // product.setUuid(null);
             // product.setOwner(null);
 
-            String path = productDir.getCanonicalPath();
             String productId = product.getId();
-            File file = new File(path, productId + ".json");
-            FileWriter writer = null;
+            Writer writer = openEntry(out, productDir + productId + ".json");
             try {
-                writer = new FileWriter(file);
                 productExporter.export(mapper, writer, product);
             }
             finally {
-                if (writer != null) {
-                    writer.close();
-                }
+                closeEntry(out, writer);
             }
 
             // Real products have a numeric id.
@@ -544,117 +526,90 @@ public class Exporter {
                 // so just skip over this if we get null back
                 // XXX: need to decide if the cert should always be in the export, or never.
                 if (cert != null) {
-                    file = new File(productDir.getCanonicalPath(), product.getId() + ".pem");
-                    writer = new FileWriter(file);
-                    productCertExporter.export(writer, cert);
-                    writer.close();
+                    writer = openEntry(out, productDir + product.getId() + ".pem");
+                    try {
+                        productCertExporter.export(writer, cert);
+                    }
+                    finally {
+                        closeEntry(out, writer);
+                    }
                 }
             }
         }
     }
 
-    private void exportConsumerTypes(File baseDir) throws IOException {
-        File typeDir = new File(baseDir.getCanonicalPath(), "consumer_types");
-        typeDir.mkdir();
-
+    private void exportConsumerTypes(ZipOutputStream out) throws IOException {
         for (ConsumerType type : consumerTypeCurator.listAll()) {
-            File file = new File(typeDir.getCanonicalPath(), type.getLabel() + ".json");
-            FileWriter writer = null;
+            Writer writer = openEntry(out,
+                EXPORT_BASE_DIR + "/consumer_types/" + type.getLabel() + ".json");
             try {
-                writer = new FileWriter(file);
                 consumerType.export(mapper, writer, type);
             }
             finally {
-                if (writer != null) {
-                    writer.close();
-                }
+                closeEntry(out, writer);
             }
         }
     }
 
-    private void exportRules(File baseDir) throws IOException {
+    private void exportRules(ZipOutputStream out) throws IOException {
         // Because old candlepin servers assume to import a file in rules dir, we had to
         // move to a new directory for versioned rules file:
-        File newRulesDir = new File(baseDir.getCanonicalPath(), "rules2");
-        newRulesDir.mkdir();
-        File newRulesFile = new File(newRulesDir.getCanonicalPath(), "rules.js");
-        FileWriter writer = null;
+        Writer writer = openEntry(out, EXPORT_BASE_DIR + "/rules2/rules.js");
         try {
-            writer = new FileWriter(newRulesFile);
             rules.export(writer);
         }
         finally {
-            if (writer != null) {
-                writer.close();
-            }
+            closeEntry(out, writer);
         }
 
-        exportLegacyRules(baseDir);
+        exportLegacyRules(out);
     }
 
     /*
      * We still need to export a copy of the deprecated default-rules.js so new manifests
      * can still be imported by old candlepin servers.
      */
-    private void exportLegacyRules(File baseDir) throws IOException {
-        File oldRulesDir = new File(baseDir.getCanonicalPath(), "rules");
-        oldRulesDir.mkdir();
-        File oldRulesFile = new File(oldRulesDir.getCanonicalPath(), "default-rules.js");
-
+    private void exportLegacyRules(ZipOutputStream out) throws IOException {
         // TODO: does this need a "exporter" object as well?
-        FileUtils.copyFile(new File(
-            this.getClass().getResource(LEGACY_RULES_FILE).getPath()),
-            oldRulesFile);
+        addStreamToArchive(out, EXPORT_BASE_DIR + "/rules/default-rules.js",
+            this.getClass().getResourceAsStream(LEGACY_RULES_FILE));
     }
 
-    private void exportDistributorVersions(File baseDir) throws IOException {
+    private void exportDistributorVersions(ZipOutputStream out) throws IOException {
         List<DistributorVersion> versions = distVerCurator.findAll();
         if (versions == null || versions.isEmpty()) { return; }
 
-        File distVerDir = new File(baseDir.getCanonicalPath(), "distributor_version");
-        distVerDir.mkdir();
-
-        FileWriter writer = null;
         for (DistributorVersion dv : versions) {
             if (log.isDebugEnabled()) {
                 log.debug("Exporting Distributor Version" + dv.getName());
             }
+
+            Writer writer = openEntry(out,
+                EXPORT_BASE_DIR + "/distributor_version/" + dv.getName() + ".json");
             try {
-                File file = new File(distVerDir.getCanonicalPath(), dv.getName() + ".json");
-                writer = new FileWriter(file);
                 distVerExporter.export(mapper, writer, dv);
             }
             finally {
-                if (writer != null) {
-                    writer.close();
-                }
+                closeEntry(out, writer);
             }
         }
     }
 
-    private void exportContentDeliveryNetworks(File baseDir) throws IOException {
+    private void exportContentDeliveryNetworks(ZipOutputStream out) throws IOException {
         ResultIterator<Cdn> iterator = this.cdnCurator.listAll().iterate();
 
         try {
-            if (iterator.hasNext()) {
-                File cdnDir = new File(baseDir.getCanonicalPath(), "content_delivery_network");
-                cdnDir.mkdir();
-
-                while (iterator.hasNext()) {
-                    Cdn cdn = iterator.next();
-                    log.debug("Exporting CDN: {}", cdn.getName());
+            while (iterator.hasNext()) {
+                Cdn cdn = iterator.next();
+                log.debug("Exporting CDN: {}", cdn.getName());
 
-                    FileWriter writer = null;
-                    try {
-                        File file = new File(cdnDir.getCanonicalPath(), cdn.getLabel() + ".json");
-                        writer = new FileWriter(file);
-                        cdnExporter.export(mapper, writer, cdn);
-                    }
-                    finally {
-                        if (writer != null) {
-                            writer.close();
-                        }
-                    }
+                Writer writer = openEntry(out,
+                    EXPORT_BASE_DIR + "/content_delivery_network/" + cdn.getLabel() + ".json");
+                try {
+                    cdnExporter.export(mapper, writer, cdn);
+                }
+                finally {
+                    closeEntry(out, writer);
                 }
             }
         }
@@ -663,11 +618,22 @@ public class Exporter {
         }
     }
 
-    private void exportExtensionData(File baseDir, Consumer targetConsumer, Map<String, String> extensionData)
-        throws IOException {
-        File extensionDir = new File(baseDir.getCanonicalPath(), EXTENSIONS_BASE_DIR);
+    /*
+     * Extension adapters write their files to a directory, so this is the only part of the
+     * export which is staged on disk before being added to the archive.
+     */
+    private void exportExtensionData(ZipOutputStream out, File tempDir, Consumer targetConsumer,
+        Map<String, String> extensionData) throws IOException {
+        File extensionDir = new File(tempDir.getCanonicalPath(), EXTENSIONS_BASE_DIR);
         extensionDir.mkdir();
-        exportExtensionAdapter.extendManifest(extensionDir, targetConsumer, extensionData);
+
+        try {
+            exportExtensionAdapter.extendManifest(extensionDir, targetConsumer, extensionData);
+            addFilesToArchive(out, EXPORT_BASE_DIR + "/" + EXTENSIONS_BASE_DIR, extensionDir);
+        }
+        finally {
+            FileUtils.deleteDirectory(extensionDir);
+        }
     }
 
 }
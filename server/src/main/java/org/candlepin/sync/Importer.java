@@ -26,6 +26,7 @@ import org.candlepin.model.ConsumerTypeCurator;
 import org.candlepin.model.ContentCurator;
 import org.candlepin.model.DistributorVersion;
 import org.candlepin.model.DistributorVersionCurator;
+import org.candlepin.model.Entitlement;
 import org.candlepin.model.ExporterMetadata;
 import org.candlepin.model.ExporterMetadataCurator;
 import org.candlepin.model.IdentityCertificate;
@@ -40,6 +41,7 @@ import org.candlepin.model.ProductCurator;
 import org.candlepin.model.UpstreamConsumer;
 import org.candlepin.model.dto.Subscription;
 import org.candlepin.pki.PKIUtility;
+import org.candlepin.pki.SignatureOutputStream;
 import org.candlepin.service.ContentAccessCertServiceAdapter;
 import org.candlepin.service.SubscriptionServiceAdapter;
 import org.candlepin.service.OwnerServiceAdapter;
@@ -52,20 +54,27 @@ import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xnap.commons.i18n.I18n;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.security.Signature;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -88,6 +97,10 @@ import javax.persistence.PersistenceException;
 public class Importer {
     private static Logger log = LoggerFactory.getLogger(Importer.class);
 
+    private static final String CONSUMER_EXPORT_ARCHIVE = "consumer_export.zip";
+    private static final String SIGNATURE_FILE = "signature";
+    private static final String EXPORT_DIR = "export/";
+
     /**
      * files we use to perform import
      */
@@ -96,7 +109,6 @@ public class Importer {
         CONSUMER_TYPE("consumer_types"),
         CONSUMER("consumer.json"),
         ENTITLEMENTS("entitlements"),
-        ENTITLEMENT_CERTIFICATES("entitlement_certificates"),
         PRODUCTS("products"),
         RULES_FILE("rules2/rules.js"),
         UPSTREAM_CONSUMER("upstream_consumer"),
@@ -173,7 +185,7 @@ public class Importer {
     public ImportRecord loadExport(Owner owner, File archive, ConflictOverrides overrides,
         String uploadedFileName) throws ImporterException {
         try {
-            return doExport(owner, unpackExportFile(archive.getName(), new FileInputStream(archive)),
+            return doExport(owner, readExportArchive(archive.getName(), new FileInputStream(archive)),
                 overrides, uploadedFileName);
         }
         catch (FileNotFoundException e) {
@@ -279,33 +291,30 @@ public class Importer {
     // NOTE: Some DBs, such as postgres, require large object streaming to be in a single transaction.
     //       Because of this, we make this method transactional.
     /**
-     * Pulls the manifest from the {@link ManifestFileService} and unpacks it. The manifest file
-     * is deleted as soon as it is extracted.
+     * Pulls the manifest from the {@link ManifestFileService} and reads its signed archive.
      *
-     * @param storedFileId the manifest's file ID.
-     * @return a {@link File} pointing to the unpacked manifest directory.
+     * @param export the stored manifest file.
+     * @return the {@link ExportArchive} read from the stored manifest.
      * @throws ManifestFileServiceException
      * @throws ImporterException
      */
     @Transactional
-    protected File extractFromService(ManifestFile export)
+    protected ExportArchive extractFromService(ManifestFile export)
         throws ManifestFileServiceException, ImporterException {
-        return unpackExportFile(export.getId(), export.getInputStream());
+        return readExportArchive(export.getId(), export.getInputStream());
     }
 
     /**
      * Check to make sure the meta data is newer than the imported data.
      * @param type ExporterMetadata.TYPE_PER_USER or TYPE_SYSTEM
      * @param owner Owner in the case of PER_USER
-     * @param meta meta.json file
+     * @param m the metadata read from the meta.json file
      * @param forcedConflicts Conflicts we will override if encountered
-     * @throws IOException thrown if there's a problem reading the file
      * @throws ImporterException thrown if the metadata is invalid.
      */
-    protected void validateMetadata(String type, Owner owner, File meta, ConflictOverrides forcedConflicts)
-        throws IOException, ImporterException {
+    protected void validateMetadata(String type, Owner owner, Meta m, ConflictOverrides forcedConflicts)
+        throws ImporterException {
 
-        Meta m = mapper.readValue(meta, Meta.class);
         if (type == null) {
             throw new ImporterException(i18n.tr("Wrong metadata type"));
         }
@@ -362,21 +371,24 @@ public class Importer {
         }
     }
 
-    private ImportRecord doExport(Owner owner, File exportDir, ConflictOverrides overrides,
+    private ImportRecord doExport(Owner owner, ExportArchive archive, ConflictOverrides overrides,
         String uploadedFileName) throws ImporterException {
 
         Map<String, Object> result = new HashMap<String, Object>();
         try {
-            File signature = new File(exportDir, "signature");
-            if (signature.length() == 0) {
+            byte[] signature = archive.getSignature();
+            if (signature == null || signature.length == 0) {
                 throw new ImportExtractionException(
                     i18n.tr("The archive does not contain the required signature file"));
             }
 
-            boolean verifiedSignature = pki.verifySHA256WithRSAHashAgainstCACerts(
-                new File(exportDir, "consumer_export.zip"), loadSignature(new File(exportDir, "signature")));
+            if (archive.getConsumerExport() == null) {
+                log.error("Archive file does not contain " + CONSUMER_EXPORT_ARCHIVE);
+                throw new ImportExtractionException(i18n.tr("The archive does not contain " +
+                    "the required consumer_export.zip file"));
+            }
 
-            if (!verifiedSignature) {
+            if (!archive.isVerified()) {
                 log.warn("Archive signature check failed.");
 
                 if (!overrides.isForced(Conflict.SIGNATURE_CONFLICT)) {
@@ -395,37 +407,15 @@ public class Importer {
                 }
             }
 
-            File consumerExport = new File(exportDir, "consumer_export.zip");
-            File consumerExportDir = extractArchive(exportDir, consumerExport.getName(),
-                new FileInputStream(consumerExport));
-
-            Map<String, File> importFiles = new HashMap<String, File>();
-            File[] listFiles = consumerExportDir.listFiles();
-            if (listFiles == null || listFiles.length == 0) {
-                throw new ImportExtractionException(i18n.tr("The consumer_export archive has no contents"));
-            }
-            for (File file : listFiles) {
-                importFiles.put(file.getName(), file);
-            }
-
-            // Need the rules file as well which is in a nested dir:
-            File rulesFile = new File(consumerExportDir, ImportFile.RULES_FILE.fileName());
-            importFiles.put(ImportFile.RULES_FILE.fileName(), rulesFile);
-
-            List<Subscription> importSubs = importObjects(owner, importFiles, overrides);
-            Meta m = mapper.readValue(importFiles.get(ImportFile.META.fileName()), Meta.class);
+            ManifestContents contents = readConsumerExport(owner, archive.getConsumerExport());
+            result.put("meta", contents.getMeta());
 
+            List<Subscription> importSubs = importObjects(owner, contents, overrides);
             result.put("subscriptions", importSubs);
-            result.put("meta", m);
 
             sink.emitImportCreated(owner);
             return recordImportSuccess(owner, result, overrides, uploadedFileName);
         }
-        catch (FileNotFoundException fnfe) {
-            log.error("Archive file does not contain consumer_export.zip", fnfe);
-            throw new ImportExtractionException(i18n.tr("The archive does not contain " +
-                                           "the required consumer_export.zip file"));
-        }
         catch (ConstraintViolationException cve) {
             log.error("Failed to import archive", cve);
             throw new ImporterException(i18n.tr("Failed to import archive"), cve, result);
@@ -438,20 +428,8 @@ public class Importer {
             log.error("Exception caught importing archive", e);
             throw new ImportExtractionException(i18n.tr("Unable to extract export archive"), e, result);
         }
-        catch (CertificateException e) {
-            log.error("Certificate exception checking archive signature", e);
-            throw new ImportExtractionException(
-                i18n.tr("Certificate exception checking archive signature"), e, result);
-        }
         finally {
-            if (exportDir != null) {
-                try {
-                    FileUtils.deleteDirectory(exportDir);
-                }
-                catch (IOException e) {
-                    log.error("Failed to delete extracted export", e);
-                }
-            }
+            archive.delete();
         }
     }
 
@@ -459,29 +437,25 @@ public class Importer {
     @Transactional(rollbackOn = {IOException.class, ImporterException.class,
         RuntimeException.class, ImportConflictException.class})
     // WARNING: Keep this method public, otherwise @Transactional is ignored:
-    public List<Subscription> importObjects(Owner owner, Map<String, File> importFiles,
+    public List<Subscription> importObjects(Owner owner, ManifestContents contents,
         ConflictOverrides overrides) throws IOException, ImporterException {
         ownerCurator.lock(owner);
 
         log.debug("Importing objects for owner: {}", owner);
 
-        File metadata = importFiles.get(ImportFile.META.fileName());
-        if (metadata == null) {
+        Meta meta = contents.getMeta();
+        if (meta == null) {
             throw new ImporterException(i18n.tr("The archive does not contain the required meta.json file"));
         }
-        File consumerTypes = importFiles.get(ImportFile.CONSUMER_TYPE.fileName());
-        if (consumerTypes == null) {
+        if (contents.getConsumerTypes() == null) {
             throw new ImporterException(
                 i18n.tr("The archive does not contain the required consumer_types directory"));
         }
-        File consumerFile = importFiles.get(ImportFile.CONSUMER.fileName());
-        if (consumerFile == null) {
+        if (contents.getConsumer() == null) {
             throw new ImporterException(
                 i18n.tr("The archive does not contain the required consumer.json file"));
         }
-        File products = importFiles.get(ImportFile.PRODUCTS.fileName());
-        File entitlements = importFiles.get(ImportFile.ENTITLEMENTS.fileName());
-        if (products != null && entitlements == null) {
+        if (contents.getProducts() != null && contents.getEntitlements() == null) {
             throw new ImporterException(
                 i18n.tr("The archive does not contain the required entitlements directory"));
         }
@@ -499,40 +473,29 @@ public class Importer {
         // if desired:
         List<ImportConflictException> conflictExceptions = new LinkedList<ImportConflictException>();
 
-        File rules = importFiles.get(ImportFile.RULES_FILE.fileName());
-        importRules(rules, metadata);
+        importRules(contents.getRules());
 
-        importConsumerTypes(consumerTypes.listFiles());
+        importConsumerTypes(contents.getConsumerTypes());
 
-        File distributorVersions = importFiles.get(ImportFile.DISTRIBUTOR_VERSIONS.fileName());
-        if (distributorVersions != null) {
-            importDistributorVersions(distributorVersions.listFiles());
+        if (contents.getDistributorVersions() != null) {
+            importDistributorVersions(contents.getDistributorVersions());
         }
 
-        File cdns = importFiles.get(ImportFile.CONTENT_DELIVERY_NETWORKS.fileName());
-        if (cdns != null) {
-            importContentDeliveryNetworks(cdns.listFiles());
+        if (contents.getCdns() != null) {
+            importContentDeliveryNetworks(contents.getCdns());
         }
 
         // per user elements
         try {
-            validateMetadata(ExporterMetadata.TYPE_PER_USER, owner, metadata, overrides);
+            validateMetadata(ExporterMetadata.TYPE_PER_USER, owner, meta, overrides);
         }
         catch (ImportConflictException e) {
             conflictExceptions.add(e);
         }
 
-        ConsumerDto consumer = null;
+        ConsumerDto consumer = contents.getConsumer();
         try {
-            Meta m = mapper.readValue(metadata, Meta.class);
-            File upstreamFile = importFiles.get(ImportFile.UPSTREAM_CONSUMER.fileName());
-            File[] dafiles = new File[0];
-
-            if (upstreamFile != null) {
-                dafiles = upstreamFile.listFiles();
-            }
-
-            consumer = importConsumer(owner, consumerFile, dafiles, overrides, m);
+            importConsumer(owner, consumer, contents.getUpstreamIdentityCert(), overrides, meta);
         }
         catch (ImportConflictException e) {
             conflictExceptions.add(e);
@@ -550,22 +513,16 @@ public class Importer {
 
         // If the consumer has no entitlements, this products directory will end up empty.
         // This also implies there will be no entitlements to import.
-        Meta meta = mapper.readValue(metadata, Meta.class);
         List<Subscription> importSubs;
-        if (importFiles.get(ImportFile.PRODUCTS.fileName()) != null) {
-            ProductImporter importer = new ProductImporter();
-
-            Set<Product> productsToImport = importProducts(
-                importFiles.get(ImportFile.PRODUCTS.fileName()).listFiles(), importer, owner
-            );
-
+        if (contents.getProducts() != null) {
             importSubs = importEntitlements(
-                owner, productsToImport, entitlements.listFiles(), consumer, meta);
+                owner, contents.getProducts(), contents.getEntitlements(), consumer, meta);
         }
         else {
             log.warn("No products found to import, skipping product import.");
             log.warn("No entitlements in manifest, removing all subscriptions for owner.");
-            importSubs = importEntitlements(owner, new HashSet<Product>(), new File[]{}, consumer, meta);
+            importSubs = importEntitlements(owner, new HashSet<Product>(), new ArrayList<Entitlement>(),
+                consumer, meta);
         }
 
         // Setup our import subscription adapter with the subscriptions imported:
@@ -597,134 +554,49 @@ public class Importer {
         return importSubs;
     }
 
-    protected void importRules(File rulesFile, File metadata) throws IOException {
-        Reader reader = null;
-
-        try {
-            reader = new FileReader(rulesFile);
-            rulesImporter.importObject(reader);
-        }
-        catch (FileNotFoundException fnfe) {
+    protected void importRules(String rules) throws IOException {
+        if (rules == null) {
             log.warn("Skipping rules import, manifest does not contain rules file: {}",
                 ImportFile.RULES_FILE.fileName());
 
             return;
         }
-        finally {
-            if (reader != null) {
-                reader.close();
-            }
-        }
+
+        rulesImporter.importObject(new StringReader(rules));
     }
 
-    protected void importConsumerTypes(File[] consumerTypes) throws IOException {
+    protected void importConsumerTypes(Set<ConsumerType> consumerTypes) {
         ConsumerTypeImporter importer = new ConsumerTypeImporter(consumerTypeCurator);
-        Set<ConsumerType> consumerTypeObjs = new HashSet<ConsumerType>();
-
-        for (File consumerType : consumerTypes) {
-            Reader reader = null;
-            try {
-                reader = new FileReader(consumerType);
-                consumerTypeObjs.add(importer.createObject(mapper, reader));
-            }
-            finally {
-                if (reader != null) {
-                    reader.close();
-                }
-            }
-        }
-
-        importer.store(consumerTypeObjs);
+        importer.store(consumerTypes);
     }
 
-    protected ConsumerDto importConsumer(Owner owner, File consumerFile, File[] upstreamConsumer,
-        ConflictOverrides forcedConflicts, Meta meta) throws IOException, SyncDataFormatException {
-
-        IdentityCertificate idcert = null;
-        for (File uc : upstreamConsumer) {
-            if (uc.getName().endsWith(".json")) {
-                log.debug("Import upstream consumeridentity certificate: {}", uc.getName());
-
-                Reader reader = null;
-                try {
-                    reader = new FileReader(uc);
-                    idcert = mapper.readValue(reader, IdentityCertificate.class);
-                }
-                finally {
-                    if (reader != null) {
-                        reader.close();
-                    }
-                }
-            }
-            else {
-                log.warn("Extra file found in upstream_consumer directory: {}", uc.getName());
-            }
-        }
+    protected ConsumerDto importConsumer(Owner owner, ConsumerDto consumer, IdentityCertificate idcert,
+        ConflictOverrides forcedConflicts, Meta meta) throws SyncDataFormatException {
 
         ConsumerImporter importer = new ConsumerImporter(ownerCurator, idCertCurator, i18n, csCurator);
-        Reader reader = null;
-        ConsumerDto consumer = null;
-
-        try {
-            reader = new FileReader(consumerFile);
-            consumer = importer.createObject(mapper, reader);
-            // we can not rely on the actual ConsumerType in the ConsumerDto
-            // because it could have an id not in our database. We need to
-            // stick with the label. Hence we need to lookup the ACTUAL type
-            // by label here before attempting to store the UpstreamConsumer
-            ConsumerType type = consumerTypeCurator.lookupByLabel(consumer.getType().getLabel());
-            consumer.setType(type);
-
-            // in older manifests the web app prefix will not
-            // be on the consumer, we can use the one stored in
-            // the metadata
-            if (StringUtils.isEmpty(consumer.getUrlWeb())) {
-                consumer.setUrlWeb(meta.getWebAppPrefix());
-            }
-
-            importer.store(owner, consumer, forcedConflicts, idcert);
-        }
-        finally {
-            if (reader != null) {
-                reader.close();
-            }
-        }
-
-        return consumer;
-    }
-
-    protected Set<Product> importProducts(File[] products, ProductImporter importer, Owner owner)
-        throws IOException {
 
-        Set<Product> productsToImport = new HashSet<Product>();
-        for (File product : products) {
-            // Skip product.pem's, we just need the json to import:
-            if (product.getName().endsWith(".json")) {
-                log.debug("Importing product {} for owner {}", product.getName(), owner.getKey());
+        // we can not rely on the actual ConsumerType in the ConsumerDto
+        // because it could have an id not in our database. We need to
+        // stick with the label. Hence we need to lookup the ACTUAL type
+        // by label here before attempting to store the UpstreamConsumer
+        ConsumerType type = consumerTypeCurator.lookupByLabel(consumer.getType().getLabel());
+        consumer.setType(type);
 
-                Reader reader = null;
-                try {
-                    reader = new FileReader(product);
-                    productsToImport.add(importer.createObject(mapper, reader, owner));
-                }
-                finally {
-                    if (reader != null) {
-                        reader.close();
-                    }
-                }
-            }
+        // in older manifests the web app prefix will not
+        // be on the consumer, we can use the one stored in
+        // the metadata
+        if (StringUtils.isEmpty(consumer.getUrlWeb())) {
+            consumer.setUrlWeb(meta.getWebAppPrefix());
         }
 
-        // TODO: Do we need to cleanup unused products? Looked at this earlier and it
-        // looks somewhat complex and a little bit dangerous, so we're leaving them
-        // around for now.
+        importer.store(owner, consumer, forcedConflicts, idcert);
 
-        return productsToImport;
+        return consumer;
     }
 
-    protected List<Subscription> importEntitlements(Owner owner, Set<Product> products, File[] entitlements,
-        ConsumerDto consumer, Meta meta)
-        throws IOException, SyncDataFormatException {
+    protected List<Subscription> importEntitlements(Owner owner, Set<Product> products,
+        List<Entitlement> entitlements, ConsumerDto consumer, Meta meta)
+        throws SyncDataFormatException {
 
         log.debug("Importing entitlements for owner: {}", owner);
 
@@ -740,19 +612,10 @@ public class Importer {
         }
 
         List<Subscription> subscriptionsToImport = new ArrayList<Subscription>();
-        for (File entitlement : entitlements) {
-            Reader reader = null;
-            try {
-                log.debug("Import entitlement: {}", entitlement.getName());
-                reader = new FileReader(entitlement);
-                subscriptionsToImport.add(
-                    importer.importObject(mapper, reader, owner, productsById, consumer, meta));
-            }
-            finally {
-                if (reader != null) {
-                    reader.close();
-                }
-            }
+        for (Entitlement entitlement : entitlements) {
+            log.debug("Import entitlement: {}", entitlement.getId());
+            subscriptionsToImport.add(
+                importer.importObject(entitlement, owner, productsById, consumer, meta));
         }
 
         // Reconcile the subscriptions so they line up with pools we're tracking
@@ -762,20 +625,25 @@ public class Importer {
     }
 
     /**
-     * Create a tar.gz archive of the exported directory.
+     * Reads the signed manifest archive from the given stream. The nested consumer_export archive
+     * is spooled to a single temporary file while its signature is verified against each of the
+     * trusted CA certificates, so it never needs to be read back for verification, and nothing
+     * else in the archive is written to disk.
      *
-     * @param exportDir Directory where Candlepin data was exported.
-     * @return File reference to the new archive tar.gz.
+     * @param exportFileName the name of the manifest archive, used for error reporting.
+     * @param exportFileStream the stream from which to read the manifest archive.
+     * @return the {@link ExportArchive} read from the stream.
      */
-    private File extractArchive(File tempDir, String exportFileName, InputStream exportFileStream)
-        throws IOException, ImportExtractionException {
-
-        log.debug("Extracting archive to: {}", tempDir.getAbsolutePath());
+    private ExportArchive readExportArchive(String exportFileName, InputStream exportFileStream)
+        throws ImportExtractionException {
 
-        byte[] buf = new byte[1024];
+        File tmpDir = null;
         ZipInputStream zipinputstream = null;
 
         try {
+            tmpDir = syncUtils.makeTempDir("import");
+            log.debug("Reading archive using temp dir: {}", tmpDir.getAbsolutePath());
+
             zipinputstream = new ZipInputStream(exportFileStream);
             ZipEntry zipentry = zipinputstream.getNextEntry();
 
@@ -784,65 +652,75 @@ public class Importer {
                     "The archive {0} is not a properly compressed file or is empty", exportFileName));
             }
 
+            File consumerExport = null;
+            byte[] signature = null;
+            List<SignatureOutputStream> verifiers = new ArrayList<SignatureOutputStream>();
+
             while (zipentry != null) {
-                //for each entry to be extracted
                 String entryName = zipentry.getName();
                 log.debug("entryname {}", entryName);
 
-                File newFile = new File(entryName);
-                String directory = newFile.getParent();
-                if (directory != null) {
-                    new File(tempDir, directory).mkdirs();
-                }
+                if (CONSUMER_EXPORT_ARCHIVE.equals(entryName)) {
+                    consumerExport = new File(tmpDir, CONSUMER_EXPORT_ARCHIVE);
+                    List<Signature> signatures = pki.getSHA256WithRSAVerifiers();
+                    OutputStream out = new BufferedOutputStream(new FileOutputStream(consumerExport));
 
-                FileOutputStream fileoutputstream = null;
-                try {
-                    fileoutputstream = new FileOutputStream(new File(tempDir, entryName));
-                    int n;
-                    while ((n = zipinputstream.read(buf, 0, 1024)) > -1) {
-                        fileoutputstream.write(buf, 0, n);
+                    try {
+                        for (Signature verifier : signatures) {
+                            SignatureOutputStream sigstream = new SignatureOutputStream(out, verifier);
+                            verifiers.add(sigstream);
+                            out = sigstream;
+                        }
+
+                        IOUtils.copy(zipinputstream, out);
                     }
-                }
-                finally {
-                    if (fileoutputstream != null) {
-                        fileoutputstream.close();
+                    finally {
+                        out.close();
                     }
                 }
+                else if (SIGNATURE_FILE.equals(entryName)) {
+                    // signature is never going to be a huge file
+                    signature = IOUtils.toByteArray(zipinputstream);
+                }
+                else {
+                    log.debug("Skipping unexpected archive entry: {}", entryName);
+                }
 
                 zipinputstream.closeEntry();
                 zipentry = zipinputstream.getNextEntry();
             }
-        }
-        finally {
-            if (zipinputstream != null) {
-                zipinputstream.close();
-            }
-        }
-
-        return new File(tempDir.getAbsolutePath(), "export");
-    }
-
-    private byte[] loadSignature(File signatureFile) throws IOException {
-        FileInputStream signature = null;
-        // signature is never going to be a huge file, therefore cast is a-okay
-        byte[] signatureBytes = new byte[(int) signatureFile.length()];
-
-        try {
-            signature = new FileInputStream(signatureFile);
 
-            int offset = 0;
-            int numRead = 0;
-            while (offset < signatureBytes.length && numRead >= 0) {
-                numRead = signature.read(signatureBytes, offset, signatureBytes.length - offset);
-                offset += numRead;
+            boolean verified = false;
+            if (consumerExport != null && signature != null) {
+                for (SignatureOutputStream verifier : verifiers) {
+                    if (verifier.verify(signature)) {
+                        verified = true;
+                        break;
+                    }
+                }
             }
 
-            return signatureBytes;
+            return new ExportArchive(tmpDir, consumerExport, signature, verified);
+        }
+        catch (IOException e) {
+            deleteTempDir(tmpDir);
+            log.error("Unable to extract export archive", e);
+            throw new ImportExtractionException(i18n.tr("Unable to extract export archive"), e);
+        }
+        catch (CertificateException e) {
+            deleteTempDir(tmpDir);
+            log.error("Certificate exception checking archive signature", e);
+            throw new ImportExtractionException(
+                i18n.tr("Certificate exception checking archive signature"), e);
+        }
+        catch (ImportExtractionException e) {
+            deleteTempDir(tmpDir);
+            throw e;
         }
         finally {
-            if (signature != null) {
+            if (zipinputstream != null) {
                 try {
-                    signature.close();
+                    zipinputstream.close();
                 }
                 catch (IOException e) {
                     // nothing we can do about this
@@ -851,42 +729,119 @@ public class Importer {
         }
     }
 
-    protected void importDistributorVersions(File[] versionFiles) throws IOException {
-        DistributorVersionImporter importer = new DistributorVersionImporter(distVerCurator);
-        Set<DistributorVersion> distVers = new HashSet<DistributorVersion>();
+    /**
+     * Parses the entries of the consumer_export archive directly from the zip stream, without
+     * extracting them to disk.
+     *
+     * @param owner the owner into which the manifest is being imported.
+     * @param consumerExport the consumer_export archive to read.
+     * @return the {@link ManifestContents} parsed from the archive.
+     */
+    private ManifestContents readConsumerExport(Owner owner, File consumerExport)
+        throws IOException, ImportExtractionException {
 
-        for (File verFile : versionFiles) {
-            Reader reader = null;
-            try {
-                reader = new FileReader(verFile);
-                distVers.add(importer.createObject(mapper, reader));
+        ManifestContents contents = new ManifestContents();
+        ZipInputStream zipinputstream = new ZipInputStream(
+            new BufferedInputStream(new FileInputStream(consumerExport)));
+
+        try {
+            ZipEntry zipentry = zipinputstream.getNextEntry();
+
+            if (zipentry == null) {
+                throw new ImportExtractionException(i18n.tr(
+                    "The archive {0} is not a properly compressed file or is empty",
+                    consumerExport.getName()));
             }
-            finally {
-                if (reader != null) {
-                    reader.close();
+
+            int count = 0;
+            while (zipentry != null) {
+                String entryName = zipentry.getName();
+
+                if (!zipentry.isDirectory() && entryName.startsWith(EXPORT_DIR)) {
+                    log.debug("Reading manifest entry: {}", entryName);
+
+                    Reader reader = new InputStreamReader(new CloseShieldInputStream(zipinputstream),
+                        "UTF-8");
+                    readManifestEntry(contents, owner, entryName.substring(EXPORT_DIR.length()), reader);
+                    ++count;
                 }
+
+                zipinputstream.closeEntry();
+                zipentry = zipinputstream.getNextEntry();
+            }
+
+            if (count == 0) {
+                throw new ImportExtractionException(
+                    i18n.tr("The consumer_export archive has no contents"));
             }
         }
-        importer.store(distVers);
+        finally {
+            zipinputstream.close();
+        }
+
+        return contents;
     }
 
-    protected void importContentDeliveryNetworks(File[] cdnFiles) throws IOException {
-        CdnImporter importer = new CdnImporter(cdnCurator);
-        Set<Cdn> cdns = new HashSet<Cdn>();
+    private void readManifestEntry(ManifestContents contents, Owner owner, String path, Reader reader)
+        throws IOException {
 
-        for (File cdnFile : cdnFiles) {
-            Reader reader = null;
-            try {
-                reader = new FileReader(cdnFile);
-                cdns.add(importer.createObject(mapper, reader));
+        int separator = path.indexOf('/');
+        String dir = separator != -1 ? path.substring(0, separator) : null;
+        String name = path.substring(separator + 1);
+
+        if (ImportFile.META.fileName().equals(path)) {
+            contents.setMeta(mapper.readValue(reader, Meta.class));
+        }
+        else if (ImportFile.CONSUMER.fileName().equals(path)) {
+            contents.setConsumer(new ConsumerImporter(ownerCurator, idCertCurator, i18n, csCurator)
+                .createObject(mapper, reader));
+        }
+        else if (ImportFile.RULES_FILE.fileName().equals(path)) {
+            contents.setRules(StringFromReader.asString(reader));
+        }
+        else if (ImportFile.CONSUMER_TYPE.fileName().equals(dir)) {
+            contents.addConsumerType(new ConsumerTypeImporter(consumerTypeCurator)
+                .createObject(mapper, reader));
+        }
+        else if (ImportFile.UPSTREAM_CONSUMER.fileName().equals(dir)) {
+            if (name.endsWith(".json")) {
+                log.debug("Import upstream consumeridentity certificate: {}", name);
+                contents.setUpstreamIdentityCert(mapper.readValue(reader, IdentityCertificate.class));
             }
-            finally {
-                if (reader != null) {
-                    reader.close();
-                }
+            else {
+                log.warn("Extra file found in upstream_consumer directory: {}", name);
+            }
+        }
+        else if (ImportFile.PRODUCTS.fileName().equals(dir)) {
+            // Skip product.pem's, we just need the json to import:
+            if (name.endsWith(".json")) {
+                log.debug("Importing product {} for owner {}", name, owner.getKey());
+                contents.addProduct(new ProductImporter().createObject(mapper, reader, owner));
             }
         }
+        else if (ImportFile.ENTITLEMENTS.fileName().equals(dir)) {
+            contents.addEntitlement(new EntitlementImporter(csCurator, cdnCurator, i18n, productCurator)
+                .createObject(mapper, reader));
+        }
+        else if (ImportFile.DISTRIBUTOR_VERSIONS.fileName().equals(dir)) {
+            contents.addDistributorVersion(new DistributorVersionImporter(distVerCurator)
+                .createObject(mapper, reader));
+        }
+        else if (ImportFile.CONTENT_DELIVERY_NETWORKS.fileName().equals(dir)) {
+            contents.addCdn(new CdnImporter(cdnCurator).createObject(mapper, reader));
+        }
+        else {
+            log.debug("Skipping manifest entry not used for import: {}", path);
+        }
+    }
+
+    protected void importDistributorVersions(Set<DistributorVersion> distVers) {
+        DistributorVersionImporter importer = new DistributorVersionImporter(distVerCurator);
+        importer.store(distVers);
+    }
 
+    protected void importContentDeliveryNetworks(Set<Cdn> cdns) {
+        CdnImporter importer = new CdnImporter(cdnCurator);
         importer.store(cdns);
     }
 
@@ -905,16 +860,48 @@ public class Importer {
         return iup;
     }
 
-    private File unpackExportFile(String fileName, InputStream exportInputStream)
-        throws ImportExtractionException {
-        try {
-            File tmpDir = syncUtils.makeTempDir("import");
-            extractArchive(tmpDir, fileName, exportInputStream);
-            return tmpDir;
+    private void deleteTempDir(File tmpDir) {
+        if (tmpDir != null) {
+            try {
+                FileUtils.deleteDirectory(tmpDir);
+            }
+            catch (IOException e) {
+                log.error("Failed to delete extracted export", e);
+            }
         }
-        catch (IOException e) {
-            log.error("Unable to extract export archive", e);
-            throw new ImportExtractionException(i18n.tr("Unable to extract export archive"), e);
+    }
+
+    /**
+     * The signed consumer_export archive read from a manifest, along with its signature and the
+     * result of verifying the signature while the archive was read.
+     */
+    class ExportArchive {
+        private final File tempDir;
+        private final File consumerExport;
+        private final byte[] signature;
+        private final boolean verified;
+
+        ExportArchive(File tempDir, File consumerExport, byte[] signature, boolean verified) {
+            this.tempDir = tempDir;
+            this.consumerExport = consumerExport;
+            this.signature = signature;
+            this.verified = verified;
+        }
+
+        File getConsumerExport() {
+            return this.consumerExport;
+        }
+
+        byte[] getSignature() {
+            return this.signature;
+        }
+
+        boolean isVerified() {
+            return this.verified;
+        }
+
+        void delete() {
+            deleteTempDir(this.tempDir);
         }
     }
 
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync;
+
+import org.candlepin.model.Cdn;
+import org.candlepin.model.ConsumerType;
+import org.candlepin.model.DistributorVersion;
+import org.candlepin.model.Entitlement;
+import org.candlepin.model.IdentityCertificate;
+import org.candlepin.model.Product;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+
+/**
+ * The ManifestContents class holds the objects parsed from the entries of a manifest's inner
+ * consumer_export archive. Collections for which the archive contained no entries are left null,
+ * allowing the importer to distinguish between missing and empty sections of the manifest.
+ */
+public class ManifestContents {
+
+    private Meta meta;
+    private String rules;
+    private ConsumerDto consumer;
+    private IdentityCertificate upstreamIdentityCert;
+    private Set<ConsumerType> consumerTypes;
+    private Set<Product> products;
+    private List<Entitlement> entitlements;
+    private Set<DistributorVersion> distributorVersions;
+    private Set<Cdn> cdns;
+
+    public Meta getMeta() {
+        return this.meta;
+    }
+
+    public void setMeta(Meta meta) {
+        this.meta = meta;
+    }
+
+    public String getRules() {
+        return this.rules;
+    }
+
+    public void setRules(String rules) {
+        this.rules = rules;
+    }
+
+    public ConsumerDto getConsumer() {
+        return this.consumer;
+    }
+
+    public void setConsumer(ConsumerDto consumer) {
+        this.consumer = consumer;
+    }
+
+    public IdentityCertificate getUpstreamIdentityCert() {
+        return this.upstreamIdentityCert;
+    }
+
+    public void setUpstreamIdentityCert(IdentityCertificate upstreamIdentityCert) {
+        this.upstreamIdentityCert = upstreamIdentityCert;
+    }
+
+    public Set<ConsumerType> getConsumerTypes() {
+        return this.consumerTypes;
+    }
+
+    public void setConsumerTypes(Set<ConsumerType> consumerTypes) {
+        this.consumerTypes = consumerTypes;
+    }
+
+    public void addConsumerType(ConsumerType consumerType) {
+        if (this.consumerTypes == null) {
+            this.consumerTypes = new HashSet<ConsumerType>();
+        }
+
+        this.consumerTypes.add(consumerType);
+    }
+
+    public Set<Product> getProducts() {
+        return this.products;
+    }
+
+    public void setProducts(Set<Product> products) {
+        this.products = products;
+    }
+
+    public void addProduct(Product product) {
+        if (this.products == null) {
+            this.products = new HashSet<Product>();
+        }
+
+        this.products.add(product);
+    }
+
+    public List<Entitlement> getEntitlements() {
+        return this.entitlements;
+    }
+
+    public void setEntitlements(List<Entitlement> entitlements) {
+        this.entitlements = entitlements;
+    }
+
+    public void addEntitlement(Entitlement entitlement) {
+        if (this.entitlements == null) {
+            this.entitlements = new ArrayList<Entitlement>();
+        }
+
+        this.entitlements.add(entitlement);
+    }
+
+    public Set<DistributorVersion> getDistributorVersions() {
+        return this.distributorVersions;
+    }
+
+    public void setDistributorVersions(Set<DistributorVersion> distributorVersions) {
+        this.distributorVersions = distributorVersions;
+    }
+
+    public void addDistributorVersion(DistributorVersion distributorVersion) {
+        if (this.distributorVersions == null) {
+            this.distributorVersions = new HashSet<DistributorVersion>();
+        }
+
+        this.distributorVersions.add(distributorVersion);
+    }
+
+    public Set<Cdn> getCdns() {
+        return this.cdns;
+    }
+
+    public void setCdns(Set<Cdn> cdns) {
+        this.cdns = cdns;
+    }
+
+    public void addCdn(Cdn cdn) {
+        if (this.cdns == null) {
+            this.cdns = new HashSet<Cdn>();
+        }
+
+        this.cdns.add(cdn);
+    }
+
+}
@@ -16,7 +16,9 @@ package org.candlepin.sync.file;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.candlepin.model.ManifestFileRecordCurator;
 
@@ -56,8 +58,13 @@ public class DBManifestService implements ManifestFileService {
     }
 
     @Override
-    public int deleteExpired(Date expiryDate) {
-        return curator.deleteExpired(expiryDate);
+    public int deleteExpired(Date expiryDate, int blockSize) {
+        List<String> ids = new ArrayList<String>();
+        for (Object[] row : curator.findExpiredBlock(expiryDate, blockSize)) {
+            ids.add((String) row[0]);
+        }
+
+        return curator.deleteByIds(ids);
     }
 
     @Override
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync.file;
+
+import org.candlepin.model.ManifestFileRecord;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link ManifestFile} whose meta-data is held by a {@link ManifestFileRecord} and whose
+ * contents live in a file on the local file system.
+ */
+class FileSystemManifestFile implements ManifestFile {
+
+    private ManifestFileRecord record;
+    private File contentFile;
+
+    FileSystemManifestFile(ManifestFileRecord record, File contentFile) {
+        this.record = record;
+        this.contentFile = contentFile;
+    }
+
+    @Override
+    public String getId() {
+        return record.getId();
+    }
+
+    @Override
+    public String getName() {
+        return record.getName();
+    }
+
+    @Override
+    public String getTargetId() {
+        return record.getTargetId();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        try {
+            return new FileInputStream(contentFile);
+        }
+        catch (FileNotFoundException e) {
+            throw new RuntimeException("InputStream not available for manifest file.", e);
+        }
+    }
+
+    /**
+     * Writes the file contents with {@link FileChannel#transferTo}. The servlet container only
+     * offers an output stream, so the data is still copied through buffers on its way to the
+     * client; this only avoids reading the whole file into memory.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        FileInputStream input = new FileInputStream(contentFile);
+        try {
+            FileChannel source = input.getChannel();
+            WritableByteChannel target = Channels.newChannel(out);
+
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+        }
+        finally {
+            input.close();
+        }
+    }
+
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync.file;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.ManifestFileRecord;
+import org.candlepin.model.ManifestFileRecordCurator;
+
+import com.google.common.util.concurrent.Striped;
+import com.google.inject.Inject;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A ManifestFileService implementation that stores manifest files on the local file system
+ * while keeping their meta-data in the DB.
+ *
+ * Files are addressed by the SHA-256 hash of their contents and stored under the configured
+ * directory as {@code <dir>/<first two hash characters>/<hash>}, so identical manifests share
+ * a single copy on disk. A content file is removed once no record references it any longer.
+ * Records created by the {@link DBManifestService} remain readable through this service.
+ * <p></p>
+ * A record may reference a content file before the transaction creating it commits, so cleanup
+ * cannot rely on the records alone. Storing and removing content is serialized per hash within
+ * this node, and storing content touches the file, so content written or reused within the
+ * configured grace period is never removed. Content skipped for that reason is swept once the
+ * expired records have been deleted.
+ */
+public class FileSystemManifestService implements ManifestFileService {
+
+    private static Logger log = LoggerFactory.getLogger(FileSystemManifestService.class);
+
+    private static final long DEFAULT_GRACE_PERIOD = 3600;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Shared by every instance, as the service is created per request
+    private static final Striped<Lock> CONTENT_LOCKS = Striped.lock(64);
+
+    private ManifestFileRecordCurator curator;
+    private File storeDir;
+    private long gracePeriod;
+
+    @Inject
+    public FileSystemManifestService(ManifestFileRecordCurator curator, Configuration config) {
+        this.curator = curator;
+        this.storeDir = new File(config.getString(ConfigProperties.MANIFEST_FILE_STORE_DIR));
+        this.gracePeriod = TimeUnit.SECONDS.toMillis(Math.max(0, config.getLong(
+            ConfigProperties.MANIFEST_FILE_STORE_GRACE_PERIOD, DEFAULT_GRACE_PERIOD)));
+    }
+
+    @Override
+    public ManifestFile get(String id) throws ManifestFileServiceException {
+        ManifestFileRecord record = curator.findFile(id);
+        if (record == null || record.getContentHash() == null) {
+            // Not found, or stored in the DB before this service was enabled.
+            return record;
+        }
+
+        File contentFile = this.getContentFile(record.getContentHash());
+        if (!contentFile.exists()) {
+            throw new ManifestFileServiceException(
+                String.format("Content of manifest file %s is missing from %s", id, contentFile));
+        }
+
+        return new FileSystemManifestFile(record, contentFile);
+    }
+
+    @Override
+    public ManifestFile store(ManifestFileType type, File fileToStore, String principalName,
+        String targetId) throws ManifestFileServiceException {
+        try {
+            String hash = this.hash(fileToStore);
+            File contentFile = this.getContentFile(hash);
+
+            Lock lock = CONTENT_LOCKS.get(hash);
+            lock.lock();
+            try {
+                this.writeContent(fileToStore, contentFile);
+
+                ManifestFileRecord record = curator.createRecord(type, fileToStore.getName(),
+                    principalName, targetId, hash);
+
+                // A cleanup on another node may have removed the content as unreferenced between
+                // it being written and the record referencing it being created.
+                if (!contentFile.exists()) {
+                    this.writeContent(fileToStore, contentFile);
+                }
+
+                return new FileSystemManifestFile(record, contentFile);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        catch (IOException e) {
+            throw new ManifestFileServiceException(e);
+        }
+    }
+
+    @Override
+    public boolean delete(String id) throws ManifestFileServiceException {
+        ManifestFileRecord record = curator.findFile(id);
+        if (record == null) {
+            return false;
+        }
+
+        boolean deleted = curator.deleteById(id);
+        if (deleted) {
+            this.deleteUnreferencedContent(Collections.singletonList(record.getContentHash()));
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public int deleteExpired(Date expiryDate, int blockSize) throws ManifestFileServiceException {
+        List<String> ids = new ArrayList<String>();
+        Set<String> hashes = new HashSet<String>();
+        for (Object[] row : curator.findExpiredBlock(expiryDate, blockSize)) {
+            ids.add((String) row[0]);
+            hashes.add((String) row[1]);
+        }
+
+        int deleted = curator.deleteByIds(ids);
+        this.deleteUnreferencedContent(hashes);
+
+        if (ids.size() < blockSize) {
+            this.sweepUnreferencedContent();
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public int delete(ManifestFileType type, String targetId) throws ManifestFileServiceException {
+        List<String> hashes = curator.findContentHashes(type, targetId);
+        int deleted = curator.deleteMatching(type, targetId);
+        this.deleteUnreferencedContent(hashes);
+        return deleted;
+    }
+
+    protected File getContentFile(String hash) {
+        return new File(new File(storeDir, hash.substring(0, 2)), hash);
+    }
+
+    private String hash(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            return DigestUtils.sha256Hex(input);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Copies the file into the store unless content with the same hash is already present, in
+     * which case the existing file is touched to restart its grace period. The copy is written to
+     * a temporary file next to its destination and moved into place, so a partially written file
+     * is never visible under its content hash.
+     */
+    private void writeContent(File source, File contentFile) throws IOException {
+        if (contentFile.exists()) {
+            if (!contentFile.setLastModified(System.currentTimeMillis())) {
+                log.warn("Unable to update modification time of manifest file: {}", contentFile);
+            }
+
+            return;
+        }
+
+        File parent = contentFile.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Unable to create manifest store directory: " + parent);
+        }
+
+        File temp = File.createTempFile(contentFile.getName(), TEMP_SUFFIX, parent);
+        try {
+            FileInputStream input = new FileInputStream(source);
+            FileOutputStream output = new FileOutputStream(temp);
+            try {
+                FileChannel in = input.getChannel();
+                FileChannel out = output.getChannel();
+
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+            finally {
+                output.close();
+                input.close();
+            }
+
+            Files.move(temp.toPath(), contentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            if (temp.exists() && !temp.delete()) {
+                log.warn("Unable to delete temporary manifest file: {}", temp);
+            }
+        }
+    }
+
+    private void deleteUnreferencedContent(Collection<String> hashes) {
+        for (String hash : hashes) {
+            if (hash != null) {
+                this.deleteUnreferencedContent(hash);
+            }
+        }
+    }
+
+    private void deleteUnreferencedContent(String hash) {
+        Lock lock = CONTENT_LOCKS.get(hash);
+        lock.lock();
+        try {
+            File contentFile = this.getContentFile(hash);
+            if (!contentFile.exists() || this.isWithinGracePeriod(contentFile) ||
+                curator.isContentHashReferenced(hash)) {
+                return;
+            }
+
+            if (!contentFile.delete()) {
+                log.warn("Unable to delete unreferenced manifest file: {}", contentFile);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes content files, and temporary files left by interrupted writes, which are past their
+     * grace period and no longer referenced by any record.
+     */
+    private void sweepUnreferencedContent() {
+        File[] dirs = storeDir.listFiles();
+        if (dirs == null) {
+            return;
+        }
+
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                continue;
+            }
+
+            for (File file : files) {
+                if (!file.getName().endsWith(TEMP_SUFFIX)) {
+                    this.deleteUnreferencedContent(file.getName());
+                }
+                else if (!this.isWithinGracePeriod(file) && !file.delete()) {
+                    log.warn("Unable to delete temporary manifest file: {}", file);
+                }
+            }
+        }
+    }
+
+    private boolean isWithinGracePeriod(File file) {
+        return System.currentTimeMillis() - file.lastModified() < this.gracePeriod;
+    }
+
+}
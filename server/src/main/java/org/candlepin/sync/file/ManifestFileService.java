@@ -58,13 +58,16 @@ public interface ManifestFileService {
     boolean delete(String id) throws ManifestFileServiceException;
 
     /**
-     * Deletes any manifests files that are older than the specified expiry date.
+     * Deletes at most blockSize manifest files that are older than the specified expiry date,
+     * oldest IDs first. Callers repeat the call until fewer than blockSize files are deleted to
+     * remove all expired files in a series of short transactions.
      *
      * @param expiryDate the target expiry date.
+     * @param blockSize the maximum number of files to delete.
      * @return the number of files deleted.
      * @throws ManifestFileServiceException if there is a service issue while deleting the files.
      */
-    int deleteExpired(Date expiryDate) throws ManifestFileServiceException;
+    int deleteExpired(Date expiryDate, int blockSize) throws ManifestFileServiceException;
 
     /**
      * Delete all files matching the type and targetId.
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync.file;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * Provides the {@link ManifestFileService} implementation selected by the
+ * candlepin.sync.manifest_store configuration property.
+ */
+public class ManifestFileServiceProvider implements Provider<ManifestFileService> {
+
+    public static final String DB_STORE = "db";
+    public static final String FILESYSTEM_STORE = "filesystem";
+
+    private Configuration config;
+    private Provider<DBManifestService> dbServiceProvider;
+    private Provider<FileSystemManifestService> fileSystemServiceProvider;
+
+    @Inject
+    public ManifestFileServiceProvider(Configuration config, Provider<DBManifestService> dbServiceProvider,
+        Provider<FileSystemManifestService> fileSystemServiceProvider) {
+        this.config = config;
+        this.dbServiceProvider = dbServiceProvider;
+        this.fileSystemServiceProvider = fileSystemServiceProvider;
+    }
+
+    @Override
+    public ManifestFileService get() {
+        String store = config.getString(ConfigProperties.MANIFEST_FILE_STORE, DB_STORE);
+
+        if (FILESYSTEM_STORE.equalsIgnoreCase(store)) {
+            return fileSystemServiceProvider.get();
+        }
+        else if (DB_STORE.equalsIgnoreCase(store)) {
+            return dbServiceProvider.get();
+        }
+
+        throw new IllegalStateException(String.format("Unknown value for %s: %s",
+            ConfigProperties.MANIFEST_FILE_STORE, store));
+    }
+
+}
@@ -17,20 +17,27 @@ package org.candlepin.util;
 import org.candlepin.common.config.Configuration;
 import org.candlepin.config.ConfigProperties;
 import org.candlepin.model.Consumer;
+import org.candlepin.model.Content;
 import org.candlepin.model.EnvironmentContent;
 import org.candlepin.model.Pool;
 import org.candlepin.model.Product;
 import org.candlepin.model.ProductContent;
+import org.candlepin.pki.X509ExtensionEncoder;
 import org.candlepin.pki.X509ExtensionWrapper;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -39,7 +46,14 @@ import java.util.Set;
 
 /**
  * X509ExtensionUtil for V1 Certificates
+ * <p></p>
+ * The extensions describing a product and the fixed attributes of its content are the same in
+ * every certificate for that product, so they are built and DER encoded once per product, and
+ * cached. Persisted products and content are never updated in place; changes are applied to a new
+ * copy with its own UUID, so the cache is keyed by product UUID. Only the extensions which vary
+ * between certificates, such as content paths, are built for each certificate.
  */
+@Singleton
 public class X509ExtensionUtil  extends X509Util{
 
     private static Logger log = LoggerFactory.getLogger(X509ExtensionUtil.class);
@@ -49,10 +63,18 @@ public class X509ExtensionUtil  extends X509Util{
     // out, as the certificate is likely too large for the CDN:
     public static final int V1_CONTENT_LIMIT = 185;
 
+    // The maximum number of products for which extension blocks are cached
+    private static final int PRODUCT_BLOCK_CACHE_SIZE = 1000;
+
+    private final Cache<String, ProductBlock> productBlocks;
+
     @Inject
     public X509ExtensionUtil(Configuration config) {
         // Output everything in UTC
         this.config = config;
+        this.productBlocks = CacheBuilder.newBuilder()
+            .maximumSize(PRODUCT_BLOCK_CACHE_SIZE)
+            .build();
     }
 
     public Set<X509ExtensionWrapper> consumerExtensions(Consumer consumer) {
@@ -170,35 +192,29 @@ public class X509ExtensionUtil  extends X509Util{
     }
 
     public Set<X509ExtensionWrapper> productExtensions(Product product) {
-        Set<X509ExtensionWrapper> toReturn = new LinkedHashSet<X509ExtensionWrapper>();
-
-        String productCertOid = OIDUtil.REDHAT_OID + "." +
-            OIDUtil.TOPLEVEL_NAMESPACES.get(OIDUtil.PRODUCT_CERT_NAMESPACE_KEY);
-
-        // XXX need to deal with non hash style IDs
-        String productOid = productCertOid + "." + product.getId();
-
-        toReturn.add(new X509ExtensionWrapper(productOid + "." +
-            OIDUtil.ORDER_PRODUCT_OIDS.get(OIDUtil.OP_NAME_KEY), false, product
-            .getName()));
-
-        String arch = product.getAttributeValue(Product.Attributes.ARCHITECTURE);
-        toReturn.add(new X509ExtensionWrapper(productOid + "." +
-            OIDUtil.ORDER_PRODUCT_OIDS.get(OIDUtil.OP_ARCH_KEY), false, arch != null ? arch : ""));
-
-        String version = product.getAttributeValue(Product.Attributes.VERSION);
-        toReturn.add(new X509ExtensionWrapper(productOid + "." +
-            OIDUtil.ORDER_PRODUCT_OIDS.get(OIDUtil.OP_VERSION_KEY), false, version != null ? version : ""));
+        return new LinkedHashSet<X509ExtensionWrapper>(this.getProductBlock(product).productExtensions);
+    }
 
-        String brandType = product.getAttributeValue(Product.Attributes.BRANDING_TYPE);
-        toReturn.add(new X509ExtensionWrapper(productOid + "." +
-            OIDUtil.ORDER_PRODUCT_OIDS.get(OIDUtil.OP_BRAND_TYPE_KEY), false,
-            brandType != null ? brandType : ""));
+    public Set<X509ExtensionWrapper> contentExtensions(
+        Collection<ProductContent> productContentList, String contentPrefix,
+        Map<String, EnvironmentContent> promotedContent, Consumer consumer, Product skuProduct) {
 
-        return toReturn;
+        return this.contentExtensions(null, productContentList, contentPrefix, promotedContent, consumer,
+            skuProduct);
     }
 
-    public Set<X509ExtensionWrapper> contentExtensions(
+    /**
+     * Builds the extensions for the given content of a product. The fixed extensions of each
+     * content are taken from the product's cached extension block where possible.
+     *
+     * @param product
+     *  the product providing the content, or null if the content should not be looked up in the
+     *  product's cached extension block
+     *
+     * @return
+     *  the content extensions
+     */
+    public Set<X509ExtensionWrapper> contentExtensions(Product product,
         Collection<ProductContent> productContentList, String contentPrefix,
         Map<String, EnvironmentContent> promotedContent, Consumer consumer, Product skuProduct) {
 
@@ -210,6 +226,10 @@ public class X509ExtensionUtil  extends X509Util{
         List<String> skuDisabled = skuProduct.getSkuDisabledContentIds();
         List<String> skuEnabled = skuProduct.getSkuEnabledContentIds();
 
+        Map<String, ContentBlock> contentBlocks = product != null ?
+            this.getProductBlock(product).contentBlocks : null;
+        X509ExtensionEncoder encoder = null;
+
         // For V1 certificates we're going to error out if we exceed a limit which is
         // likely going to generate a certificate too large for the CDN, and return an
         // informative error message to the user.
@@ -225,28 +245,24 @@ public class X509ExtensionUtil  extends X509Util{
 
                 continue;
             }
-            String contentOid = OIDUtil.REDHAT_OID +
-                "." +
-                OIDUtil.TOPLEVEL_NAMESPACES.get(OIDUtil.CHANNEL_FAMILY_NAMESPACE_KEY) + "." +
-                pc.getContent().getId().toString() + "." +
-                OIDUtil.CF_REPO_TYPE.get(pc.getContent().getType());
-            toReturn.add(new X509ExtensionWrapper(contentOid, false, pc
-                .getContent().getType()));
-            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
-                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_NAME_KEY), false, pc
-                .getContent().getName()));
-            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
-                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_LABEL_KEY), false,
-                pc.getContent().getLabel()));
-            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
-                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_VENDOR_ID_KEY),
-                false, pc.getContent().getVendor()));
-            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
+
+            ContentBlock block = contentBlocks != null ? contentBlocks.get(pc.getContent().getId()) : null;
+            if (block == null || !block.isBlockOf(pc.getContent())) {
+                if (encoder == null) {
+                    encoder = new X509ExtensionEncoder();
+                }
+
+                block = new ContentBlock(pc, encoder);
+            }
+
+            toReturn.add(block.type);
+            toReturn.add(block.name);
+            toReturn.add(block.label);
+            toReturn.add(block.vendor);
+            toReturn.add(new X509ExtensionWrapper(block.contentOid + "." +
                 OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_DOWNLOAD_URL_KEY),
                 false, contentPath));
-            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
-                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_GPG_URL_KEY), false,
-                pc.getContent().getGpgUrl()));
+            toReturn.add(block.gpgUrl);
 
             Boolean enabled = pc.isEnabled();
             log.debug("default enabled flag = " + enabled);
@@ -271,27 +287,133 @@ public class X509ExtensionUtil  extends X509Util{
                 }
             }
 
-            toReturn.add(new X509ExtensionWrapper(contentOid + "." +
-                OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_ENABLED), false,
-                (enabled) ? "1" : "0"));
+            toReturn.add(enabled ? block.enabled : block.disabled);
 
-            // Include metadata expiry if specified on the content:
-            if (pc.getContent().getMetadataExpire() != null) {
-                toReturn.add(new X509ExtensionWrapper(contentOid + "." +
-                    OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_METADATA_EXPIRE),
-                    false, pc.getContent().getMetadataExpire().toString()));
+            // Include metadata expiry and required tags if specified on the content:
+            if (block.metadataExpire != null) {
+                toReturn.add(block.metadataExpire);
             }
 
-            // Include required tags if specified on the content set:
-            String requiredTags = pc.getContent().getRequiredTags();
-            if ((requiredTags != null) && !requiredTags.equals("")) {
-                toReturn.add(new X509ExtensionWrapper(contentOid + "." +
-                    OIDUtil.CHANNEL_FAMILY_OIDS.get(OIDUtil.CF_REQUIRED_TAGS),
-                    false, requiredTags));
+            if (block.requiredTags != null) {
+                toReturn.add(block.requiredTags);
             }
-
         }
 
         return toReturn;
     }
+
+    /**
+     * Fetches the cached extension block for the given product, building it if necessary. Blocks
+     * for products which have not been persisted are built but not cached.
+     */
+    private ProductBlock getProductBlock(Product product) {
+        if (product.getUuid() == null) {
+            return new ProductBlock(product, new X509ExtensionEncoder());
+        }
+
+        ProductBlock block = this.productBlocks.getIfPresent(product.getUuid());
+        if (block == null) {
+            block = new ProductBlock(product, new X509ExtensionEncoder());
+            this.productBlocks.put(product.getUuid(), block);
+        }
+
+        return block;
+    }
+
+    /**
+     * The pre-encoded extensions describing a single version of a product and its content.
+     */
+    private static class ProductBlock {
+        private final List<X509ExtensionWrapper> productExtensions;
+        private final Map<String, ContentBlock> contentBlocks;
+
+        public ProductBlock(Product product, X509ExtensionEncoder encoder) {
+            String productCertOid = OIDUtil.REDHAT_OID + "." +
+                OIDUtil.TOPLEVEL_NAMESPACES.get(OIDUtil.PRODUCT_CERT_NAMESPACE_KEY);
+
+            // XXX need to deal with non hash style IDs
+            String productOid = productCertOid + "." + product.getId();
+
+            String arch = product.getAttributeValue(Product.Attributes.ARCHITECTURE);
+            String version = product.getAttributeValue(Product.Attributes.VERSION);
+            String brandType = product.getAttributeValue(Product.Attributes.BRANDING_TYPE);
+
+            this.productExtensions = Arrays.asList(
+                encode(encoder, productOid + "." + OIDUtil.ORDER_PRODUCT_OIDS.get(OIDUtil.OP_NAME_KEY),
+                    product.getName()),
+                encode(encoder, productOid + "." + OIDUtil.ORDER_PRODUCT_OIDS.get(OIDUtil.OP_ARCH_KEY),
+                    arch != null ? arch : ""),
+                encode(encoder, productOid + "." + OIDUtil.ORDER_PRODUCT_OIDS.get(OIDUtil.OP_VERSION_KEY),
+                    version != null ? version : ""),
+                encode(encoder, productOid + "." + OIDUtil.ORDER_PRODUCT_OIDS.get(OIDUtil.OP_BRAND_TYPE_KEY),
+                    brandType != null ? brandType : ""));
+
+            this.contentBlocks = new HashMap<String, ContentBlock>();
+            for (ProductContent pc : product.getProductContent()) {
+                if (pc.getContent() != null && OIDUtil.CF_REPO_TYPE.containsKey(pc.getContent().getType())) {
+                    this.contentBlocks.put(pc.getContent().getId(), new ContentBlock(pc, encoder));
+                }
+            }
+        }
+    }
+
+    /**
+     * The pre-encoded extensions describing the fixed attributes of a single content.
+     */
+    private static class ContentBlock {
+        private final String contentUuid;
+        private final String contentOid;
+        private final X509ExtensionWrapper type;
+        private final X509ExtensionWrapper name;
+        private final X509ExtensionWrapper label;
+        private final X509ExtensionWrapper vendor;
+        private final X509ExtensionWrapper gpgUrl;
+        private final X509ExtensionWrapper enabled;
+        private final X509ExtensionWrapper disabled;
+        private final X509ExtensionWrapper metadataExpire;
+        private final X509ExtensionWrapper requiredTags;
+
+        public ContentBlock(ProductContent pc, X509ExtensionEncoder encoder) {
+            Content content = pc.getContent();
+
+            this.contentUuid = content.getUuid();
+            this.contentOid = OIDUtil.REDHAT_OID + "." +
+                OIDUtil.TOPLEVEL_NAMESPACES.get(OIDUtil.CHANNEL_FAMILY_NAMESPACE_KEY) + "." +
+                content.getId() + "." + OIDUtil.CF_REPO_TYPE.get(content.getType());
+
+            this.type = encode(encoder, this.contentOid, content.getType());
+            this.name = encode(encoder, this.oid(OIDUtil.CF_NAME_KEY), content.getName());
+            this.label = encode(encoder, this.oid(OIDUtil.CF_LABEL_KEY), content.getLabel());
+            this.vendor = encode(encoder, this.oid(OIDUtil.CF_VENDOR_ID_KEY), content.getVendor());
+            this.gpgUrl = encode(encoder, this.oid(OIDUtil.CF_GPG_URL_KEY), content.getGpgUrl());
+            this.enabled = encode(encoder, this.oid(OIDUtil.CF_ENABLED), "1");
+            this.disabled = encode(encoder, this.oid(OIDUtil.CF_ENABLED), "0");
+
+            Long expire = content.getMetadataExpire();
+            this.metadataExpire = expire != null ?
+                encode(encoder, this.oid(OIDUtil.CF_METADATA_EXPIRE), expire.toString()) :
+                null;
+
+            String tags = content.getRequiredTags();
+            this.requiredTags = tags != null && !tags.equals("") ?
+                encode(encoder, this.oid(OIDUtil.CF_REQUIRED_TAGS), tags) :
+                null;
+        }
+
+        /**
+         * Checks whether this block was built from the given content. Blocks for content which
+         * had not been persisted are never reused.
+         */
+        public boolean isBlockOf(Content content) {
+            return this.contentUuid != null && this.contentUuid.equals(content.getUuid());
+        }
+
+        private String oid(String key) {
+            return this.contentOid + "." + OIDUtil.CHANNEL_FAMILY_OIDS.get(key);
+        }
+    }
+
+    private static X509ExtensionWrapper encode(X509ExtensionEncoder encoder, String oid, String value) {
+        return new X509ExtensionWrapper(oid, false, value, encoder.encodeExtension(oid, false, value));
+    }
 }
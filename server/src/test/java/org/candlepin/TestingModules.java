@@ -50,6 +50,7 @@ import org.candlepin.pinsetter.core.GuiceJobFactory;
 import org.candlepin.pinsetter.core.PinsetterJobListener;
 import org.candlepin.pinsetter.core.PinsetterTriggerListener;
 import org.candlepin.pinsetter.tasks.CertificateRevocationListTask;
+import org.candlepin.pki.CertificateSigningExecutorProvider;
 import org.candlepin.pki.PKIReader;
 import org.candlepin.pki.PKIUtility;
 import org.candlepin.pki.SubjectKeyIdentifierWriter;
@@ -128,6 +129,7 @@ import org.xnap.commons.i18n.I18n;
 import java.io.InputStream;
 import java.util.Date;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 import javax.cache.Cache;
 import javax.inject.Provider;
@@ -257,6 +259,7 @@ public class TestingModules {
             CandlepinCache mockedCandlepinCache = mock(CandlepinCache.class);
             when(mockedCandlepinCache.getProductCache()).thenReturn(mock(Cache.class));
             when(mockedCandlepinCache.getStatusCache()).thenReturn(mock(StatusCache.class));
+            when(mockedCandlepinCache.getOwnerServiceLevelCache()).thenReturn(mock(Cache.class));
             // This is not necessary in the normal module because the config is bound in the
             // context listener
             bind(Configuration.class).toInstance(config);
@@ -329,6 +332,8 @@ public class TestingModules {
 
             bind(Function.class).annotatedWith(Names.named("endDateGenerator"))
                 .to(ExpiryDateFunction.class).in(Singleton.class);
+            bind(ExecutorService.class).annotatedWith(Names.named("certificateSigningExecutor"))
+                .toProvider(CertificateSigningExecutorProvider.class).in(Singleton.class);
             bind(ModeManager.class).to(ModeManagerImpl.class).asEagerSingleton();
             bind(TriggerListener.class).to(PinsetterTriggerListener.class);
             install(new FactoryModuleBuilder().build(BindChainFactory.class));
@@ -0,0 +1,309 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.jackson.ProductCachedSerializationModule;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.ProductCurator;
+import org.candlepin.policy.js.JsRunner;
+import org.candlepin.policy.js.JsonJsContext;
+import org.candlepin.policy.js.compliance.ComplianceRules;
+import org.candlepin.policy.js.compliance.ComplianceStatus;
+import org.candlepin.resteasy.JsonProvider;
+
+import com.google.inject.Provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+
+/**
+ * BatchComplianceEvaluatorTest
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BatchComplianceEvaluatorTest {
+
+    @Mock private ConsumerCurator consumerCurator;
+    @Mock private ComplianceRules complianceRules;
+    @Mock private Provider<ComplianceRules> complianceRulesProvider;
+    @Mock private Provider<JsRunner> jsRunnerProvider;
+    @Mock private Configuration jsonConfig;
+    @Mock private ProductCurator productCurator;
+
+    private Map<String, Consumer> consumers;
+    private Map<JsonJsContext, String> contexts;
+    private BatchComplianceEvaluator evaluator;
+
+    @Before
+    public void setUp() {
+        MapConfiguration config = new MapConfiguration(ConfigProperties.DEFAULT_PROPERTIES);
+        config.setProperty(ConfigProperties.COMPLIANCE_BATCH_THREADS, "2");
+        config.setProperty(ConfigProperties.COMPLIANCE_BATCH_SIZE, "2");
+
+        this.consumers = new HashMap<String, Consumer>();
+        this.contexts = new HashMap<JsonJsContext, String>();
+
+        when(this.complianceRulesProvider.get()).thenReturn(this.complianceRules);
+        when(this.jsRunnerProvider.get()).thenAnswer(new Answer<JsRunner>() {
+            @Override
+            public JsRunner answer(InvocationOnMock invocation) {
+                return mock(JsRunner.class);
+            }
+        });
+
+        doAnswer(new Answer<List<Consumer>>() {
+            @Override
+            public List<Consumer> answer(InvocationOnMock invocation) {
+                List<Consumer> found = new ArrayList<Consumer>();
+                for (String uuid : (Collection<String>) invocation.getArguments()[0]) {
+                    if (consumers.containsKey(uuid)) {
+                        found.add(consumers.get(uuid));
+                    }
+                }
+
+                return found;
+            }
+        }).when(this.consumerCurator).findByUuidsWithEntitlements(anyCollection());
+
+        when(this.complianceRules.runStatus(any(JsRunner.class), any(JsonJsContext.class)))
+            .thenAnswer(new Answer<String>() {
+                @Override
+                public String answer(InvocationOnMock invocation) {
+                    return contexts.get(invocation.getArguments()[1]);
+                }
+            });
+
+        when(this.complianceRules.completeStatus(any(Consumer.class), anyString(), eq(true), eq(true)))
+            .thenAnswer(new Answer<ComplianceStatus>() {
+                @Override
+                public ComplianceStatus answer(InvocationOnMock invocation) {
+                    ComplianceStatus status = new ComplianceStatus(new Date());
+                    status.setCompliantUntil(new Date());
+                    return status;
+                }
+            });
+
+        JsonProvider jsonProvider = new JsonProvider(this.jsonConfig,
+            new ProductCachedSerializationModule(this.productCurator));
+
+        this.evaluator = new BatchComplianceEvaluator(config, this.consumerCurator,
+            this.complianceRulesProvider, this.jsRunnerProvider, jsonProvider);
+    }
+
+    private Consumer mockConsumer(String uuid, boolean evaluated) {
+        Consumer consumer = new Consumer();
+        consumer.setUuid(uuid);
+        this.consumers.put(uuid, consumer);
+
+        if (evaluated) {
+            JsonJsContext context = mock(JsonJsContext.class);
+            this.contexts.put(context, "status-" + uuid);
+            when(this.complianceRules.prepareStatus(eq(consumer), anyBoolean())).thenReturn(context);
+        }
+
+        return consumer;
+    }
+
+    private Map<String, ComplianceStatus> evaluate(List<String> uuids) throws IOException {
+        final Map<String, ComplianceStatus> results = new HashMap<String, ComplianceStatus>();
+
+        this.evaluator.evaluate(uuids, true, new BatchComplianceEvaluator.ResultHandler() {
+            @Override
+            public void handle(Consumer consumer, ComplianceStatus status) {
+                assertFalse(results.containsKey(consumer.getUuid()));
+                results.put(consumer.getUuid(), status);
+            }
+        });
+
+        return results;
+    }
+
+    @Test
+    public void testEvaluatesAllConsumersInBlocks() throws IOException {
+        Consumer c1 = this.mockConsumer("c1", true);
+        Consumer c2 = this.mockConsumer("c2", true);
+        Consumer c3 = this.mockConsumer("c3", true);
+
+        Map<String, ComplianceStatus> results = this.evaluate(Arrays.asList("c1", "c2", "c3"));
+
+        assertEquals(3, results.size());
+        verify(this.complianceRules).completeStatus(eq(c1), eq("status-c1"), eq(true), eq(true));
+        verify(this.complianceRules).completeStatus(eq(c2), eq("status-c2"), eq(true), eq(true));
+        verify(this.complianceRules).completeStatus(eq(c3), eq("status-c3"), eq(true), eq(true));
+
+        verify(this.consumerCurator, times(2)).findByUuidsWithEntitlements(anyCollection());
+        verify(this.consumerCurator, times(2)).flush();
+        verify(this.consumerCurator, times(2)).clear();
+    }
+
+    @Test
+    public void testEachWorkerGetsItsOwnRunner() throws IOException {
+        this.mockConsumer("c1", true);
+
+        this.evaluate(Arrays.asList("c1"));
+
+        verify(this.jsRunnerProvider, times(2)).get();
+    }
+
+    @Test
+    public void testSkipsMissingConsumers() throws IOException {
+        this.mockConsumer("c1", true);
+
+        Map<String, ComplianceStatus> results = this.evaluate(Arrays.asList("c1", "missing"));
+
+        assertEquals(1, results.size());
+        assertTrue(results.containsKey("c1"));
+    }
+
+    @Test
+    public void testConsumersWithoutComplianceAreNotEvaluated() throws IOException {
+        Consumer consumer = this.mockConsumer("distributor", false);
+
+        Map<String, ComplianceStatus> results = this.evaluate(Arrays.asList("distributor"));
+
+        assertEquals(1, results.size());
+        assertEquals("valid", results.get("distributor").getStatus());
+        verify(this.complianceRules, never()).runStatus(any(JsRunner.class), any(JsonJsContext.class));
+        verify(this.complianceRules, never()).completeStatus(eq(consumer), anyString(), anyBoolean(),
+            anyBoolean());
+    }
+
+    @Test
+    public void testEmptyRequestDoesNothing() throws IOException {
+        assertTrue(this.evaluate(new ArrayList<String>()).isEmpty());
+        verify(this.complianceRulesProvider, never()).get();
+    }
+
+    @Test
+    public void testRecalculateChecksAttachedConsumersInBlocks() {
+        Consumer c1 = this.mockConsumer("c1", true);
+        c1.setId("id1");
+        Consumer c2 = this.mockConsumer("c2", true);
+        c2.setId("id2");
+        Consumer c3 = this.mockConsumer("c3", true);
+        c3.setId("id3");
+
+        when(this.consumerCurator.findByIdsWithEntitlements(eq(Arrays.asList("id1", "id2")), eq(false)))
+            .thenReturn(Arrays.asList(c1, c2));
+        when(this.consumerCurator.findByIdsWithEntitlements(eq(Arrays.asList("id3")), eq(false)))
+            .thenReturn(Arrays.asList(c3));
+
+        this.evaluator.recalculate(Arrays.asList(c1, c2, c3));
+
+        verify(this.complianceRules).completeStatus(eq(c1), eq("status-c1"), eq(true), eq(true));
+        verify(this.complianceRules).completeStatus(eq(c2), eq("status-c2"), eq(true), eq(true));
+        verify(this.complianceRules).completeStatus(eq(c3), eq("status-c3"), eq(true), eq(true));
+
+        // The consumers belong to the caller's session, so it must not be cleared
+        verify(this.consumerCurator, never()).clear();
+        verify(this.consumerCurator, never()).bulkUpdateComplianceStatus(anyCollection());
+    }
+
+    @Test
+    public void testStreamWritesStatusesByUuid() throws IOException {
+        this.mockConsumer("c1", true);
+        this.mockConsumer("c2", true);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        this.evaluator.stream(Arrays.asList("c1", "c2"), false).write(output);
+
+        JsonNode json = new ObjectMapper().readTree(output.toByteArray());
+        assertEquals(2, json.size());
+        assertEquals("valid", json.get("c1").get("status").asText());
+        assertTrue(json.get("c2").has("compliantUntil"));
+    }
+
+    @Test
+    public void testStreamWritesEachBlockBeforeEvaluatingTheNext() throws IOException {
+        this.mockConsumer("c1", true);
+        this.mockConsumer("c2", true);
+        this.mockConsumer("c3", true);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final List<Integer> written = new ArrayList<Integer>();
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                written.add(output.size());
+                return null;
+            }
+        }).when(this.consumerCurator).clear();
+
+        this.evaluator.stream(Arrays.asList("c1", "c2", "c3"), false).write(output);
+
+        // Nothing is written while a block's transaction is open, but the first block has been
+        // written by the time the second is evaluated
+        assertEquals(2, written.size());
+        assertEquals(0, (int) written.get(0));
+        assertTrue(written.get(1) > 0);
+        assertEquals(3, new ObjectMapper().readTree(output.toByteArray()).size());
+    }
+
+    @Test
+    public void testLightweightStreamOnlyWritesStatusAndReasons() throws IOException {
+        this.mockConsumer("c1", true);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        this.evaluator.stream(Arrays.asList("c1"), true).write(output);
+
+        JsonNode json = new ObjectMapper().readTree(output.toByteArray());
+        JsonNode status = json.get("c1");
+
+        assertEquals(2, status.size());
+        assertEquals("valid", status.get("status").asText());
+        assertTrue(status.get("reasons").isArray());
+        verify(this.complianceRules).prepareStatus(any(Consumer.class), eq(false));
+    }
+
+}
@@ -21,6 +21,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -29,7 +30,6 @@ import static org.mockito.Mockito.when;
 import org.candlepin.audit.Event;
 import org.candlepin.audit.EventFactory;
 import org.candlepin.audit.EventSink;
-import org.candlepin.model.CandlepinQuery;
 import org.candlepin.model.Consumer;
 import org.candlepin.model.Content;
 import org.candlepin.model.Entitlement;
@@ -82,6 +82,7 @@ public class EntitlementCertificateGeneratorTest {
     @Mock private EventSink mockEventSink;
     @Mock private EventFactory mockEventFactory;
     @Mock private ProductCurator mockProductCurator;
+    @Mock private CertificateRegenerationQueue mockRegenQueue;
 
     @Captor private ArgumentCaptor<Map<String, Entitlement>> entMapCaptor;
     @Captor private ArgumentCaptor<Map<String, Product>> productMapCaptor;
@@ -93,7 +94,8 @@ public class EntitlementCertificateGeneratorTest {
     public void init() throws Exception {
         this.ecGenerator = new EntitlementCertificateGenerator(
             this.mockEntCertCurator, this.mockEntCertAdapter, this.mockEntitlementCurator,
-            this.mockPoolCurator, this.mockEventSink, this.mockEventFactory, this.mockProductCurator
+            this.mockPoolCurator, this.mockEventSink, this.mockEventFactory, this.mockProductCurator,
+            this.mockRegenQueue
         );
     }
 
@@ -101,7 +103,7 @@ public class EntitlementCertificateGeneratorTest {
     public void testGenerateEntitlementCertificate() throws GeneralSecurityException, IOException {
         this.ecGenerator = new EntitlementCertificateGenerator(this.mockEntCertCurator,
                 this.mockEntCertAdapter, this.mockEntitlementCurator, this.mockPoolCurator,
-                this.mockEventSink, this.mockEventFactory, this.mockProductCurator);
+                this.mockEventSink, this.mockEventFactory, this.mockProductCurator, this.mockRegenQueue);
         Consumer consumer = mock(Consumer.class);
         Pool pool = mock(Pool.class);
         Product product = mock(Product.class);
@@ -124,7 +126,7 @@ public class EntitlementCertificateGeneratorTest {
     public void testGenerateEntitlementCertificates() throws GeneralSecurityException, IOException {
         this.ecGenerator = new EntitlementCertificateGenerator(this.mockEntCertCurator,
             this.mockEntCertAdapter, this.mockEntitlementCurator, this.mockPoolCurator,
-            this.mockEventSink, this.mockEventFactory, this.mockProductCurator);
+            this.mockEventSink, this.mockEventFactory, this.mockProductCurator, this.mockRegenQueue);
         Consumer consumer = mock(Consumer.class);
         Product product = mock(Product.class);
         Entitlement entitlement = mock(Entitlement.class);
@@ -143,8 +145,10 @@ public class EntitlementCertificateGeneratorTest {
     @Test
     public void testLazyRegenerateForEntitlement() {
         Entitlement entitlement = new Entitlement();
+        entitlement.setId("lazy-ent-id");
         this.ecGenerator.regenerateCertificatesOf(entitlement, true);
         assertTrue(entitlement.isDirty());
+        verify(this.mockRegenQueue, times(1)).add(eq("lazy-ent-id"));
         verifyZeroInteractions(this.mockEntCertAdapter);
     }
 
@@ -223,16 +227,16 @@ public class EntitlementCertificateGeneratorTest {
     @Test
     public void testLazyRegnerateForEnvironmentContent() {
         Environment environment = new Environment();
-        List<Entitlement> entitlements = this.generateEntitlements();
-        CandlepinQuery cqmock = mock(CandlepinQuery.class);
-        when(cqmock.iterator()).thenReturn(entitlements.iterator());
-        when(this.mockEntitlementCurator.listByEnvironment(environment)).thenReturn(cqmock);
+        List<String> entitlementIds = Arrays.asList("ent1", "ent2");
+        Collection<String> contentIds = Arrays.asList("c1", "c2", "c4");
+        when(this.mockEntitlementCurator.listEntitlementIdsByEnvironmentAndContent(environment,
+            contentIds)).thenReturn(entitlementIds);
 
-        this.ecGenerator.regenerateCertificatesOf(environment, Arrays.asList("c1", "c2", "c4"), true);
+        this.ecGenerator.regenerateCertificatesOf(environment, contentIds, true);
 
-        assertTrue(entitlements.get(0).isDirty());
-        assertTrue(entitlements.get(1).isDirty());
-        assertFalse(entitlements.get(2).isDirty());
+        verify(this.mockEntitlementCurator, times(1)).markEntitlementsDirty(eq(entitlementIds));
+        verify(this.mockRegenQueue, times(1)).addAll(eq(entitlementIds));
+        verify(this.mockEntitlementCurator, never()).listByEnvironment(any(Environment.class));
 
         verifyZeroInteractions(this.mockEntCertAdapter);
     }
@@ -241,19 +245,20 @@ public class EntitlementCertificateGeneratorTest {
     public void testNonLazyRegnerateForEnvironmentContent() throws Exception {
         Environment environment = new Environment();
         List<Entitlement> entitlements = this.generateEntitlements();
+        Collection<String> contentIds = Arrays.asList("c1", "c2", "c4");
 
         HashMap<String, EntitlementCertificate> ecMap = new HashMap<String, EntitlementCertificate>();
         for (Entitlement entitlement : entitlements) {
             ecMap.put(entitlement.getPool().getId(), new EntitlementCertificate());
+            when(this.mockEntitlementCurator.find(entitlement.getId())).thenReturn(entitlement);
         }
 
-        CandlepinQuery<Entitlement> cqmock = mock(CandlepinQuery.class);
-        when(cqmock.iterator()).thenReturn(entitlements.iterator());
-        when(this.mockEntitlementCurator.listByEnvironment(environment)).thenReturn(cqmock);
+        when(this.mockEntitlementCurator.listEntitlementIdsByEnvironmentAndContent(environment,
+            contentIds)).thenReturn(Arrays.asList("ent1", "ent2"));
         when(this.mockEntCertAdapter.generateEntitlementCerts(any(Consumer.class), any(Map.class),
             any(Map.class), any(Map.class), eq(true))).thenReturn(ecMap);
 
-        this.ecGenerator.regenerateCertificatesOf(environment, Arrays.asList("c1", "c2", "c4"), false);
+        this.ecGenerator.regenerateCertificatesOf(environment, contentIds, false);
 
         assertFalse(entitlements.get(0).isDirty());
         assertFalse(entitlements.get(1).isDirty());
@@ -381,6 +386,7 @@ public class EntitlementCertificateGeneratorTest {
         // assertTrue(entitlement.isDirty());
 
         verify(this.mockEntitlementCurator, times(1)).markEntitlementsDirty(eq(entitlements));
+        verify(this.mockRegenQueue, times(1)).addAll(eq(entitlements));
 
         verifyZeroInteractions(this.mockEntCertAdapter);
     }
@@ -19,7 +19,7 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.File;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -316,21 +316,11 @@ public class ManifestManagerTest {
     }
 
     @Test
-    public void testManifestCleanup() throws Exception {
-        when(fileService.deleteExpired(any(Date.class))).thenReturn(4);
-        int cleaned = manager.cleanup(1);
-        // Can't hook into the util class, so just verify that
-        // the call was made. The file service test will cover
-        // the guts of that method.
-        verify(fileService).deleteExpired(any(Date.class));
-        assertEquals(4, cleaned);
-    }
-
-    @Test
-    public void testManifestCleanupDoesNoCleaningWhenmaxAgeIsLessThanZero() throws Exception {
-        int cleaned = manager.cleanup(-1);
-        assertEquals(0, cleaned);
-        verifyNoMoreInteractions(fileService);
+    public void testManifestCleanupBlock() throws Exception {
+        Date expiry = new Date();
+        when(fileService.deleteExpired(eq(expiry), eq(50))).thenReturn(50);
+        assertEquals(50, manager.cleanupBlock(expiry, 50));
+        verify(fileService).deleteExpired(eq(expiry), eq(50));
     }
 
     @Test
@@ -347,18 +337,16 @@ public class ManifestManagerTest {
         String manifestFilename = "manifest.zip";
 
         ManifestFile manifest = mock(ManifestFile.class);
-        InputStream mockManifestInputStream = mock(InputStream.class);
         when(manifest.getId()).thenReturn(manifestId);
         when(manifest.getName()).thenReturn(manifestFilename);
         when(manifest.getTargetId()).thenReturn(exportedConsumer.getUuid());
-        when(manifest.getInputStream()).thenReturn(mockManifestInputStream);
         when(fileService.get(eq(manifestId))).thenReturn(manifest);
-        when(mockManifestInputStream.read()).thenReturn(-1); // Simulate no data for test.
 
         manager.writeStoredExportToResponse(manifestId, exportedConsumer.getUuid(), response);
         verify(fileService).get(eq(manifestId));
         verify(response).setContentType("application/zip");
         verify(response).setHeader(eq("Content-Disposition"), eq("attachment; filename=" + manifestFilename));
+        verify(manifest).writeTo(any(OutputStream.class));
         verify(responseOutputStream).flush();
     }
 
@@ -908,5 +908,27 @@ public class PoolManagerFunctionalTest extends DatabaseTestFixture {
         assertTrue("Entitlement cert serial should have been marked as revoked once deleted!",
             revoked.isRevoked());
     }
+
+    @Test
+    public void testBulkDeleteEntitlementsRevokesSerialsAndClearsSourceEntitlement() {
+        Owner owner = this.createOwner();
+        Product product = this.createProduct("test-product", "Test Product", owner);
+        Consumer consumer = this.createConsumer(owner);
+        Pool pool = this.createPool(owner, product);
+        Entitlement ent = this.createEntitlement(owner, consumer, pool,
+            this.createEntitlementCertificate("keycert", "cert"));
+        CertificateSerial serial = ent.getCertificates().iterator().next().getSerial();
+
+        Pool derivedPool = this.createPool(owner, product);
+        derivedPool.setSourceEntitlement(ent);
+        this.poolCurator.merge(derivedPool);
+
+        assertEquals(1, this.entitlementCurator.bulkDeleteEntitlements(Arrays.asList(ent)));
+        this.entitlementCurator.clear();
+
+        assertNull(this.entitlementCurator.find(ent.getId()));
+        assertTrue(this.certSerialCurator.find(serial.getId()).isRevoked());
+        assertNull(this.poolCurator.find(derivedPool.getId()).getSourceEntitlement());
+    }
 }
 
@@ -95,6 +95,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -156,6 +157,7 @@ public class PoolManagerTest {
     @Mock private BindChainFactory mockBindChainFactory;
     @Mock private BindContextFactory mockBindContextFactory;
     @Mock private PreEntitlementRulesCheckOpFactory mockPreEntitlementRulesCheckFactory;
+    @Mock private BatchComplianceEvaluator mockComplianceEvaluator;
 
     private CandlepinPoolManager manager;
     private UserPrincipal principal;
@@ -192,7 +194,7 @@ public class PoolManagerTest {
             entitlementCurator, consumerCuratorMock, certCuratorMock, mockECGenerator,
             complianceRules, autobindRules, activationKeyRules, mockProductCurator, mockProductManager,
             mockContentManager, mockOwnerContentCurator, mockOwnerCurator, mockOwnerProductCurator,
-            mockOwnerManager, pinsetterKernel, i18n, mockBindChainFactory
+            mockOwnerManager, pinsetterKernel, i18n, mockBindChainFactory, mockComplianceEvaluator
         ));
 
         setupBindChain();
@@ -1019,6 +1021,36 @@ public class PoolManagerTest {
         verify(mockPoolCurator).batchDelete(eq(poolsWithSource), anySetOf(String.class));
     }
 
+    @Test
+    public void testRetrieveServiceLevelsBypassesCache() {
+        Set<String> levels = new HashSet<String>(Arrays.asList("Premium", "Standard"));
+        when(mockPoolCurator.retrieveServiceLevelsForOwner(eq(owner), eq(false))).thenReturn(levels);
+
+        assertEquals(levels, manager.retrieveServiceLevelsForOwner(owner, false));
+        verify(mockPoolCurator, never()).retrieveServiceLevelsForOwnerCached(any(Owner.class), anyBoolean());
+    }
+
+    @Test
+    public void testRevokeRecalculatesManyConsumersInBulk() {
+        Consumer c1 = TestUtil.createConsumer(owner);
+        Consumer c2 = TestUtil.createConsumer(owner);
+
+        Entitlement e1 = new Entitlement(pool, c1, 1);
+        Entitlement e2 = new Entitlement(pool, c2, 1);
+        List<Entitlement> entsToDelete = Arrays.asList(e1, e2);
+
+        Map<Consumer, List<Entitlement>> consumerEnts = new HashMap<Consumer, List<Entitlement>>();
+        consumerEnts.put(c1, Arrays.asList(e1));
+        consumerEnts.put(c2, Arrays.asList(e2));
+        when(entitlementCurator.getDistinctConsumers(eq(entsToDelete))).thenReturn(consumerEnts);
+        when(mockPoolCurator.lockAndLoad(eq(pool))).thenReturn(pool);
+
+        manager.revokeEntitlements(entsToDelete);
+
+        verify(mockComplianceEvaluator).recalculate(eq(consumerEnts.keySet()));
+        verify(complianceRules, never()).getStatus(any(Consumer.class));
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Test
     public void testEntitleWithADate() throws Exception {
@@ -1240,6 +1272,37 @@ public class PoolManagerTest {
         verify(mockPoolCurator).batchDelete(eq(expectedPools), anySetOf(String.class));
     }
 
+    @Test
+    public void testCleanupExpiredPoolsRevokesInBulk() {
+        Pool p = createPoolWithEntitlements();
+        List<Entitlement> ents = new ArrayList<Entitlement>(p.getEntitlements());
+        Consumer consumer = ents.get(0).getConsumer();
+        consumer.setId("consumer-1");
+        consumer.setEntitlementCount(2);
+        ents.get(1).setConsumer(consumer);
+
+        when(mockPoolCurator.listExpiredPools(anyInt())).thenReturn(Arrays.asList(p));
+
+        manager.cleanupExpiredPools();
+
+        verify(mockComplianceEvaluator).recalculateConsumers(eq(Collections.singleton("consumer-1")));
+        assertEquals(0L, consumer.getEntitlementCount());
+        verify(consumerCuratorMock, times(1)).update(eq(consumer));
+
+        ArgumentCaptor<Collection> entCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(entitlementCurator).bulkDeleteEntitlements(entCaptor.capture());
+        assertEquals(new HashSet<Entitlement>(ents), new HashSet<Entitlement>(entCaptor.getValue()));
+        verify(entitlementCurator, never()).batchDelete(any(Collection.class));
+        verify(complianceRules, never()).getStatus(any(Consumer.class));
+        verify(mockEventSink, times(1)).sendEvents();
+
+        // The post unbind actions must see the entitlements before the bulk delete detaches them
+        InOrder order = inOrder(enforcerMock, entitlementCurator);
+        order.verify(enforcerMock, times(2))
+            .postUnbind(eq(consumer), any(PoolManager.class), any(Entitlement.class));
+        order.verify(entitlementCurator).bulkDeleteEntitlements(any(Collection.class));
+    }
+
     @Test
     public void testCleanupExpiredPoolsReadOnlySubscriptions() {
         Pool p = createPoolWithEntitlements();
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2009 - 2012 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.candlepin.test.DatabaseTestFixture;
+import org.candlepin.test.TestUtil;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import javax.inject.Inject;
+
+
+
+/**
+ * CertificateRegenerationRecordCuratorTest
+ */
+public class CertificateRegenerationRecordCuratorTest extends DatabaseTestFixture {
+    @Inject private CertificateRegenerationRecordCurator regenRecordCurator;
+
+    private Entitlement recentEnt;
+    private Entitlement staleEnt1;
+    private Entitlement staleEnt2;
+
+    @Before
+    public void setUp() {
+        Owner owner = this.createOwner();
+        Product product = this.createProduct(owner);
+        Pool pool = this.createPool(owner, product, 10L, TestUtil.createDate(2000, 1, 1),
+            TestUtil.createDate(2100, 1, 1));
+
+        Consumer recent = this.createConsumer(owner);
+        recent.setLastCheckin(new Date());
+        this.consumerCurator.merge(recent);
+
+        Consumer stale = this.createConsumer(owner);
+        stale.setLastCheckin(TestUtil.createDate(2010, 1, 1));
+        this.consumerCurator.merge(stale);
+
+        this.staleEnt1 = this.createEntitlement(owner, stale, pool, null);
+        this.recentEnt = this.createEntitlement(owner, recent, pool, null);
+        this.staleEnt2 = this.createEntitlement(owner, stale, pool, null);
+
+        this.entitlementCurator.markEntitlementsDirty(Arrays.asList(this.staleEnt1.getId(),
+            this.recentEnt.getId(), this.staleEnt2.getId()));
+        this.entitlementCurator.clear();
+    }
+
+    @Test
+    public void testEnqueueSkipsQueuedEntitlements() {
+        assertEquals(2, this.regenRecordCurator.enqueue(
+            Arrays.asList(this.staleEnt1.getId(), this.staleEnt2.getId())));
+        assertEquals(1, this.regenRecordCurator.enqueue(
+            Arrays.asList(this.staleEnt2.getId(), this.recentEnt.getId(), null)));
+        assertEquals(0, this.regenRecordCurator.enqueue(Collections.singletonList(this.staleEnt1.getId())));
+
+        assertEquals(3, this.regenRecordCurator.getDepth());
+    }
+
+    @Test
+    public void testPeekFavoursRecentCheckinsThenQueueOrder() throws Exception {
+        this.regenRecordCurator.enqueue(Collections.singletonList(this.staleEnt1.getId()));
+        Thread.sleep(10);
+        this.regenRecordCurator.enqueue(Arrays.asList(this.staleEnt2.getId(), this.recentEnt.getId()));
+
+        // A duplicate record written by a concurrent transaction
+        this.regenRecordCurator.create(new CertificateRegenerationRecord(this.staleEnt1.getId()));
+
+        assertEquals(Arrays.asList(this.recentEnt.getId(), this.staleEnt1.getId(), this.staleEnt2.getId()),
+            this.regenRecordCurator.peek(10));
+        assertEquals(Collections.singletonList(this.recentEnt.getId()), this.regenRecordCurator.peek(1));
+        assertEquals(3, this.regenRecordCurator.getDepth());
+    }
+
+    @Test
+    public void testRemoveDropsDuplicates() {
+        this.regenRecordCurator.enqueue(Arrays.asList(this.staleEnt1.getId(), this.recentEnt.getId()));
+        this.regenRecordCurator.create(new CertificateRegenerationRecord(this.staleEnt1.getId()));
+
+        assertEquals(2, this.regenRecordCurator.remove(Arrays.asList(this.staleEnt1.getId(), "missing")));
+        assertEquals(Collections.singletonList(this.recentEnt.getId()), this.regenRecordCurator.peek(10));
+    }
+
+    @Test
+    public void testRemoveStale() {
+        this.regenRecordCurator.enqueue(Arrays.asList(this.staleEnt1.getId(), this.recentEnt.getId(),
+            "deleted-ent-id"));
+
+        Entitlement regenerated = this.entitlementCurator.find(this.staleEnt1.getId());
+        regenerated.setDirty(false);
+        this.entitlementCurator.merge(regenerated);
+        this.entitlementCurator.flush();
+
+        assertEquals(2, this.regenRecordCurator.removeStale());
+        assertEquals(Collections.singletonList(this.recentEnt.getId()), this.regenRecordCurator.peek(10));
+    }
+
+    @Test
+    public void testOldestQueued() {
+        assertNull(this.regenRecordCurator.getOldestQueued());
+
+        this.regenRecordCurator.enqueue(Collections.singletonList(this.recentEnt.getId()));
+        this.regenRecordCurator.flush();
+
+        assertNotNull(this.regenRecordCurator.getOldestQueued());
+        assertTrue(this.regenRecordCurator.getOldestQueued().getTime() <= System.currentTimeMillis());
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.test.DatabaseTestFixture;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+
+
+/**
+ * CertificateSerialAllocatorTest
+ */
+public class CertificateSerialAllocatorTest extends DatabaseTestFixture {
+
+    private CertificateSerialAllocator buildAllocator(int blockSize) {
+        MapConfiguration config = new MapConfiguration(ConfigProperties.DEFAULT_PROPERTIES);
+        config.setProperty(ConfigProperties.CERT_SERIAL_BLOCK_SIZE, String.valueOf(blockSize));
+
+        return new CertificateSerialAllocator(config, this.injector.getProvider(EntityManagerFactory.class));
+    }
+
+    @Test
+    public void testSerialsWithinBlockAreSequential() {
+        CertificateSerialAllocator allocator = this.buildAllocator(10);
+
+        long first = allocator.nextSerial();
+        for (int i = 1; i < 10; ++i) {
+            assertEquals(first + i, allocator.nextSerial());
+        }
+    }
+
+    @Test
+    public void testReservesNewBlockWhenExhausted() {
+        CertificateSerialAllocator allocator = this.buildAllocator(3);
+        Set<Long> serials = new HashSet<Long>();
+
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(serials.add(allocator.nextSerial()));
+        }
+    }
+
+    @Test
+    public void testAllocatorsReserveDisjointBlocks() {
+        CertificateSerialAllocator allocator1 = this.buildAllocator(5);
+        CertificateSerialAllocator allocator2 = this.buildAllocator(5);
+        Set<Long> serials = new HashSet<Long>();
+
+        for (int i = 0; i < 12; ++i) {
+            assertTrue(serials.add(allocator1.nextSerial()));
+            assertTrue(serials.add(allocator2.nextSerial()));
+        }
+    }
+
+    @Test
+    public void testRecreatesMissingCounter() {
+        EntityManager em = this.injector.getInstance(EntityManagerFactory.class).createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+            em.createNativeQuery("DELETE FROM " + CertificateSerialAllocator.DB_TABLE).executeUpdate();
+            em.getTransaction().commit();
+        }
+        finally {
+            em.close();
+        }
+
+        CertificateSerialAllocator allocator = this.buildAllocator(5);
+        Set<Long> serials = new HashSet<Long>();
+
+        for (int i = 0; i < 12; ++i) {
+            assertTrue(serials.add(allocator.nextSerial()));
+        }
+
+        assertTrue(serials.contains(1L));
+    }
+
+    @Test
+    public void testAllocationCanBeDisabled() {
+        CertificateSerialAllocator allocator = this.buildAllocator(0);
+        assertFalse(allocator.isEnabled());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDisabledAllocatorRejectsRequests() {
+        this.buildAllocator(0).nextSerial();
+    }
+
+}
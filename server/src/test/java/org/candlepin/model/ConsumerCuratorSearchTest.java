@@ -29,6 +29,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -966,6 +967,109 @@ public class ConsumerCuratorSearchTest extends DatabaseTestFixture {
         assertEquals(consumer, results.get(0));
     }
 
+    private List<Consumer> searchByFact(String key, String value) {
+        List<KeyValueParameter> factFilters = new LinkedList<KeyValueParameter>();
+        factFilters.add(new TestingKeyValueParameter(key, value));
+
+        return consumerCurator.searchOwnerConsumers(
+            owner, null, null, null, null, factFilters, null, null, null).list();
+    }
+
+    @Test
+    public void testSearchOwnerConsumersBySearchableFact() {
+        config.setProperty(ConfigProperties.SEARCHABLE_FACTS, "cpu.cpu_socket(s),distribution.name");
+        consumerCurator.markFactIndexed("cpu.cpu_socket(s)");
+        consumerCurator.markFactIndexed("distribution.name");
+
+        Consumer consumer = new Consumer("testConsumer", "testUser", owner, ct);
+        consumer.setFact("cpu.cpu_socket(s)", "4");
+        consumer.setFact("distribution.name", "Red Hat Enterprise Linux Server");
+        consumer = consumerCurator.create(consumer);
+
+        Consumer otherConsumer = new Consumer("testConsumer2", "testUser2", owner, ct);
+        otherConsumer.setFact("cpu.cpu_socket(s)", "42");
+        otherConsumer.setFact("distribution.name", "Fedora");
+        otherConsumer = consumerCurator.create(otherConsumer);
+
+        assertEquals(Arrays.asList(consumer), searchByFact("cpu.cpu_socket(s)", "4"));
+        assertEquals(Arrays.asList(consumer), searchByFact("distribution.name", "red hat*"));
+        assertEquals(Arrays.asList(otherConsumer), searchByFact("distribution.name", "FEDORA"));
+        assertEquals(2, searchByFact("cpu.cpu_socket(s)", "4*").size());
+        assertEquals(0, searchByFact("cpu.cpu_socket(s)", "4_").size());
+    }
+
+    @Test
+    public void testSearchableFactIndexFollowsFactUpdates() {
+        config.setProperty(ConfigProperties.SEARCHABLE_FACTS, "distribution.name");
+        consumerCurator.markFactIndexed("distribution.name");
+
+        Consumer consumer = new Consumer("testConsumer", "testUser", owner, ct);
+        consumer.setFact("distribution.name", "Fedora");
+        consumer = consumerCurator.create(consumer);
+
+        Consumer update = new Consumer("testConsumer", "testUser", owner, ct);
+        update.setId(consumer.getId());
+        update.setUuid(consumer.getUuid());
+        update.setFact("distribution.name", "CentOS");
+        consumerCurator.update(update);
+
+        assertEquals(0, searchByFact("distribution.name", "fedora").size());
+        assertEquals(Arrays.asList(consumer), searchByFact("distribution.name", "centos"));
+
+        update.setFacts(new HashMap<String, String>());
+        consumerCurator.update(update);
+
+        assertEquals(0, searchByFact("distribution.name", "centos").size());
+    }
+
+    @Test
+    public void testSearchableFactFallsBackToFactsUntilIndexed() {
+        config.setProperty(ConfigProperties.SEARCHABLE_FACTS, "");
+
+        Consumer consumer = new Consumer("testConsumer", "testUser", owner, ct);
+        consumer.setFact("uname.machine", "X86_64");
+        consumer = consumerCurator.create(consumer);
+        consumerCurator.flush();
+
+        config.setProperty(ConfigProperties.SEARCHABLE_FACTS, "uname.machine");
+        assertEquals(new HashSet<String>(Arrays.asList("uname.machine")),
+            consumerCurator.getUnindexedFactKeys());
+        assertEquals(Arrays.asList(consumer), searchByFact("uname.machine", "x86_64"));
+
+        assertEquals(1, consumerCurator.indexSearchableFactBlock("uname.machine", 10));
+        assertEquals(0, consumerCurator.indexSearchableFactBlock("uname.machine", 10));
+        consumerCurator.markFactIndexed("uname.machine");
+        consumerCurator.clear();
+
+        assertEquals(new HashSet<String>(Arrays.asList("uname.machine")),
+            consumerCurator.getIndexedFactKeys());
+        assertTrue(consumerCurator.getUnindexedFactKeys().isEmpty());
+        assertEquals(Arrays.asList(consumer), searchByFact("uname.machine", "x86_64"));
+    }
+
+    @Test
+    public void testDeleteUnsearchableFactIndexBlocks() {
+        config.setProperty(ConfigProperties.SEARCHABLE_FACTS, "uname.machine");
+        consumerCurator.markFactIndexed("uname.machine");
+
+        for (int i = 0; i < 2; ++i) {
+            Consumer consumer = new Consumer("testConsumer" + i, "testUser", owner, ct);
+            consumer.setFact("uname.machine", "x86_64");
+            consumerCurator.create(consumer);
+        }
+        consumerCurator.flush();
+
+        config.setProperty(ConfigProperties.SEARCHABLE_FACTS, "");
+        assertEquals(1, consumerCurator.removeUnsearchableFactKeys());
+        assertEquals(1, consumerCurator.deleteUnsearchableFactIndexBlock(1));
+        assertEquals(1, consumerCurator.deleteUnsearchableFactIndexBlock(1));
+        assertEquals(0, consumerCurator.deleteUnsearchableFactIndexBlock(1));
+
+        config.setProperty(ConfigProperties.SEARCHABLE_FACTS, "uname.machine");
+        assertTrue(consumerCurator.getIndexedFactKeys().isEmpty());
+        assertEquals(2, consumerCurator.indexSearchableFactBlock("uname.machine", 10));
+    }
+
     private class TestingKeyValueParameter extends KeyValueParameter {
 
         /**
@@ -43,6 +43,7 @@ import java.lang.reflect.Field;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -1323,6 +1324,64 @@ public class ConsumerCuratorTest extends DatabaseTestFixture {
         countConsumersAndAssertResultManyTimes(n, expectedCount);
     }
 
+    @Test
+    public void testGetConsumerIdPage() {
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(createConsumer(owner).getId());
+        }
+        Collections.sort(expected);
+
+        Owner other = ownerCurator.create(new Owner("other-owner", "Other Owner"));
+        createConsumer(other);
+
+        List<String> ids = new ArrayList<String>();
+        List<String> page = consumerCurator.getConsumerIdPage(owner, null, 2);
+
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 2);
+            ids.addAll(page);
+            page = consumerCurator.getConsumerIdPage(owner, page.get(page.size() - 1), 2);
+        }
+
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void testBulkUpdateComplianceStatus() {
+        Consumer c1 = createConsumer(owner);
+        Consumer c2 = createConsumer(owner);
+        Consumer c3 = createConsumer(owner);
+        consumerCurator.clear();
+
+        List<Consumer> consumers = consumerCurator.findByIdsWithEntitlements(
+            Arrays.asList(c1.getId(), c2.getId(), c3.getId()));
+        assertEquals(3, consumers.size());
+
+        List<Consumer> changed = new ArrayList<Consumer>();
+        for (Consumer consumer : consumers) {
+            consumer.setEntitlementStatus("invalid");
+            consumer.setComplianceStatusHash("hash-" + consumer.getId());
+
+            if (!consumer.getId().equals(c3.getId())) {
+                changed.add(consumer);
+            }
+        }
+
+        assertEquals(2, consumerCurator.bulkUpdateComplianceStatus(changed));
+        consumerCurator.flush();
+        consumerCurator.clear();
+
+        for (Consumer consumer : Arrays.asList(c1, c2)) {
+            Consumer updated = consumerCurator.find(consumer.getId());
+            assertEquals("invalid", updated.getEntitlementStatus());
+            assertEquals("hash-" + consumer.getId(), updated.getComplianceStatusHash());
+        }
+
+        // Consumers fetched for bulk updates are read-only, so unlisted changes are not flushed
+        assertNull(consumerCurator.find(c3.getId()).getComplianceStatusHash());
+    }
+
     private void countConsumersAndAssertResultManyTimes(int many, int expectedCount) {
         for (int i = 0; i < many; i++) {
             int count = consumerCurator.countConsumers(owner.getKey(), typeLabels, skus,
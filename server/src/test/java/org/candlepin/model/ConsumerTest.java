@@ -26,10 +26,12 @@ import org.candlepin.test.DatabaseTestFixture;
 import org.candlepin.test.TestUtil;
 import org.candlepin.util.Util;
 
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -180,6 +182,56 @@ public class ConsumerTest extends DatabaseTestFixture {
         assertEquals("notbar", lookedUp.getFact("foo"));
     }
 
+    @Test
+    public void testSetFactsAppliesDiffToExistingFacts() {
+        consumerCurator.flush();
+        consumerCurator.clear();
+
+        Consumer managed = consumerCurator.find(consumer.getId());
+        Map<String, String> existing = managed.getFacts();
+
+        Map<String, String> updated = new HashMap<String, String>();
+        updated.put("foo", "bar");
+        updated.put("foo2", "bar2");
+
+        managed.setFacts(updated);
+        assertSame(existing, managed.getFacts());
+        assertEquals(updated, managed.getFacts());
+
+        // A recreated collection deletes and re-inserts every fact row, including the unchanged
+        // "foo" fact; an updated one only touches the rows which changed.
+        Statistics stats = consumerCurator.currentSession().getSessionFactory().getStatistics();
+        stats.clear();
+        stats.setStatisticsEnabled(true);
+
+        try {
+            consumerCurator.merge(managed);
+            consumerCurator.flush();
+
+            assertEquals(0, stats.getCollectionRecreateCount());
+            assertEquals(0, stats.getCollectionRemoveCount());
+            assertEquals(1, stats.getCollectionUpdateCount());
+        }
+        finally {
+            stats.setStatisticsEnabled(false);
+        }
+
+        consumerCurator.clear();
+
+        Consumer lookedUp = consumerCurator.find(consumer.getId());
+        assertEquals(updated, lookedUp.getFacts());
+    }
+
+    @Test
+    public void testSetNullFactsClearsFacts() {
+        consumer.setFacts(null);
+        assertNull(consumer.getFacts());
+
+        consumer.setFacts(new HashMap<String, String>());
+        assertNotNull(consumer.getFacts());
+        assertTrue(consumer.getFacts().isEmpty());
+    }
+
     @Test
     public void testRemoveConsumedProducts() {
         consumerCurator.delete(consumerCurator.find(consumer.getId()));
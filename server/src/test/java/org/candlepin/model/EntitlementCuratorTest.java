@@ -672,6 +672,52 @@ public class EntitlementCuratorTest extends DatabaseTestFixture {
         assertEquals(2, ents.size());
     }
 
+    @Test
+    public void listEntitlementIdsByEnvironmentAndContent() {
+        Content content1 = contentCurator.create(TestUtil.createContent("env-content-1"));
+        Content content2 = contentCurator.create(TestUtil.createContent("env-content-2"));
+        Content content3 = contentCurator.create(TestUtil.createContent("env-content-3"));
+
+        Product product = TestUtil.createProduct();
+        product.addContent(content1, true);
+        productCurator.create(product);
+
+        Product provided = TestUtil.createProduct();
+        provided.addContent(content2, true);
+        productCurator.create(provided);
+
+        Product unrelated = TestUtil.createProduct();
+        unrelated.addContent(content3, true);
+        productCurator.create(unrelated);
+
+        Pool productPool = createPool(owner, product, 10L, pastDate, futureDate);
+        Pool providedPool = createPool(owner, parentProduct, 10L, pastDate, futureDate);
+        providedPool.addProvidedProduct(provided);
+        poolCurator.merge(providedPool);
+        Pool unrelatedPool = createPool(owner, unrelated, 10L, pastDate, futureDate);
+
+        Consumer otherConsumer = createConsumer(owner);
+
+        Entitlement productEnt = entitlementCurator.create(createEntitlement(owner, consumer, productPool,
+            createEntitlementCertificate("key", "certificate")));
+        Entitlement providedEnt = entitlementCurator.create(createEntitlement(owner, consumer,
+            providedPool, createEntitlementCertificate("key", "certificate")));
+        entitlementCurator.create(createEntitlement(owner, consumer, unrelatedPool,
+            createEntitlementCertificate("key", "certificate")));
+        entitlementCurator.create(createEntitlement(owner, otherConsumer, productPool,
+            createEntitlementCertificate("key", "certificate")));
+
+        List<String> ids = entitlementCurator.listEntitlementIdsByEnvironmentAndContent(environment,
+            Arrays.asList(content1.getId(), content2.getId(), "missing-content"));
+
+        assertEquals(2, ids.size());
+        assertTrue(ids.contains(productEnt.getId()));
+        assertTrue(ids.contains(providedEnt.getId()));
+
+        assertTrue(entitlementCurator.listEntitlementIdsByEnvironmentAndContent(environment,
+            Collections.<String>emptyList()).isEmpty());
+    }
+
     private PageRequest createPageRequest() {
         PageRequest req = new PageRequest();
         req.setPage(1);
@@ -1131,4 +1177,31 @@ public class EntitlementCuratorTest extends DatabaseTestFixture {
         assertEquals(1, ents.size());
         assertEquals(ent.getId(), ents.get(0).getId());
     }
+
+    @Test
+    public void testListAndFilterDirtyIdsByConsumerCheckin() {
+        Consumer recent = createConsumer(owner);
+        recent.setLastCheckin(new Date());
+        consumerCurator.merge(recent);
+
+        consumer.setLastCheckin(pastDate);
+        consumerCurator.merge(consumer);
+
+        Pool pool = createPool(owner, testProduct, 1L, dateSource.currentDate(), createDate(2020, 1, 1));
+        poolCurator.create(pool);
+        Entitlement recentEntitlement = createEntitlement(owner, recent, pool, null);
+        entitlementCurator.create(recentEntitlement);
+
+        entitlementCurator.markEntitlementsDirty(
+            Arrays.asList(firstEntitlement.getId(), recentEntitlement.getId()));
+        entitlementCurator.clear();
+
+        assertEquals(Arrays.asList(recentEntitlement.getId(), firstEntitlement.getId()),
+            entitlementCurator.listDirtyIds(10));
+        assertEquals(Arrays.asList(recentEntitlement.getId()), entitlementCurator.listDirtyIds(1));
+
+        List<String> filtered = entitlementCurator.filterDirtyIds(Arrays.asList(firstEntitlement.getId(),
+            secondEntitlement.getId(), recentEntitlement.getId(), "missing-ent-id"));
+        assertEquals(Arrays.asList(recentEntitlement.getId(), firstEntitlement.getId()), filtered);
+    }
 }
@@ -15,6 +15,7 @@
 package org.candlepin.model;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.quartz.JobBuilder.newJob;
 
@@ -28,6 +29,8 @@ import org.candlepin.pinsetter.core.model.JobStatus;
 import org.candlepin.pinsetter.core.model.JobStatus.JobState;
 import org.candlepin.pinsetter.tasks.HealEntireOrgJob;
 import org.candlepin.pinsetter.tasks.RefreshPoolsJob;
+import org.candlepin.pinsetter.tasks.UniqueByEntityJob;
+import org.candlepin.pinsetter.tasks.UnpauseJob;
 import org.candlepin.test.DatabaseTestFixture;
 import org.candlepin.test.TestUtil;
 import org.candlepin.util.Util;
@@ -58,7 +61,7 @@ public class JobCuratorTest extends DatabaseTestFixture {
     public void completedAndSelectedByDateCriteriaShouldBeDeleted() {
         newJobStatus().startTime(new Date())
             .finishTime(Util.tomorrow()).create();
-        this.curator.cleanUpOldCompletedJobs(Util.addDaysToDt(2));
+        this.curator.deleteOldJobsBlock(Util.addDaysToDt(2), true, 1000);
         assertEquals(0, this.curator.listAll().list().size());
     }
 
@@ -68,7 +71,7 @@ public class JobCuratorTest extends DatabaseTestFixture {
     @Test
     public void notCompletedButSelectedByDateCriteriaShouldNotBeDeleted() {
         newJobStatus().finishTime(Util.yesterday()).create();
-        this.curator.cleanUpOldCompletedJobs(Util.tomorrow());
+        this.curator.deleteOldJobsBlock(Util.tomorrow(), true, 1000);
         assertEquals(1, this.curator.listAll().list().size());
     }
 
@@ -80,7 +83,7 @@ public class JobCuratorTest extends DatabaseTestFixture {
     public void completedButNotSelectedByDateCriteriaShouldNotBeDeleted() {
         newJobStatus().startTime(Util.yesterday()).finishTime(new Date())
             .create();
-        this.curator.cleanUpOldCompletedJobs(Util.yesterday());
+        this.curator.deleteOldJobsBlock(Util.yesterday(), true, 1000);
         assertEquals(1, this.curator.listAll().list().size());
     }
 
@@ -91,7 +94,7 @@ public class JobCuratorTest extends DatabaseTestFixture {
     @Test
     public void notCompletedAndNotSelectedByDateCriteriaShouldNotBeDeleted() {
         newJobStatus().startTime(Util.yesterday()).create();
-        this.curator.cleanUpOldCompletedJobs(Util.tomorrow());
+        this.curator.deleteOldJobsBlock(Util.tomorrow(), true, 1000);
         assertEquals(1, this.curator.listAll().list().size());
     }
 
@@ -99,7 +102,23 @@ public class JobCuratorTest extends DatabaseTestFixture {
     public void failedJobs() {
         newJobStatus().startTime(Util.yesterday()).finishTime(null)
             .result("wrong pool").state(JobState.FAILED).create();
-        this.curator.cleanupAllOldJobs(new Date());
+        this.curator.deleteOldJobsBlock(new Date(), false, 1000);
+        assertEquals(0, this.curator.listAll().list().size());
+    }
+
+    @Test
+    public void oldJobsAreDeletedInBlocks() {
+        for (int i = 0; i < 3; i++) {
+            newJobStatus().state(JobState.FINISHED).create();
+        }
+        newJobStatus().state(JobState.RUNNING).create();
+
+        assertEquals(2, this.curator.deleteOldJobsBlock(Util.tomorrow(), true, 2));
+        assertEquals(1, this.curator.deleteOldJobsBlock(Util.tomorrow(), true, 2));
+        assertEquals(0, this.curator.deleteOldJobsBlock(Util.tomorrow(), true, 2));
+        assertEquals(1, this.curator.listAll().list().size());
+
+        assertEquals(1, this.curator.deleteOldJobsBlock(Util.tomorrow(), false, 2));
         assertEquals(0, this.curator.listAll().list().size());
     }
 
@@ -409,6 +428,50 @@ public class JobCuratorTest extends DatabaseTestFixture {
         assertEquals(job, jobs.get(0));
     }
 
+    @Test
+    public void findNumBlockingByClassAndTarget() {
+        JobStatus waiting = newJobStatus().state(JobState.WAITING).jobClass(RefreshPoolsJob.class)
+            .owner("my_owner").create();
+        newJobStatus().state(JobState.PENDING).jobClass(RefreshPoolsJob.class)
+            .owner("my_owner").create();
+        newJobStatus().state(JobState.CREATED).jobClass(RefreshPoolsJob.class)
+            .owner("my_owner").create();
+        newJobStatus().state(JobState.RUNNING).jobClass(RefreshPoolsJob.class)
+            .owner("my_owner").create();
+        newJobStatus().state(JobState.FINISHED).jobClass(RefreshPoolsJob.class)
+            .owner("my_owner").create();
+        newJobStatus().state(JobState.RUNNING).jobClass(RefreshPoolsJob.class)
+            .owner("other_owner").create();
+        newJobStatus().state(JobState.RUNNING).jobClass(HealEntireOrgJob.class)
+            .owner("my_owner").create();
+
+        assertEquals(3, curator.findNumBlockingByClassAndTarget("my_owner", RefreshPoolsJob.class,
+            waiting.getId()));
+
+        // A claimed job does not block itself
+        assertTrue(curator.claimWaitingJob(waiting, JobState.CREATED));
+        assertEquals(3, curator.findNumBlockingByClassAndTarget("my_owner", RefreshPoolsJob.class,
+            waiting.getId()));
+    }
+
+    @Test
+    public void unpauseDoesNotTriggerJobBehindClaimedJob() throws Exception {
+        JobStatus claimed = newJobStatus().state(JobState.WAITING).jobClass(RefreshPoolsJob.class)
+            .owner("my_owner").create();
+        JobStatus next = newJobStatus().state(JobState.WAITING).jobClass(RefreshPoolsJob.class)
+            .owner("my_owner").create();
+
+        // Claimed for triggering by a job listener, but not yet started
+        assertTrue(curator.claimWaitingJob(claimed, JobState.CREATED));
+        assertFalse(UniqueByEntityJob.isSchedulable(curator, next));
+
+        PinsetterKernel kernel = mock(PinsetterKernel.class);
+        new UnpauseJob(curator, kernel).toExecute(null);
+
+        verify(kernel, never()).addTrigger(any(JobStatus.class));
+        assertEquals(JobState.WAITING, curator.find(next.getId()).getState());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void findNumRunningByClassAndTargetThrowsIllegalArguementExceptionWithNullJobClass() {
         curator.findNumRunningByClassAndTarget("TEST", null);
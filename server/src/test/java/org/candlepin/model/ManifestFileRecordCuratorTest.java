@@ -19,7 +19,10 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
 
 import org.candlepin.sync.file.ManifestFileType;
 import org.candlepin.test.DatabaseTestFixture;
@@ -60,13 +63,45 @@ public class ManifestFileRecordCuratorTest extends DatabaseTestFixture {
     }
 
     @Test
-    public void testDeleteExpired() throws Exception {
+    public void testDeleteExpiredBlock() throws Exception {
         Calendar cal = Calendar.getInstance();
         curator.createFile(ManifestFileType.EXPORT, tempFile, "principalId", "ownerId");
 
         cal.add(Calendar.HOUR_OF_DAY, -4);
-        assertEquals(0, curator.deleteExpired(cal.getTime()));
+        assertEquals(0, curator.findExpiredBlock(cal.getTime(), 10).size());
         cal.add(Calendar.HOUR_OF_DAY, 8);
-        assertEquals(2, curator.deleteExpired(cal.getTime()));
+        List<Object[]> expired = curator.findExpiredBlock(cal.getTime(), 1);
+        assertEquals(1, expired.size());
+
+        List<String> ids = new ArrayList<String>();
+        for (Object[] row : curator.findExpiredBlock(cal.getTime(), 10)) {
+            ids.add((String) row[0]);
+        }
+
+        assertEquals(2, curator.deleteByIds(ids));
+        assertEquals(0, curator.findExpiredBlock(cal.getTime(), 10).size());
+    }
+
+    @Test
+    public void testContentHashLookups() throws Exception {
+        ManifestFileRecord hashed = curator.createRecord(ManifestFileType.EXPORT, "export.zip",
+            "principalId", "consumerId", "abc123");
+
+        assertTrue(curator.isContentHashReferenced("abc123"));
+        assertFalse(curator.isContentHashReferenced("def456"));
+        assertEquals(Arrays.asList("abc123"),
+            curator.findContentHashes(ManifestFileType.EXPORT, "consumerId"));
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.HOUR_OF_DAY, 4);
+        List<Object[]> expired = curator.findExpiredBlock(cal.getTime(), 10);
+        boolean found = false;
+        for (Object[] row : expired) {
+            found |= "abc123".equals(row[1]);
+        }
+        assertTrue(found);
+
+        assertTrue(curator.deleteById(hashed.getId()));
+        assertFalse(curator.isContentHashReferenced("abc123"));
     }
 }
@@ -734,4 +734,35 @@ public class OwnerContentCuratorTest extends DatabaseTestFixture {
             Collections.<String, Integer>emptyMap()).list();
         assertEquals(0, contentList4.size());
     }
+
+    private boolean contentExists(Content content) {
+        String jpql = "SELECT count(c) FROM Content c WHERE c.uuid = :content_uuid";
+
+        long count = (Long) this.getEntityManager()
+            .createQuery(jpql)
+            .setParameter("content_uuid", content.getUuid())
+            .getSingleResult();
+
+        return count > 0;
+    }
+
+    @Test
+    public void testDeleteOrphanedContentBlock() {
+        Owner owner = this.createOwner();
+        Content mapped = this.createContent();
+        Content orphan = this.createContent();
+        this.createOwnerContentMapping(owner, mapped);
+
+        List<String> uuids = this.ownerContentCurator.getOrphanedContentUuids(1000);
+        assertTrue(uuids.contains(orphan.getUuid()));
+        assertFalse(uuids.contains(mapped.getUuid()));
+        assertEquals(uuids.size(), this.ownerContentCurator.getOrphanedContentCount());
+
+        int deleted = this.ownerContentCurator.deleteOrphanedContentBlock(1000);
+
+        assertEquals(uuids.size(), deleted);
+        assertFalse(this.contentExists(orphan));
+        assertTrue(this.contentExists(mapped));
+        assertEquals(0, this.ownerContentCurator.getOrphanedContentCount());
+    }
 }
@@ -208,6 +208,29 @@ public class OwnerCuratorTest extends DatabaseTestFixture {
         assertFalse(result.contains(c3.getUuid()));
     }
 
+    @Test
+    public void getConsumerUuidsWithoutStatus() {
+        ConsumerType type = new ConsumerType(ConsumerTypeEnum.SYSTEM);
+        consumerTypeCurator.create(type);
+
+        Owner owner = new Owner("owner");
+        ownerCurator.create(owner);
+
+        Consumer valid = new Consumer("name1", "uname1", owner, type);
+        valid.setEntitlementStatus("valid");
+        Consumer invalid = new Consumer("name2", "uname2", owner, type);
+        invalid.setEntitlementStatus("invalid");
+        Consumer unknown = new Consumer("name3", "uname3", owner, type);
+        consumerCurator.create(valid);
+        consumerCurator.create(invalid);
+        consumerCurator.create(unknown);
+
+        List<String> result = ownerCurator.getConsumerUuidsWithoutStatus(owner, "valid").list();
+        assertEquals(2, result.size());
+        assertTrue(result.contains(invalid.getUuid()));
+        assertTrue(result.contains(unknown.getUuid()));
+    }
+
 
     private List<Owner> setupDBForLookupOwnersForProductTests() {
         Owner owner1 = this.createOwner("owner1");
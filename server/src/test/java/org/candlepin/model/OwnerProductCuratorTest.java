@@ -740,4 +740,35 @@ public class OwnerProductCuratorTest extends DatabaseTestFixture {
             Collections.<String, Integer>emptyMap()).list();
         assertEquals(0, productList4.size());
     }
+
+    private boolean productExists(Product product) {
+        String jpql = "SELECT count(p) FROM Product p WHERE p.uuid = :product_uuid";
+
+        long count = (Long) this.getEntityManager()
+            .createQuery(jpql)
+            .setParameter("product_uuid", product.getUuid())
+            .getSingleResult();
+
+        return count > 0;
+    }
+
+    @Test
+    public void testDeleteOrphanedProductsBlock() {
+        Owner owner = this.createOwner();
+        Product mapped = this.createProduct();
+        Product orphan = this.createProduct();
+        this.createOwnerProductMapping(owner, mapped);
+
+        List<String> uuids = this.ownerProductCurator.getOrphanedProductUuids(1000);
+        assertTrue(uuids.contains(orphan.getUuid()));
+        assertFalse(uuids.contains(mapped.getUuid()));
+        assertEquals(uuids.size(), this.ownerProductCurator.getOrphanedProductCount());
+
+        int deleted = this.ownerProductCurator.deleteOrphanedProductsBlock(1000);
+
+        assertEquals(uuids.size(), deleted);
+        assertFalse(this.productExists(orphan));
+        assertTrue(this.productExists(mapped));
+        assertEquals(0, this.ownerProductCurator.getOrphanedProductCount());
+    }
 }
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import static org.junit.Assert.*;
+
+import org.candlepin.cache.CandlepinCache;
+import org.candlepin.test.CacheTestFixture;
+import org.candlepin.test.TestUtil;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.cache.Cache;
+import javax.inject.Inject;
+
+
+
+/**
+ * Test of the owner service level cache maintained by PoolCurator
+ */
+public class PoolCuratorServiceLevelCacheTest extends CacheTestFixture {
+
+    @Inject private CandlepinCache candlepinCache;
+
+    private Cache<String, OwnerServiceLevels> serviceLevelCache;
+    private Owner owner;
+
+    @Before
+    public void setUp() {
+        this.serviceLevelCache = this.candlepinCache.getOwnerServiceLevelCache();
+        this.owner = this.createOwner();
+    }
+
+    private Product createProductWithLevel(String level) {
+        Product product = TestUtil.createProduct();
+        product.setAttribute(Product.Attributes.SUPPORT_LEVEL, level);
+
+        return this.createProduct(product, this.owner);
+    }
+
+    @Test
+    public void serviceLevelsGetCached() {
+        this.createPool(this.owner, this.createProductWithLevel("Premium"));
+        this.serviceLevelCache.clear();
+
+        assertFalse(this.serviceLevelCache.containsKey(this.owner.getId()));
+        Set<String> levels = this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false);
+
+        assertEquals(Collections.singleton("Premium"), levels);
+        assertTrue(this.serviceLevelCache.containsKey(this.owner.getId()));
+    }
+
+    @Test
+    public void cachedLevelsMatchUncachedLevels() {
+        Product exempt = TestUtil.createProduct();
+        exempt.setAttribute(Product.Attributes.SUPPORT_LEVEL, "Layered");
+        exempt.setAttribute(Product.Attributes.SUPPORT_LEVEL_EXEMPT, "true");
+        this.createPool(this.owner, this.createProduct(exempt, this.owner));
+        this.createPool(this.owner, this.createProductWithLevel("Standard"));
+
+        assertEquals(this.poolCurator.retrieveServiceLevelsForOwner(this.owner, false),
+            this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false));
+        assertEquals(this.poolCurator.retrieveServiceLevelsForOwner(this.owner, true),
+            this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, true));
+    }
+
+    @Test
+    public void poolCreationEvictsCachedLevels() {
+        this.createPool(this.owner, this.createProductWithLevel("Premium"));
+        this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false);
+
+        this.createPool(this.owner, this.createProductWithLevel("Standard"));
+
+        assertFalse(this.serviceLevelCache.containsKey(this.owner.getId()));
+        Set<String> levels = this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false);
+        assertEquals(2, levels.size());
+    }
+
+    @Test
+    public void poolDeletionEvictsCachedLevels() {
+        this.createPool(this.owner, this.createProductWithLevel("Premium"));
+        Pool pool = this.createPool(this.owner, this.createProductWithLevel("Standard"));
+        assertEquals(2, this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false).size());
+
+        this.poolCurator.delete(pool);
+
+        assertFalse(this.serviceLevelCache.containsKey(this.owner.getId()));
+        Set<String> levels = this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false);
+        assertEquals(Collections.singleton("Premium"), levels);
+    }
+
+    @Test
+    public void productReferenceUpdateEvictsCachedLevels() {
+        Product premium = this.createProductWithLevel("Premium");
+        this.createPool(this.owner, premium);
+        this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false);
+
+        Product standard = this.createProductWithLevel("Standard");
+        this.ownerProductCurator.updateOwnerProductReferences(this.owner,
+            Collections.singletonMap(premium.getUuid(), standard.getUuid()));
+
+        assertFalse(this.serviceLevelCache.containsKey(this.owner.getId()));
+    }
+
+    @Test
+    public void levelsCachedBeforeCommitAreEvictedOnCommit() {
+        Pool pool = this.createPool(this.owner, this.createProductWithLevel("Premium"));
+        this.commitTransaction();
+        this.beginTransaction();
+
+        pool.setQuantity(20L);
+        this.poolCurator.merge(pool);
+
+        // Levels cached while the change is pending, as a concurrent request may have done
+        this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false);
+        assertTrue(this.serviceLevelCache.containsKey(this.owner.getId()));
+
+        this.commitTransaction();
+        assertFalse(this.serviceLevelCache.containsKey(this.owner.getId()));
+    }
+
+    @Test
+    public void explicitInvalidationOnlyEvictsTheGivenOwner() {
+        Owner other = this.createOwner();
+        this.poolCurator.retrieveServiceLevelsForOwnerCached(this.owner, false);
+        this.poolCurator.retrieveServiceLevelsForOwnerCached(other, false);
+
+        this.poolCurator.invalidateServiceLevelsForOwner(this.owner);
+
+        assertFalse(this.serviceLevelCache.containsKey(this.owner.getId()));
+        assertTrue(this.serviceLevelCache.containsKey(other.getId()));
+    }
+}
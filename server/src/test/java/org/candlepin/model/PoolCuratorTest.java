@@ -20,6 +20,7 @@ import static org.junit.Assert.*;
 import org.candlepin.auth.NoAuthPrincipal;
 import org.candlepin.common.paging.Page;
 import org.candlepin.common.paging.PageRequest;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.config.DatabaseConfigFactory;
 import org.candlepin.controller.CandlepinPoolManager;
 import org.candlepin.model.ConsumerType.ConsumerTypeEnum;
@@ -299,6 +300,64 @@ public class PoolCuratorTest extends DatabaseTestFixture {
         assertEquals(pool1, results.get(0));
     }
 
+    @Test
+    @Parameters({"true", "false"})
+    public void availablePoolsCanBeFilteredByPromotedAttributes(boolean promoted) throws Exception {
+        if (!promoted) {
+            config.setProperty(ConfigProperties.PROMOTED_ATTRIBUTES, "");
+        }
+
+        Date activeDate = TestUtil.createDate(2000, 3, 2);
+
+        Product sku = TestUtil.createProduct();
+        sku.setAttribute(Product.Attributes.SUPPORT_LEVEL, "Premium");
+        sku = this.createProduct(sku, owner);
+
+        Pool pool1 = createPool(owner, sku, 100L, activeDate, TestUtil.createDate(2005, 3, 2));
+
+        Pool pool2 = createPool(owner, sku, 100L, activeDate, TestUtil.createDate(2005, 3, 2));
+        pool2.setAttribute(Product.Attributes.SUPPORT_LEVEL, "Standard");
+        poolCurator.merge(pool2);
+
+        Pool pool3 = createPool(owner, product, 100L, activeDate, TestUtil.createDate(2005, 3, 2));
+
+        PoolFilterBuilder filters = new PoolFilterBuilder();
+        filters.addAttributeFilter(Product.Attributes.SUPPORT_LEVEL, "prem*");
+
+        List<Pool> results = poolCurator.listAvailableEntitlementPools(null, owner,
+            (Collection<String>) null, null, activeDate, filters, null, false, false, false).getPageData();
+
+        assertEquals(Arrays.asList(pool1), results);
+
+        filters = new PoolFilterBuilder();
+        filters.addAttributeFilter(Product.Attributes.SUPPORT_LEVEL, "!premium");
+
+        results = poolCurator.listAvailableEntitlementPools(null, owner,
+            (Collection<String>) null, null, activeDate, filters, null, false, false, false).getPageData();
+
+        assertEquals(new HashSet<Pool>(Arrays.asList(pool2, pool3)), new HashSet<Pool>(results));
+    }
+
+    @Test
+    public void promotedAttributesAreStoredWithPool() {
+        Pool pool = this.createPool(owner, product);
+        pool.setAttribute(Pool.Attributes.VIRT_ONLY, "True");
+        pool.setAttribute(Pool.Attributes.REQUIRES_HOST, "");
+        poolCurator.merge(pool);
+        poolCurator.flush();
+        poolCurator.clear();
+
+        Object[] row = (Object[]) this.getEntityManager()
+            .createQuery("SELECT p.promotedAttributes.virtOnly, p.promotedAttributes.requiresHost, " +
+                "p.promotedAttributes.devPool FROM Pool p WHERE p.id = :id")
+            .setParameter("id", pool.getId())
+            .getSingleResult();
+
+        assertEquals("true", row[0]);
+        assertEquals("", row[1]);
+        assertNull(row[2]);
+    }
+
     @Test
     public void availablePoolsCanBeFilteredByBothPoolAndProductPoolAttribute()
         throws Exception {
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.candlepin.pinsetter.core.model.JobLaneStatus;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+
+
+/**
+ * JobLaneTest
+ */
+public class JobLaneTest {
+    private Scheduler scheduler;
+    private JobLane lane;
+
+    @Before
+    public void init() {
+        scheduler = mock(Scheduler.class);
+        lane = new JobLane("long", scheduler, 3);
+    }
+
+    private JobExecutionContext mockContext(long scheduled, long fired, long runTime) {
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        when(context.getScheduledFireTime()).thenReturn(new Date(scheduled));
+        when(context.getFireTime()).thenReturn(new Date(fired));
+        when(context.getJobRunTime()).thenReturn(runTime);
+        return context;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void statusReflectsExecutedJobs() throws Exception {
+        Set<TriggerKey> triggers = new HashSet<TriggerKey>();
+        triggers.add(new TriggerKey("t1", PinsetterKernel.SINGLE_JOB_GROUP));
+        triggers.add(new TriggerKey("t2", PinsetterKernel.SINGLE_JOB_GROUP));
+        triggers.add(new TriggerKey("t3", PinsetterKernel.SINGLE_JOB_GROUP));
+        when(scheduler.getTriggerKeys(any(GroupMatcher.class))).thenReturn(triggers);
+
+        JobExecutionContext first = mockContext(1000, 1100, 500);
+        JobExecutionContext second = mockContext(1000, 1300, 0);
+
+        lane.jobToBeExecuted(first);
+        lane.jobWasExecuted(first, null);
+        lane.jobToBeExecuted(second);
+
+        JobLaneStatus status = lane.getStatus();
+        assertEquals("long", status.getName());
+        assertEquals(3, status.getThreads());
+        assertEquals(1, status.getRunning());
+        assertEquals(2, status.getQueued());
+        assertEquals(1, status.getExecuted());
+        assertEquals(200, status.getAverageWaitTime());
+        assertEquals(300, status.getMaxWaitTime());
+        assertEquals(500, status.getAverageRunTime());
+        assertEquals(500, status.getMaxRunTime());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void schedulerIsQueriedOutsideTheLaneLock() throws Exception {
+        when(scheduler.getTriggerKeys(any(GroupMatcher.class))).thenAnswer(new Answer<Set<TriggerKey>>() {
+            @Override
+            public Set<TriggerKey> answer(InvocationOnMock invocation) {
+                assertFalse(Thread.holdsLock(lane));
+                return new HashSet<TriggerKey>();
+            }
+        });
+
+        lane.getStatus();
+        verify(scheduler).getTriggerKeys(any(GroupMatcher.class));
+    }
+
+    @Test
+    public void emptyLaneReportsZeroes() {
+        JobLaneStatus status = lane.getStatus();
+        assertEquals(0, status.getRunning());
+        assertEquals(0, status.getQueued());
+        assertEquals(0, status.getAverageWaitTime());
+        assertEquals(0, status.getAverageRunTime());
+    }
+}
@@ -17,12 +17,14 @@ package org.candlepin.pinsetter.core;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import static org.quartz.JobBuilder.*;
 import static org.quartz.JobKey.*;
 
 import org.candlepin.auth.Principal;
 import org.candlepin.model.JobCurator;
 import org.candlepin.pinsetter.core.model.JobStatus;
 import org.candlepin.pinsetter.core.model.JobStatus.JobState;
+import org.candlepin.pinsetter.tasks.TestUniqueByEntityJob;
 
 import com.google.inject.persist.UnitOfWork;
 
@@ -33,6 +35,8 @@ import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
 
 
 /**
@@ -99,6 +103,77 @@ public class PinsetterJobListenerTest {
         verify(jcurator).merge(eq(status));
     }
 
+    @Test
+    public void executedTriggersNextWaitingJob() throws Exception {
+        JobDetail detail = newJob(TestUniqueByEntityJob.class)
+            .withIdentity("foo")
+            .usingJobData(JobStatus.TARGET_ID, "owner")
+            .build();
+        Scheduler scheduler = mock(Scheduler.class);
+        JobStatus waiting = mock(JobStatus.class);
+
+        when(ctx.getJobDetail()).thenReturn(detail);
+        when(ctx.getScheduler()).thenReturn(scheduler);
+        when(waiting.getId()).thenReturn("waiting");
+        when(waiting.getJobKey()).thenReturn(jobKey("waiting"));
+        when(waiting.getJobClass()).thenReturn(TestUniqueByEntityJob.class.getCanonicalName());
+        when(waiting.getTargetId()).thenReturn("owner");
+        when(jcurator.findNextWaitingByClassAndTarget(eq("owner"), eq(TestUniqueByEntityJob.class)))
+            .thenReturn(waiting);
+        when(jcurator.claimWaitingJob(eq(waiting), eq(JobState.CREATED))).thenReturn(true);
+
+        listener.jobWasExecuted(ctx, null);
+
+        verify(jcurator).claimWaitingJob(eq(waiting), eq(JobState.CREATED));
+        verify(scheduler).scheduleJob(any(Trigger.class));
+    }
+
+    @Test
+    public void executedDoesNotTriggerWaitingJobClaimedElsewhere() throws Exception {
+        JobDetail detail = newJob(TestUniqueByEntityJob.class)
+            .withIdentity("foo")
+            .usingJobData(JobStatus.TARGET_ID, "owner")
+            .build();
+        Scheduler scheduler = mock(Scheduler.class);
+        JobStatus waiting = mock(JobStatus.class);
+
+        when(ctx.getJobDetail()).thenReturn(detail);
+        when(ctx.getScheduler()).thenReturn(scheduler);
+        when(waiting.getJobClass()).thenReturn(TestUniqueByEntityJob.class.getCanonicalName());
+        when(waiting.getTargetId()).thenReturn("owner");
+        when(jcurator.findNextWaitingByClassAndTarget(eq("owner"), eq(TestUniqueByEntityJob.class)))
+            .thenReturn(waiting);
+        when(jcurator.claimWaitingJob(eq(waiting), eq(JobState.CREATED))).thenReturn(false);
+
+        listener.jobWasExecuted(ctx, null);
+
+        verify(scheduler, never()).scheduleJob(any(Trigger.class));
+    }
+
+    @Test
+    public void executedDoesNotTriggerWaitingJobWhileBlocked() throws Exception {
+        JobDetail detail = newJob(TestUniqueByEntityJob.class)
+            .withIdentity("foo")
+            .usingJobData(JobStatus.TARGET_ID, "owner")
+            .build();
+        Scheduler scheduler = mock(Scheduler.class);
+        JobStatus waiting = mock(JobStatus.class);
+
+        when(ctx.getJobDetail()).thenReturn(detail);
+        when(ctx.getScheduler()).thenReturn(scheduler);
+        when(waiting.getJobClass()).thenReturn(TestUniqueByEntityJob.class.getCanonicalName());
+        when(waiting.getTargetId()).thenReturn("owner");
+        when(jcurator.findNextWaitingByClassAndTarget(eq("owner"), eq(TestUniqueByEntityJob.class)))
+            .thenReturn(waiting);
+        when(jcurator.findNumBlockingByClassAndTarget(eq("owner"), eq(TestUniqueByEntityJob.class),
+            anyString())).thenReturn(1L);
+
+        listener.jobWasExecuted(ctx, null);
+
+        verify(scheduler, never()).scheduleJob(any(Trigger.class));
+        verify(jcurator, never()).claimWaitingJob(any(JobStatus.class), any(JobState.class));
+    }
+
     @Test
     public void executedNullStatus() {
         JobExecutionException e = mock(JobExecutionException.class);
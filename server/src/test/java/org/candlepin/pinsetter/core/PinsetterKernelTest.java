@@ -31,6 +31,7 @@ import org.candlepin.model.CandlepinModeChange;
 import org.candlepin.model.CandlepinQuery;
 import org.candlepin.controller.ModeManager;
 import org.candlepin.model.JobCurator;
+import org.candlepin.pinsetter.core.model.JobLaneStatus;
 import org.candlepin.pinsetter.core.model.JobStatus;
 import org.candlepin.pinsetter.tasks.CancelJobJob;
 import org.candlepin.pinsetter.tasks.ImportRecordJob;
@@ -62,6 +63,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import javax.persistence.EntityExistsException;
@@ -418,6 +420,47 @@ public class PinsetterKernelTest {
         verify(sched).scheduleJob(eq(detail), any(Trigger.class));
     }
 
+    @Test
+    public void singleJobRunsInConfiguredLane() throws Exception {
+        final StdSchedulerFactory laneFactory = mock(StdSchedulerFactory.class);
+        Scheduler laneSched = mock(Scheduler.class);
+        ListenerManager laneLm = mock(ListenerManager.class);
+        when(laneFactory.getScheduler()).thenReturn(laneSched);
+        when(laneSched.getListenerManager()).thenReturn(laneLm);
+
+        config.setProperty(ConfigProperties.PINSETTER_LANES, "long");
+        config.setProperty("pinsetter.lane.long.threads", "2");
+        config.setProperty("pinsetter.lane.long.thread_priority", "3");
+        config.setProperty("pinsetter." + TestJob.class.getName() + ".lane", "long");
+
+        pk = new PinsetterKernel(config, jfactory, jlistener, jcurator,
+            sfactory, triggerListener, modeManager) {
+            @Override
+            protected StdSchedulerFactory createSchedulerFactory() {
+                return laneFactory;
+            }
+        };
+
+        ArgumentCaptor<Properties> props = ArgumentCaptor.forClass(Properties.class);
+        verify(laneFactory).initialize(props.capture());
+        assertEquals("2", props.getValue().getProperty("org.quartz.threadPool.threadCount"));
+        assertEquals("3", props.getValue().getProperty("org.quartz.threadPool.threadPriority"));
+        assertEquals("QuartzScheduler-long",
+            props.getValue().getProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME));
+        verify(laneSched).setJobFactory(eq(jfactory));
+        verify(laneLm).addJobListener(eq(jlistener));
+
+        pk.scheduleSingleJob(TestJob.class, "lanejob");
+        verify(laneSched).scheduleJob(any(JobDetail.class), any(Trigger.class));
+        verify(sched, never()).scheduleJob(any(JobDetail.class), any(Trigger.class));
+
+        List<JobLaneStatus> statuses = pk.getLaneStatuses();
+        assertEquals(2, statuses.size());
+        assertEquals(JobLane.DEFAULT_LANE, statuses.get(0).getName());
+        assertEquals("long", statuses.get(1).getName());
+        assertEquals(2, statuses.get(1).getThreads());
+    }
+
     @Test
     public void schedulerStatus() throws Exception {
         when(sched.isInStandbyMode()).thenReturn(false);
@@ -426,6 +469,30 @@ public class PinsetterKernelTest {
         assertTrue(pk.getSchedulerStatus());
     }
 
+    @Test
+    public void schedulerStatusRequiresAllLanesRunning() throws Exception {
+        final StdSchedulerFactory laneFactory = mock(StdSchedulerFactory.class);
+        Scheduler laneSched = mock(Scheduler.class);
+        when(laneFactory.getScheduler()).thenReturn(laneSched);
+        when(laneSched.getListenerManager()).thenReturn(mock(ListenerManager.class));
+        config.setProperty(ConfigProperties.PINSETTER_LANES, "long");
+
+        pk = new PinsetterKernel(config, jfactory, jlistener, jcurator,
+            sfactory, triggerListener, modeManager) {
+            @Override
+            protected StdSchedulerFactory createSchedulerFactory() {
+                return laneFactory;
+            }
+        };
+
+        when(sched.isInStandbyMode()).thenReturn(false);
+        when(laneSched.isInStandbyMode()).thenReturn(true);
+        assertFalse(pk.getSchedulerStatus());
+
+        when(laneSched.isInStandbyMode()).thenReturn(false);
+        assertTrue(pk.getSchedulerStatus());
+    }
+
     @Test
     public void pauseScheduler() throws Exception {
         pk = new PinsetterKernel(config, jfactory, jlistener, jcurator,
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.ConsumerCurator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.quartz.JobExecutionContext;
+
+import java.util.Collections;
+
+
+
+/**
+ * ConsumerFactIndexJobTest
+ */
+public class ConsumerFactIndexJobTest {
+
+    private ConsumerCurator consumerCurator;
+    private MapConfiguration config;
+    private JobExecutionContext ctx;
+    private ConsumerFactIndexJob job;
+
+    @Before
+    public void init() {
+        this.consumerCurator = mock(ConsumerCurator.class);
+        this.ctx = mock(JobExecutionContext.class);
+
+        this.config = new MapConfiguration();
+        this.config.setProperty(ConfigProperties.PINSETTER_CLEANUP_BLOCK_SIZE, "10");
+        this.config.setProperty(ConfigProperties.PINSETTER_CLEANUP_BLOCK_DELAY, "0");
+
+        this.job = new ConsumerFactIndexJob(this.consumerCurator);
+        this.job.config = this.config;
+    }
+
+    @Test
+    public void marksFactIndexedOnlyOnceEveryBlockIsIndexed() throws Exception {
+        when(this.consumerCurator.deleteUnsearchableFactIndexBlock(eq(10))).thenReturn(10, 3);
+        when(this.consumerCurator.getUnindexedFactKeys())
+            .thenReturn(Collections.singleton("uname.machine"));
+        when(this.consumerCurator.indexSearchableFactBlock(eq("uname.machine"), eq(10)))
+            .thenReturn(10, 10, 4);
+
+        this.job.toExecute(this.ctx);
+
+        InOrder order = inOrder(this.consumerCurator);
+        order.verify(this.consumerCurator).removeUnsearchableFactKeys();
+        order.verify(this.consumerCurator, times(2)).deleteUnsearchableFactIndexBlock(eq(10));
+        order.verify(this.consumerCurator, times(3))
+            .indexSearchableFactBlock(eq("uname.machine"), eq(10));
+        order.verify(this.consumerCurator).markFactIndexed(eq("uname.machine"));
+
+        verify(this.ctx).setResult("Consumer fact index updated; 13 index rows removed, 24 consumers " +
+            "indexed");
+    }
+}
@@ -42,6 +42,7 @@ import org.quartz.SchedulerException;
 import org.xnap.commons.i18n.I18n;
 import org.xnap.commons.i18n.I18nFactory;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Set;
@@ -266,8 +267,8 @@ public class HypervisorUpdateJobTest extends BaseJobTest{
         JobDetail detail = HypervisorUpdateJob.forOwner(owner, hypervisorJson, true, principal, null);
         JobStatus newJob = new JobStatus(detail);
         JobCurator jobCurator = mock(JobCurator.class);
-        when(jobCurator.findNumRunningByClassAndTarget(owner.getKey(), HypervisorUpdateJob.class))
-                .thenReturn(1L);
+        when(jobCurator.findNumBlockingByClassAndTarget(owner.getKey(), HypervisorUpdateJob.class,
+            newJob.getId())).thenReturn(1L);
         assertFalse(HypervisorUpdateJob.isSchedulable(jobCurator, newJob));
     }
 
@@ -297,4 +298,97 @@ public class HypervisorUpdateJobTest extends BaseJobTest{
         }
     }
 
+    @Test
+    public void coalescesIntoWaitingJobFromSameReporter() throws Exception {
+        JobDetail waitingDetail = HypervisorUpdateJob.forOwner(owner, hypervisorJson, true, principal,
+            "reporter");
+        JobStatus waiting = new JobStatus(waitingDetail, true);
+
+        String newerJson =
+            "{\"hypervisors\":" +
+            "[{" +
+            "\"name\" : \"hypervisor_999\"," +
+            "\"hypervisorId\" : {\"hypervisorId\":\"UUID_999\"}," +
+            "\"guestIds\" : [{\"guestId\" : \"guestId_2_999\"}]" +
+            "},{" +
+            "\"name\" : \"hypervisor_998\"," +
+            "\"hypervisorId\" : {\"hypervisorId\":\"uuid_998\"}," +
+            "\"guestIds\" : []" +
+            "}]}";
+        JobDetail detail = HypervisorUpdateJob.forOwner(owner, newerJson, true, principal, "reporter");
+
+        JobCurator jobCurator = mock(JobCurator.class);
+        Scheduler scheduler = mock(Scheduler.class);
+        when(jobCurator.getByClassAndTarget(anyString(), any(Class.class))).thenReturn(waiting);
+        when(jobCurator.findWaitingByClassAndTarget(eq("joe"), eq(HypervisorUpdateJob.class)))
+            .thenReturn(Arrays.asList(waiting));
+        when(scheduler.getJobDetail(eq(waiting.getJobKey()))).thenReturn(waitingDetail);
+        when(jobCurator.claimWaitingJob(eq(waiting), eq(JobState.PENDING))).thenReturn(true);
+
+        JobStatus resultStatus = HypervisorUpdateJob.scheduleJob(jobCurator, scheduler, detail, null);
+
+        assertSame(waiting, resultStatus);
+        assertEquals(JobState.WAITING, waiting.getState());
+        verify(scheduler).addJob(eq(waitingDetail), eq(true));
+        verify(jobCurator, never()).create(any(JobStatus.class));
+        assertEquals(1, waitingDetail.getJobDataMap().getInt(HypervisorUpdateJob.COALESCED_COUNT));
+
+        String merged = HypervisorUpdateJob.decompress(
+            (byte[]) waitingDetail.getJobDataMap().get(HypervisorUpdateJob.DATA));
+        assertTrue(merged.contains("guestId_2_999"));
+        assertFalse(merged.contains("guestId_1_999"));
+        assertTrue(merged.contains("uuid_998"));
+    }
+
+    @Test
+    public void schedulesReportSeparatelyWhenWaitingJobClaimedElsewhere() throws Exception {
+        JobDetail waitingDetail = HypervisorUpdateJob.forOwner(owner, hypervisorJson, true, principal,
+            "reporter");
+        JobStatus waiting = new JobStatus(waitingDetail, true);
+        JobDetail detail = HypervisorUpdateJob.forOwner(owner, hypervisorJson, true, principal,
+            "reporter");
+        JobStatus newlyScheduledJobStatus = new JobStatus();
+
+        JobCurator jobCurator = mock(JobCurator.class);
+        Scheduler scheduler = mock(Scheduler.class);
+        ListenerManager lm = mock(ListenerManager.class);
+        when(jobCurator.getByClassAndTarget(anyString(), any(Class.class))).thenReturn(waiting);
+        when(jobCurator.findWaitingByClassAndTarget(eq("joe"), eq(HypervisorUpdateJob.class)))
+            .thenReturn(Arrays.asList(waiting));
+        when(scheduler.getJobDetail(eq(waiting.getJobKey()))).thenReturn(waitingDetail);
+        when(scheduler.getListenerManager()).thenReturn(lm);
+        when(jobCurator.claimWaitingJob(eq(waiting), eq(JobState.PENDING))).thenReturn(false);
+        when(jobCurator.create(any(JobStatus.class))).thenReturn(newlyScheduledJobStatus);
+
+        JobStatus resultStatus = HypervisorUpdateJob.scheduleJob(jobCurator, scheduler, detail, null);
+
+        assertEquals(newlyScheduledJobStatus, resultStatus);
+        verify(scheduler, never()).addJob(eq(waitingDetail), anyBoolean());
+    }
+
+    @Test
+    public void doesNotCoalesceReportsFromDifferentReporters() throws Exception {
+        JobDetail waitingDetail = HypervisorUpdateJob.forOwner(owner, hypervisorJson, true, principal,
+            "reporter");
+        JobStatus waiting = new JobStatus(waitingDetail, true);
+        JobDetail detail = HypervisorUpdateJob.forOwner(owner, hypervisorJson, true, principal,
+            "other_reporter");
+        JobStatus newlyScheduledJobStatus = new JobStatus();
+
+        JobCurator jobCurator = mock(JobCurator.class);
+        Scheduler scheduler = mock(Scheduler.class);
+        ListenerManager lm = mock(ListenerManager.class);
+        when(jobCurator.getByClassAndTarget(anyString(), any(Class.class))).thenReturn(waiting);
+        when(jobCurator.findWaitingByClassAndTarget(eq("joe"), eq(HypervisorUpdateJob.class)))
+            .thenReturn(Arrays.asList(waiting));
+        when(scheduler.getJobDetail(eq(waiting.getJobKey()))).thenReturn(waitingDetail);
+        when(scheduler.getListenerManager()).thenReturn(lm);
+        when(jobCurator.create(any(JobStatus.class))).thenReturn(newlyScheduledJobStatus);
+
+        JobStatus resultStatus = HypervisorUpdateJob.scheduleJob(jobCurator, scheduler, detail, null);
+
+        assertEquals(newlyScheduledJobStatus, resultStatus);
+        verify(scheduler, never()).addJob(eq(waitingDetail), anyBoolean());
+    }
+
 }
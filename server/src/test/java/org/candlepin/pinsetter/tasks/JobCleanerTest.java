@@ -40,7 +40,21 @@ public class JobCleanerTest extends BaseJobTest{
         JobCleaner cleaner = new JobCleaner(curator);
         injector.injectMembers(cleaner);
         cleaner.execute(null);
-        verify(curator).cleanUpOldCompletedJobs(any(Date.class));
-        verify(curator).cleanupAllOldJobs(any(Date.class));
+        verify(curator).deleteOldJobsBlock(any(Date.class), eq(true), anyInt());
+        verify(curator).deleteOldJobsBlock(any(Date.class), eq(false), anyInt());
+    }
+
+    @Test
+    public void deletesInBlocksUntilExhausted() throws Exception {
+        JobCurator curator = mock(JobCurator.class);
+        when(curator.deleteOldJobsBlock(any(Date.class), eq(true), eq(1000)))
+            .thenReturn(1000, 1000, 3);
+
+        JobCleaner cleaner = new JobCleaner(curator);
+        injector.injectMembers(cleaner);
+        cleaner.execute(null);
+
+        verify(curator, times(3)).deleteOldJobsBlock(any(Date.class), eq(true), eq(1000));
+        verify(curator, times(1)).deleteOldJobsBlock(any(Date.class), eq(false), eq(1000));
     }
 }
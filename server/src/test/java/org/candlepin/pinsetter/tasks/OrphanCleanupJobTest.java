@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2009 - 2016 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.OwnerContentCurator;
+import org.candlepin.model.OwnerProductCurator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.quartz.JobExecutionContext;
+
+
+
+/**
+ * OrphanCleanupJobTest
+ */
+public class OrphanCleanupJobTest {
+
+    private OwnerContentCurator ownerContentCurator;
+    private OwnerProductCurator ownerProductCurator;
+    private MapConfiguration config;
+    private JobExecutionContext ctx;
+    private OrphanCleanupJob job;
+
+    @Before
+    public void init() {
+        this.ownerContentCurator = mock(OwnerContentCurator.class);
+        this.ownerProductCurator = mock(OwnerProductCurator.class);
+        this.ctx = mock(JobExecutionContext.class);
+
+        this.config = new MapConfiguration();
+        this.config.setProperty(ConfigProperties.PINSETTER_CLEANUP_BLOCK_SIZE, "10");
+        this.config.setProperty(ConfigProperties.PINSETTER_CLEANUP_BLOCK_DELAY, "0");
+
+        this.job = new OrphanCleanupJob(this.ownerContentCurator, this.ownerProductCurator);
+        this.job.config = this.config;
+    }
+
+    @Test
+    public void dryRunReportsCountsWithoutDeleting() throws Exception {
+        this.config.setProperty(ConfigProperties.ORPHAN_CLEANUP_DRY_RUN, "true");
+        when(this.ownerProductCurator.getOrphanedProductCount()).thenReturn(3);
+        when(this.ownerContentCurator.getOrphanedContentCount()).thenReturn(5);
+
+        this.job.toExecute(this.ctx);
+
+        verify(this.ctx).setResult("Dry run: found 3 orphaned product entities and 5 orphaned " +
+            "content entities");
+        verify(this.ownerProductCurator, never()).deleteOrphanedProductsBlock(anyInt());
+        verify(this.ownerContentCurator, never()).deleteOrphanedContentBlock(anyInt());
+    }
+
+    @Test
+    public void deletesProductsBeforeContent() throws Exception {
+        when(this.ownerProductCurator.deleteOrphanedProductsBlock(eq(10))).thenReturn(10, 2);
+        when(this.ownerContentCurator.deleteOrphanedContentBlock(eq(10))).thenReturn(4);
+
+        this.job.toExecute(this.ctx);
+
+        InOrder order = inOrder(this.ownerProductCurator, this.ownerContentCurator);
+        order.verify(this.ownerProductCurator, times(2)).deleteOrphanedProductsBlock(eq(10));
+        order.verify(this.ownerContentCurator, times(1)).deleteOrphanedContentBlock(eq(10));
+
+        verify(this.ctx).setResult("Deleted 12 orphaned product entities and 4 orphaned " +
+            "content entities");
+        verify(this.ownerProductCurator, never()).getOrphanedProductCount();
+        verify(this.ownerContentCurator, never()).getOrphanedContentCount();
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.candlepin.controller.BatchComplianceEvaluator;
+import org.candlepin.model.Owner;
+import org.candlepin.model.OwnerCurator;
+import org.candlepin.pinsetter.core.model.JobStatus;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+
+
+/**
+ * RecalculateOrgComplianceJobTest
+ */
+public class RecalculateOrgComplianceJobTest extends BaseJobTest {
+
+    private OwnerCurator ownerCurator;
+    private BatchComplianceEvaluator evaluator;
+    private Owner owner;
+    private JobExecutionContext ctx;
+
+    @Before
+    public void setUp() {
+        super.init();
+        ownerCurator = mock(OwnerCurator.class);
+        evaluator = mock(BatchComplianceEvaluator.class);
+        owner = mock(Owner.class);
+        ctx = mock(JobExecutionContext.class);
+        JobDataMap jdm = mock(JobDataMap.class);
+
+        when(ctx.getMergedJobDataMap()).thenReturn(jdm);
+        when(jdm.getString(eq(JobStatus.TARGET_ID))).thenReturn("someownerkey");
+        when(owner.getDisplayName()).thenReturn("test owner");
+    }
+
+    private RecalculateOrgComplianceJob createJob() {
+        RecalculateOrgComplianceJob job = new RecalculateOrgComplianceJob(ownerCurator, evaluator);
+        injector.injectMembers(job);
+        return job;
+    }
+
+    @Test
+    public void execute() throws Exception {
+        when(ownerCurator.lookupByKey(eq("someownerkey"))).thenReturn(owner);
+        when(evaluator.recalculateOwner(eq(owner))).thenReturn(3);
+
+        createJob().execute(ctx);
+
+        verify(evaluator).recalculateOwner(owner);
+        verify(ctx).setResult(
+            eq("Compliance recalculated for owner test owner; 3 consumer(s) changed status"));
+    }
+
+    @Test
+    public void executeWithMissingOwner() throws Exception {
+        createJob().execute(ctx);
+
+        verify(evaluator, never()).recalculateOwner(any(Owner.class));
+        verify(ctx).setResult(eq("Nothing to do. Owner no longer exists"));
+    }
+
+    @Test
+    public void handleException() {
+        when(ownerCurator.lookupByKey(eq("someownerkey"))).thenReturn(owner);
+        doThrow(new NullPointerException()).when(evaluator).recalculateOwner(eq(owner));
+
+        try {
+            createJob().execute(ctx);
+            fail("Expected exception not thrown");
+        }
+        catch (JobExecutionException ex) {
+            assertFalse(ex.refireImmediately());
+        }
+    }
+
+    @Test
+    public void forOwner() {
+        when(owner.getKey()).thenReturn("owner key");
+
+        JobDetail detail = RecalculateOrgComplianceJob.forOwner(owner);
+        assertNotNull(detail);
+        assertEquals(RecalculateOrgComplianceJob.class, detail.getJobClass());
+        assertEquals("owner key", detail.getJobDataMap().get(JobStatus.TARGET_ID));
+        assertEquals(JobStatus.TargetType.OWNER, detail.getJobDataMap().get(JobStatus.TARGET_TYPE));
+    }
+
+}
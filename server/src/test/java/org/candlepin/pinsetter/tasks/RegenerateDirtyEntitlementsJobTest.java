@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pinsetter.tasks;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.candlepin.controller.CertificateRegenerationQueue;
+import org.candlepin.controller.EntitlementCertificateGenerator;
+import org.candlepin.model.Entitlement;
+import org.candlepin.model.EntitlementCurator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.quartz.JobExecutionContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+
+
+/**
+ * RegenerateDirtyEntitlementsJobTest
+ */
+public class RegenerateDirtyEntitlementsJobTest extends BaseJobTest {
+
+    private Set<String> queued;
+    private CertificateRegenerationQueue queue;
+    private EntitlementCurator entitlementCurator;
+    private EntitlementCertificateGenerator ecGenerator;
+    private RegenerateDirtyEntitlementsJob job;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        super.init();
+
+        // Back the mocked queue with a set, standing in for the queue table
+        this.queued = new LinkedHashSet<String>();
+        this.queue = mock(CertificateRegenerationQueue.class);
+
+        doAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                Collection<String> ids = (Collection<String>) invocation.getArguments()[0];
+                int before = queued.size();
+                queued.addAll(ids);
+
+                return queued.size() - before;
+            }
+        }).when(this.queue).addAll(anyCollectionOf(String.class));
+
+        doAnswer(new Answer<List<String>>() {
+            @Override
+            public List<String> answer(InvocationOnMock invocation) throws Throwable {
+                int limit = (Integer) invocation.getArguments()[0];
+                List<String> head = new ArrayList<String>(queued);
+
+                return head.subList(0, Math.min(limit, head.size()));
+            }
+        }).when(this.queue).peek(anyInt());
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                queued.removeAll((Collection<String>) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(this.queue).removeAll(anyCollectionOf(String.class));
+        this.entitlementCurator = mock(EntitlementCurator.class);
+        this.ecGenerator = mock(EntitlementCertificateGenerator.class);
+
+        this.job = new RegenerateDirtyEntitlementsJob(this.queue, this.entitlementCurator, this.ecGenerator);
+        injector.injectMembers(this.job);
+    }
+
+    private Entitlement mockEntitlement(String id, boolean dirty) {
+        Entitlement entitlement = new Entitlement();
+        entitlement.setId(id);
+        entitlement.setDirty(dirty);
+
+        when(this.entitlementCurator.find(eq(id))).thenReturn(entitlement);
+        return entitlement;
+    }
+
+    @Test
+    public void regeneratesQueuedEntitlementsInPriorityOrder() throws Exception {
+        Entitlement ent1 = this.mockEntitlement("ent1", true);
+        Entitlement ent2 = this.mockEntitlement("ent2", true);
+        this.queued.addAll(Arrays.asList("ent1", "ent2", "ent3"));
+
+        // ent3 has already been regenerated; ent2's consumer checked in most recently
+        when(this.entitlementCurator.filterDirtyIds(anyCollectionOf(String.class)))
+            .thenReturn(Arrays.asList("ent2", "ent1"));
+        when(this.entitlementCurator.listDirtyIds(anyInt())).thenReturn(new ArrayList<String>());
+
+        this.job.toExecute(mock(JobExecutionContext.class));
+
+        verify(this.ecGenerator).regenerateCertificatesOf(eq(ent2), eq(false));
+        verify(this.ecGenerator).regenerateCertificatesOf(eq(ent1), eq(false));
+        assertTrue(this.queued.isEmpty());
+        verify(this.queue).removeStale();
+        verify(this.queue).recordRegenerated(eq(2));
+    }
+
+    @Test
+    public void sweepsDatabaseWhenQueueIsEmpty() throws Exception {
+        Entitlement ent1 = this.mockEntitlement("ent1", true);
+
+        when(this.entitlementCurator.listDirtyIds(anyInt()))
+            .thenReturn(Collections.singletonList("ent1"))
+            .thenReturn(new ArrayList<String>());
+        when(this.entitlementCurator.filterDirtyIds(anyCollectionOf(String.class)))
+            .thenReturn(Collections.singletonList("ent1"));
+
+        this.job.toExecute(mock(JobExecutionContext.class));
+
+        verify(this.ecGenerator).regenerateCertificatesOf(eq(ent1), eq(false));
+        verify(this.entitlementCurator, times(1)).listDirtyIds(anyInt());
+        assertTrue(this.queued.isEmpty());
+    }
+
+    @Test
+    public void skipsEntitlementsNoLongerDirty() throws Exception {
+        this.mockEntitlement("ent1", false);
+        this.queued.add("ent1");
+
+        when(this.entitlementCurator.filterDirtyIds(anyCollectionOf(String.class)))
+            .thenReturn(Collections.singletonList("ent1"));
+
+        this.job.toExecute(mock(JobExecutionContext.class));
+
+        verify(this.ecGenerator, never()).regenerateCertificatesOf(any(Entitlement.class), anyBoolean());
+        assertTrue(this.queued.isEmpty());
+        verify(this.queue).recordRegenerated(eq(0));
+    }
+
+    @Test
+    public void failedBatchIsDropped() throws Exception {
+        Entitlement ent1 = this.mockEntitlement("ent1", true);
+        this.queued.add("ent1");
+
+        when(this.entitlementCurator.filterDirtyIds(anyCollectionOf(String.class)))
+            .thenReturn(Collections.singletonList("ent1"));
+        doThrow(new RuntimeException("boom")).when(this.ecGenerator)
+            .regenerateCertificatesOf(eq(ent1), eq(false));
+
+        this.job.toExecute(mock(JobExecutionContext.class));
+
+        assertTrue(this.queued.isEmpty());
+        verify(this.queue, never()).recordRegenerated(anyInt());
+    }
+
+}
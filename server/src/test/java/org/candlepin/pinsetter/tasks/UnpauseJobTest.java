@@ -57,6 +57,8 @@ public class UnpauseJobTest extends BaseJobTest{
         MockitoAnnotations.initMocks(this);
         unpauseJob = new UnpauseJob(jobCurator, pk);
         injector.injectMembers(unpauseJob);
+        when(jobCurator.claimWaitingJob(any(JobStatus.class), eq(JobStatus.JobState.CREATED)))
+            .thenReturn(true);
     }
 
     @Test
@@ -94,6 +96,55 @@ public class UnpauseJobTest extends BaseJobTest{
         }
     }
 
+    @Test
+    public void unPauseTriggersOnlyOldestJobPerTarget() throws Exception {
+        JobDetail first = newJob(TestUniqueByEntityJob.class)
+            .withIdentity("first", "group")
+            .usingJobData(JobStatus.TARGET_ID, "owner")
+            .build();
+        JobDetail second = newJob(TestUniqueByEntityJob.class)
+            .withIdentity("second", "group")
+            .usingJobData(JobStatus.TARGET_ID, "owner")
+            .build();
+
+        JobStatus firstStatus = new JobStatus(first, true);
+        JobStatus secondStatus = new JobStatus(second, true);
+        List<JobStatus> jl = new ArrayList<JobStatus>();
+        jl.add(firstStatus);
+        jl.add(secondStatus);
+
+        CandlepinQuery query = mock(CandlepinQuery.class);
+        when(query.list()).thenReturn(jl);
+        when(jobCurator.findWaitingJobs()).thenReturn(query);
+        when(jobCurator.findNumBlockingByClassAndTarget(eq("owner"), eq(TestUniqueByEntityJob.class),
+            anyString())).thenReturn(0L);
+
+        unpauseJob.execute(ctx);
+
+        verify(pk).addTrigger(firstStatus);
+        verify(pk, never()).addTrigger(secondStatus);
+    }
+
+    @Test
+    public void unPauseSkipsJobClaimedElsewhere() throws Exception {
+        JobDetail jd = newJob(KingpinJob.class)
+            .withIdentity("Kayfabe", "Deluxe")
+            .build();
+
+        JobStatus js = new JobStatus(jd, true);
+        List<JobStatus> jl = new ArrayList<JobStatus>();
+        jl.add(js);
+
+        CandlepinQuery query = mock(CandlepinQuery.class);
+        when(query.list()).thenReturn(jl);
+        when(jobCurator.findWaitingJobs()).thenReturn(query);
+        when(jobCurator.claimWaitingJob(eq(js), eq(JobStatus.JobState.CREATED))).thenReturn(false);
+
+        unpauseJob.execute(ctx);
+
+        verify(pk, never()).addTrigger(any(JobStatus.class));
+    }
+
     @Test
     public void ensureJobCancelledWhenJobClassNoLongerExists() throws Exception {
         JobDetail detail = Mockito.mock(JobDetail.class);
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.config.ConfigProperties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+
+
+/**
+ * KeyPairPoolTest
+ */
+public class KeyPairPoolTest {
+
+    private PKIUtility pki;
+    private MapConfiguration config;
+    private KeyPairPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        this.pki = mock(PKIUtility.class);
+        when(this.pki.generateNewKeyPair()).thenAnswer(new Answer<KeyPair>() {
+            @Override
+            public KeyPair answer(InvocationOnMock invocation) {
+                return new KeyPair(mock(PublicKey.class), mock(PrivateKey.class));
+            }
+        });
+
+        this.config = new MapConfiguration(ConfigProperties.DEFAULT_PROPERTIES);
+        this.config.setProperty(ConfigProperties.KEYPAIR_POOL_SIZE, "5");
+        this.config.setProperty(ConfigProperties.KEYPAIR_POOL_LOW_WATER_MARK, "2");
+        this.config.setProperty(ConfigProperties.KEYPAIR_POOL_THREADS, "1");
+    }
+
+    @After
+    public void tearDown() {
+        if (this.pool != null) {
+            this.pool.stop();
+        }
+    }
+
+    private void waitForAvailable(int expected) throws InterruptedException {
+        for (int i = 0; i < 500 && this.pool.getAvailable() < expected; ++i) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(expected, this.pool.getAvailable());
+    }
+
+    @Test
+    public void testGeneratesInlineWhenNotStarted() throws Exception {
+        this.pool = new KeyPairPool(this.pki, this.config);
+
+        assertNotNull(this.pool.getKeyPair());
+        assertNotNull(this.pool.getKeyPair());
+
+        verify(this.pki, times(2)).generateNewKeyPair();
+        assertEquals(0, this.pool.getAvailable());
+        assertEquals(0, this.pool.getHits());
+        assertEquals(2, this.pool.getMisses());
+    }
+
+    @Test
+    public void testDisabledPoolDoesNotStart() throws Exception {
+        this.config.setProperty(ConfigProperties.KEYPAIR_POOL_SIZE, "0");
+        this.pool = new KeyPairPool(this.pki, this.config);
+        this.pool.start();
+
+        assertNotNull(this.pool.getKeyPair());
+        Thread.sleep(50);
+
+        verify(this.pki, times(1)).generateNewKeyPair();
+        assertEquals(0, this.pool.getAvailable());
+        assertEquals(1, this.pool.getMisses());
+    }
+
+    @Test
+    public void testStartFillsPoolToCapacity() throws Exception {
+        this.pool = new KeyPairPool(this.pki, this.config);
+        this.pool.start();
+
+        this.waitForAvailable(5);
+        assertEquals(5, this.pool.getGenerated());
+    }
+
+    @Test
+    public void testServesKeyPairsFromPool() throws Exception {
+        this.pool = new KeyPairPool(this.pki, this.config);
+        this.pool.start();
+        this.waitForAvailable(5);
+
+        KeyPair first = this.pool.getKeyPair();
+        KeyPair second = this.pool.getKeyPair();
+
+        assertNotNull(first);
+        assertNotSame(first, second);
+        assertEquals(2, this.pool.getHits());
+        assertEquals(0, this.pool.getMisses());
+    }
+
+    @Test
+    public void testRefillsAtLowWaterMark() throws Exception {
+        this.pool = new KeyPairPool(this.pki, this.config);
+        this.pool.start();
+        this.waitForAvailable(5);
+
+        for (int i = 0; i < 3; ++i) {
+            this.pool.getKeyPair();
+        }
+
+        this.waitForAvailable(5);
+        assertEquals(8, this.pool.getGenerated());
+        assertEquals(3, this.pool.getHits());
+    }
+
+    @Test
+    public void testStopDiscardsPooledKeyPairs() throws Exception {
+        this.pool = new KeyPairPool(this.pki, this.config);
+        this.pool.start();
+        this.waitForAvailable(5);
+
+        this.pool.stop();
+        assertEquals(0, this.pool.getAvailable());
+
+        KeyPair keyPair = this.pool.getKeyPair();
+        assertNotNull(keyPair);
+        assertEquals(1, this.pool.getMisses());
+        assertEquals(5, this.pool.getGenerated());
+    }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.DERBoolean;
+import org.bouncycastle.asn1.DERObjectIdentifier;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.junit.Before;
+import org.junit.Test;
+
+
+
+/**
+ * X509ExtensionEncoderTest
+ */
+public class X509ExtensionEncoderTest {
+
+    private static final String OID = "1.3.6.1.4.1.2312.9.2.1234.1.1";
+
+    private X509ExtensionEncoder encoder;
+
+    @Before
+    public void setUp() {
+        this.encoder = new X509ExtensionEncoder();
+    }
+
+    private String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            builder.append(value);
+        }
+
+        return builder.toString();
+    }
+
+    private DERSequence bouncyCastleExtension(String oid, boolean critical, String value) {
+        ASN1EncodableVector vector = new ASN1EncodableVector();
+        vector.add(new DERObjectIdentifier(oid));
+
+        if (critical) {
+            vector.add(new DERBoolean(true));
+        }
+
+        vector.add(new DEROctetString(new DERUTF8String(value)));
+        return new DERSequence(vector);
+    }
+
+    private void assertEncodesLikeBouncyCastle(String oid, boolean critical, String value) {
+        assertArrayEquals(this.bouncyCastleExtension(oid, critical, value).getDEREncoded(),
+            this.encoder.encodeExtension(oid, critical, value));
+    }
+
+    private void assertEncodesLikeBouncyCastle(String value) {
+        this.assertEncodesLikeBouncyCastle(OID, false, value);
+    }
+
+    @Test
+    public void testEncodeEmptyString() {
+        this.assertEncodesLikeBouncyCastle("");
+    }
+
+    @Test
+    public void testEncodeNullAsEmptyString() {
+        assertArrayEquals(this.bouncyCastleExtension(OID, false, "").getDEREncoded(),
+            this.encoder.encodeExtension(OID, false, null));
+    }
+
+    @Test
+    public void testEncodeShortString() {
+        this.assertEncodesLikeBouncyCastle("/content/dist/rhel/server/6/$releasever/$basearch/os");
+    }
+
+    @Test
+    public void testEncodeLongStrings() {
+        // Lengths either side of the short form limit, and requiring one, two and three length bytes
+        for (int length : new int[] { 127, 128, 255, 256, 65535, 65536 }) {
+            this.assertEncodesLikeBouncyCastle(this.repeat("a", length));
+        }
+    }
+
+    @Test
+    public void testEncodeMultibyteCharacters() {
+        this.assertEncodesLikeBouncyCastle("café журнал 日本語");
+        this.assertEncodesLikeBouncyCastle(this.repeat("é日", 100));
+    }
+
+    @Test
+    public void testEncodeSupplementaryCharacters() {
+        this.assertEncodesLikeBouncyCastle("music 𝄞 and 😀");
+    }
+
+    @Test
+    public void testEncodeOids() {
+        this.assertEncodesLikeBouncyCastle("2.5.29.19", true, "critical");
+        this.assertEncodesLikeBouncyCastle("0.9.2342.19200300.100.1.1", false, "uid");
+        this.assertEncodesLikeBouncyCastle("2.999.3", false, "large second arc");
+        this.assertEncodesLikeBouncyCastle("1.3.6.1.4.1.2312.9.2.123456789012345678901234567.1", false,
+            "arc too large for a long");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeRejectsNonNumericOid() {
+        this.encoder.writeExtension("1.3.6.1.4.1.2312.9.1.not-a-hash-id.1", false, "value");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeRejectsEmptyArc() {
+        this.encoder.writeExtension("1.3..6", false, "value");
+    }
+
+    @Test
+    public void testWriteSequenceReusesBuffer() {
+        for (int round = 0; round < 2; ++round) {
+            this.encoder.reset();
+
+            int mark = this.encoder.mark();
+            this.encoder.writeExtension(OID, false, this.repeat("long value ", 200));
+            this.encoder.writeEncoded(this.encoder.encodeExtension("2.5.29.19", true, "short"));
+            this.encoder.writeHeader(mark, X509ExtensionEncoder.SEQUENCE_TAG);
+
+            ASN1EncodableVector vector = new ASN1EncodableVector();
+            vector.add(this.bouncyCastleExtension(OID, false, this.repeat("long value ", 200)));
+            vector.add(this.bouncyCastleExtension("2.5.29.19", true, "short"));
+            byte[] expected = new DERSequence(vector).getDEREncoded();
+
+            assertEquals(expected.length, this.encoder.size());
+            assertArrayEquals(expected, this.encoder.toByteArray());
+        }
+    }
+
+    @Test
+    public void testWriteContentMergesSequences() {
+        ASN1EncodableVector vector = new ASN1EncodableVector();
+        for (int i = 0; i < 20; ++i) {
+            vector.add(this.bouncyCastleExtension(OID + "." + i, false, this.repeat("value ", 10)));
+        }
+
+        byte[] expected = new DERSequence(vector).getDEREncoded();
+
+        int mark = this.encoder.mark();
+        this.encoder.writeContent(expected);
+        this.encoder.writeHeader(mark, X509ExtensionEncoder.SEQUENCE_TAG);
+
+        assertArrayEquals(expected, this.encoder.toByteArray());
+    }
+
+}
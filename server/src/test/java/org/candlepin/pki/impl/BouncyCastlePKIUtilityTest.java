@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2009 - 2012 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.pki.PKIReader;
+import org.candlepin.pki.X509ByteExtensionWrapper;
+import org.candlepin.pki.X509ExtensionEncoder;
+import org.candlepin.pki.X509ExtensionWrapper;
+
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.x509.X509V3CertificateGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+
+
+/**
+ * BouncyCastlePKIUtilityTest
+ */
+@SuppressWarnings("deprecation")
+public class BouncyCastlePKIUtilityTest {
+
+    private static final String OID_PREFIX = "1.3.6.1.4.1.2312.9.2.1234.1.";
+
+    private KeyPair caKeyPair;
+    private BouncyCastlePKIUtility pkiUtility;
+
+    @Before
+    public void setUp() throws Exception {
+        PKIReader reader = mock(PKIReader.class);
+        this.pkiUtility = new BouncyCastlePKIUtility(reader, new DefaultSubjectKeyIdentifierWriter(),
+            new MapConfiguration());
+
+        this.caKeyPair = this.pkiUtility.generateNewKeyPair();
+
+        X509V3CertificateGenerator certGen = new X509V3CertificateGenerator();
+        certGen.setSerialNumber(BigInteger.ONE);
+        certGen.setIssuerDN(new X500Principal("CN=Test CA"));
+        certGen.setSubjectDN(new X500Principal("CN=Test CA"));
+        certGen.setNotBefore(new Date(System.currentTimeMillis() - 86400000L));
+        certGen.setNotAfter(new Date(System.currentTimeMillis() + 86400000L));
+        certGen.setPublicKey(this.caKeyPair.getPublic());
+        certGen.setSignatureAlgorithm(BouncyCastlePKIUtility.SIGNATURE_ALGO);
+        X509Certificate caCert = certGen.generate(this.caKeyPair.getPrivate());
+
+        when(reader.getCACert()).thenReturn(caCert);
+        when(reader.getCaKey()).thenReturn(this.caKeyPair.getPrivate());
+    }
+
+    private byte[] encodedUtf8Value(String value) {
+        return new DEROctetString(new DERUTF8String(value)).getDEREncoded();
+    }
+
+    @Test
+    public void testCreateX509Certificate() throws Exception {
+        KeyPair clientKeyPair = this.pkiUtility.generateNewKeyPair();
+        Date startDate = new Date(1500000000000L);
+        Date endDate = new Date(2500000000000L);
+
+        X509ExtensionEncoder encoder = new X509ExtensionEncoder();
+        Set<X509ExtensionWrapper> extensions = new LinkedHashSet<X509ExtensionWrapper>();
+        extensions.add(new X509ExtensionWrapper(OID_PREFIX + "1", false, "plain value"));
+        extensions.add(new X509ExtensionWrapper(OID_PREFIX + "2", false, null));
+        extensions.add(new X509ExtensionWrapper(OID_PREFIX + "3", false, "pre-encoded value",
+            encoder.encodeExtension(OID_PREFIX + "3", false, "pre-encoded value")));
+
+        Set<X509ByteExtensionWrapper> byteExtensions = Collections.singleton(
+            new X509ByteExtensionWrapper(OID_PREFIX + "4", false, new byte[] { 1, 2, 3 }));
+
+        // Generate twice, to check the thread's encoder is reset between certificates
+        for (int i = 0; i < 2; ++i) {
+            X509Certificate cert = this.pkiUtility.createX509Certificate("CN=consumer, O=owner",
+                extensions, byteExtensions, startDate, endDate, clientKeyPair, BigInteger.valueOf(1234L),
+                "alternate");
+
+            cert.verify(this.caKeyPair.getPublic());
+
+            assertEquals(3, cert.getVersion());
+            assertEquals(BigInteger.valueOf(1234L), cert.getSerialNumber());
+            assertEquals(new X500Principal("CN=consumer, O=owner"), cert.getSubjectX500Principal());
+            assertEquals(new X500Principal("CN=Test CA"), cert.getIssuerX500Principal());
+            assertEquals(startDate, cert.getNotBefore());
+            assertEquals(endDate, cert.getNotAfter());
+            assertEquals(clientKeyPair.getPublic(), cert.getPublicKey());
+
+            assertTrue(cert.getKeyUsage()[0]);
+            assertEquals(2, cert.getSubjectAlternativeNames().size());
+
+            assertArrayEquals(this.encodedUtf8Value("plain value"), cert.getExtensionValue(OID_PREFIX + "1"));
+            assertArrayEquals(this.encodedUtf8Value(""), cert.getExtensionValue(OID_PREFIX + "2"));
+            assertArrayEquals(this.encodedUtf8Value("pre-encoded value"),
+                cert.getExtensionValue(OID_PREFIX + "3"));
+            assertArrayEquals(new DEROctetString(new DEROctetString(new byte[] { 1, 2, 3 })).getDEREncoded(),
+                cert.getExtensionValue(OID_PREFIX + "4"));
+        }
+    }
+
+}
@@ -16,6 +16,8 @@ package org.candlepin.resource;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -50,6 +52,7 @@ import org.candlepin.model.Role;
 import org.candlepin.model.User;
 import org.candlepin.model.activationkeys.ActivationKey;
 import org.candlepin.model.activationkeys.ActivationKeyCurator;
+import org.candlepin.pinsetter.tasks.RegisterConsumersJob;
 import org.candlepin.policy.js.compliance.ComplianceRules;
 import org.candlepin.policy.js.compliance.ComplianceStatus;
 import org.candlepin.resource.util.ConsumerBindUtil;
@@ -70,6 +73,7 @@ import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
+import org.quartz.JobDetail;
 import org.xnap.commons.i18n.I18n;
 import org.xnap.commons.i18n.I18nFactory;
 
@@ -132,7 +136,7 @@ public class ConsumerResourceCreationTest {
             null, this.idCertService, null, this.i18n, this.sink, null, null, null, this.userService, null,
             null, this.ownerCurator, this.activationKeyCurator, null, this.complianceRules,
             this.deletedConsumerCurator, null, null, this.config, null, null, null, this.consumerBindUtil,
-            null, null, new FactValidator(this.config, this.i18n), null, consumerEnricher);
+            null, null, new FactValidator(this.config, this.i18n), null, consumerEnricher, null);
 
         this.system = initSystem();
 
@@ -277,6 +281,95 @@ public class ConsumerResourceCreationTest {
         createConsumer("bar$%camp");
     }
 
+    private List<Consumer> createConsumers(String... consumerNames) {
+        Collection<Permission> perms = new HashSet<Permission>();
+        perms.add(new OwnerPermission(owner, Access.ALL));
+        Principal principal = new UserPrincipal(USER, perms, false);
+
+        List<Consumer> consumers = new ArrayList<Consumer>();
+        for (String consumerName : consumerNames) {
+            consumers.add(new Consumer(consumerName, null, null, system));
+        }
+
+        return this.resource.createBulk(consumers, principal, USER, owner.getKey(), null, true);
+    }
+
+    @Test
+    public void registerBulk() throws Exception {
+        config.setProperty(ConfigProperties.CONSUMER_BULK_REGISTRATION_MAX_SIZE, "2");
+
+        List<Consumer> created = createConsumers("sys1.example.com", "sys2.example.com");
+
+        Assert.assertEquals(2, created.size());
+        for (Consumer consumer : created) {
+            Assert.assertEquals(owner, consumer.getOwner());
+            verify(consumerCurator).create(consumer);
+        }
+
+        // The type is resolved once for the batch, and the certificates are generated together
+        verify(consumerTypeCurator, times(1)).lookupByLabel(system.getLabel());
+        verify(idCertService, times(1)).generateIdentityCerts(created);
+        verify(idCertService, never()).generateIdentityCert(any(Consumer.class));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void registerBulkRejectsOversizedBatch() {
+        config.setProperty(ConfigProperties.CONSUMER_BULK_REGISTRATION_MAX_SIZE, "2");
+        createConsumers("sys1.example.com", "sys2.example.com", "sys3.example.com");
+    }
+
+    private JobDetail createConsumersAsync(String... consumerNames) {
+        Collection<Permission> perms = new HashSet<Permission>();
+        perms.add(new OwnerPermission(owner, Access.ALL));
+        Principal principal = new UserPrincipal(USER, perms, false);
+
+        List<Consumer> consumers = new ArrayList<Consumer>();
+        for (String consumerName : consumerNames) {
+            consumers.add(new Consumer(consumerName, null, null, system));
+        }
+
+        return this.resource.createBulkAsync(consumers, principal, USER, owner.getKey(), null, true);
+    }
+
+    @Test
+    public void registerBulkAsyncAcceptsMoreThanOneChunk() {
+        config.setProperty(ConfigProperties.CONSUMER_BULK_REGISTRATION_MAX_SIZE, "2");
+        config.setProperty(ConfigProperties.CONSUMER_BULK_REGISTRATION_ASYNC_MAX_SIZE, "3");
+
+        JobDetail detail = createConsumersAsync("sys1.example.com", "sys2.example.com",
+            "sys3.example.com");
+
+        List<?> consumers = (List<?>) detail.getJobDataMap().get(RegisterConsumersJob.DATA);
+        Assert.assertEquals(3, consumers.size());
+        verify(consumerCurator, never()).create(any(Consumer.class));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void registerBulkAsyncRejectsOversizedBatch() {
+        config.setProperty(ConfigProperties.CONSUMER_BULK_REGISTRATION_ASYNC_MAX_SIZE, "2");
+        createConsumersAsync("sys1.example.com", "sys2.example.com", "sys3.example.com");
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void registerBulkAsyncRejectsEmptyPayload() {
+        createConsumersAsync();
+    }
+
+    @Test
+    public void registerBulkValidatesBeforeCreating() {
+        config.setProperty(ConfigProperties.CONSUMER_BULK_REGISTRATION_MAX_SIZE, "2");
+
+        try {
+            createConsumers("sys1.example.com", "#sys2.example.com");
+            Assert.fail("Expected BadRequestException");
+        }
+        catch (BadRequestException e) {
+            // expected
+        }
+
+        verify(consumerCurator, never()).create(any(Consumer.class));
+    }
+
     @Test(expected = ForbiddenException.class)
     public void authRequired() {
         Principal p = new NoAuthPrincipal();
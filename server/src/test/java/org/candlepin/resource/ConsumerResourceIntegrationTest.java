@@ -556,7 +556,7 @@ public class ConsumerResourceIntegrationTest extends DatabaseTestFixture {
             this.consumerCurator, null, null, null, null, this.entitlementCurator, null, null, null, null,
             null, null, null, null, this.poolManager, null, null, null, null, null, null, null, null,
             new CandlepinCommonTestConfig(), null, null, null, mock(ConsumerBindUtil.class),
-            null, null, null, null, consumerEnricher);
+            null, null, null, null, consumerEnricher, null);
 
         Response rsp = consumerResource.bind(consumer.getUuid(), pool.getId().toString(), null, 1, null,
             null, false, null, null, null, null);
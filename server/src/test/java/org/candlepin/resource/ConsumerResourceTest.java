@@ -33,6 +33,7 @@ import org.candlepin.auth.UserPrincipal;
 import org.candlepin.common.config.Configuration;
 import org.candlepin.common.exceptions.BadRequestException;
 import org.candlepin.common.exceptions.NotFoundException;
+import org.candlepin.common.jackson.DynamicFilterData;
 import org.candlepin.config.CandlepinCommonTestConfig;
 import org.candlepin.controller.CandlepinPoolManager;
 import org.candlepin.controller.Entitler;
@@ -85,6 +86,7 @@ import org.candlepin.util.ServiceLevelValidator;
 
 import org.apache.commons.lang.RandomStringUtils;
 import org.hibernate.mapping.Collection;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -167,7 +169,7 @@ public class ConsumerResourceTest {
             mockedEntitlementCertServiceAdapter, i18n, null, null, null, null,
             null, mockedPoolManager, null, mockedOwnerCurator, null, null, null,
             null, null, null, new CandlepinCommonTestConfig(), null, null, null,
-            consumerBindUtil, null, null, factValidator, null, consumerEnricher);
+            consumerBindUtil, null, null, factValidator, null, consumerEnricher, null);
 
         UserPrincipal uap = mock(UserPrincipal.class);
         when(uap.canAccess(any(Object.class), any(SubResource.class), any(Access.class))).thenReturn
@@ -195,7 +197,7 @@ public class ConsumerResourceTest {
             mockedEntitlementCertServiceAdapter, i18n, null, null, null, null,
             null, mockedPoolManager, null, mockedOwnerCurator, null, null, null,
             null, null, null, new CandlepinCommonTestConfig(), null, null, null,
-            consumerBindUtil, null, null, factValidator, null, consumerEnricher);
+            consumerBindUtil, null, null, factValidator, null, consumerEnricher, null);
 
         UserPrincipal uap = mock(UserPrincipal.class);
         when(uap.canAccess(any(Object.class), any(SubResource.class), any(Access.class))).thenReturn
@@ -233,7 +235,7 @@ public class ConsumerResourceTest {
             mockedConsumerCurator, null, null, null, null, mockedEntitlementCurator, null,
             mockedEntitlementCertServiceAdapter, null, null, null, null, null, null, mockedPoolManager, null,
             null, null, null, null, null, null, null, this.config, null, null, null, consumerBindUtil,
-            null, mockContentAccessCertService, this.factValidator, null, consumerEnricher);
+            null, mockContentAccessCertService, this.factValidator, null, consumerEnricher, null);
 
         List<CertificateSerialDto> serials = consumerResource
             .getEntitlementCertificateSerials(consumer.getUuid());
@@ -262,7 +264,7 @@ public class ConsumerResourceTest {
         CandlepinPoolManager poolManager = new CandlepinPoolManager(
             null, null, null, this.config, null, null, mockedEntitlementCurator,
             mockedConsumerCurator, null, null, null, null, mockedActivationKeyRules, null, null,
-            null, null, null, null, null, null, null, null
+            null, null, null, null, null, null, null, null, null
         );
 
         ConsumerResource consumerResource = new ConsumerResource(
@@ -270,7 +272,7 @@ public class ConsumerResourceTest {
             mockedEntitlementCertServiceAdapter, null, null, null, null, null, null,
             poolManager, null, null, null, null, null, null, null, null,
             this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         consumerResource.regenerateEntitlementCertificates(consumer.getUuid(), "9999", false);
     }
@@ -304,7 +306,7 @@ public class ConsumerResourceTest {
             null, mockedSubscriptionServiceAdapter, this.mockedOwnerServiceAdapter, null, null, null, null,
             null, null, null, null, null, mgr, null, null, null, null, null, null, null, null,
             this.config, null, null, null, consumerBindUtil, null, null, this.factValidator,
-            null, consumerEnricher);
+            null, consumerEnricher, null);
 
         cr.regenerateEntitlementCertificates(consumer.getUuid(), null, true);
         Mockito.verify(mgr, Mockito.times(1)).regenerateCertificatesOf(eq(consumer), eq(true));
@@ -333,7 +335,7 @@ public class ConsumerResourceTest {
             null, null, null, mockedIdSvc, null, null, sink, eventFactory, null, null,
             null, null, null, mockedOwnerCurator, null, null, null, null,
             null, null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         Consumer fooc = cr.regenerateIdentityCertificates(consumer.getUuid());
 
@@ -368,7 +370,7 @@ public class ConsumerResourceTest {
             null, ssa, this.mockedOwnerServiceAdapter, null, mockedIdSvc, null, null, sink, eventFactory,
             null, null, null, null, null, mockedOwnerCurator, null, null, rules, null,
             null, null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         Consumer c = cr.getConsumer(consumer.getUuid());
 
@@ -392,13 +394,99 @@ public class ConsumerResourceTest {
             null, ssa, this.mockedOwnerServiceAdapter, null, null, null, null, null, null, null, null, null,
             null, null, mockedOwnerCurator, null, null, rules, null, null, null,
             this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         Consumer c = cr.getConsumer(consumer.getUuid());
 
         assertEquals(origserial, c.getIdCert().getSerial().getSerial());
     }
 
+    @Test
+    public void testGetConsumerSkipsFilteredEnrichment() throws Exception {
+        SubscriptionServiceAdapter ssa = Mockito.mock(SubscriptionServiceAdapter.class);
+        Consumer consumer = createConsumer();
+        consumer.setIdCert(createIdCert(TestUtil.createDate(2099, 6, 9)));
+        when(mockedConsumerCurator.verifyAndLookupConsumer(consumer.getUuid())).thenReturn(consumer);
+
+        ConsumerResource cr = new ConsumerResource(mockedConsumerCurator, null,
+            null, ssa, this.mockedOwnerServiceAdapter, null, null, null, null, null, null, null, null, null,
+            null, null, mockedOwnerCurator, null, null, null, null, null, null,
+            this.config, null, null, null, consumerBindUtil,
+            null, null, this.factValidator, null, consumerEnricher, null);
+
+        DynamicFilterData filterData = new DynamicFilterData();
+        filterData.excludeAttribute("canActivate");
+        filterData.excludeAttribute("installedProducts.startDate");
+        filterData.excludeAttribute("installedProducts.endDate");
+        ResteasyProviderFactory.pushContext(DynamicFilterData.class, filterData);
+
+        try {
+            cr.getConsumer(consumer.getUuid());
+        }
+        finally {
+            ResteasyProviderFactory.popContextData(DynamicFilterData.class);
+        }
+
+        verify(ssa, never()).canActivateSubscription(any(Consumer.class));
+        verify(consumerEnricher).enrich(eq(consumer), eq(false));
+    }
+
+    @Test
+    public void testGetConsumerCalculatesDateRangesOnlyWhenIncluded() throws Exception {
+        Consumer consumer = createConsumer();
+        consumer.setIdCert(createIdCert(TestUtil.createDate(2099, 6, 9)));
+        when(mockedConsumerCurator.verifyAndLookupConsumer(consumer.getUuid())).thenReturn(consumer);
+
+        ConsumerResource cr = new ConsumerResource(mockedConsumerCurator, null,
+            null, mockedSubscriptionServiceAdapter, this.mockedOwnerServiceAdapter, null, null, null, null,
+            null, null, null, null, null, null, null, mockedOwnerCurator, null, null, null, null, null, null,
+            this.config, null, null, null, consumerBindUtil,
+            null, null, this.factValidator, null, consumerEnricher, null);
+
+        cr.getConsumer(consumer.getUuid());
+        verify(consumerEnricher).enrich(eq(consumer), eq(false));
+
+        DynamicFilterData filterData = new DynamicFilterData();
+        filterData.includeAttribute("installedProducts.startDate");
+        ResteasyProviderFactory.pushContext(DynamicFilterData.class, filterData);
+
+        try {
+            cr.getConsumer(consumer.getUuid());
+        }
+        finally {
+            ResteasyProviderFactory.popContextData(DynamicFilterData.class);
+        }
+
+        verify(consumerEnricher).enrich(eq(consumer), eq(true));
+    }
+
+    @Test
+    public void testGetConsumerSkipsEnrichmentWithoutInstalledProducts() throws Exception {
+        Consumer consumer = createConsumer();
+        consumer.setIdCert(createIdCert(TestUtil.createDate(2099, 6, 9)));
+        when(mockedConsumerCurator.verifyAndLookupConsumer(consumer.getUuid())).thenReturn(consumer);
+
+        ConsumerResource cr = new ConsumerResource(mockedConsumerCurator, null,
+            null, mockedSubscriptionServiceAdapter, this.mockedOwnerServiceAdapter, null, null, null, null,
+            null, null, null, null, null, null, null, mockedOwnerCurator, null, null, null, null, null, null,
+            this.config, null, null, null, consumerBindUtil,
+            null, null, this.factValidator, null, consumerEnricher, null);
+
+        DynamicFilterData filterData = new DynamicFilterData(true);
+        filterData.includeAttribute("uuid");
+        ResteasyProviderFactory.pushContext(DynamicFilterData.class, filterData);
+
+        try {
+            cr.getConsumer(consumer.getUuid());
+        }
+        finally {
+            ResteasyProviderFactory.popContextData(DynamicFilterData.class);
+        }
+
+        verify(mockedSubscriptionServiceAdapter, never()).canActivateSubscription(any(Consumer.class));
+        verify(consumerEnricher, never()).enrich(any(Consumer.class), anyBoolean());
+    }
+
     @Test(expected = BadRequestException.class)
     public void testCreatePersonConsumerWithActivationKey() {
         Consumer c = mock(Consumer.class);
@@ -423,7 +511,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, i18n, null, null, null, null,
             null, null, null, oc, akc, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         cr.create(c, nap, null, "testOwner", "testKey", true);
     }
@@ -444,7 +532,7 @@ public class ConsumerResourceTest {
             null, sa, this.mockedOwnerServiceAdapter, null, null, null, i18n, null, null, null, null, null,
             null, null, null, null, e, null, null, null, null,
             this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
 
         Response r = cr.bind(
@@ -470,7 +558,7 @@ public class ConsumerResourceTest {
         ConsumerResource cr = new ConsumerResource(cc, null, null, sa, this.mockedOwnerServiceAdapter, null,
             null, null, i18n, null, null, null, null, null, pm, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil, null, null, this.factValidator,
-            null, consumerEnricher);
+            null, consumerEnricher, null);
 
         Response rsp = cr.bind("fakeConsumer", null, null, null, null, null, true, null,
             null, pools, new TrustedUserPrincipal("TaylorSwift"));
@@ -511,7 +599,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, null, null, null, null,
             null, null, null, e, null, null, null, null,
             this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         String dtStr = "2011-09-26T18:10:50.184081+00:00";
         Date dt = ResourceDateParser.parseDateString(dtStr);
@@ -535,7 +623,7 @@ public class ConsumerResourceTest {
             null, null, null, entitlementCurator, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         consumerResource.unbindBySerial("fake uuid",
             Long.valueOf(1234L));
@@ -559,7 +647,7 @@ public class ConsumerResourceTest {
             null, null, null, entitlementCurator, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         consumerResource.unbindByPool("fake-uuid", "Run Forest!");
     }
@@ -571,7 +659,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         Consumer c = createConsumer();
         when(consumerCurator.verifyAndLookupConsumerWithEntitlements(eq(c.getUuid()))).thenReturn(c);
@@ -586,7 +674,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         PoolIdAndQuantity[] pools = new PoolIdAndQuantity[2];
         pools[0] = new PoolIdAndQuantity("first", 1);
@@ -605,7 +693,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         PoolIdAndQuantity[] pools = new PoolIdAndQuantity[2];
         pools[0] = new PoolIdAndQuantity("first", 1);
@@ -624,7 +712,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         PoolIdAndQuantity[] pools = new PoolIdAndQuantity[2];
         pools[0] = new PoolIdAndQuantity("first", 1);
@@ -642,7 +730,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         PoolIdAndQuantity[] pools = new PoolIdAndQuantity[2];
         pools[0] = new PoolIdAndQuantity("first", 1);
@@ -663,7 +751,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         Consumer c = createConsumer();
         when(consumerCurator.verifyAndLookupConsumerWithEntitlements(eq(c.getUuid()))).thenReturn(c);
@@ -684,7 +772,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         consumerResource.regenerateEntitlementCertificates("xyz", null, true);
     }
@@ -727,7 +815,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, i18n, null, null, null, null,
             usa, null,  null, oc, null, null, null, null, null,
             null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         cr.create(c, up, null, "testOwner", null, true);
     }
@@ -761,7 +849,7 @@ public class ConsumerResourceTest {
         ConsumerResource consumerResource = new ConsumerResource(
             null, null, null, null, null, null, null, null, i18n, null, null, null, null, null, null, null,
             oc, null, null, null, null, null, null, this.config, null, null, null, null, null, null,
-            this.factValidator, null, consumerEnricher);
+            this.factValidator, null, consumerEnricher, null);
 
         return consumerResource;
     }
@@ -793,7 +881,7 @@ public class ConsumerResourceTest {
         ConsumerResource cr = new ConsumerResource(mockedConsumerCurator, null, null, null, null, null, null,
             null, i18n, null, null, null, null, null, null, null, null, null, null, mockedComplianceRules,
             null, null, null, this.config, null, null, null, consumerBindUtil, null, null,
-            this.factValidator, null, consumerEnricher);
+            this.factValidator, null, consumerEnricher, null);
 
         Map<String, ComplianceStatus> results = cr.getComplianceStatusList(uuids);
         assertEquals(2, results.size());
@@ -808,7 +896,7 @@ public class ConsumerResourceTest {
             null, null, null, null, null, null, i18n, null, null, null,
             null, null, null, null, null, null, null, mockedComplianceRules,
             null, null, null, this.config, null, null, null, consumerBindUtil,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         cr.consumerExists("uuid");
     }
@@ -819,7 +907,7 @@ public class ConsumerResourceTest {
         ConsumerResource cr = new ConsumerResource(mockedConsumerCurator, null, null, null, null, null, null,
             null, i18n, null, null, null, null, null, null, null, null, null, null, mockedComplianceRules,
             null, null, null, this.config, null, null, null, consumerBindUtil, null, null,
-            this.factValidator, null, consumerEnricher);
+            this.factValidator, null, consumerEnricher, null);
 
         cr.consumerExists("uuid");
     }
@@ -829,7 +917,7 @@ public class ConsumerResourceTest {
         ConsumerResource cr = new ConsumerResource(
             null, null, null, null, null, null, null, null, i18n, null, null, null, null, null, null, null,
             null, null, null, null, null, null, null, this.config, null, null, null, null, null,
-            null, this.factValidator, null, consumerEnricher);
+            null, this.factValidator, null, consumerEnricher, null);
 
         cr.list(null, null, null, null, null, null, null);
     }
@@ -840,7 +928,7 @@ public class ConsumerResourceTest {
             mockedConsumerCurator, null, null, null, null, null, null, null, i18n, null, null, null, null,
             null, null, null, null, null, null, null, null, null, null, this.config, null, null, null, null,
             null, null, this.factValidator, new ConsumerTypeValidator(null, null),
-            consumerEnricher);
+            consumerEnricher, null);
 
         ArrayList<Consumer> consumers = new ArrayList<Consumer>();
 
@@ -860,7 +948,7 @@ public class ConsumerResourceTest {
         ConsumerResource cr = new ConsumerResource(
             mockedConsumerCurator, null, null, null, null, null, null, null, i18n, null, null, null, null,
             null, null, null, mockedOwnerCurator, null, null, null, null, null, null, this.config, null, null,
-            null, null, null, null, this.factValidator, null, consumerEnricher);
+            null, null, null, null, this.factValidator, null, consumerEnricher, null);
 
         ArrayList<Consumer> consumers = new ArrayList<Consumer>();
         CandlepinQuery cqmock = mock(CandlepinQuery.class);
@@ -882,7 +970,7 @@ public class ConsumerResourceTest {
         ConsumerResource cr = new ConsumerResource(
             mockedConsumerCurator, null, null, null, null, null, null, null, i18n, null, null, null, null,
             null, null, null, null, null, null, null, null, null, null, this.config, null, null, null, null,
-            null, null, this.factValidator, null, consumerEnricher);
+            null, null, this.factValidator, null, consumerEnricher, null);
 
         cr.list(null, null, null, new ArrayList<String>(), null, null, null);
     }
@@ -893,7 +981,7 @@ public class ConsumerResourceTest {
             mockedConsumerCurator, null, null, null, null, null, null, null, i18n, null, null, null, null,
             null, null, null, null, null, null, null, null, null, null, this.config, null, null, null, null,
             null, null, this.factValidator, new ConsumerTypeValidator(null, null),
-            consumerEnricher);
+            consumerEnricher, null);
 
         ArrayList<Consumer> consumers = new ArrayList<Consumer>();
         CandlepinQuery cqmock = mock(CandlepinQuery.class);
@@ -924,7 +1012,7 @@ public class ConsumerResourceTest {
             mockedConsumerCurator, null, null, null, null, mockedEntitlementCurator, null,
             mockedEntitlementCertServiceAdapter, null, null, null, null, null, null, mockedPoolManager, null,
             null, null, null, null, null, null, null, this.config, null, null, null, consumerBindUtil,
-            null, mockContentAccessCertService, this.factValidator, null, consumerEnricher));
+            null, mockContentAccessCertService, this.factValidator, null, consumerEnricher, null));
 
         List<CertificateSerialDto> serials = consumerResource
             .getEntitlementCertificateSerials(consumer.getUuid());
@@ -944,7 +1032,7 @@ public class ConsumerResourceTest {
             mockedConsumerCurator, null, null, null, null, mockedEntitlementCurator, null,
             mockedEntitlementCertServiceAdapter, null, null, null, null, null, null, mockedPoolManager, null,
             null, null, null, null, null, null, null, this.config, null, null, null, consumerBindUtil,
-            null, mockContentAccessCertService, this.factValidator, null, consumerEnricher));
+            null, mockContentAccessCertService, this.factValidator, null, consumerEnricher, null));
 
         Set<Long> serials = new HashSet<Long>();
         List<Certificate> certs = consumerResource
@@ -961,7 +1049,7 @@ public class ConsumerResourceTest {
         ConsumerResource consumerResource = new ConsumerResource(
             mockedConsumerCurator, null, null, null, null, null, null, null, i18n, null, null, null, null,
             null, null, null, mockedOwnerCurator, null, null, null, null, null, null, this.config, null, null,
-            null, null, manifestManager, null, this.factValidator, null, consumerEnricher);
+            null, null, manifestManager, null, this.factValidator, null, consumerEnricher, null);
 
         try {
             consumerResource.dryBind(consumer.getUuid(), "some-sla");
@@ -980,7 +1068,7 @@ public class ConsumerResourceTest {
             mockedConsumerCurator, null, null, null, null, null, null, null, i18n, null, null, null, null,
             null, null, null, mockedOwnerCurator, null, null, null, null, null, null, this.config, null,
             mockedCdnCurator, null, null, manifestManager, null, this.factValidator, null,
-            consumerEnricher);
+            consumerEnricher, null);
 
         List<KeyValueParameter> extParams = new ArrayList<KeyValueParameter>();
         Owner owner = TestUtil.createOwner();
@@ -143,6 +143,53 @@ public class InstalledProductStatusCalculatorTest {
         assertEquals(range.getEndDate(), cip.getEndDate());
     }
 
+    @Test
+    public void enrichWithoutDateRangesCalculatesMissingStatus() {
+        Owner owner = TestUtil.createOwner();
+        Product product = TestUtil.createProduct("p1", "product1");
+        Consumer consumer = this.mockConsumer(owner, product);
+
+        DateRange range = this.rangeRelativeToDate(new Date(), -6, 6);
+        Entitlement entitlement = this.mockEntitlement(owner, consumer, product, range, product);
+        consumer.addEntitlement(entitlement);
+
+        this.mockConsumerEntitlements(consumer, consumer.getEntitlements());
+        this.mockOwnerProducts(owner, Arrays.asList(product));
+
+        this.consumerEnricher.enrich(consumer, false);
+
+        ConsumerInstalledProduct cip = this.getInstalledProduct(consumer, product);
+        assertEquals("green", cip.getStatus());
+        assertNull(cip.getStartDate());
+        assertNull(cip.getEndDate());
+    }
+
+    @Test
+    public void enrichWithoutDateRangesUsesPersistedStatus() {
+        Owner owner = TestUtil.createOwner();
+        Product product = TestUtil.createProduct("p1", "product1");
+        product.setAttribute(Product.Attributes.VERSION, "7.3");
+        Consumer consumer = this.mockConsumer(owner, product);
+
+        DateRange range = this.rangeRelativeToDate(new Date(), -6, 6);
+        Entitlement entitlement = this.mockEntitlement(owner, consumer, product, range, product);
+        consumer.addEntitlement(entitlement);
+
+        this.mockConsumerEntitlements(consumer, consumer.getEntitlements());
+        this.mockOwnerProducts(owner, Arrays.asList(product));
+
+        ConsumerInstalledProduct cip = this.getInstalledProduct(consumer, product);
+        cip.setStatus("yellow");
+
+        this.consumerEnricher.enrich(consumer, false);
+
+        assertEquals("yellow", cip.getStatus());
+        assertNull(cip.getStartDate());
+        assertNull(cip.getEndDate());
+        assertEquals("7.3", cip.getVersion());
+        verifyZeroInteractions(this.entCurator);
+    }
+
     @Test
     public void validRangeForUnmappedGuestEntitlement() {
         Date now = new Date();
@@ -30,10 +30,12 @@ import org.candlepin.model.Consumer;
 import org.candlepin.model.IdentityCertificate;
 import org.candlepin.model.IdentityCertificateCurator;
 import org.candlepin.model.KeyPairCurator;
+import org.candlepin.pki.CertificateSigningExecutorProvider;
 import org.candlepin.pki.PKIUtility;
 import org.candlepin.util.ExpiryDateFunction;
 import org.candlepin.util.Util;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -48,6 +50,9 @@ import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 
 /**
@@ -61,12 +66,19 @@ public class DefaultIdentityCertServiceAdapterTest {
     @Mock private KeyPairCurator kpc;
     @Mock private CertificateSerialCurator csc;
     private DefaultIdentityCertServiceAdapter dicsa;
+    private ExecutorService signingExecutor;
 
 
     @Before
     public void setUp() {
+        signingExecutor = new CertificateSigningExecutorProvider().get();
         dicsa = new DefaultIdentityCertServiceAdapter(pki, idcur, kpc, csc,
-            new ExpiryDateFunction(1));
+            new ExpiryDateFunction(1), signingExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        signingExecutor.shutdownNow();
     }
 
     // can't mock a final class, so create a dummy one
@@ -119,6 +131,53 @@ public class DefaultIdentityCertServiceAdapterTest {
         verify(csc).create(any(CertificateSerial.class));
     }
 
+    @Test
+    public void testGenerateBulk() throws GeneralSecurityException, IOException {
+        Consumer existing = mock(Consumer.class);
+        IdentityCertificate existingCert = mock(IdentityCertificate.class);
+        when(existingCert.getId()).thenReturn("41");
+        when(existing.getIdCert()).thenReturn(existingCert);
+        when(idcur.find("41")).thenReturn(existingCert);
+
+        Consumer consumer1 = mock(Consumer.class);
+        when(consumer1.getUuid()).thenReturn(Util.generateUUID());
+        Consumer consumer2 = mock(Consumer.class);
+        when(consumer2.getUuid()).thenReturn(Util.generateUUID());
+
+        when(kpc.getConsumerKeyPair(any(Consumer.class))).thenReturn(createKeyPair());
+        when(csc.create(any(CertificateSerial.class))).thenAnswer(
+            new Answer<CertificateSerial>() {
+                private long serial = 42L;
+
+                public CertificateSerial answer(InvocationOnMock invocation) {
+                    CertificateSerial cs = (CertificateSerial) invocation.getArguments()[0];
+                    cs.setId(serial++);
+                    return cs;
+                }
+            });
+
+        when(pki.getPemEncoded(any(X509Certificate.class))).thenReturn("x509cert".getBytes());
+        when(pki.getPemEncoded(any(PrivateKey.class))).thenReturn("priv".getBytes());
+        when(idcur.create(any(IdentityCertificate.class))).thenAnswer(
+            new Answer<IdentityCertificate>() {
+                public IdentityCertificate answer(InvocationOnMock invocation) {
+                    return (IdentityCertificate) invocation.getArguments()[0];
+                }
+            });
+
+        List<IdentityCertificate> certs = dicsa.generateIdentityCerts(
+            Arrays.asList(consumer1, existing, consumer2));
+
+        assertEquals(3, certs.size());
+        assertEquals(existingCert, certs.get(1));
+        assertEquals("x509cert", certs.get(0).getCert());
+        assertEquals("priv", certs.get(2).getKey());
+        assertNotSame(certs.get(0).getSerial(), certs.get(2).getSerial());
+        verify(consumer1).setIdCert(certs.get(0));
+        verify(consumer2).setIdCert(certs.get(2));
+        verify(existing, never()).setIdCert(any(IdentityCertificate.class));
+    }
+
     @Test
     public void testReturnExisting() throws GeneralSecurityException, IOException {
         Consumer consumer = mock(Consumer.class);
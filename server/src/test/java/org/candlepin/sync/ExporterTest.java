@@ -58,7 +58,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -67,10 +70,11 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -113,6 +117,7 @@ public class ExporterTest {
     private ProductCurator pc;
     private SyncUtils su;
     private ExportExtensionAdapter exportExtensionAdapter;
+    private static PrivateKey signingKey;
 
     @Before
     public void setUp() {
@@ -143,6 +148,26 @@ public class ExporterTest {
         exportExtensionAdapter = mock(ExportExtensionAdapter.class);
 
         when(exportRules.canExport(any(Entitlement.class))).thenReturn(Boolean.TRUE);
+        when(pki.getSHA256WithRSASignature()).thenAnswer(new Answer<Signature>() {
+            @Override
+            public Signature answer(InvocationOnMock invocation) throws Throwable {
+                Signature signature = Signature.getInstance("SHA256withRSA");
+                signature.initSign(signingKey);
+                return signature;
+            }
+        });
+
+        CandlepinQuery emptyEntitlementQuery = mock(CandlepinQuery.class);
+        when(emptyEntitlementQuery.iterate(anyInt(), anyBoolean()))
+            .thenReturn(new MockResultIterator(Arrays.asList().iterator()));
+        when(ec.findByConsumer(any(Consumer.class))).thenReturn(emptyEntitlementQuery);
+    }
+
+    @BeforeClass
+    public static void generateSigningKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        signingKey = generator.generateKeyPair().getPrivate();
     }
 
     private KeyPair createKeyPair() {
@@ -224,9 +249,11 @@ public class ExporterTest {
 
         when(ent.getPool()).thenReturn(pool);
         when(mrules.getRules()).thenReturn("foobar");
-        when(pki.getSHA256WithRSAHash(any(InputStream.class))).thenReturn("signature".getBytes());
         when(rc.getRules()).thenReturn(mrules);
-        when(consumer.getEntitlements()).thenReturn(entitlements);
+        CandlepinQuery entQuery = mock(CandlepinQuery.class);
+        when(entQuery.iterate(anyInt(), anyBoolean()))
+            .thenReturn(new MockResultIterator(entitlements.iterator()));
+        when(ec.findByConsumer(consumer)).thenReturn(entQuery);
         when(psa.getProductCertificate(any(Owner.class), any(String.class))).thenReturn(pcert);
         when(pprov.get()).thenReturn(principal);
         when(principal.getUsername()).thenReturn("testUser");
@@ -286,12 +313,13 @@ public class ExporterTest {
         List<Entitlement> entitlements = new ArrayList<Entitlement>();
         entitlements.add(ent);
 
-        when(pki.getSHA256WithRSAHash(any(InputStream.class))).thenReturn(
-            "signature".getBytes());
         when(pprov.get()).thenReturn(principal);
         when(principal.getUsername()).thenReturn("testUser");
 
-        when(ec.listByConsumer(consumer)).thenReturn(entitlements);
+        CandlepinQuery entQuery = mock(CandlepinQuery.class);
+        when(entQuery.iterate(anyInt(), anyBoolean()))
+            .thenReturn(new MockResultIterator(entitlements.iterator()));
+        when(ec.findByConsumer(consumer)).thenReturn(entQuery);
         when(ent.isDirty()).thenReturn(true);
         idcert.setSerial(new CertificateSerial(10L, new Date()));
         idcert.setKey("euh0876puhapodifbvj094");
@@ -326,7 +354,6 @@ public class ExporterTest {
         IdentityCertificate idcert = new IdentityCertificate();
 
         when(mrules.getRules()).thenReturn("foobar");
-        when(pki.getSHA256WithRSAHash(any(InputStream.class))).thenReturn("signature".getBytes());
         when(rc.getRules()).thenReturn(mrules);
         when(pprov.get()).thenReturn(principal);
         when(principal.getUsername()).thenReturn("testUser");
@@ -376,7 +403,6 @@ public class ExporterTest {
         Principal principal = mock(Principal.class);
 
         when(mrules.getRules()).thenReturn("foobar");
-        when(pki.getSHA256WithRSAHash(any(InputStream.class))).thenReturn("signature".getBytes());
         when(rc.getRules()).thenReturn(mrules);
         when(pprov.get()).thenReturn(principal);
         when(principal.getUsername()).thenReturn("testUser");
@@ -426,7 +452,6 @@ public class ExporterTest {
         Principal principal = mock(Principal.class);
 
         when(mrules.getRules()).thenReturn("foobar");
-        when(pki.getSHA256WithRSAHash(any(InputStream.class))).thenReturn("signature".getBytes());
         when(rc.getRules()).thenReturn(mrules);
         when(pprov.get()).thenReturn(principal);
         when(principal.getUsername()).thenReturn("testUser");
@@ -476,7 +501,6 @@ public class ExporterTest {
         Principal principal = mock(Principal.class);
 
         when(mrules.getRules()).thenReturn("foobar");
-        when(pki.getSHA256WithRSAHash(any(InputStream.class))).thenReturn("signature".getBytes());
         when(rc.getRules()).thenReturn(mrules);
         when(pprov.get()).thenReturn(principal);
         when(principal.getUsername()).thenReturn("testUser");
@@ -548,7 +572,6 @@ public class ExporterTest {
 
         Rules mrules = mock(Rules.class);
         when(mrules.getRules()).thenReturn("foobar");
-        when(pki.getSHA256WithRSAHash(any(InputStream.class))).thenReturn("signature".getBytes());
         when(rc.getRules()).thenReturn(mrules);
 
         // specific to this test
@@ -44,6 +44,7 @@ import org.candlepin.model.DistributorVersion;
 import org.candlepin.model.DistributorVersionCapability;
 import org.candlepin.model.DistributorVersionCurator;
 import org.candlepin.model.Entitlement;
+import org.candlepin.model.IdentityCertificate;
 import org.candlepin.model.ExporterMetadata;
 import org.candlepin.model.ExporterMetadataCurator;
 import org.candlepin.model.IdentityCertificateCurator;
@@ -62,12 +63,12 @@ import org.candlepin.pki.impl.BouncyCastlePKIUtility;
 import org.candlepin.pki.impl.DefaultSubjectKeyIdentifierWriter;
 import org.candlepin.service.OwnerServiceAdapter;
 import org.candlepin.service.SubscriptionServiceAdapter;
-import org.candlepin.sync.Importer.ImportFile;
 
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.apache.commons.io.FileUtils;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.junit.After;
 import org.junit.Before;
@@ -87,9 +88,14 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.net.URISyntaxException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.Security;
+import java.security.Signature;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -114,7 +120,6 @@ public class ImporterTest {
 
     private ObjectMapper mapper;
     private I18n i18n;
-    private String mockJsPath;
     private CandlepinCommonTestConfig config;
     private ClassLoader classLoader = getClass().getClassLoader();
     private SyncUtils su;
@@ -141,7 +146,6 @@ public class ImporterTest {
         ps.println("version=0.0.3");
         ps.println("release=1");
         ps.close();
-        mockJsPath = new File(folder.getRoot(), "empty.js").getPath();
 
         this.mockSubReconciler = Mockito.mock(SubscriptionReconciler.class);
     }
@@ -177,7 +181,7 @@ public class ImporterTest {
         when(emc.lookupByType(ExporterMetadata.TYPE_SYSTEM)).thenReturn(em);
         Importer i = new Importer(null, null, null, null, null, null,
             null, null, null, emc, null, null, i18n, null, null, su, null, this.mockSubReconciler);
-        i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, actual,
+        i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, mapper.readValue(actual, Meta.class),
             new ConflictOverrides());
 
         Meta fileMeta = mapper.readValue(file, Meta.class);
@@ -201,7 +205,7 @@ public class ImporterTest {
         when(emc.lookupByType(ExporterMetadata.TYPE_SYSTEM)).thenReturn(null);
         Importer i = new Importer(null, null, null, null, null, null,
             null, null, null, emc, null, null, i18n, null, null, su, null, this.mockSubReconciler);
-        i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, actualmeta,
+        i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, mapper.readValue(actualmeta, Meta.class),
             new ConflictOverrides());
         assertTrue(f.delete());
         assertTrue(actualmeta.delete());
@@ -223,7 +227,7 @@ public class ImporterTest {
         Importer i = new Importer(null, null, null, null, null, null,
             null, null, null, emc, null, null, i18n, null, null, su, null, this.mockSubReconciler);
         try {
-            i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, actualmeta,
+            i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, mapper.readValue(actualmeta, Meta.class),
                 new ConflictOverrides());
             fail();
         }
@@ -251,7 +255,7 @@ public class ImporterTest {
         Importer i = new Importer(null, null, null, null, null, null,
             null, null, null, emc, null, null, i18n, null, null, su, null, this.mockSubReconciler);
         try {
-            i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, actualmeta,
+            i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, mapper.readValue(actualmeta, Meta.class),
                 new ConflictOverrides());
             fail();
         }
@@ -298,7 +302,7 @@ public class ImporterTest {
         when(emc.lookupByType(ExporterMetadata.TYPE_SYSTEM)).thenReturn(em);
         Importer i = new Importer(null, null, null, null, null, null,
             null, null, null, emc, null, null, i18n, null, null, su, null, this.mockSubReconciler);
-        i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, actualmeta,
+        i.validateMetadata(ExporterMetadata.TYPE_SYSTEM, null, mapper.readValue(actualmeta, Meta.class),
             new ConflictOverrides());
         assertEquals(importDate, em.getExported());
     }
@@ -312,7 +316,7 @@ public class ImporterTest {
                 null, null, null, null, null, null, i18n, null, null, su, null, this.mockSubReconciler);
 
             // null Type should cause exception
-            i.validateMetadata(null, null, actualmeta, new ConflictOverrides());
+            i.validateMetadata(null, null, mapper.readValue(actualmeta, Meta.class), new ConflictOverrides());
         }
         finally {
             assertTrue(actualmeta.delete());
@@ -330,7 +334,7 @@ public class ImporterTest {
             null, null, null, emc, null, null, i18n, null, null, su, null, this.mockSubReconciler);
 
         // null Type should cause exception
-        i.validateMetadata(ExporterMetadata.TYPE_PER_USER, null, actualmeta,
+        i.validateMetadata(ExporterMetadata.TYPE_PER_USER, null, mapper.readValue(actualmeta, Meta.class),
             new ConflictOverrides());
         verify(emc, never()).create(any(ExporterMetadata.class));
     }
@@ -404,9 +408,8 @@ public class ImporterTest {
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
 
-        // Mock a passed signature check:
-        when(pki.verifySHA256WithRSAHashAgainstCACerts(any(File.class),
-            any(byte [].class))).thenReturn(true);
+        // Override the signature check:
+        when(co.isForced(Importer.Conflict.SIGNATURE_CONFLICT)).thenReturn(true);
 
         File archive = new File(folder.getRoot(), "file.zip");
         ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
@@ -433,9 +436,8 @@ public class ImporterTest {
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
 
-        // Mock a passed signature check:
-        when(pki.verifySHA256WithRSAHashAgainstCACerts(any(File.class),
-            any(byte [].class))).thenReturn(true);
+        // Override the signature check:
+        when(co.isForced(Importer.Conflict.SIGNATURE_CONFLICT)).thenReturn(true);
 
         File archive = new File(folder.getRoot(), "file.zip");
         ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
@@ -453,16 +455,93 @@ public class ImporterTest {
         i.loadExport(owner, archive, co, "original_file.zip");
     }
 
-    private Map<String, File> getTestImportFiles() {
-        Map<String, File> importFiles = new HashMap<String, File>();
-        importFiles.put(ImportFile.META.fileName(), mock(File.class));
-        importFiles.put(ImportFile.RULES_FILE.fileName(), mock(File.class));
-        importFiles.put(ImportFile.CONSUMER_TYPE.fileName(), mock(File.class));
-        importFiles.put(ImportFile.CONSUMER.fileName(), mock(File.class));
-        importFiles.put(ImportFile.PRODUCTS.fileName(), mock(File.class));
-        importFiles.put(ImportFile.ENTITLEMENTS.fileName(), mock(File.class));
-        importFiles.put(ImportFile.DISTRIBUTOR_VERSIONS.fileName(), mock(File.class));
-        return importFiles;
+    /**
+     * Builds a manifest archive whose consumer_export archive is signed with the given key. If
+     * tampered, the consumer_export archive is modified after it has been signed.
+     */
+    private File createSignedArchive(KeyPair keys, boolean tampered) throws Exception {
+        File ceArchive = new File(folder.getRoot(), "consumer_export.zip");
+        ZipOutputStream cezip = new ZipOutputStream(new FileOutputStream(ceArchive));
+        cezip.putNextEntry(new ZipEntry("no_content"));
+        cezip.close();
+
+        byte[] data = FileUtils.readFileToByteArray(ceArchive);
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keys.getPrivate());
+        signer.update(data);
+        byte[] signature = signer.sign();
+
+        if (tampered) {
+            data[data.length / 2] ^= 0x01;
+            FileUtils.writeByteArrayToFile(ceArchive, data);
+        }
+
+        File archive = new File(folder.getRoot(), "file.zip");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
+        out.putNextEntry(new ZipEntry("signature"));
+        out.write(signature);
+        addFileToArchive(out, ceArchive);
+        out.close();
+
+        return archive;
+    }
+
+    private PKIUtility mockVerifyingPki(KeyPair keys) throws Exception {
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(keys.getPublic());
+
+        PKIUtility pki = mock(PKIUtility.class);
+        when(pki.getSHA256WithRSAVerifiers()).thenReturn(Arrays.asList(verifier));
+
+        return pki;
+    }
+
+    @Test
+    public void testImportValidSignatureWithoutForce() throws Exception {
+        KeyPair keys = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        PKIUtility pki = this.mockVerifyingPki(keys);
+        Importer i = new Importer(null, null, null, null, null, null, null,
+            pki, config, null, null, null, i18n, null, null, su, null, this.mockSubReconciler);
+        Owner owner = mock(Owner.class);
+        ConflictOverrides co = mock(ConflictOverrides.class);
+
+        File archive = this.createSignedArchive(keys, false);
+
+        // The signature is accepted without forcing, so the import proceeds to the (empty)
+        // consumer_export archive
+        ee.expect(ImportExtractionException.class);
+        ee.expectMessage("consumer_export archive has no contents");
+        i.loadExport(owner, archive, co, "original_file.zip");
+    }
+
+    @Test(expected = ImportConflictException.class)
+    public void testImportTamperedArchiveRejected() throws Exception {
+        KeyPair keys = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        PKIUtility pki = this.mockVerifyingPki(keys);
+        Importer i = new Importer(null, null, null, null, null, null, null,
+            pki, config, null, null, null, i18n, null, null, su, null, this.mockSubReconciler);
+        Owner owner = mock(Owner.class);
+        ConflictOverrides co = mock(ConflictOverrides.class);
+
+        File archive = this.createSignedArchive(keys, true);
+
+        i.loadExport(owner, archive, co, "original_file.zip");
+    }
+
+    private ManifestContents getTestManifestContents() {
+        Owner owner = new Owner("admin", "Admin Owner");
+
+        ManifestContents contents = new ManifestContents();
+        contents.setMeta(new Meta("0.0.3", new Date(), "test_user", "prefix", null));
+        contents.setRules("// nothing to see here");
+        contents.setConsumerTypes(new HashSet<ConsumerType>());
+        contents.setConsumer(new ConsumerDto("eb5e04bf-be27-44cf-abe3-0c0b1edd523e", "mymachine",
+            new ConsumerType(ConsumerTypeEnum.CANDLEPIN), owner, "foo.example.com/subscription",
+            "/candlepin", ""));
+        contents.setProducts(new HashSet<Product>());
+        contents.setEntitlements(new ArrayList<Entitlement>());
+        contents.setDistributorVersions(new HashSet<DistributorVersion>());
+        return contents;
     }
 
     @Test
@@ -473,14 +552,14 @@ public class ImporterTest {
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
 
-        Map<String, File> importFiles = getTestImportFiles();
-        importFiles.put(ImportFile.META.fileName(), null);
+        ManifestContents contents = getTestManifestContents();
+        contents.setMeta(null);
 
         String m = i18n.tr("The archive does not contain the " +
             "required meta.json file");
         ee.expect(ImporterException.class);
         ee.expectMessage(m);
-        i.importObjects(owner, importFiles, co);
+        i.importObjects(owner, contents, co);
     }
 
     @Test
@@ -490,15 +569,15 @@ public class ImporterTest {
             null, config, null, null, null, i18n, null, null, su, null, this.mockSubReconciler);
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
-        Map<String, File> importFiles = getTestImportFiles();
+        ManifestContents contents = getTestManifestContents();
 
-        importFiles.put(ImportFile.CONSUMER_TYPE.fileName(), null);
+        contents.setConsumerTypes(null);
 
         String m = i18n.tr("The archive does not contain the " +
             "required consumer_types directory");
         ee.expect(ImporterException.class);
         ee.expectMessage(m);
-        i.importObjects(owner, importFiles, co);
+        i.importObjects(owner, contents, co);
     }
 
     @Test
@@ -508,15 +587,15 @@ public class ImporterTest {
             null, config, null, null, null, i18n, null, null, su, null, this.mockSubReconciler);
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
-        Map<String, File> importFiles = getTestImportFiles();
+        ManifestContents contents = getTestManifestContents();
 
-        importFiles.put(ImportFile.CONSUMER.fileName(), null);
+        contents.setConsumer(null);
 
         String m = i18n.tr("The archive does not contain the " +
             "required consumer.json file");
         ee.expect(ImporterException.class);
         ee.expectMessage(m);
-        i.importObjects(owner, importFiles, co);
+        i.importObjects(owner, contents, co);
     }
 
     @Test
@@ -528,27 +607,19 @@ public class ImporterTest {
             null, config, null, null, null, i18n, null, null, su, null, this.mockSubReconciler);
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
-        Map<String, File> importFiles = getTestImportFiles();
-        File ruleDir = mock(File.class);
-        File[] rulesFiles = createMockJsFile(mockJsPath);
-        when(ruleDir.listFiles()).thenReturn(rulesFiles);
-        File actualmeta = createFile("meta.json", "0.0.3", new Date(),
-            "test_user", "prefix");
+        ManifestContents contents = getTestManifestContents();
         // this is the hook to stop testing. we confirm that the archive component tests
         //  are passed and then jump out instead of trying to fake the actual file
         //  processing.
         doThrow(new RuntimeException("Done with the test")).when(ri).importObject(
             any(Reader.class));
 
-        importFiles.put(ImportFile.META.fileName(), actualmeta);
-        importFiles.put(ImportFile.RULES_FILE.fileName(), rulesFiles[0]);
-        importFiles.put(ImportFile.PRODUCTS.fileName(), null);
-        importFiles.put(ImportFile.ENTITLEMENTS.fileName(), null);
-        importFiles.put(ImportFile.UPSTREAM_CONSUMER.fileName(), mock(File.class));
+        contents.setProducts(null);
+        contents.setEntitlements(null);
 
         ee.expect(RuntimeException.class);
         ee.expectMessage("Done with the test");
-        i.importObjects(owner, importFiles, co);
+        i.importObjects(owner, contents, co);
     }
 
     @Test
@@ -571,52 +642,34 @@ public class ImporterTest {
         when(pm.getRefresher(any(SubscriptionServiceAdapter.class), any(OwnerServiceAdapter.class)))
             .thenReturn(refresher);
 
-        Map<String, File> importFiles = new HashMap<String, File>();
-        File ruleDir = mock(File.class);
-        File[] rulesFiles = createMockJsFile(mockJsPath);
-        when(ruleDir.listFiles()).thenReturn(rulesFiles);
-
-        File actualmeta = createFile("meta.json", "0.0.3", new Date(), "test_user", "prefix");
-        importFiles.put(ImportFile.META.fileName(), actualmeta);
+        ManifestContents contents = new ManifestContents();
+        contents.setMeta(new Meta("0.0.3", new Date(), "test_user", "prefix", null));
+        contents.setRules("// nothing to see here");
+        contents.setConsumerTypes(new HashSet<ConsumerType>());
 
         ConsumerDto consumer = new ConsumerDto("eb5e04bf-be27-44cf-abe3-0c0b1edd523e", "mymachine",
             new ConsumerType(ConsumerTypeEnum.CANDLEPIN), owner, "foo.example.com/subscription",
             "/candlepin", "");
-        File consumerFile = new File(folder.getRoot(), "consumer.json");
-        mapper.writeValue(consumerFile, consumer);
-        importFiles.put(ImportFile.CONSUMER.fileName(), consumerFile);
-
-        File cTypes = mock(File.class);
-        when(cTypes.listFiles()).thenReturn(new File[]{});
-        importFiles.put(ImportFile.CONSUMER_TYPE.fileName(), cTypes);
+        contents.setConsumer(mapper.readValue(mapper.writeValueAsString(consumer), ConsumerDto.class));
 
         Product prod = new Product("prodId", "prodTest", null);
         prod.setDependentProductIds(null);
-        File prodFile = new File(folder.getRoot(), "product.json");
-        mapper.writeValue(prodFile, prod);
-        File products = mock(File.class);
-        when(products.listFiles()).thenReturn(new File[]{prodFile});
-        importFiles.put(ImportFile.PRODUCTS.fileName(), products);
+        contents.addProduct(new ProductImporter().createObject(mapper,
+            new StringReader(mapper.writeValueAsString(prod)), owner));
 
         Entitlement ent = new Entitlement();
         Pool pool = new Pool();
         pool.setProduct(prod);
         ent.setPool(pool);
         ent.setQuantity(2);
-        File entFile = new File(folder.getRoot(), "entitlement.json");
-        mapper.writeValue(entFile, ent);
-        File entitlements = mock(File.class);
-        when(entitlements.listFiles()).thenReturn(new File[]{entFile});
-        importFiles.put(ImportFile.ENTITLEMENTS.fileName(), entitlements);
+        contents.addEntitlement(mapper.readValue(mapper.writeValueAsString(ent), Entitlement.class));
 
         RulesImporter ri = mock(RulesImporter.class);
-        importFiles.put(ImportFile.RULES_FILE.fileName(), rulesFiles[0]);
-
         ConflictOverrides co = mock(ConflictOverrides.class);
 
         Importer i = new Importer(ctc, pc, ri, oc, null, null, pm,
             null, config, emc, null, null, i18n, null, null, su, null, this.mockSubReconciler);
-        List<Subscription> subscriptions = i.importObjects(owner, importFiles, co);
+        List<Subscription> subscriptions = i.importObjects(owner, contents, co);
 
         assertEquals(1, subscriptions.size());
         assertEquals("prodId", subscriptions.get(0).getProduct().getId());
@@ -630,15 +683,15 @@ public class ImporterTest {
             null, config, null, null, null, i18n, null, null, su, null, this.mockSubReconciler);
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
-        Map<String, File> importFiles = getTestImportFiles();
+        ManifestContents contents = getTestManifestContents();
 
-        importFiles.put(ImportFile.ENTITLEMENTS.fileName(), null);
+        contents.setEntitlements(null);
 
         String m = i18n.tr("The archive does not contain the " +
             "required entitlements directory");
         ee.expect(ImporterException.class);
         ee.expectMessage(m);
-        i.importObjects(owner, importFiles, co);
+        i.importObjects(owner, contents, co);
     }
 
     private File createFile(String filename, String version, Date date,
@@ -651,18 +704,6 @@ public class ImporterTest {
         return f;
     }
 
-    private File[] createMockJsFile(String filename)
-        throws IOException {
-
-        FileWriter f = new FileWriter(filename);
-        f.write("// nothing to see here");
-        f.close();
-
-        File[] fileArray = new File[1];
-        fileArray[0] = new File(filename);
-        return fileArray;
-    }
-
     private Date getDateBeforeDays(int days) {
         long daysinmillis = 24 * 60 * 60 * 1000;
         long ms = System.currentTimeMillis() - (days * daysinmillis);
@@ -700,32 +741,23 @@ public class ImporterTest {
             mock(IdentityCertificateCurator.class), null, null,
             pki, null, null, mock(CertificateSerialCurator.class), null, i18n, null,
             null, su, null, this.mockSubReconciler);
-        File[] upstream = createUpstreamFiles();
+        IdentityCertificate idcert = mapper.readValue(
+            new File(classLoader.getResource("upstream/testidcert.json").toURI()),
+            IdentityCertificate.class);
         Owner owner = new Owner("admin", "Admin Owner");
         ConsumerDto consumer = new ConsumerDto("eb5e04bf-be27-44cf-abe3-0c0b1edd523e",
             "mymachine", new ConsumerType(ConsumerTypeEnum.CANDLEPIN), owner,
             "foo.example.com/subscription", "/candlepin", "access_mode");
-        File consumerfile = new File(folder.getRoot(), "consumer.json");
-        mapper.writeValue(consumerfile, consumer);
         ConflictOverrides forcedConflicts = mock(ConflictOverrides.class);
         when(forcedConflicts.isForced(any(Importer.Conflict.class))).thenReturn(false);
 
         Meta meta = new Meta("1.0", new Date(), "admin", "/candlepin/owners", null);
 
-        i.importConsumer(owner, consumerfile, upstream, forcedConflicts, meta);
+        i.importConsumer(owner, consumer, idcert, forcedConflicts, meta);
 
         verify(oc).merge(eq(owner));
     }
 
-    private File[] createUpstreamFiles() throws URISyntaxException {
-        File[] upstream = new File[2];
-        File idcertfile = new File(classLoader.getResource("upstream/testidcert.json").toURI());
-        File kpfile = new File(classLoader.getResource("upstream/keypair.pem").toURI());
-        upstream[0] = idcertfile;
-        upstream[1] = kpfile;
-        return upstream;
-    }
-
     private DistributorVersion createTestDistributerVersion() {
         DistributorVersion dVersion = new DistributorVersion("test-dist-ver");
         Set<DistributorVersionCapability> capabilities = new HashSet<DistributorVersionCapability>();
@@ -741,11 +773,10 @@ public class ImporterTest {
         DistributorVersionCurator dvc = mock(DistributorVersionCurator.class);
         Importer i = new Importer(null, null, null, null, null, null,
             null, null, null, null, null, null, i18n, dvc, null, su, null, this.mockSubReconciler);
-        File[] distVer = new File[1];
-        distVer[0] = new File(folder.getRoot(), "dist-ver.json");
-        mapper.writeValue(distVer[0], createTestDistributerVersion());
+        Set<DistributorVersion> distVers = new HashSet<DistributorVersion>();
+        distVers.add(createTestDistributerVersion());
 
-        i.importDistributorVersions(distVer);
+        i.importDistributorVersions(distVers);
 
         verify(dvc).create(any(DistributorVersion.class));
         verify(dvc, never()).merge(any(DistributorVersion.class));
@@ -758,11 +789,10 @@ public class ImporterTest {
             null, null, null, null, null, null, i18n, dvc, null, su, null, this.mockSubReconciler);
         when(dvc.findByName("test-dist-ver")).thenReturn(
             new DistributorVersion("test-dist-ver"));
-        File[] distVer = new File[1];
-        distVer[0] = new File(folder.getRoot(), "dist-ver.json");
-        mapper.writeValue(distVer[0], createTestDistributerVersion());
+        Set<DistributorVersion> distVers = new HashSet<DistributorVersion>();
+        distVers.add(createTestDistributerVersion());
 
-        i.importDistributorVersions(distVer);
+        i.importDistributorVersions(distVers);
 
         verify(dvc, never()).create(any(DistributorVersion.class));
         verify(dvc).merge(any(DistributorVersion.class));
@@ -783,33 +813,16 @@ public class ImporterTest {
         OwnerCurator oc = mock(OwnerCurator.class);
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
-        Map<String, File> importFiles = createAndSetImportFiles();
+        ManifestContents contents = getTestManifestContents();
+        contents.setProducts(null);
+        contents.setEntitlements(null);
+        contents.setDistributorVersions(null);
         Importer i = new Importer(null, null, ri, oc, null, null,
             null, null, config, emc, null, null, i18n, null, null, su, null, this.mockSubReconciler);
 
         ee.expect(RuntimeException.class);
         ee.expectMessage("Done with the test");
-        i.importObjects(owner, importFiles, co);
-    }
-
-    private Map<String, File> createAndSetImportFiles()
-        throws IOException, JsonGenerationException, JsonMappingException {
-        File[] rulesFiles = createMockJsFile(mockJsPath);
-        File ruleDir = mock(File.class);
-        when(ruleDir.listFiles()).thenReturn(rulesFiles);
-        File actualmeta = createFile("meta.json", "0.0.3", new Date(),
-            "test_user", "prefix");
-        Map<String, File> importFiles = getTestImportFiles();
-        importFiles.put(ImportFile.META.fileName(), actualmeta);
-        importFiles.put(ImportFile.RULES_FILE.fileName(), rulesFiles[0]);
-        importFiles.put(ImportFile.PRODUCTS.fileName(), null);
-        importFiles.put(ImportFile.ENTITLEMENTS.fileName(), null);
-        importFiles.put(ImportFile.DISTRIBUTOR_VERSIONS.fileName(), null);
-        File cTypes = mock(File.class);
-        when(cTypes.listFiles()).thenReturn(new File[]{});
-        importFiles.put(ImportFile.CONSUMER_TYPE.fileName(), cTypes);
-
-        return importFiles;
+        i.importObjects(owner, contents, co);
     }
 
     @Test
@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) 2009 - 2017 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync.file;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.candlepin.common.config.MapConfiguration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.ManifestFileRecord;
+import org.candlepin.model.ManifestFileRecordCurator;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FileSystemManifestServiceTest {
+
+    private static final String CONTENT = "manifest contents";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    @Mock private ManifestFileRecordCurator curator;
+
+    private File storeDir;
+    private FileSystemManifestService service;
+
+    @Before
+    public void setUp() throws Exception {
+        storeDir = folder.newFolder("store");
+        Map<String, String> props = new HashMap<String, String>();
+        props.put(ConfigProperties.MANIFEST_FILE_STORE_DIR, storeDir.getAbsolutePath());
+        props.put(ConfigProperties.MANIFEST_FILE_STORE_GRACE_PERIOD, "0");
+        service = new FileSystemManifestService(curator, new MapConfiguration(props));
+
+        when(curator.createRecord(any(ManifestFileType.class), anyString(), anyString(), anyString(),
+            anyString())).thenAnswer(new Answer<ManifestFileRecord>() {
+                @Override
+                public ManifestFileRecord answer(InvocationOnMock invocation) throws Throwable {
+                    Object[] args = invocation.getArguments();
+                    ManifestFileRecord record = new ManifestFileRecord((ManifestFileType) args[0],
+                        (String) args[1], (String) args[2], (String) args[3], null);
+                    record.setId("record-id");
+                    record.setContentHash((String) args[4]);
+                    return record;
+                }
+            });
+    }
+
+    private FileSystemManifestService createGracedService() {
+        Map<String, String> props = new HashMap<String, String>();
+        props.put(ConfigProperties.MANIFEST_FILE_STORE_DIR, storeDir.getAbsolutePath());
+        props.put(ConfigProperties.MANIFEST_FILE_STORE_GRACE_PERIOD, "3600");
+        return new FileSystemManifestService(curator, new MapConfiguration(props));
+    }
+
+    private void mockUncommittedRecord(String id, String hash) {
+        ManifestFileRecord record = new ManifestFileRecord(ManifestFileType.EXPORT, "export.zip",
+            "admin", "consumer-uuid", null);
+        record.setId(id);
+        record.setContentHash(hash);
+        when(curator.findFile(eq(id))).thenReturn(record);
+        when(curator.deleteById(eq(id))).thenReturn(true);
+
+        // The record being stored has not been committed, so it is never seen as a reference
+        when(curator.isContentHashReferenced(eq(hash))).thenReturn(false);
+    }
+
+    private File createManifest(String name) throws Exception {
+        File file = folder.newFile(name);
+        FileUtils.writeStringToFile(file, CONTENT);
+        return file;
+    }
+
+    @Test
+    public void storeWritesContentAddressedFile() throws Exception {
+        String hash = DigestUtils.sha256Hex(CONTENT);
+
+        ManifestFile stored = service.store(ManifestFileType.EXPORT, createManifest("export.zip"),
+            "admin", "consumer-uuid");
+
+        File contentFile = service.getContentFile(hash);
+        assertTrue(contentFile.exists());
+        assertEquals(CONTENT, FileUtils.readFileToString(contentFile));
+        assertEquals("export.zip", stored.getName());
+        assertEquals("consumer-uuid", stored.getTargetId());
+        verify(curator).createRecord(eq(ManifestFileType.EXPORT), eq("export.zip"), eq("admin"),
+            eq("consumer-uuid"), eq(hash));
+    }
+
+    @Test
+    public void identicalContentIsStoredOnce() throws Exception {
+        service.store(ManifestFileType.EXPORT, createManifest("a.zip"), "admin", "c1");
+        service.store(ManifestFileType.EXPORT, createManifest("b.zip"), "admin", "c2");
+
+        File hashDir = service.getContentFile(DigestUtils.sha256Hex(CONTENT)).getParentFile();
+        assertEquals(1, hashDir.list().length);
+    }
+
+    @Test
+    public void writeToCopiesStoredContent() throws Exception {
+        ManifestFile stored = service.store(ManifestFileType.EXPORT, createManifest("export.zip"),
+            "admin", "consumer-uuid");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stored.writeTo(out);
+        assertEquals(CONTENT, out.toString());
+    }
+
+    @Test
+    public void getReturnsDatabaseRecordWithoutContentHash() throws Exception {
+        ManifestFileRecord record = new ManifestFileRecord(ManifestFileType.EXPORT, "export.zip",
+            "admin", "consumer-uuid", null);
+        when(curator.findFile(eq("db-id"))).thenReturn(record);
+
+        assertSame(record, service.get("db-id"));
+    }
+
+    @Test
+    public void getReturnsNullWhenRecordNotFound() throws Exception {
+        assertNull(service.get("unknown"));
+    }
+
+    @Test
+    public void deleteExpiredRemovesUnreferencedContent() throws Exception {
+        String hash = DigestUtils.sha256Hex(CONTENT);
+        service.store(ManifestFileType.EXPORT, createManifest("export.zip"), "admin", "consumer-uuid");
+
+        Date expiry = new Date();
+        List<Object[]> expired = new ArrayList<Object[]>();
+        expired.add(new Object[] { "record-id", hash });
+        when(curator.findExpiredBlock(eq(expiry), eq(10))).thenReturn(expired);
+        when(curator.deleteByIds(eq(Arrays.asList("record-id")))).thenReturn(1);
+        when(curator.isContentHashReferenced(eq(hash))).thenReturn(false);
+
+        assertEquals(1, service.deleteExpired(expiry, 10));
+        assertFalse(service.getContentFile(hash).exists());
+    }
+
+    @Test
+    public void deleteKeepsContentStillReferenced() throws Exception {
+        String hash = DigestUtils.sha256Hex(CONTENT);
+        ManifestFile stored = service.store(ManifestFileType.EXPORT, createManifest("export.zip"),
+            "admin", "consumer-uuid");
+
+        ManifestFileRecord record = new ManifestFileRecord(ManifestFileType.EXPORT, "export.zip",
+            "admin", "consumer-uuid", null);
+        record.setContentHash(hash);
+        when(curator.findFile(eq(stored.getId()))).thenReturn(record);
+        when(curator.deleteById(eq(stored.getId()))).thenReturn(true);
+        when(curator.isContentHashReferenced(eq(hash))).thenReturn(true);
+
+        assertTrue(service.delete(stored.getId()));
+        assertTrue(service.getContentFile(hash).exists());
+    }
+
+    @Test
+    public void cleanupInterleavedWithStoreKeepsContentWithinGracePeriod() throws Exception {
+        final String hash = DigestUtils.sha256Hex(CONTENT);
+        final FileSystemManifestService graced = createGracedService();
+        graced.store(ManifestFileType.EXPORT, createManifest("old.zip"), "admin", "consumer-uuid");
+        mockUncommittedRecord("old-id", hash);
+
+        // Delete the only other record referencing the content, as a cleanup on another node would,
+        // after the content has been written but before the new record exists
+        doAnswer(new Answer<ManifestFileRecord>() {
+            @Override
+            public ManifestFileRecord answer(InvocationOnMock invocation) throws Throwable {
+                assertTrue(graced.delete("old-id"));
+                assertTrue(graced.getContentFile(hash).exists());
+
+                ManifestFileRecord record = new ManifestFileRecord(ManifestFileType.EXPORT,
+                    "new.zip", "admin", "consumer-uuid", null);
+                record.setId("new-id");
+                record.setContentHash(hash);
+                return record;
+            }
+        }).when(curator).createRecord(any(ManifestFileType.class), anyString(), anyString(),
+            anyString(), anyString());
+
+        ManifestFile stored = graced.store(ManifestFileType.EXPORT, createManifest("new.zip"), "admin",
+            "consumer-uuid");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stored.writeTo(out);
+        assertEquals(CONTENT, out.toString());
+    }
+
+    @Test
+    public void concurrentCleanupWaitsForStore() throws Exception {
+        final String hash = DigestUtils.sha256Hex(CONTENT);
+        final FileSystemManifestService graced = createGracedService();
+        graced.store(ManifestFileType.EXPORT, createManifest("old.zip"), "admin", "consumer-uuid");
+        mockUncommittedRecord("old-id", hash);
+
+        final Thread cleanup = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    graced.delete("old-id");
+                }
+                catch (ManifestFileServiceException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        doAnswer(new Answer<ManifestFileRecord>() {
+            @Override
+            public ManifestFileRecord answer(InvocationOnMock invocation) throws Throwable {
+                cleanup.start();
+
+                // The cleanup must block on the content, rather than remove it, while the
+                // record referencing it is being created
+                long deadline = System.currentTimeMillis() + 5000;
+                while (cleanup.getState() != Thread.State.WAITING &&
+                    System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+
+                assertEquals(Thread.State.WAITING, cleanup.getState());
+                assertTrue(graced.getContentFile(hash).exists());
+
+                ManifestFileRecord record = new ManifestFileRecord(ManifestFileType.EXPORT,
+                    "new.zip", "admin", "consumer-uuid", null);
+                record.setId("new-id");
+                record.setContentHash(hash);
+                return record;
+            }
+        }).when(curator).createRecord(any(ManifestFileType.class), anyString(), anyString(),
+            anyString(), anyString());
+
+        graced.store(ManifestFileType.EXPORT, createManifest("new.zip"), "admin", "consumer-uuid");
+        cleanup.join(5000);
+
+        assertFalse(cleanup.isAlive());
+        assertTrue(graced.getContentFile(hash).exists());
+    }
+
+    @Test
+    public void deleteExpiredSweepsUnreferencedContentPastGracePeriod() throws Exception {
+        String hash = DigestUtils.sha256Hex(CONTENT);
+        FileSystemManifestService graced = createGracedService();
+        graced.store(ManifestFileType.EXPORT, createManifest("export.zip"), "admin", "consumer-uuid");
+
+        File contentFile = graced.getContentFile(hash);
+        File tempFile = new File(contentFile.getParentFile(), hash + "123.tmp");
+        FileUtils.writeStringToFile(tempFile, CONTENT);
+
+        long expired = System.currentTimeMillis() - 7200000;
+        assertTrue(contentFile.setLastModified(expired));
+        assertTrue(tempFile.setLastModified(expired));
+
+        Date expiry = new Date();
+        when(curator.findExpiredBlock(eq(expiry), eq(10))).thenReturn(new ArrayList<Object[]>());
+        when(curator.isContentHashReferenced(eq(hash))).thenReturn(false);
+
+        assertEquals(0, graced.deleteExpired(expiry, 10));
+        assertFalse(contentFile.exists());
+        assertFalse(tempFile.exists());
+    }
+
+}